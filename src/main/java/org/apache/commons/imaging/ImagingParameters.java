@@ -16,6 +16,8 @@
  */
 package org.apache.commons.imaging;
 
+import java.util.concurrent.Executor;
+
 import org.apache.commons.imaging.common.BufferedImageFactory;
 
 /**
@@ -53,6 +55,12 @@ public class ImagingParameters<E extends ImagingParameters<E>> {
      */
     private PixelDensity pixelDensity;
 
+    /**
+     * Runs the independent parts of a read or write operation in parallel, for the formats that support it. Default is {@code null}, which means that all
+     * the work is done in the calling thread.
+     */
+    private Executor executor;
+
     /**
      * Returns this instance typed as the subclass type {@code E}.
      * <p>
@@ -73,6 +81,16 @@ public class ImagingParameters<E extends ImagingParameters<E>> {
         return bufferedImageFactory;
     }
 
+    /**
+     * Gets the executor used to run parts of a read or write operation in parallel.
+     *
+     * @return the executor, or {@code null} if all the work is done in the calling thread.
+     * @since 1.0-alpha6
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -90,6 +108,19 @@ public class ImagingParameters<E extends ImagingParameters<E>> {
         return asThis();
     }
 
+    /**
+     * Sets the executor used to run parts of a read or write operation in parallel, for example {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     * Formats that do not support parallel processing ignore it.
+     *
+     * @param executor the executor, or {@code null} to do all the work in the calling thread.
+     * @return {@code this} instance.
+     * @since 1.0-alpha6
+     */
+    public E setExecutor(final Executor executor) {
+        this.executor = executor;
+        return asThis();
+    }
+
     public E setFileName(final String fileName) {
         this.fileName = fileName;
         return asThis();
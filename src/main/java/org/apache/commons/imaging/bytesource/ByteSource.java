@@ -19,6 +19,7 @@ package org.apache.commons.imaging.bytesource;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Objects;
 
@@ -62,6 +63,19 @@ public class ByteSource {
         return new InputStreamByteSource(is, name);
     }
 
+    /**
+     * Creates a byte source that memory-maps a file. Reads at arbitrary positions and skips within input streams do not read the bytes in between, which
+     * makes it suited to large files that are read in pieces, such as tiled or multi-page TIFF and BigTIFF files. Files larger than 2 GB are supported.
+     *
+     * @param file the file to map.
+     * @return a byte source backed by the mapped file.
+     * @throws IOException if the file cannot be opened or mapped.
+     * @since 1.0-alpha6
+     */
+    public static ByteSource mapped(final Path file) throws IOException {
+        return new MappedByteSource(file);
+    }
+
     public static ByteSource path(final Path file) {
         return new ByteSource(new PathOrigin(file), Objects.toString(file.getFileName(), null));
     }
@@ -78,6 +92,20 @@ public class ByteSource {
         return origin.getByteArray(position, length);
     }
 
+    /**
+     * Gets a read-only buffer holding a range of bytes. Memory-mapped byte sources return a view of the mapping where possible; other byte sources copy the
+     * bytes.
+     *
+     * @param position the position of the first byte.
+     * @param length   the number of bytes.
+     * @return a read-only buffer positioned at the first byte.
+     * @throws IOException if the range cannot be read.
+     * @since 1.0-alpha6
+     */
+    public ByteBuffer getByteBuffer(final long position, final int length) throws IOException {
+        return ByteBuffer.wrap(getByteArray(position, length)).asReadOnlyBuffer();
+    }
+
     public final String getFileName() {
         return fileName;
     }
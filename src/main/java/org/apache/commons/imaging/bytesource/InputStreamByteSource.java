@@ -19,12 +19,13 @@ package org.apache.commons.imaging.bytesource;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
-import org.apache.commons.imaging.common.BinaryFunctions;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.build.AbstractOrigin.InputStreamOrigin;
 
@@ -33,23 +34,27 @@ final class InputStreamByteSource extends ByteSource {
     private final class Block {
 
         final byte[] bytes;
+        final long start;
         private Block next;
         private boolean triedNext;
 
-        Block(final byte[] bytes) {
+        Block(final byte[] bytes, final long start) {
             this.bytes = bytes;
+            this.start = start;
         }
 
         Block getNext() throws IOException {
-            if (null != next) {
+            synchronized (InputStreamByteSource.this) {
+                if (null != next) {
+                    return next;
+                }
+                if (triedNext) {
+                    return null;
+                }
+                triedNext = true;
+                next = readBlock();
                 return next;
             }
-            if (triedNext) {
-                return null;
-            }
-            triedNext = true;
-            next = readBlock();
-            return next;
         }
 
     }
@@ -153,8 +158,10 @@ final class InputStreamByteSource extends ByteSource {
     private static final int BLOCK_SIZE = IOUtils.DEFAULT_BUFFER_SIZE;
     private final InputStream inputStream;
     private Block headBlock;
+    private final List<Block> blocks = new ArrayList<>();
+    private long readLength;
     private byte[] readBuffer;
-    private long streamLength = -1;
+    private volatile long streamLength = -1;
 
     InputStreamByteSource(final InputStream inputStream, final String fileName) {
         super(new InputStreamOrigin(inputStream), fileName);
@@ -169,23 +176,40 @@ final class InputStreamByteSource extends ByteSource {
             throw new ImagingException(
                     "Could not read block (block start: " + position + ", block length: " + length + ", data length: " + streamLength + ").");
         }
-        final InputStream cis = getInputStream();
-        BinaryFunctions.skipBytes(cis, position);
+        // size() has read the whole stream, so the first block of the range is found by a binary search instead of by skipping from the start
         final byte[] bytes = Allocator.byteArray(length);
         int total = 0;
-        while (true) {
-            final int read = cis.read(bytes, total, bytes.length - total);
-            if (read < 1) {
-                throw new ImagingException("Could not read block.");
+        synchronized (this) {
+            int index = findBlock(position);
+            while (total < length) {
+                final Block block = blocks.get(index++);
+                final int from = (int) (position + total - block.start);
+                final int count = Math.min(length - total, block.bytes.length - from);
+                System.arraycopy(block.bytes, from, bytes, total, count);
+                total += count;
             }
-            total += read;
-            if (total >= length) {
-                return bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the index of the last block starting at or before the position.
+     */
+    private int findBlock(final long position) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            final int middle = low + high + 1 >>> 1;
+            if (blocks.get(middle).start <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
             }
         }
+        return low;
     }
 
-    private Block getFirstBlock() throws IOException {
+    private synchronized Block getFirstBlock() throws IOException {
         if (null == headBlock) {
             headBlock = readBlock();
         }
@@ -206,14 +230,18 @@ final class InputStreamByteSource extends ByteSource {
         if (read < 1) {
             return null;
         }
+        final Block block;
         if (read < BLOCK_SIZE) {
             // return a copy.
-            return new Block(Arrays.copyOf(readBuffer, read));
+            block = new Block(Arrays.copyOf(readBuffer, read), readLength);
+        } else {
+            // return current buffer.
+            block = new Block(readBuffer, readLength);
+            readBuffer = null;
         }
-        // return current buffer.
-        final byte[] result = readBuffer;
-        readBuffer = null;
-        return new Block(result);
+        readLength += read;
+        blocks.add(block);
+        return block;
     }
 
     @Override
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.bytesource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.io.build.AbstractOrigin.PathOrigin;
+
+/**
+ * A byte source backed by a memory-mapped file.
+ * <p>
+ * The file is mapped in segments, since a single {@link MappedByteBuffer} cannot exceed 2 GB, so files of any size can be read. Reads at a position copy
+ * directly from the mapping, and the input streams skip by moving their position, without opening the file again or reading the skipped bytes.
+ * </p>
+ * <p>
+ * The mapping is released when the byte source is garbage collected; the file should not be truncated while the byte source is in use.
+ * </p>
+ */
+final class MappedByteSource extends ByteSource {
+
+    private final class MappedInputStream extends InputStream {
+
+        private long position;
+        private long mark;
+
+        MappedInputStream(final long position) {
+            this.position = position;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+
+        @Override
+        public synchronized void mark(final int readLimit) {
+            mark = position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            final int b = 0xff & segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            final int count = (int) Math.min(len, size - position);
+            copy(position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+
+        @Override
+        public long skip(final long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            final long skipped = Math.min(n, size - position);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * The default segment size, 1 GB.
+     */
+    static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long size;
+
+    MappedByteSource(final Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Constructs a byte source that maps the file in segments of {@code 1 << segmentShift} bytes.
+     */
+    MappedByteSource(final Path path, final int segmentShift) throws IOException {
+        super(new PathOrigin(path), Objects.toString(path.getFileName(), null));
+        this.segmentShift = segmentShift;
+        final long segmentSize = 1L << segmentShift;
+        this.segmentMask = segmentSize - 1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            final long count = (size + segmentSize - 1) >>> segmentShift;
+            this.segments = new MappedByteBuffer[Allocator.check(Math.toIntExact(count))];
+            for (int i = 0; i < segments.length; i++) {
+                final long start = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+            }
+        }
+    }
+
+    private void checkRange(final long position, final int length) throws ImagingException {
+        // We include a separate check for int overflow.
+        if (position < 0 || length < 0 || position + length < 0 || position + length > size) {
+            throw new ImagingException("Could not read block (block start: " + position + ", block length: " + length + ", data length: " + size + ").");
+        }
+    }
+
+    private void copy(final long position, final byte[] dst, final int offset, final int length) {
+        long pos = position;
+        int off = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final ByteBuffer segment = segments[(int) (pos >>> segmentShift)].duplicate();
+            final int segmentOffset = (int) (pos & segmentMask);
+            final int count = Math.min(remaining, segment.limit() - segmentOffset);
+            segment.position(segmentOffset);
+            segment.get(dst, off, count);
+            pos += count;
+            off += count;
+            remaining -= count;
+        }
+    }
+
+    @Override
+    public byte[] getByteArray(final long position, final int length) throws IOException {
+        checkRange(position, length);
+        final byte[] bytes = Allocator.byteArray(length);
+        copy(position, bytes, 0, length);
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(final long position, final int length) throws IOException {
+        checkRange(position, length);
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        final int index = (int) (position >>> segmentShift);
+        final int segmentOffset = (int) (position & segmentMask);
+        if (segmentOffset + length <= segments[index].limit()) {
+            final ByteBuffer slice = segments[index].duplicate();
+            slice.position(segmentOffset);
+            slice.limit(segmentOffset + length);
+            return slice.slice().asReadOnlyBuffer();
+        }
+        // spans two segments
+        return ByteBuffer.wrap(getByteArray(position, length)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new MappedInputStream(0);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return size;
+    }
+}
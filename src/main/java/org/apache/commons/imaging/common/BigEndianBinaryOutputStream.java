@@ -19,11 +19,12 @@ package org.apache.commons.imaging.common;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteOrder;
 
 final class BigEndianBinaryOutputStream extends BinaryOutputStream {
 
     BigEndianBinaryOutputStream(final OutputStream os) {
-        super(os);
+        super(os, ByteOrder.BIG_ENDIAN);
     }
 
     @Override
@@ -47,4 +48,16 @@ final class BigEndianBinaryOutputStream extends BinaryOutputStream {
         write(0xff & value);
     }
 
+    @Override
+    public void write8Bytes(final long value) throws IOException {
+        write(0xff & (int) (value >> 56));
+        write(0xff & (int) (value >> 48));
+        write(0xff & (int) (value >> 40));
+        write(0xff & (int) (value >> 32));
+        write(0xff & (int) (value >> 24));
+        write(0xff & (int) (value >> 16));
+        write(0xff & (int) (value >> 8));
+        write(0xff & (int) value);
+    }
+
 }
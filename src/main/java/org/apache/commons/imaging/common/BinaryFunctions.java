@@ -295,7 +295,27 @@ public final class BinaryFunctions {
 
     public static long skipBytes(final InputStream is, final long skip, final String exMessage) throws IOException {
         try {
-            return IOUtils.skip(is, skip);
+            if (skip <= 0) {
+                return 0;
+            }
+            // Let streams that can seek, such as file and memory-mapped streams, skip without reading;
+            // read the rest if a stream stops skipping before the end. Streams may skip past their end,
+            // so the last byte is read to count only the bytes that were really there.
+            long skipped = 0;
+            while (skipped < skip - 1) {
+                final long n = is.skip(skip - 1 - skipped);
+                if (n <= 0) {
+                    break;
+                }
+                skipped += n;
+            }
+            if (skipped < skip - 1) {
+                skipped += IOUtils.skip(is, skip - 1 - skipped);
+            }
+            if (skipped == skip - 1 && is.read() >= 0) {
+                skipped++;
+            }
+            return skipped;
         } catch (final IOException e) {
             throw new IOException(exMessage, e);
         }
@@ -45,8 +45,22 @@ public abstract class BinaryOutputStream extends FilterOutputStream {
         return new LittleEndianBinaryOutputStream(outputStream);
     }
 
+    private final ByteOrder byteOrder;
+
     public BinaryOutputStream(final OutputStream outputStream) {
+        this(outputStream, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs an instance that writes the integers of {@link #write8Bytes(long)} in the given byte order.
+     *
+     * @param outputStream the stream to write to.
+     * @param byteOrder    the byte order of {@link #write4Bytes(int)}.
+     * @since 1.0-alpha6
+     */
+    protected BinaryOutputStream(final OutputStream outputStream, final ByteOrder byteOrder) {
         super(outputStream);
+        this.byteOrder = Objects.requireNonNull(byteOrder, "byteOrder");
     }
 
     public abstract void write2Bytes(int value) throws IOException;
@@ -54,4 +68,22 @@ public abstract class BinaryOutputStream extends FilterOutputStream {
     public abstract void write3Bytes(int value) throws IOException;
 
     public abstract void write4Bytes(int value) throws IOException;
+
+    /**
+     * Writes an eight-byte integer as two four-byte integers with {@link #write4Bytes(int)}, the most significant first in big-endian byte order and the
+     * least significant first in little-endian byte order. Streams constructed without a byte order are taken to be big-endian.
+     *
+     * @param value the value.
+     * @throws IOException if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public void write8Bytes(final long value) throws IOException {
+        if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
+            write4Bytes((int) value);
+            write4Bytes((int) (value >>> 32));
+        } else {
+            write4Bytes((int) (value >>> 32));
+            write4Bytes((int) value);
+        }
+    }
 }
@@ -164,6 +164,22 @@ public final class ByteConversions {
         }
     }
 
+    /**
+     * Encodes an array of eight-byte (long) integers into an array of bytes based on the specified byte order.
+     *
+     * @param values    the values to encode
+     * @param byteOrder the byte order to be used for encoding
+     * @return an array eight times the length of the values
+     * @since 1.0-alpha6
+     */
+    public static byte[] toBytes(final long[] values, final ByteOrder byteOrder) {
+        final byte[] result = Allocator.byteArray(values.length * 8L);
+        for (int i = 0; i < values.length; i++) {
+            toBytes(values[i], byteOrder, result, i * 8);
+        }
+        return result;
+    }
+
     public static byte[] toBytes(final RationalNumber value, final ByteOrder byteOrder) {
         final byte[] result = new byte[8];
         toBytes(value, byteOrder, result, 0);
@@ -331,7 +347,7 @@ public final class ByteConversions {
         return toLong(bytes, 0, byteOrder);
     }
 
-    private static long toLong(final byte[] bytes, final int offset, final ByteOrder byteOrder) {
+    public static long toLong(final byte[] bytes, final int offset, final ByteOrder byteOrder) {
         final long byte0 = 0xffL & bytes[offset + 0];
         final long byte1 = 0xffL & bytes[offset + 1];
         final long byte2 = 0xffL & bytes[offset + 2];
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.imaging.ImagingException;
+
+/**
+ * Runs tasks on an optional executor, with the calling thread taking part in the work.
+ * <p>
+ * Tasks are queued, and up to one worker per processor is handed to the executor to take tasks from the queue. The calling thread runs queued tasks itself
+ * when the queue is full and when it {@link #finish() finishes}, and then only waits for the tasks that workers have already started. All tasks are
+ * therefore run even if the executor never runs the workers, as happens when the calling thread is one of the executor's own threads, or when the executor
+ * is bounded or saturated.
+ * </p>
+ * <p>
+ * Without an executor, tasks are run in the calling thread as they are submitted. After a task fails, the tasks that have not been started are discarded,
+ * and the failure is thrown by {@link #finish()}: IOExceptions, RuntimeExceptions and Errors are rethrown unchanged, and other exceptions are wrapped in an
+ * {@link ImagingException}. Instances are used by a single calling thread.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class ConcurrentTasks {
+
+    /**
+     * A task for an index, as passed to {@link ConcurrentTasks#forEach(Executor, int, IndexedTask, String)}.
+     */
+    @FunctionalInterface
+    public interface IndexedTask {
+
+        /**
+         * Runs the task.
+         *
+         * @param index the index of the task.
+         * @throws IOException in the event of an I/O error or invalid data.
+         */
+        void run(int index) throws IOException;
+    }
+
+    /**
+     * A task.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        /**
+         * Runs the task.
+         *
+         * @throws IOException in the event of an I/O error or invalid data.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a task for every index from zero to {@code count - 1}. Each task must write to its own part of the output.
+     *
+     * @param executor    the executor, or null to run the tasks in order in the calling thread.
+     * @param count       the number of tasks.
+     * @param task        the task.
+     * @param description what the tasks do, for the message of the exception thrown if a task fails with a checked exception that is not an IOException.
+     * @throws ImagingException if a task fails with a checked exception that is not an IOException, which is the cause.
+     * @throws IOException      if a task fails with an IOException, or if the calling thread is interrupted while waiting.
+     */
+    public static void forEach(final Executor executor, final int count, final IndexedTask task, final String description)
+            throws ImagingException, IOException {
+        if (executor == null || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.run(i);
+            }
+            return;
+        }
+        final ConcurrentTasks tasks = new ConcurrentTasks(executor, Integer.MAX_VALUE, description);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            tasks.submit(() -> task.run(index));
+        }
+        tasks.finish();
+    }
+
+    private final Executor executor;
+    private final int maxQueued;
+    private final int maxWorkers;
+    private final String description;
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private int workers;
+    private int running;
+    private Throwable failure;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param executor    the executor, or null to run the tasks in the calling thread.
+     * @param maxQueued   the number of tasks that may wait in the queue before {@link #submit(Task)} runs one in the calling thread.
+     * @param description what the tasks do, for the message of the exception thrown if a task fails with a checked exception that is not an IOException.
+     */
+    public ConcurrentTasks(final Executor executor, final int maxQueued, final String description) {
+        if (maxQueued < 1) {
+            throw new IllegalArgumentException("Invalid queue size " + maxQueued);
+        }
+        this.executor = executor;
+        this.maxQueued = maxQueued;
+        this.maxWorkers = Runtime.getRuntime().availableProcessors();
+        this.description = description;
+    }
+
+    /**
+     * Runs the queued tasks in the calling thread, waits for the tasks started by workers and throws the first failure, if any.
+     *
+     * @throws ImagingException if a task failed with a checked exception that is not an IOException, which is the cause.
+     * @throws IOException      if a task failed with an IOException, or if the calling thread is interrupted while waiting.
+     */
+    public void finish() throws ImagingException, IOException {
+        for (Task task = take(); task != null; task = take()) {
+            run(task);
+        }
+        synchronized (this) {
+            try {
+                while (running > 0) {
+                    wait();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                final InterruptedIOException iioe = new InterruptedIOException("Interrupted while waiting for " + description);
+                iioe.initCause(e);
+                throw iioe;
+            }
+        }
+        throwFailure();
+    }
+
+    private void run(final Task task) {
+        try {
+            task.run();
+        } catch (final Throwable t) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = t;
+                }
+                queue.clear();
+            }
+        } finally {
+            synchronized (this) {
+                if (--running == 0) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a task. If more tasks than the queue size are then waiting, the calling thread runs the oldest ones; without an executor, the task itself is run.
+     *
+     * @param task the task.
+     * @throws ImagingException if a task failed with a checked exception that is not an IOException, which is the cause.
+     * @throws IOException      if a task failed with an IOException.
+     */
+    public void submit(final Task task) throws ImagingException, IOException {
+        throwFailure();
+        if (executor == null) {
+            synchronized (this) {
+                running++;
+            }
+            run(task);
+            throwFailure();
+            return;
+        }
+        final boolean startWorker;
+        synchronized (this) {
+            queue.add(task);
+            startWorker = workers < maxWorkers;
+            if (startWorker) {
+                workers++;
+            }
+        }
+        if (startWorker) {
+            try {
+                executor.execute(this::work);
+            } catch (final RejectedExecutionException e) {
+                // the calling thread runs the task instead
+                synchronized (this) {
+                    workers--;
+                }
+            }
+        }
+        while (size() > maxQueued) {
+            final Task queued = take();
+            if (queued != null) {
+                run(queued);
+            }
+        }
+        throwFailure();
+    }
+
+    private synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Takes a task from the queue, counting it as running, so that {@link #finish()} cannot miss a task between its removal from the queue and its start.
+     */
+    private synchronized Task take() {
+        final Task task = queue.poll();
+        if (task != null) {
+            running++;
+        }
+        return task;
+    }
+
+    /**
+     * Takes a task from the queue for a worker, or retires the worker if the queue is empty, so that {@link #submit(Task)} starts a new worker for the next
+     * task.
+     */
+    private synchronized Task takeOrRetire() {
+        final Task task = take();
+        if (task == null) {
+            workers--;
+        }
+        return task;
+    }
+
+    private void throwFailure() throws ImagingException, IOException {
+        final Throwable t;
+        synchronized (this) {
+            t = failure;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new ImagingException("Failed to run " + description, t);
+        }
+    }
+
+    private void work() {
+        for (Task task = takeOrRetire(); task != null; task = takeOrRetire()) {
+            run(task);
+        }
+    }
+}
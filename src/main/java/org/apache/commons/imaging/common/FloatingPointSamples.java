@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import java.nio.ByteOrder;
+
+/**
+ * Converts floating-point samples: IEEE-754 half-precision values, and rows of samples to and from the floating-point predictor of TIFF Technical Note 3.
+ * <p>
+ * The predictor stores the bytes of a row grouped by significance, the most significant byte of every sample first, and replaces each byte by its difference
+ * from the previous one. The layout does not depend on the byte order of the file.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class FloatingPointSamples {
+
+    /**
+     * Undoes the floating-point predictor for a row of samples.
+     *
+     * @param bytes          the bytes written with the predictor; these are not modified.
+     * @param offset         the offset of the row in {@code bytes}.
+     * @param count          the number of samples in the row.
+     * @param bytesPerSample the size of a sample, 2, 4 or 8 bytes.
+     * @param byteOrder      the byte order of the samples written to {@code row}.
+     * @param row            receives the {@code count * bytesPerSample} bytes of the samples.
+     */
+    public static void decodePredictor(final byte[] bytes, final int offset, final int count, final int bytesPerSample, final ByteOrder byteOrder,
+            final byte[] row) {
+        final boolean bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        byte sum = 0;
+        int i = offset;
+        for (int significance = 0; significance < bytesPerSample; significance++) {
+            int index = bigEndian ? significance : bytesPerSample - 1 - significance;
+            for (int j = 0; j < count; j++, index += bytesPerSample) {
+                sum += bytes[i++];
+                row[index] = sum;
+            }
+        }
+    }
+
+    /**
+     * Applies the floating-point predictor to a row of samples, in place.
+     *
+     * @param bytes          the samples, replaced by the bytes to write.
+     * @param offset         the offset of the row in {@code bytes}.
+     * @param count          the number of samples in the row.
+     * @param bytesPerSample the size of a sample, 2, 4 or 8 bytes.
+     * @param byteOrder      the byte order of the samples in {@code bytes}.
+     * @param scratch        a buffer of at least {@code count * bytesPerSample} bytes.
+     */
+    public static void encodePredictor(final byte[] bytes, final int offset, final int count, final int bytesPerSample, final ByteOrder byteOrder,
+            final byte[] scratch) {
+        final boolean bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        int i = 0;
+        for (int significance = 0; significance < bytesPerSample; significance++) {
+            int index = offset + (bigEndian ? significance : bytesPerSample - 1 - significance);
+            for (int j = 0; j < count; j++, index += bytesPerSample) {
+                scratch[i++] = bytes[index];
+            }
+        }
+        byte previous = 0;
+        for (int k = 0; k < i; k++) {
+            bytes[offset + k] = (byte) (scratch[k] - previous);
+            previous = scratch[k];
+        }
+    }
+
+    /**
+     * Converts a float to the nearest half-precision value, rounding ties to even. Values too large for half precision become infinite.
+     *
+     * @param value the value.
+     * @return the 16 bits of the half-precision value.
+     */
+    public static int floatToHalf(final float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = bits >>> 16 & 0x8000;
+        final int exponent = (bits >>> 23 & 0xff) - 112;
+        final int mantissa = bits & 0x7fffff;
+        if (exponent == 0xff - 112) {
+            // infinity, or NaN keeping the upper mantissa bits and staying a NaN
+            return sign | 0x7c00 | (mantissa == 0 ? 0 : 0x200 | mantissa >>> 13);
+        }
+        if (exponent >= 0x1f) {
+            return sign | 0x7c00;
+        }
+        if (exponent <= 0) {
+            // subnormal, or zero if less than half the smallest subnormal
+            if (exponent < -10) {
+                return sign;
+            }
+            return sign | roundShift(mantissa | 0x800000, 14 - exponent);
+        }
+        // a carry out of the mantissa correctly increments the exponent, up to infinity
+        return sign | roundShift(exponent << 23 | mantissa, 13);
+    }
+
+    /**
+     * Converts a half-precision value to a float.
+     *
+     * @param half the 16 bits of the half-precision value.
+     * @return the value as a float, which represents it exactly.
+     */
+    public static float halfToFloat(final int half) {
+        final int sign = (half & 0x8000) << 16;
+        final int exponent = half >>> 10 & 0x1f;
+        final int mantissa = half & 0x3ff;
+        if (exponent == 0x1f) {
+            // infinity or NaN
+            return Float.intBitsToFloat(sign | 0x7f800000 | mantissa << 13);
+        }
+        if (exponent == 0) {
+            // zero or subnormal
+            final float magnitude = mantissa * 0x1p-24f;
+            return sign == 0 ? magnitude : -magnitude;
+        }
+        return Float.intBitsToFloat(sign | exponent + 112 << 23 | mantissa << 13);
+    }
+
+    /**
+     * Shifts a value right, rounding to nearest and ties to even.
+     */
+    private static int roundShift(final int value, final int shift) {
+        final int result = value >>> shift;
+        final int remainder = value & (1 << shift) - 1;
+        final int half = 1 << shift - 1;
+        return remainder > half || remainder == half && (result & 1) != 0 ? result + 1 : result;
+    }
+
+    private FloatingPointSamples() {
+    }
+}
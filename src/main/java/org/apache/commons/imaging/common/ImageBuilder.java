@@ -270,4 +270,22 @@ public class ImageBuilder {
         }
         data[index] = argb;
     }
+
+    /**
+     * Sets the RGB or ARGB values of a run of pixels within one row of the image builder pixel field. The bounds are checked once for the whole run.
+     *
+     * @param x      the X coordinate of the first pixel to be set.
+     * @param y      the Y coordinate of the row.
+     * @param argb   the RGB or ARGB values to be stored.
+     * @param offset the index of the first value in {@code argb}.
+     * @param count  the number of pixels to set.
+     * @throws IllegalArgumentException if the run is not contained in the row or in {@code argb}.
+     * @since 1.0-alpha6
+     */
+    public void setRgbRow(final int x, final int y, final int[] argb, final int offset, final int count) {
+        if (x < 0 || y < 0 || y >= height || count < 0 || x > width - count || offset < 0 || offset > argb.length - count) {
+            throw new IllegalArgumentException("setRgbRow: Illegal array index.");
+        }
+        System.arraycopy(argb, offset, data, y * width + x, count);
+    }
 }
@@ -16,11 +16,14 @@
  */
 package org.apache.commons.imaging.common;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.imaging.ImagingException;
 
@@ -32,9 +35,57 @@ import org.apache.commons.imaging.ImagingException;
  * <p>
  * <a href="https://www.ietf.org/rfc/rfc1951.txt">RFC 1951 - DEFLATE Compressed Data Format Specification version 1.3</a>
  * </p>
+ *
+ * <p>
+ * Inflaters and deflaters hold native zlib memory that is only freed by {@code end()}, or else when they are finalized. Each thread therefore keeps one idle
+ * inflater and one idle deflater, which {@link #acquireInflater()} and {@link #acquireDeflater(int)} hand out again. A released inflater or deflater is reset
+ * and kept if its thread has none idle, and ended at once otherwise.
+ * </p>
  */
 public final class ZlibDeflate {
 
+    private static final byte[] EMPTY = {};
+
+    private static final ThreadLocal<Inflater> IDLE_INFLATER = new ThreadLocal<>();
+
+    private static final ThreadLocal<Deflater> IDLE_DEFLATER = new ThreadLocal<>();
+
+    /**
+     * Gets a deflater for the zlib format, the idle one of the current thread if there is one. It must be given back with {@link #releaseDeflater(Deflater)}
+     * once the data is compressed.
+     *
+     * @param level the compression level, as for {@link Deflater#setLevel(int)}.
+     * @return a deflater that has not been given any data.
+     * @since 1.0-alpha6
+     */
+    public static Deflater acquireDeflater(final int level) {
+        final Deflater deflater = IDLE_DEFLATER.get();
+        if (deflater == null) {
+            return new Deflater(level);
+        }
+        IDLE_DEFLATER.set(null);
+        deflater.setLevel(level);
+        // the new level takes effect on the next call, which would otherwise produce no output
+        deflater.deflate(EMPTY);
+        return deflater;
+    }
+
+    /**
+     * Gets an inflater for the zlib format, the idle one of the current thread if there is one. It must be given back with
+     * {@link #releaseInflater(Inflater)} once the data is decompressed.
+     *
+     * @return an inflater that has not been given any data.
+     * @since 1.0-alpha6
+     */
+    public static Inflater acquireInflater() {
+        final Inflater inflater = IDLE_INFLATER.get();
+        if (inflater == null) {
+            return new Inflater();
+        }
+        IDLE_INFLATER.set(null);
+        return inflater;
+    }
+
     /**
      * Compress the byte[] using ZLIB deflate compression.
      *
@@ -44,13 +95,54 @@ public final class ZlibDeflate {
      * @see DeflaterOutputStream
      */
     public static byte[] compress(final byte[] bytes) throws ImagingException {
-        final ByteArrayOutputStream out = new ByteArrayOutputStream(Allocator.checkByteArray(bytes.length / 2));
-        try (DeflaterOutputStream compressOut = new DeflaterOutputStream(out)) {
-            compressOut.write(bytes);
-        } catch (final IOException e) {
-            throw new ImagingException("Unable to compress image", e);
+        final Deflater deflater = acquireDeflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] out = Allocator.byteArray(Math.max(64, bytes.length / 2));
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = grow(out);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    /**
+     * Decompresses a whole zlib stream of unknown uncompressed size.
+     *
+     * @param bytes the compressed bytes.
+     * @return the decompressed bytes.
+     * @throws ImagingException if the bytes are not a complete zlib stream.
+     * @since 1.0-alpha6
+     */
+    public static byte[] decompress(final byte[] bytes) throws ImagingException {
+        final Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] out = Allocator.byteArray(Math.max(64, 2L * bytes.length));
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == out.length) {
+                    out = grow(out);
+                }
+                final int inflated = inflater.inflate(out, length, out.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ImagingException("Unable to decompress: the zlib stream is incomplete");
+                }
+                length += inflated;
+            }
+            return Arrays.copyOf(out, length);
+        } catch (final DataFormatException e) {
+            throw new ImagingException("Unable to decompress", e);
+        } finally {
+            releaseInflater(inflater);
         }
-        return out.toByteArray();
     }
 
     /**
@@ -63,14 +155,103 @@ public final class ZlibDeflate {
      * @see Inflater
      */
     public static byte[] decompress(final byte[] bytes, final int expectedSize) throws ImagingException {
+        final byte[] result = Allocator.byteArray(expectedSize);
+        decompress(bytes, result, 0, expectedSize);
+        return result;
+    }
+
+    /**
+     * Decompresses into a caller-supplied buffer, as far as the stream or the buffer goes. Bytes of the buffer that the stream does not reach are left as
+     * they are.
+     *
+     * @param bytes  the compressed bytes.
+     * @param output the buffer to decompress into.
+     * @param offset the position in the buffer of the first decompressed byte.
+     * @param length the largest number of bytes to decompress.
+     * @return the number of bytes decompressed.
+     * @throws ImagingException if the bytes could not be decompressed.
+     * @since 1.0-alpha6
+     */
+    public static int decompress(final byte[] bytes, final byte[] output, final int offset, final int length) throws ImagingException {
+        final Inflater inflater = acquireInflater();
         try {
-            final Inflater inflater = new Inflater();
             inflater.setInput(bytes);
-            final byte[] result = Allocator.byteArray(expectedSize);
-            inflater.inflate(result);
-            return result;
+            int total = 0;
+            while (total < length) {
+                final int inflated = inflater.inflate(output, offset + total, length - total);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += inflated;
+            }
+            return total;
         } catch (final DataFormatException e) {
             throw new ImagingException("Unable to decompress image", e);
+        } finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    private static byte[] grow(final byte[] bytes) {
+        final byte[] result = Allocator.byteArray(2L * bytes.length);
+        System.arraycopy(bytes, 0, result, 0, bytes.length);
+        return result;
+    }
+
+    /**
+     * Creates a stream that decompresses a zlib stream with a pooled inflater, which is released when the stream is closed.
+     *
+     * @param in the compressed stream.
+     * @return the decompressing stream.
+     * @since 1.0-alpha6
+     */
+    public static InflaterInputStream newInflaterInputStream(final InputStream in) {
+        return new InflaterInputStream(in, acquireInflater()) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        releaseInflater(inf);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Gives back a deflater from {@link #acquireDeflater(int)}. It is reset and kept for the next use on the current thread, or ended if the thread already
+     * keeps one. The deflater must not be used afterwards.
+     *
+     * @param deflater the deflater.
+     * @since 1.0-alpha6
+     */
+    public static void releaseDeflater(final Deflater deflater) {
+        if (IDLE_DEFLATER.get() == null) {
+            deflater.reset();
+            IDLE_DEFLATER.set(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Gives back an inflater from {@link #acquireInflater()}. It is reset and kept for the next use on the current thread, or ended if the thread already
+     * keeps one. The inflater must not be used afterwards.
+     *
+     * @param inflater the inflater.
+     * @since 1.0-alpha6
+     */
+    public static void releaseInflater(final Inflater inflater) {
+        if (IDLE_INFLATER.get() == null) {
+            inflater.reset();
+            IDLE_INFLATER.set(inflater);
+        } else {
+            inflater.end();
         }
     }
 
@@ -20,6 +20,7 @@ import static org.apache.commons.imaging.common.BinaryFunctions.read2Bytes;
 import static org.apache.commons.imaging.common.BinaryFunctions.read4Bytes;
 import static org.apache.commons.imaging.common.BinaryFunctions.readByte;
 import static org.apache.commons.imaging.common.BinaryFunctions.readBytes;
+import static org.apache.commons.imaging.common.BinaryFunctions.skipBytes;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
@@ -573,8 +574,8 @@ public class BmpImageParser extends AbstractImageParser<BmpImagingParameters> {
             throw new ImagingException("BMP has invalid image data offset: " + bhi.bitmapDataOffset + " (expected: " + expectedDataOffset + ", paletteLength: "
                     + paletteLength + ", headerSize: " + headerSize + ")");
         }
-        if (extraBytes > 0) {
-            readBytes("BitmapDataOffset", is, extraBytes, "Not a Valid BMP File");
+        if (extraBytes > 0 && skipBytes(is, extraBytes, "Not a Valid BMP File") != extraBytes) {
+            throw new IOException("Not a Valid BMP File, name: BitmapDataOffset, length: " + extraBytes);
         }
 
         final int imageDataSize = bhi.height * imageLineLength;
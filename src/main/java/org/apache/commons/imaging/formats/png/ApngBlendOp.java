@@ -14,21 +14,23 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.apache.commons.imaging.formats.tiff.itu_t4;
+package org.apache.commons.imaging.formats.png;
 
-import static org.junit.jupiter.api.Assertions.assertNotEquals;
-
-import org.apache.commons.imaging.ImagingException;
-import org.junit.jupiter.api.Test;
-
-public class HuffmanTreeExceptionTest {
-
-    @Test
-    public void testCreatesHuffmanTreeExceptionTakingString() {
-        final ImagingException huffmanTreeException = new ImagingException("");
-        final ImagingException huffmanTreeExceptionTwo = new ImagingException("", huffmanTreeException);
+/**
+ * APNG frame blend operations, which determine how a frame is combined with the output buffer.
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification#.60fcTL.60:_The_Frame_Control_Chunk">APNG Specification - The Frame Control Chunk</a>
+ * @since 1.0-alpha6
+ */
+public enum ApngBlendOp {
 
-        assertNotEquals(huffmanTreeExceptionTwo, huffmanTreeException);
-    }
+    /**
+     * All color components of the frame, including alpha, overwrite the frame's region of the output buffer.
+     */
+    SOURCE,
 
+    /**
+     * The frame is composited onto the output buffer using the alpha channel ("over" operator).
+     */
+    OVER
 }
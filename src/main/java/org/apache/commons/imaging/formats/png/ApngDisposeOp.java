@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+/**
+ * APNG frame disposal operations, applied to the output buffer after a frame has been rendered and before the next one is.
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification#.60fcTL.60:_The_Frame_Control_Chunk">APNG Specification - The Frame Control Chunk</a>
+ * @since 1.0-alpha6
+ */
+public enum ApngDisposeOp {
+
+    /**
+     * No disposal is done; the contents of the output buffer are left as is.
+     */
+    NONE,
+
+    /**
+     * The frame's region of the output buffer is cleared to fully transparent black.
+     */
+    BACKGROUND,
+
+    /**
+     * The frame's region of the output buffer is reverted to its contents before the frame was rendered.
+     */
+    PREVIOUS
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A frame of an animated PNG, as rendered onto the full canvas after applying the blend operations of all frames up to and including this one.
+ *
+ * @see ApngFrameReader
+ * @since 1.0-alpha6
+ */
+public class ApngFrame {
+
+    private final BufferedImage image;
+    private final int xOffset;
+    private final int yOffset;
+    private final int width;
+    private final int height;
+    private final int delayNum;
+    private final int delayDen;
+    private final ApngDisposeOp disposeOp;
+    private final ApngBlendOp blendOp;
+
+    ApngFrame(final BufferedImage image, final int xOffset, final int yOffset, final int width, final int height, final int delayNum, final int delayDen,
+            final ApngDisposeOp disposeOp, final ApngBlendOp blendOp) {
+        this.image = image;
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.width = width;
+        this.height = height;
+        this.delayNum = delayNum;
+        this.delayDen = delayDen;
+        this.disposeOp = disposeOp;
+        this.blendOp = blendOp;
+    }
+
+    public ApngBlendOp getBlendOp() {
+        return blendOp;
+    }
+
+    /**
+     * Gets the time this frame is displayed, in milliseconds.
+     *
+     * @return the frame delay in milliseconds.
+     */
+    public long getDelayMillis() {
+        final int den = delayDen == 0 ? 100 : delayDen;
+        return delayNum * 1000L / den;
+    }
+
+    public ApngDisposeOp getDisposeOp() {
+        return disposeOp;
+    }
+
+    /**
+     * Gets the height of the region updated by this frame.
+     *
+     * @return the height of the frame region.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the fully composited canvas after this frame was rendered.
+     *
+     * @return an image with the size of the whole animation.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Gets the width of the region updated by this frame.
+     *
+     * @return the width of the frame region.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    public int getXOffset() {
+        return xOffset;
+    }
+
+    public int getYOffset() {
+        return yOffset;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.formats.png.chunks.PngChunk;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkActl;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkFctl;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkFdat;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkIhdr;
+
+/**
+ * Reads the frames of an animated PNG one at a time, while streaming through the file.
+ * <p>
+ * Only the canvas, the data of the current frame and, for {@link ApngDisposeOp#PREVIOUS}, a copy of the region it covers are kept in memory, so long
+ * animations can be processed without decoding every frame up front. For a PNG without an {@code acTL} chunk, the image is returned as a single frame.
+ * </p>
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification">APNG Specification</a>
+ * @since 1.0-alpha6
+ */
+public class ApngFrameReader implements Closeable {
+
+    private final PngImageParser parser;
+    private final InputStream is;
+    private final PngImagingParameters params;
+    private final PngImageParser.DecodingContext decodingContext;
+    private final PngChunkActl pngChunkACTL;
+    private final int canvasWidth;
+    private final int canvasHeight;
+    private final int[] canvas;
+    private PngChunk pending;
+    private int framesRead;
+    private int lastSequenceNumber = -1;
+    private boolean ended;
+
+    ApngFrameReader(final PngImageParser parser, final InputStream is, final PngImagingParameters params) throws ImagingException, IOException {
+        this.parser = parser;
+        this.is = is;
+        this.params = params;
+
+        final List<PngChunk> chunks = new ArrayList<>();
+        PngChunkActl actl = null;
+        while (true) {
+            final PngChunk chunk = readChunk();
+            final int chunkType = chunk.getChunkType();
+            if (chunkType == ChunkType.IDAT.value || chunkType == ChunkType.fcTL.value) {
+                pending = chunk;
+                break;
+            }
+            if (chunkType == ChunkType.IEND.value) {
+                throw new ImagingException("PNG missing image data");
+            }
+            if (chunkType == ChunkType.acTL.value) {
+                if (actl != null) {
+                    throw new ImagingException("APNG contains more than one acTL chunk");
+                }
+                actl = (PngChunkActl) chunk;
+            }
+            chunks.add(chunk);
+        }
+        this.pngChunkACTL = actl;
+        this.decodingContext = parser.getDecodingContext(chunks);
+
+        final PngChunkIhdr pngChunkIHDR = decodingContext.pngChunkIHDR;
+        this.canvasWidth = pngChunkIHDR.getWidth();
+        this.canvasHeight = pngChunkIHDR.getHeight();
+        this.canvas = Allocator.intArray(Allocator.check((long) canvasWidth * canvasHeight, 4));
+    }
+
+    private static int blendOver(final int src, final int dst) {
+        final int srcAlpha = src >>> 24;
+        if (srcAlpha == 0xff) {
+            return src;
+        }
+        if (srcAlpha == 0) {
+            return dst;
+        }
+        final int dstWeight = (dst >>> 24) * (0xff - srcAlpha);
+        final int srcWeight = srcAlpha * 0xff;
+        final int outWeight = srcWeight + dstWeight;
+
+        int result = (outWeight + 0x7f) / 0xff << 24;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            final int s = 0xff & src >> shift;
+            final int d = 0xff & dst >> shift;
+            result |= (s * srcWeight + d * dstWeight + outWeight / 2) / outWeight << shift;
+        }
+        return result;
+    }
+
+    private void checkSequenceNumber(final int sequenceNumber) throws ImagingException {
+        if (params != null && params.isStrict() && sequenceNumber != lastSequenceNumber + 1) {
+            throw new ImagingException("APNG: expected sequence number " + (lastSequenceNumber + 1) + " but found " + sequenceNumber);
+        }
+        lastSequenceNumber = sequenceNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+    /**
+     * Gets the number of frames declared by the {@code acTL} chunk.
+     *
+     * @return the number of frames, or 1 if the image is not animated.
+     */
+    public int getFrameCount() {
+        return pngChunkACTL == null ? 1 : pngChunkACTL.getNumFrames();
+    }
+
+    /**
+     * Gets the number of times the animation should be played.
+     *
+     * @return the number of plays, or 0 to loop indefinitely.
+     */
+    public int getPlayCount() {
+        return pngChunkACTL == null ? 1 : pngChunkACTL.getNumPlays();
+    }
+
+    /**
+     * Tests whether the image has an {@code acTL} chunk.
+     *
+     * @return true if the image is an animated PNG.
+     */
+    public boolean isAnimated() {
+        return pngChunkACTL != null;
+    }
+
+    private PngChunk readChunk() throws ImagingException, IOException {
+        final int length = BinaryFunctions.read4Bytes("Length", is, "Not a Valid PNG File", ByteOrder.BIG_ENDIAN);
+        if (length < 0) {
+            throw new ImagingException("Invalid PNG chunk length: " + length);
+        }
+        final int chunkType = BinaryFunctions.read4Bytes("ChunkType", is, "Not a Valid PNG File", ByteOrder.BIG_ENDIAN);
+        final byte[] bytes = BinaryFunctions.readBytes("Chunk Data", is, length, "Not a Valid PNG File: Couldn't read Chunk Data.");
+        final int crc = BinaryFunctions.read4Bytes("CRC", is, "Not a Valid PNG File", ByteOrder.BIG_ENDIAN);
+        if (params != null && params.isStrict()) {
+            PngChunkIndex.verifyCrc(chunkType, bytes, 0, length, crc);
+        }
+        return ChunkType.makeChunk(length, chunkType, crc, bytes);
+    }
+
+    /**
+     * Reads, decodes and renders the next frame.
+     *
+     * @return the next frame, or {@code null} if there are no more frames.
+     * @throws ImagingException if the image data is invalid.
+     * @throws IOException      if it fails to read the input stream.
+     */
+    public ApngFrame readFrame() throws ImagingException, IOException {
+        if (ended) {
+            return null;
+        }
+
+        PngChunkFctl fctl = null;
+        boolean defaultImage = false;
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        while (true) {
+            final PngChunk chunk = pending != null ? pending : readChunk();
+            pending = null;
+            final int chunkType = chunk.getChunkType();
+
+            if (chunkType == ChunkType.fcTL.value) {
+                if (fctl != null) {
+                    pending = chunk;
+                    break;
+                }
+                fctl = (PngChunkFctl) chunk;
+                checkSequenceNumber(fctl.getSequenceNumber());
+            } else if (chunkType == ChunkType.IDAT.value) {
+                if (fctl != null || pngChunkACTL == null) {
+                    // the default image is part of the animation, or the only image
+                    defaultImage = fctl == null;
+                    data.write(chunk.getBytes());
+                }
+            } else if (chunkType == ChunkType.fdAT.value) {
+                if (fctl == null) {
+                    throw new ImagingException("APNG: fdAT chunk without preceding fcTL chunk");
+                }
+                final PngChunkFdat fdat = (PngChunkFdat) chunk;
+                checkSequenceNumber(fdat.getSequenceNumber());
+                data.write(fdat.getFrameData());
+            } else if (chunkType == ChunkType.IEND.value) {
+                ended = true;
+                break;
+            }
+        }
+
+        if (fctl == null && !defaultImage) {
+            return null;
+        }
+        if (data.size() == 0) {
+            throw new ImagingException("APNG: frame " + framesRead + " has no image data");
+        }
+
+        final int x = fctl == null ? 0 : fctl.getXOffset();
+        final int y = fctl == null ? 0 : fctl.getYOffset();
+        final int width = fctl == null ? canvasWidth : fctl.getWidth();
+        final int height = fctl == null ? canvasHeight : fctl.getHeight();
+        final int delayNum = fctl == null ? 0 : fctl.getDelayNum();
+        final int delayDen = fctl == null ? 0 : fctl.getDelayDen();
+        final ApngDisposeOp disposeOp = fctl == null ? ApngDisposeOp.NONE : fctl.getDisposeOp();
+        final ApngBlendOp blendOp = fctl == null ? ApngBlendOp.SOURCE : fctl.getBlendOp();
+        if (width <= 0 || height <= 0 || x < 0 || y < 0 || (long) x + width > canvasWidth || (long) y + height > canvasHeight) {
+            throw new ImagingException("APNG: frame " + framesRead + " region " + width + "x" + height + "+" + x + "+" + y + " exceeds canvas " + canvasWidth
+                    + "x" + canvasHeight);
+        }
+
+        final BufferedImage frameImage = parser.decodeImageData(decodingContext, width, height, data.toByteArray(), params);
+        final int[] pixels = frameImage.getRGB(0, 0, width, height, null, 0, width);
+
+        // the first frame has no previous canvas to revert to
+        final ApngDisposeOp effectiveDisposeOp = disposeOp == ApngDisposeOp.PREVIOUS && framesRead == 0 ? ApngDisposeOp.BACKGROUND : disposeOp;
+        int[] previous = null;
+        if (effectiveDisposeOp == ApngDisposeOp.PREVIOUS) {
+            previous = Allocator.intArray(width * height);
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(canvas, (y + row) * canvasWidth + x, previous, row * width, width);
+            }
+        }
+
+        for (int row = 0; row < height; row++) {
+            final int canvasOffset = (y + row) * canvasWidth + x;
+            if (blendOp == ApngBlendOp.SOURCE) {
+                System.arraycopy(pixels, row * width, canvas, canvasOffset, width);
+            } else {
+                for (int col = 0; col < width; col++) {
+                    canvas[canvasOffset + col] = blendOver(pixels[row * width + col], canvas[canvasOffset + col]);
+                }
+            }
+        }
+
+        final BufferedImage image = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, canvasWidth, canvasHeight, canvas, 0, canvasWidth);
+
+        if (effectiveDisposeOp == ApngDisposeOp.BACKGROUND) {
+            for (int row = 0; row < height; row++) {
+                final int canvasOffset = (y + row) * canvasWidth + x;
+                Arrays.fill(canvas, canvasOffset, canvasOffset + width, 0);
+            }
+        } else if (effectiveDisposeOp == ApngDisposeOp.PREVIOUS) {
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(previous, row * width, canvas, (y + row) * canvasWidth + x, width);
+            }
+        }
+
+        framesRead++;
+        return new ApngFrame(image, x, y, width, height, delayNum, delayDen, disposeOp, blendOp);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Writes the frames of an animated PNG one at a time.
+ * <p>
+ * Instances are obtained from {@link PngWriter#openFrameWriter(OutputStream, int, int, int, int, PngColorType, PngImagingParameters)}, which writes the
+ * signature, the header chunks and the {@code acTL} chunk. The first frame is stored in IDAT chunks and is also the default image shown by decoders that do
+ * not support APNG, so it must cover the whole canvas. Each frame is deflated row by row, so only one frame needs to be in memory at a time.
+ * </p>
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification">APNG Specification</a>
+ * @since 1.0-alpha6
+ */
+public class ApngFrameWriter implements Closeable {
+
+    private final OutputStream os;
+    private final int width;
+    private final int height;
+    private final int numFrames;
+    private final PngColorType pngColorType;
+    private final boolean usePredictor;
+    private final int compressionLevel;
+    private int sequenceNumber;
+    private int framesWritten;
+    private boolean closed;
+
+    ApngFrameWriter(final OutputStream os, final int width, final int height, final int numFrames, final PngColorType pngColorType, final boolean usePredictor,
+            final int compressionLevel) {
+        this.os = os;
+        this.width = width;
+        this.height = height;
+        this.numFrames = numFrames;
+        this.pngColorType = pngColorType;
+        this.usePredictor = usePredictor;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Writes the IEND chunk and closes the underlying output stream.
+     *
+     * @throws IOException if fewer frames were written than declared, or when IO problems occur.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (framesWritten != numFrames) {
+                throw new ImagingException("APNG frame writer closed after " + framesWritten + " of " + numFrames + " frames");
+            }
+            PngWriter.writeChunk(os, ChunkType.IEND, null);
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Gets the number of frames written so far.
+     *
+     * @return the number of frames written.
+     */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+
+    private static void putInt(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Writes a frame that covers the whole canvas and replaces its previous contents.
+     *
+     * @param frame    the frame image, with the size of the canvas.
+     * @param delayNum the numerator of the frame delay, in seconds.
+     * @param delayDen the denominator of the frame delay, in seconds; 0 means 1/100 of a second.
+     * @throws IOException when the frame is invalid, or IO problems occur.
+     */
+    public void writeFrame(final BufferedImage frame, final int delayNum, final int delayDen) throws IOException {
+        writeFrame(frame, 0, 0, delayNum, delayDen, ApngDisposeOp.NONE, ApngBlendOp.SOURCE);
+    }
+
+    /**
+     * Writes a frame.
+     *
+     * @param frame     the frame image; its size is the size of the region of the canvas that it updates.
+     * @param xOffset   the x position of the frame on the canvas.
+     * @param yOffset   the y position of the frame on the canvas.
+     * @param delayNum  the numerator of the frame delay, in seconds.
+     * @param delayDen  the denominator of the frame delay, in seconds; 0 means 1/100 of a second.
+     * @param disposeOp how the frame region is disposed of before the next frame is rendered.
+     * @param blendOp   how the frame is combined with the canvas.
+     * @throws IOException when the frame is invalid, or IO problems occur.
+     */
+    public void writeFrame(final BufferedImage frame, final int xOffset, final int yOffset, final int delayNum, final int delayDen,
+            final ApngDisposeOp disposeOp, final ApngBlendOp blendOp) throws IOException {
+        if (closed) {
+            throw new ImagingException("APNG frame writer is closed");
+        }
+        if (framesWritten >= numFrames) {
+            throw new ImagingException("APNG image only has " + numFrames + " frames");
+        }
+        final int frameWidth = frame.getWidth();
+        final int frameHeight = frame.getHeight();
+        if (xOffset < 0 || yOffset < 0 || (long) xOffset + frameWidth > width || (long) yOffset + frameHeight > height) {
+            throw new ImagingException("APNG frame " + frameWidth + "x" + frameHeight + "+" + xOffset + "+" + yOffset + " exceeds canvas " + width + "x" + height);
+        }
+        if (framesWritten == 0 && (xOffset != 0 || yOffset != 0 || frameWidth != width || frameHeight != height)) {
+            throw new ImagingException("The first APNG frame must cover the whole canvas");
+        }
+        if ((delayNum & ~0xffff) != 0 || (delayDen & ~0xffff) != 0) {
+            throw new ImagingException("APNG frame delay " + delayNum + "/" + delayDen + " does not fit in 16 bits");
+        }
+
+        final byte[] fctl = new byte[26];
+        putInt(fctl, 0, sequenceNumber++);
+        putInt(fctl, 4, frameWidth);
+        putInt(fctl, 8, frameHeight);
+        putInt(fctl, 12, xOffset);
+        putInt(fctl, 16, yOffset);
+        fctl[20] = (byte) (delayNum >> 8);
+        fctl[21] = (byte) delayNum;
+        fctl[22] = (byte) (delayDen >> 8);
+        fctl[23] = (byte) delayDen;
+        fctl[24] = (byte) disposeOp.ordinal();
+        fctl[25] = (byte) blendOp.ordinal();
+        PngWriter.writeChunk(os, ChunkType.fcTL, fctl);
+
+        final PngRowWriter.ImageDataSink sink;
+        if (framesWritten == 0) {
+            sink = data -> PngWriter.writeChunk(os, ChunkType.IDAT, data);
+        } else {
+            sink = data -> {
+                final byte[] fdat = Allocator.byteArray(4L + data.length);
+                putInt(fdat, 0, sequenceNumber++);
+                System.arraycopy(data, 0, fdat, 4, data.length);
+                PngWriter.writeChunk(os, ChunkType.fdAT, fdat);
+            };
+        }
+        try (PngRowWriter rowWriter = new PngRowWriter(null, sink, frameWidth, frameHeight, pngColorType, null, usePredictor, compressionLevel)) {
+            final int[] row = Allocator.intArray(frameWidth);
+            for (int y = 0; y < frameHeight; y++) {
+                frame.getRGB(0, y, frameWidth, 1, row, 0, frameWidth);
+                rowWriter.writeRow(row);
+            }
+        }
+        framesWritten++;
+    }
+}
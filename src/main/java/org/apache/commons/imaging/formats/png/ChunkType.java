@@ -21,6 +21,9 @@ import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.imaging.common.BinaryFunctions;
 import org.apache.commons.imaging.formats.png.chunks.PngChunk;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkActl;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkFctl;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkFdat;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkGama;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkIccp;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkIdat;
@@ -180,6 +183,31 @@ public enum ChunkType {
      */
     eXIf(Extension.PNGEXT),
 
+    /*
+     * APNG
+     */
+
+    /**
+     * Animation control
+     *
+     * @since 1.0-alpha6
+     */
+    acTL(Extension.APNG, PngChunkActl::new),
+
+    /**
+     * Frame control
+     *
+     * @since 1.0-alpha6
+     */
+    fcTL(Extension.APNG, PngChunkFctl::new),
+
+    /**
+     * Frame data
+     *
+     * @since 1.0-alpha6
+     */
+    fdAT(Extension.APNG, PngChunkFdat::new),
+
     ;
 
     @FunctionalInterface
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import static org.apache.commons.imaging.common.BinaryFunctions.read4Bytes;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.formats.png.chunks.PngChunk;
+
+/**
+ * The position, length and type of every chunk in a PNG file, collected in a single pass that skips over the chunk data.
+ * <p>
+ * Once the index is built, chunks are loaded individually with {@link ByteSource#getByteArray(long, int)}, so reading the metadata of a large image costs
+ * one seek per chunk rather than a read of the whole file. Adjacent chunks that are wanted together, such as the IDAT chunks, are loaded with a single read.
+ * </p>
+ * <p>
+ * If the file is truncated or a chunk length is invalid, the index holds the chunks before the problem and the error is reported when a lookup needs to go
+ * past them.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class PngChunkIndex {
+
+    /**
+     * The location of a chunk in the file.
+     */
+    public static final class Entry {
+
+        private final long offset;
+        private final int length;
+        private final int chunkType;
+        private final int crc;
+
+        Entry(final long offset, final int length, final int chunkType, final int crc) {
+            this.offset = offset;
+            this.length = length;
+            this.chunkType = chunkType;
+            this.crc = crc;
+        }
+
+        /**
+         * Gets the CRC stored after the chunk data.
+         *
+         * @return the CRC.
+         */
+        public int getCrc() {
+            return crc;
+        }
+
+        /**
+         * Gets the chunk type as a four byte integer.
+         *
+         * @return the chunk type.
+         */
+        public int getChunkType() {
+            return chunkType;
+        }
+
+        /**
+         * Gets the offset of the chunk data from the start of the file.
+         *
+         * @return the offset of the data.
+         */
+        public long getDataOffset() {
+            return offset + 8;
+        }
+
+        /**
+         * Gets the length of the chunk data.
+         *
+         * @return the length of the data.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the offset of the chunk, that is of its length field, from the start of the file.
+         *
+         * @return the offset of the chunk.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        long getEnd() {
+            return offset + 12 + length;
+        }
+
+        @Override
+        public String toString() {
+            return PngImageParser.getChunkTypeName(chunkType) + " at " + offset + ", length " + length;
+        }
+    }
+
+    /**
+     * Upper bound for the number of bytes loaded with a single read when adjacent chunks are combined.
+     */
+    private static final int MAX_COMBINED_READ = 16 * 1024 * 1024;
+
+    private static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+    /**
+     * Builds the index of a PNG file.
+     *
+     * @param byteSource the PNG file.
+     * @return the index.
+     * @throws ImagingException if the signature is not a PNG signature.
+     * @throws IOException      if an I/O error occurs.
+     */
+    static PngChunkIndex read(final ByteSource byteSource) throws ImagingException, IOException {
+        final List<Entry> entries = new ArrayList<>();
+        Entry incomplete = null;
+        IOException failure = null;
+        try (InputStream is = new BufferedInputStream(byteSource.getInputStream())) {
+            BinaryFunctions.readAndVerifyBytes(is, PngConstants.PNG_SIGNATURE, "Not a Valid PNG Segment: Incorrect Signature");
+            long offset = PngConstants.PNG_SIGNATURE.size();
+            try {
+                while (true) {
+                    final int length = read4Bytes("Length", is, "Not a Valid PNG File", BYTE_ORDER);
+                    if (length < 0) {
+                        throw new ImagingException("Invalid PNG chunk length: " + length);
+                    }
+                    final int chunkType = read4Bytes("ChunkType", is, "Not a Valid PNG File", BYTE_ORDER);
+                    incomplete = new Entry(offset, length, chunkType, 0);
+                    skip(is, length);
+                    final int crc = read4Bytes("CRC", is, "Not a Valid PNG File", BYTE_ORDER);
+
+                    final Entry entry = new Entry(offset, length, chunkType, crc);
+                    entries.add(entry);
+                    incomplete = null;
+                    offset = entry.getEnd();
+                    if (chunkType == ChunkType.IEND.value) {
+                        break;
+                    }
+                }
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+        return new PngChunkIndex(entries, incomplete, failure);
+    }
+
+    /**
+     * Skips over chunk data. Unlike {@link org.apache.commons.io.IOUtils#skip(InputStream, long)}, this lets file streams seek instead of reading.
+     */
+    private static void skip(final InputStream is, long count) throws IOException {
+        while (count > 0) {
+            long skipped = is.skip(count);
+            if (skipped <= 0) {
+                if (is.read() < 0) {
+                    throw new ImagingException("Not a Valid PNG File");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Checks the CRC of a chunk.
+     *
+     * @throws ImagingException if the CRC does not match.
+     */
+    static void verifyCrc(final int chunkType, final byte[] data, final int offset, final int length, final int crc) throws ImagingException {
+        final int actual = PngCrc.chunkCrc(chunkType, data, offset, length);
+        if (actual != crc) {
+            throw new ImagingException("PNG " + PngImageParser.getChunkTypeName(chunkType) + " chunk CRC mismatch: expected 0x" + Integer.toHexString(crc)
+                    + ", computed 0x" + Integer.toHexString(actual));
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Entry incomplete;
+    private final IOException failure;
+
+    private PngChunkIndex(final List<Entry> entries, final Entry incomplete, final IOException failure) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.incomplete = incomplete;
+        this.failure = failure;
+    }
+
+    /**
+     * Tests whether the file contains a chunk of the given type.
+     *
+     * @param chunkType the chunk type.
+     * @return whether a chunk of the type was found.
+     * @throws IOException if the file could not be indexed up to a chunk of the type.
+     */
+    public boolean contains(final ChunkType chunkType) throws IOException {
+        for (final Entry entry : entries) {
+            if (entry.chunkType == chunkType.value) {
+                return true;
+            }
+        }
+        checkComplete();
+        return false;
+    }
+
+    private void checkComplete() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets the chunks of the file, in file order.
+     *
+     * @return an unmodifiable list of the chunks.
+     * @throws IOException if the file could not be indexed completely.
+     */
+    public List<Entry> getEntries() throws IOException {
+        checkComplete();
+        return entries;
+    }
+
+    /**
+     * Loads chunks of the given types.
+     *
+     * @param byteSource       the file the index was built from.
+     * @param chunkTypes       the types to load, or {@code null} for all chunks.
+     * @param returnAfterFirst whether to stop after the first matching chunk.
+     * @param verifyCrc        whether to check the CRC of each chunk that is loaded.
+     * @return the chunks, in file order.
+     */
+    List<PngChunk> readChunks(final ByteSource byteSource, final ChunkType[] chunkTypes, final boolean returnAfterFirst, final boolean verifyCrc)
+            throws ImagingException, IOException {
+        final List<Entry> wanted = new ArrayList<>();
+        for (final Entry entry : entries) {
+            if (keepChunk(entry.chunkType, chunkTypes)) {
+                wanted.add(entry);
+                if (returnAfterFirst) {
+                    break;
+                }
+            }
+        }
+        if (wanted.isEmpty() || !returnAfterFirst) {
+            if (incomplete != null && keepChunk(incomplete.chunkType, chunkTypes)) {
+                // report an absurd length the same way as reading the chunk would
+                Allocator.checkByteArray(incomplete.length);
+            }
+            checkComplete();
+        }
+
+        final List<PngChunk> result = new ArrayList<>(wanted.size());
+        int first = 0;
+        while (first < wanted.size()) {
+            // extend the run while the next chunk directly follows the previous one
+            int last = first;
+            while (last + 1 < wanted.size() && wanted.get(last + 1).offset == wanted.get(last).getEnd()
+                    && wanted.get(last + 1).getEnd() - wanted.get(first).offset <= MAX_COMBINED_READ) {
+                last++;
+            }
+            final long start = wanted.get(first).offset;
+            final long end = wanted.get(last).getEnd();
+            if (end - start > Integer.MAX_VALUE) {
+                throw new ImagingException("PNG chunk too large: " + (end - start));
+            }
+            final byte[] bytes = byteSource.getByteArray(start, (int) (end - start));
+            for (int i = first; i <= last; i++) {
+                final Entry entry = wanted.get(i);
+                final int dataStart = (int) (entry.getDataOffset() - start);
+                if (verifyCrc) {
+                    verifyCrc(entry.chunkType, bytes, dataStart, entry.length, entry.crc);
+                }
+                final byte[] data = BinaryFunctions.slice(bytes, dataStart, entry.length);
+                result.add(ChunkType.makeChunk(entry.length, entry.chunkType, entry.crc, data));
+            }
+            first = last + 1;
+        }
+        return result;
+    }
+
+    static boolean keepChunk(final int chunkType, final ChunkType[] chunkTypes) {
+        if (chunkTypes == null) {
+            return true;
+        }
+        for (final ChunkType type : chunkTypes) {
+            if (type.value == chunkType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of chunks in the index.
+     *
+     * @return the number of chunks.
+     * @throws IOException if the file could not be indexed completely.
+     */
+    public int size() throws IOException {
+        checkComplete();
+        return entries.size();
+    }
+}
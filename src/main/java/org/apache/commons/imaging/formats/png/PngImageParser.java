@@ -40,6 +40,7 @@ import org.apache.commons.imaging.ImageFormat;
 import org.apache.commons.imaging.ImageFormats;
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.ImagingParameters;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.common.BinaryFunctions;
@@ -47,8 +48,10 @@ import org.apache.commons.imaging.common.GenericImageMetadata;
 import org.apache.commons.imaging.common.ImageMetadata;
 import org.apache.commons.imaging.common.XmpEmbeddable;
 import org.apache.commons.imaging.common.XmpImagingParameters;
+import org.apache.commons.imaging.common.ZlibDeflate;
 import org.apache.commons.imaging.formats.png.chunks.AbstractPngTextChunk;
 import org.apache.commons.imaging.formats.png.chunks.PngChunk;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkActl;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkGama;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkIccp;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkIdat;
@@ -75,6 +78,26 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
     private static final String DEFAULT_EXTENSION = ImageFormats.PNG.getDefaultExtension();
     private static final String[] ACCEPTED_EXTENSIONS = ImageFormats.PNG.getExtensions();
 
+    /**
+     * The chunks and derived objects, other than the image data itself, that are needed to convert scanlines to pixels.
+     */
+    static final class DecodingContext {
+        final PngChunkIhdr pngChunkIHDR;
+        final PngChunkPlte pngChunkPLTE;
+        final AbstractTransparencyFilter abstractTransparencyFilter;
+        final GammaCorrection gammaCorrection;
+        final ICC_Profile iccProfile;
+
+        DecodingContext(final PngChunkIhdr pngChunkIHDR, final PngChunkPlte pngChunkPLTE, final AbstractTransparencyFilter abstractTransparencyFilter,
+                final GammaCorrection gammaCorrection, final ICC_Profile iccProfile) {
+            this.pngChunkIHDR = pngChunkIHDR;
+            this.pngChunkPLTE = pngChunkPLTE;
+            this.abstractTransparencyFilter = abstractTransparencyFilter;
+            this.gammaCorrection = gammaCorrection;
+            this.iccProfile = iccProfile;
+        }
+    }
+
     public static String getChunkTypeName(final int chunkType) {
         final StringBuilder result = new StringBuilder();
         result.append((char) (0xff & chunkType >> 24));
@@ -84,6 +107,76 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
         return result.toString();
     }
 
+    /**
+     * Decodes zlib-compressed, filtered image data of the given size into an image.
+     */
+    BufferedImage decodeImageData(final DecodingContext decodingContext, final int width, final int height, final byte[] compressed,
+            final PngImagingParameters params) throws ImagingException, IOException {
+        final PngChunkIhdr pngChunkIHDR = decodingContext.pngChunkIHDR;
+        final PngChunkPlte pngChunkPLTE = decodingContext.pngChunkPLTE;
+        final AbstractTransparencyFilter abstractTransparencyFilter = decodingContext.abstractTransparencyFilter;
+        final GammaCorrection gammaCorrection = decodingContext.gammaCorrection;
+        final ICC_Profile iccProfile = decodingContext.iccProfile;
+
+        final PngColorType pngColorType = pngChunkIHDR.getPngColorType();
+        final int bitDepth = pngChunkIHDR.getBitDepth();
+
+        if (pngChunkIHDR.getFilterMethod() != 0) {
+            throw new ImagingException("PNG: unknown FilterMethod: " + pngChunkIHDR.getFilterMethod());
+        }
+
+        final int bitsPerPixel = bitDepth * pngColorType.getSamplesPerPixel();
+
+        final boolean hasAlpha = pngColorType.hasAlpha() || abstractTransparencyFilter != null;
+
+        BufferedImage result;
+        if (pngColorType.isGreyscale()) {
+            result = getBufferedImageFactory(params).getGrayscaleBufferedImage(width, height, hasAlpha);
+        } else {
+            result = getBufferedImageFactory(params).getColorBufferedImage(width, height, hasAlpha);
+        }
+
+        final ByteArrayInputStream bais = new ByteArrayInputStream(compressed);
+        // the pooled inflater is released once the image data is read
+        try (InflaterInputStream iis = ZlibDeflate.newInflaterInputStream(bais)) {
+            final AbstractScanExpediter abstractScanExpediter;
+
+            switch (pngChunkIHDR.getInterlaceMethod()) {
+            case NONE:
+                if (params != null && params.getExecutor() != null) {
+                    abstractScanExpediter = new ScanExpediterPipelined(width, height, iis, result, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE,
+                            gammaCorrection, abstractTransparencyFilter, params.getExecutor());
+                } else {
+                    abstractScanExpediter = new ScanExpediterSimple(width, height, iis, result, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE,
+                            gammaCorrection, abstractTransparencyFilter);
+                }
+                break;
+            case ADAM7:
+                abstractScanExpediter = new ScanExpediterInterlaced(width, height, iis, result, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE,
+                        gammaCorrection, abstractTransparencyFilter);
+                break;
+            default:
+                throw new ImagingException("Unknown InterlaceMethod: " + pngChunkIHDR.getInterlaceMethod());
+            }
+
+            abstractScanExpediter.drive();
+        }
+
+        if (iccProfile != null) {
+            final boolean isSrgb = new IccProfileParser().isSrgb(iccProfile);
+            if (!isSrgb) {
+                final ICC_ColorSpace cs = new ICC_ColorSpace(iccProfile);
+
+                final ColorModel srgbCM = ColorModel.getRGBdefault();
+                final ColorSpace csSrgb = srgbCM.getColorSpace();
+
+                result = new ColorTools().convertBetweenColorSpaces(result, cs, csSrgb);
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public boolean dumpImageFile(final PrintWriter pw, final ByteSource byteSource) throws ImagingException, IOException {
         final ImageInfo imageInfo = getImageInfo(byteSource);
@@ -93,7 +186,7 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
         imageInfo.toString(pw, "");
 
-        final List<PngChunk> chunks = readChunks(byteSource, null, false);
+        final List<PngChunk> chunks = readChunks(byteSource, null, false, null);
         final List<PngChunk> IHDRs = filterChunks(chunks, ChunkType.IHDR);
         if (IHDRs.size() != 1) {
             if (LOGGER.isLoggable(Level.FINEST)) {
@@ -147,12 +240,98 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
     // private static final int tRNS = CharsToQuad('t', 'R', 'N', 's');
 
+    /**
+     * Gets all frames of an animated PNG, each rendered onto the full canvas, or the image itself if it is not animated.
+     */
+    @Override
+    public List<BufferedImage> getAllBufferedImages(final ByteSource byteSource) throws ImagingException, IOException {
+        try (ApngFrameReader frameReader = getFrameReader(byteSource, null)) {
+            if (!frameReader.isAnimated()) {
+                return super.getAllBufferedImages(byteSource);
+            }
+            final List<BufferedImage> result = new ArrayList<>();
+            for (ApngFrame frame = frameReader.readFrame(); frame != null; frame = frameReader.readFrame()) {
+                result.add(frame.getImage());
+            }
+            return result;
+        }
+    }
+
     @Override
     public BufferedImage getBufferedImage(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
 
         final List<PngChunk> chunks = readChunks(byteSource,
-                new ChunkType[] { ChunkType.IHDR, ChunkType.PLTE, ChunkType.IDAT, ChunkType.tRNS, ChunkType.iCCP, ChunkType.gAMA, ChunkType.sRGB, }, false);
+                new ChunkType[] { ChunkType.IHDR, ChunkType.PLTE, ChunkType.IDAT, ChunkType.tRNS, ChunkType.iCCP, ChunkType.gAMA, ChunkType.sRGB, }, false, params);
+
+        final DecodingContext decodingContext = getDecodingContext(chunks);
+
+        final List<PngChunk> IDATs = filterChunks(chunks, ChunkType.IDAT);
+        if (IDATs.isEmpty()) {
+            throw new ImagingException("PNG missing image data");
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (final PngChunk IDAT : IDATs) {
+            final PngChunkIdat pngChunkIDAT = (PngChunkIdat) IDAT;
+            final byte[] bytes = pngChunkIDAT.getBytes();
+            // System.out.println(i + ": bytes: " + bytes.length);
+            baos.write(bytes);
+        }
+
+        final byte[] compressed = baos.toByteArray();
+
+        baos = null;
+
+        final PngChunkIhdr pngChunkIHDR = decodingContext.pngChunkIHDR;
+        return decodeImageData(decodingContext, pngChunkIHDR.getWidth(), pngChunkIHDR.getHeight(), compressed, params);
+    }
+
+    /**
+     * Reads the index of the chunks in a PNG file, without reading the chunk data. Each method of this parser that takes only a byte source reads a new index
+     * for its parse, so that it sees the current content of the byte source. Callers that read several kinds of metadata from unchanged content may keep the
+     * returned index and pass it to {@link #getImageInfo(ByteSource, PngChunkIndex, PngImagingParameters)},
+     * {@link #getMetadata(ByteSource, PngChunkIndex, PngImagingParameters)}, {@link #getXmpXml(ByteSource, PngChunkIndex, XmpImagingParameters)} and
+     * {@link #getIccProfileBytes(ByteSource, PngChunkIndex, PngImagingParameters)}, so that the file is indexed only once.
+     *
+     * @param byteSource the PNG file.
+     * @return the chunk index.
+     * @throws ImagingException if the file does not start with a PNG signature.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public PngChunkIndex getChunkIndex(final ByteSource byteSource) throws ImagingException, IOException {
+        return PngChunkIndex.read(byteSource);
+    }
+
+    /**
+     * @param is PNG image input stream
+     * @return List of String-formatted chunk types, ie. "tRNs".
+     * @throws ImagingException if it fail to read the PNG chunks
+     * @throws IOException      if it fails to read the input stream data
+     */
+    public List<String> getChunkTypes(final InputStream is) throws ImagingException, IOException {
+        final List<PngChunk> chunks = readChunks(is, null, false);
+        final List<String> chunkTypes = Allocator.arrayList(chunks.size());
+        for (final PngChunk chunk : chunks) {
+            chunkTypes.add(getChunkTypeName(chunk.getChunkType()));
+        }
+        return chunkTypes;
+    }
+
+    @Override
+    public String getDefaultExtension() {
+        return DEFAULT_EXTENSION;
+    }
 
+    @Override
+    public PngImagingParameters getDefaultParameters() {
+        return new PngImagingParameters();
+    }
+
+    /**
+     * Gets the chunks and derived objects that are needed to convert the image data to pixels.
+     */
+    DecodingContext getDecodingContext(final List<PngChunk> chunks) throws ImagingException, IOException {
         if (chunks.isEmpty()) {
             throw new ImagingException("PNG: no chunks");
         }
@@ -174,23 +353,6 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
             pngChunkPLTE = (PngChunkPlte) PLTEs.get(0);
         }
 
-        final List<PngChunk> IDATs = filterChunks(chunks, ChunkType.IDAT);
-        if (IDATs.isEmpty()) {
-            throw new ImagingException("PNG missing image data");
-        }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        for (final PngChunk IDAT : IDATs) {
-            final PngChunkIdat pngChunkIDAT = (PngChunkIdat) IDAT;
-            final byte[] bytes = pngChunkIDAT.getBytes();
-            // System.out.println(i + ": bytes: " + bytes.length);
-            baos.write(bytes);
-        }
-
-        final byte[] compressed = baos.toByteArray();
-
-        baos = null;
-
         AbstractTransparencyFilter abstractTransparencyFilter = null;
 
         final List<PngChunk> tRNSs = filterChunks(chunks, ChunkType.tRNS);
@@ -252,93 +414,49 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
             }
         }
 
-        {
-            final int width = pngChunkIHDR.getWidth();
-            final int height = pngChunkIHDR.getHeight();
-            final PngColorType pngColorType = pngChunkIHDR.getPngColorType();
-            final int bitDepth = pngChunkIHDR.getBitDepth();
-
-            if (pngChunkIHDR.getFilterMethod() != 0) {
-                throw new ImagingException("PNG: unknown FilterMethod: " + pngChunkIHDR.getFilterMethod());
-            }
-
-            final int bitsPerPixel = bitDepth * pngColorType.getSamplesPerPixel();
-
-            final boolean hasAlpha = pngColorType.hasAlpha() || abstractTransparencyFilter != null;
-
-            BufferedImage result;
-            if (pngColorType.isGreyscale()) {
-                result = getBufferedImageFactory(params).getGrayscaleBufferedImage(width, height, hasAlpha);
-            } else {
-                result = getBufferedImageFactory(params).getColorBufferedImage(width, height, hasAlpha);
-            }
-
-            final ByteArrayInputStream bais = new ByteArrayInputStream(compressed);
-            final InflaterInputStream iis = new InflaterInputStream(bais);
-
-            final AbstractScanExpediter abstractScanExpediter;
-
-            switch (pngChunkIHDR.getInterlaceMethod()) {
-            case NONE:
-                abstractScanExpediter = new ScanExpediterSimple(width, height, iis, result, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE, gammaCorrection,
-                        abstractTransparencyFilter);
-                break;
-            case ADAM7:
-                abstractScanExpediter = new ScanExpediterInterlaced(width, height, iis, result, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE,
-                        gammaCorrection, abstractTransparencyFilter);
-                break;
-            default:
-                throw new ImagingException("Unknown InterlaceMethod: " + pngChunkIHDR.getInterlaceMethod());
-            }
-
-            abstractScanExpediter.drive();
-
-            if (iccProfile != null) {
-                final boolean isSrgb = new IccProfileParser().isSrgb(iccProfile);
-                if (!isSrgb) {
-                    final ICC_ColorSpace cs = new ICC_ColorSpace(iccProfile);
-
-                    final ColorModel srgbCM = ColorModel.getRGBdefault();
-                    final ColorSpace csSrgb = srgbCM.getColorSpace();
-
-                    result = new ColorTools().convertBetweenColorSpaces(result, cs, csSrgb);
-                }
-            }
-
-            return result;
-
-        }
-
+        return new DecodingContext(pngChunkIHDR, pngChunkPLTE, abstractTransparencyFilter, gammaCorrection, iccProfile);
     }
 
     /**
-     * @param is PNG image input stream
-     * @return List of String-formatted chunk types, ie. "tRNs".
-     * @throws ImagingException if it fail to read the PNG chunks
-     * @throws IOException      if it fails to read the input stream data
+     * Opens a reader for the frames of an animated PNG, which decodes one frame at a time while streaming through the data.
+     *
+     * @param byteSource the PNG data.
+     * @param params     the parameters to use when decoding the frames, may be {@code null}.
+     * @return a frame reader, which must be closed by the caller.
+     * @throws ImagingException if the header chunks are invalid.
+     * @throws IOException      if it fails to read the data.
+     * @since 1.0-alpha6
      */
-    public List<String> getChunkTypes(final InputStream is) throws ImagingException, IOException {
-        final List<PngChunk> chunks = readChunks(is, null, false);
-        final List<String> chunkTypes = Allocator.arrayList(chunks.size());
-        for (final PngChunk chunk : chunks) {
-            chunkTypes.add(getChunkTypeName(chunk.getChunkType()));
+    public ApngFrameReader getFrameReader(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
+        final InputStream is = byteSource.getInputStream();
+        try {
+            readSignature(is);
+            return new ApngFrameReader(this, is, params);
+        } catch (final IOException | RuntimeException e) {
+            is.close();
+            throw e;
         }
-        return chunkTypes;
-    }
-
-    @Override
-    public String getDefaultExtension() {
-        return DEFAULT_EXTENSION;
     }
 
     @Override
-    public PngImagingParameters getDefaultParameters() {
-        return new PngImagingParameters();
+    public byte[] getIccProfileBytes(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
+        return getIccProfileBytes(byteSource, getChunkIndex(byteSource), params);
     }
 
-    @Override
-    public byte[] getIccProfileBytes(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.iCCP }, true);
+    /**
+     * Gets the ICC profile of a PNG file through a chunk index kept by the caller.
+     *
+     * @param byteSource the PNG file.
+     * @param index      the chunk index read from the byte source with {@link #getChunkIndex(ByteSource)}.
+     * @param params     the parameters, or null.
+     * @return the ICC profile, or null if the file has none.
+     * @throws ImagingException if the ICC profile is invalid.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public byte[] getIccProfileBytes(final ByteSource byteSource, final PngChunkIndex index, final PngImagingParameters params)
+            throws ImagingException, IOException {
+        final List<PngChunk> chunks = readChunks(byteSource, index, new ChunkType[] { ChunkType.iCCP }, true, params);
 
         if (chunks.isEmpty()) {
             return null;
@@ -355,8 +473,24 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
     @Override
     public ImageInfo getImageInfo(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.IHDR, ChunkType.pHYs, ChunkType.sCAL, ChunkType.tEXt, ChunkType.zTXt,
-                ChunkType.tRNS, ChunkType.PLTE, ChunkType.iTXt, }, false);
+        return getImageInfo(byteSource, getChunkIndex(byteSource), params);
+    }
+
+    /**
+     * Gets the image information of a PNG file through a chunk index kept by the caller.
+     *
+     * @param byteSource the PNG file.
+     * @param index      the chunk index read from the byte source with {@link #getChunkIndex(ByteSource)}.
+     * @param params     the parameters, or null.
+     * @return the image information.
+     * @throws ImagingException if the header is missing or invalid.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public ImageInfo getImageInfo(final ByteSource byteSource, final PngChunkIndex index, final PngImagingParameters params)
+            throws ImagingException, IOException {
+        final List<PngChunk> chunks = readChunks(byteSource, index, new ChunkType[] { ChunkType.IHDR, ChunkType.pHYs, ChunkType.sCAL, ChunkType.tEXt, ChunkType.zTXt,
+                ChunkType.tRNS, ChunkType.PLTE, ChunkType.iTXt, ChunkType.acTL, }, false, params);
 
         if (chunks.isEmpty()) {
             throw new ImagingException("PNG: no chunks");
@@ -434,7 +568,8 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
         final String formatName = "PNG Portable Network Graphics";
         final int height = pngChunkIHDR.getHeight();
         final String mimeType = "image/png";
-        final int numberOfImages = 1;
+        final List<PngChunk> acTLs = filterChunks(chunks, ChunkType.acTL);
+        final int numberOfImages = acTLs.isEmpty() ? 1 : ((PngChunkActl) acTLs.get(0)).getNumFrames();
         final int width = pngChunkIHDR.getWidth();
         final boolean progressive = pngChunkIHDR.getInterlaceMethod().isProgressive();
 
@@ -493,7 +628,7 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
     @Override
     public Dimension getImageSize(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.IHDR, }, true);
+        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.IHDR, }, true, params);
 
         if (chunks.isEmpty()) {
             throw new ImagingException("Png: No chunks");
@@ -510,8 +645,24 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
     @Override
     public ImageMetadata getMetadata(final ByteSource byteSource, final PngImagingParameters params) throws ImagingException, IOException {
+        return getMetadata(byteSource, getChunkIndex(byteSource), params);
+    }
+
+    /**
+     * Gets the metadata of a PNG file through a chunk index kept by the caller.
+     *
+     * @param byteSource the PNG file.
+     * @param index      the chunk index read from the byte source with {@link #getChunkIndex(ByteSource)}.
+     * @param params     the parameters, or null.
+     * @return the metadata, or null if the file has none.
+     * @throws ImagingException if the metadata is invalid.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public ImageMetadata getMetadata(final ByteSource byteSource, final PngChunkIndex index, final PngImagingParameters params)
+            throws ImagingException, IOException {
         final ChunkType[] chunkTypes = { ChunkType.tEXt, ChunkType.zTXt, ChunkType.iTXt, ChunkType.eXIf };
-        final List<PngChunk> chunks = readChunks(byteSource, chunkTypes, false);
+        final List<PngChunk> chunks = readChunks(byteSource, index, chunkTypes, false, params);
 
         if (chunks.isEmpty()) {
             return null;
@@ -558,7 +709,7 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
      * @since 1.0-alpha6
      */
     public byte[] getExifRawData(final ByteSource byteSource) throws ImagingException, IOException {
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.eXIf }, true);
+        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.eXIf }, true, null);
 
         if (chunks.isEmpty()) {
             return null;
@@ -590,8 +741,23 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
 
     @Override
     public String getXmpXml(final ByteSource byteSource, final XmpImagingParameters<PngImagingParameters> params) throws ImagingException, IOException {
+        return getXmpXml(byteSource, getChunkIndex(byteSource), params);
+    }
 
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] { ChunkType.iTXt }, false);
+    /**
+     * Gets the XMP XML of a PNG file through a chunk index kept by the caller.
+     *
+     * @param byteSource the PNG file.
+     * @param index      the chunk index read from the byte source with {@link #getChunkIndex(ByteSource)}.
+     * @param params     the parameters, or null.
+     * @return the XMP XML, or null if the file has none.
+     * @throws ImagingException if the file has more than one XMP chunk.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public String getXmpXml(final ByteSource byteSource, final PngChunkIndex index, final XmpImagingParameters<PngImagingParameters> params)
+            throws ImagingException, IOException {
+        final List<PngChunk> chunks = readChunks(byteSource, index, new ChunkType[] { ChunkType.iTXt }, false, params);
 
         if (chunks.isEmpty()) {
             return null;
@@ -622,33 +788,21 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
     // I may not have always preserved byte order correctly.
 
     public boolean hasChunkType(final ByteSource byteSource, final ChunkType chunkType) throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            readSignature(is);
-            final List<PngChunk> chunks = readChunks(is, new ChunkType[] { chunkType }, true);
-            return !chunks.isEmpty();
-        }
+        return getChunkIndex(byteSource).contains(chunkType);
     }
 
-    private boolean keepChunk(final int chunkType, final ChunkType[] chunkTypes) {
-        // System.out.println("keepChunk: ");
-        if (chunkTypes == null) {
-            return true;
-        }
-
-        for (final ChunkType chunkType2 : chunkTypes) {
-            if (chunkType2.value == chunkType) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Reads chunks through a chunk index of the byte source, which is read once for the parse. In strict mode, the CRC of every chunk that is read is checked.
+     */
+    private List<PngChunk> readChunks(final ByteSource byteSource, final ChunkType[] chunkTypes, final boolean returnAfterFirst,
+            final ImagingParameters<?> params) throws ImagingException, IOException {
+        return readChunks(byteSource, getChunkIndex(byteSource), chunkTypes, returnAfterFirst, params);
     }
 
-    private List<PngChunk> readChunks(final ByteSource byteSource, final ChunkType[] chunkTypes, final boolean returnAfterFirst)
-            throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            readSignature(is);
-            return readChunks(is, chunkTypes, returnAfterFirst);
-        }
+    private List<PngChunk> readChunks(final ByteSource byteSource, final PngChunkIndex index, final ChunkType[] chunkTypes, final boolean returnAfterFirst,
+            final ImagingParameters<?> params) throws ImagingException, IOException {
+        final boolean verifyCrc = params != null && params.isStrict();
+        return index.readChunks(byteSource, chunkTypes, returnAfterFirst, verifyCrc);
     }
 
     private List<PngChunk> readChunks(final InputStream is, final ChunkType[] chunkTypes, final boolean returnAfterFirst) throws ImagingException, IOException {
@@ -665,7 +819,7 @@ public class PngImageParser extends AbstractImageParser<PngImagingParameters> im
                 BinaryFunctions.logCharQuad("ChunkType", chunkType);
                 debugNumber("Length", length, 4);
             }
-            final boolean keep = keepChunk(chunkType, chunkTypes);
+            final boolean keep = PngChunkIndex.keepChunk(chunkType, chunkTypes);
 
             byte[] bytes = null;
             if (keep) {
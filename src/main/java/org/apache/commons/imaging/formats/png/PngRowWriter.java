@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.ZlibDeflate;
+import org.apache.commons.imaging.palette.Palette;
+
+/**
+ * Accepts the scanlines of a PNG image one at a time, filters and deflates each one as it arrives, and writes IDAT chunks as soon as the fixed-size output
+ * buffer fills up.
+ * <p>
+ * Only one filtered scanline and one IDAT buffer are held in memory, so the size of the image that can be written is not bounded by the heap. Instances are
+ * obtained from {@link PngWriter#openRowWriter(OutputStream, int, int, PngColorType, PngImagingParameters)}; the signature, header and ancillary chunks have
+ * already been written at that point. Closing the writer finishes the deflate stream, writes the IEND chunk and closes the underlying output stream.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public class PngRowWriter implements Closeable {
+
+    /**
+     * Size of the IDAT chunks written by this class, except for the last one.
+     */
+    static final int IDAT_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * Receives the compressed image data, one chunk's worth at a time.
+     */
+    @FunctionalInterface
+    interface ImageDataSink {
+        void write(byte[] data) throws IOException;
+    }
+
+    private final OutputStream os;
+    private final ImageDataSink sink;
+    private final int width;
+    private final int height;
+    private final Palette palette;
+    private final boolean isGrayscale;
+    private final boolean useAlpha;
+    private final boolean usePredictor;
+    private final Deflater deflater;
+    private final byte[] scanline;
+    private final byte[] idat;
+    private int idatLength;
+    private int rowsWritten;
+    private boolean closed;
+
+    PngRowWriter(final OutputStream os, final int width, final int height, final PngColorType pngColorType, final Palette palette,
+            final boolean usePredictor, final int compressionLevel) {
+        this(os, data -> PngWriter.writeChunk(os, ChunkType.IDAT, data), width, height, pngColorType, palette, usePredictor, compressionLevel);
+    }
+
+    /**
+     * Constructs a writer that passes the compressed data to a sink. If {@code os} is {@code null}, closing the writer only flushes the remaining data to the
+     * sink; otherwise it also writes the IEND chunk to {@code os} and closes it.
+     */
+    PngRowWriter(final OutputStream os, final ImageDataSink sink, final int width, final int height, final PngColorType pngColorType, final Palette palette,
+            final boolean usePredictor, final int compressionLevel) {
+        this.os = os;
+        this.sink = sink;
+        this.width = width;
+        this.height = height;
+        this.palette = palette;
+        this.isGrayscale = pngColorType.isGreyscale();
+        this.useAlpha = pngColorType.hasAlpha();
+        this.usePredictor = usePredictor;
+        this.deflater = ZlibDeflate.acquireDeflater(compressionLevel);
+
+        final int bytesPerPixel;
+        if (palette != null) {
+            bytesPerPixel = 1;
+        } else {
+            bytesPerPixel = (isGrayscale ? 1 : 3) + (useAlpha ? 1 : 0);
+        }
+        this.scanline = Allocator.byteArray(1 + (long) width * bytesPerPixel);
+        this.idat = Allocator.byteArray(IDAT_CHUNK_SIZE);
+    }
+
+    /**
+     * Finishes the deflate stream, writes the remaining image data and the IEND chunk, and closes the underlying output stream.
+     * Frame writers created by {@link ApngFrameWriter} only write the remaining frame data.
+     *
+     * @throws IOException if the number of rows written does not match the image height, or when IO problems occur.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rowsWritten != height) {
+                throw new ImagingException("PNG row writer closed after " + rowsWritten + " of " + height + " rows");
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflateToIdat();
+            }
+            if (idatLength > 0) {
+                sink.write(Arrays.copyOf(idat, idatLength));
+                idatLength = 0;
+            }
+            if (os != null) {
+                PngWriter.writeChunk(os, ChunkType.IEND, null);
+            }
+        } finally {
+            ZlibDeflate.releaseDeflater(deflater);
+            if (os != null) {
+                os.close();
+            }
+        }
+    }
+
+    private void deflateToIdat() throws IOException {
+        idatLength += deflater.deflate(idat, idatLength, idat.length - idatLength);
+        if (idatLength == idat.length) {
+            sink.write(idat);
+            idatLength = 0;
+        }
+    }
+
+    /**
+     * Gets the number of rows written so far.
+     *
+     * @return the number of rows written.
+     */
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Writes the next scanline of the image.
+     *
+     * @param argb   the pixels of the row, as ARGB values.
+     * @param offset the index of the first pixel of the row in {@code argb}; the following {@code width - 1} entries are also read.
+     * @throws IOException when all rows have already been written, the writer is closed, or IO problems occur.
+     */
+    public void writeRow(final int[] argb, final int offset) throws IOException {
+        if (closed) {
+            throw new ImagingException("PNG row writer is closed");
+        }
+        if (rowsWritten >= height) {
+            throw new ImagingException("PNG image only has " + height + " rows");
+        }
+        if (offset < 0 || offset + width > argb.length) {
+            throw new ImagingException("Row of " + width + " pixels at offset " + offset + " exceeds array of length " + argb.length);
+        }
+
+        int index = 0;
+        if (!usePredictor) {
+            scanline[index++] = (byte) FilterType.NONE.ordinal();
+            for (int x = 0; x < width; x++) {
+                final int pixel = argb[offset + x];
+
+                if (palette != null) {
+                    scanline[index++] = (byte) palette.getPaletteIndex(pixel);
+                } else {
+                    final int alpha = 0xff & pixel >> 24;
+                    final int red = 0xff & pixel >> 16;
+                    final int green = 0xff & pixel >> 8;
+                    final int blue = 0xff & pixel >> 0;
+
+                    if (isGrayscale) {
+                        scanline[index++] = (byte) ((red + green + blue) / 3);
+                    } else {
+                        scanline[index++] = (byte) red;
+                        scanline[index++] = (byte) green;
+                        scanline[index++] = (byte) blue;
+                    }
+                    if (useAlpha) {
+                        scanline[index++] = (byte) alpha;
+                    }
+                }
+            }
+        } else {
+            int priorA = 0;
+            int priorR = 0;
+            int priorG = 0;
+            int priorB = 0;
+            scanline[index++] = (byte) FilterType.SUB.ordinal();
+            for (int x = 0; x < width; x++) {
+                final int pixel = argb[offset + x];
+                final int alpha = 0xff & pixel >> 24;
+                final int red = 0xff & pixel >> 16;
+                final int green = 0xff & pixel >> 8;
+                final int blue = 0xff & pixel;
+
+                scanline[index++] = (byte) (red - priorR);
+                scanline[index++] = (byte) (green - priorG);
+                scanline[index++] = (byte) (blue - priorB);
+                priorR = red;
+                priorG = green;
+                priorB = blue;
+
+                if (useAlpha) {
+                    scanline[index++] = (byte) (alpha - priorA);
+                    priorA = alpha;
+                }
+            }
+        }
+
+        deflater.setInput(scanline, 0, index);
+        while (!deflater.needsInput()) {
+            deflateToIdat();
+        }
+        rowsWritten++;
+    }
+
+    /**
+     * Writes the next scanline of the image.
+     *
+     * @param argb the pixels of the row, as ARGB values.
+     * @throws IOException when all rows have already been written, the writer is closed, or IO problems occur.
+     */
+    public void writeRow(final int[] argb) throws IOException {
+        writeRow(argb, 0);
+    }
+}
@@ -23,11 +23,11 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.PixelDensity;
 import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.ZlibDeflate;
 import org.apache.commons.imaging.internal.Debug;
 import org.apache.commons.imaging.palette.Palette;
 import org.apache.commons.imaging.palette.PaletteFactory;
@@ -68,13 +68,7 @@ public class PngWriter {
     }
 
     private byte[] deflate(final byte[] bytes) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            try (DeflaterOutputStream dos = new DeflaterOutputStream(baos)) {
-                dos.write(bytes);
-                // dos.flush() doesn't work - we must close it before baos.toByteArray()
-            }
-            return baos.toByteArray();
-        }
+        return ZlibDeflate.compress(bytes);
     }
 
     private byte getBitDepth(final PngColorType pngColorType, final PngImagingParameters params) {
@@ -88,29 +82,99 @@ public class PngWriter {
         return s.equals(roundtrip);
     }
 
-    private void writeChunk(final OutputStream os, final ChunkType chunkType, final byte[] data) throws IOException {
-        final int dataLength = data == null ? 0 : data.length;
-        writeInt(os, dataLength);
-        os.write(chunkType.array);
-        if (data != null) {
-            os.write(data);
+    /**
+     * Writes the signature and header chunks of an animated PNG to an output stream, and returns a writer that accepts the frames one at a time.
+     * <p>
+     * As with {@link #openRowWriter(OutputStream, int, int, PngColorType, PngImagingParameters)}, the color type must be chosen by the caller and indexed
+     * color is not supported.
+     * </p>
+     *
+     * @param os           The output stream to write to; it is closed when the returned writer is closed.
+     * @param width        The width of the canvas.
+     * @param height       The height of the canvas.
+     * @param numFrames    The number of frames that will be written.
+     * @param numPlays     The number of times to play the animation, or 0 to loop indefinitely.
+     * @param pngColorType The color type of the image; one of {@link PngColorType#GREYSCALE}, {@link PngColorType#GREYSCALE_WITH_ALPHA},
+     *                     {@link PngColorType#TRUE_COLOR} or {@link PngColorType#TRUE_COLOR_WITH_ALPHA}.
+     * @param params       The parameters to use (can be {@code NULL} to use the default {@link PngImagingParameters}).
+     * @return a writer for the frames of the animation.
+     * @throws ImagingException When errors are detected.
+     * @throws IOException      When IO problems occur.
+     * @since 1.0-alpha6
+     */
+    public ApngFrameWriter openFrameWriter(final OutputStream os, final int width, final int height, final int numFrames, final int numPlays,
+            final PngColorType pngColorType, PngImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new PngImagingParameters();
+        }
+        if (width <= 0 || height <= 0) {
+            throw new ImagingException("Invalid PNG image size: " + width + "x" + height);
+        }
+        if (numFrames <= 0 || numPlays < 0) {
+            throw new ImagingException("Invalid APNG frame count " + numFrames + " or play count " + numPlays);
+        }
+        if (pngColorType == PngColorType.INDEXED_COLOR) {
+            throw new ImagingException("APNG frame writer does not support indexed color");
         }
 
-        final PngCrc pngCrc = new PngCrc();
+        final byte bitDepth = getBitDepth(pngColorType, params);
+        writeHeaderChunks(os, width, height, bitDepth, pngColorType, null, pngColorType.hasAlpha(), params);
 
-        final long crc1 = pngCrc.startPartialCrc(chunkType.array, chunkType.array.length);
-        final long crc2 = data == null ? crc1 : pngCrc.continuePartialCrc(crc1, data, data.length);
-        final int crc = (int) pngCrc.finishPartialCrc(crc2);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeInt(baos, numFrames);
+        writeInt(baos, numPlays);
+        writeChunk(os, ChunkType.acTL, baos.toByteArray());
 
-        writeInt(os, crc);
+        final boolean usePredictor = params.isPredictorEnabled() && !pngColorType.isGreyscale();
+        return new ApngFrameWriter(os, width, height, numFrames, pngColorType, usePredictor, Deflater.DEFAULT_COMPRESSION);
     }
 
-    private void writeChunkIDAT(final OutputStream os, final byte[] bytes) throws IOException {
-        writeChunk(os, ChunkType.IDAT, bytes);
+    /**
+     * Writes the signature and header chunks of an image to an output stream, and returns a writer that accepts the image data one row at a time.
+     * <p>
+     * Unlike {@link #writeImage(BufferedImage, OutputStream, PngImagingParameters, PaletteFactory)}, the image never needs to be held in memory as a whole.
+     * Since the pixels are not known in advance, the color type must be chosen by the caller and indexed color is not supported.
+     * </p>
+     *
+     * @param os           The output stream to write to; it is closed when the returned writer is closed.
+     * @param width        The width of the image.
+     * @param height       The height of the image.
+     * @param pngColorType The color type of the image; one of {@link PngColorType#GREYSCALE}, {@link PngColorType#GREYSCALE_WITH_ALPHA},
+     *                     {@link PngColorType#TRUE_COLOR} or {@link PngColorType#TRUE_COLOR_WITH_ALPHA}.
+     * @param params       The parameters to use (can be {@code NULL} to use the default {@link PngImagingParameters}).
+     * @return a writer for the rows of the image.
+     * @throws ImagingException When errors are detected.
+     * @throws IOException      When IO problems occur.
+     * @since 1.0-alpha6
+     */
+    public PngRowWriter openRowWriter(final OutputStream os, final int width, final int height, final PngColorType pngColorType,
+            PngImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new PngImagingParameters();
+        }
+        if (width <= 0 || height <= 0) {
+            throw new ImagingException("Invalid PNG image size: " + width + "x" + height);
+        }
+        if (pngColorType == PngColorType.INDEXED_COLOR) {
+            throw new ImagingException("PNG row writer does not support indexed color");
+        }
+
+        final byte bitDepth = getBitDepth(pngColorType, params);
+        writeHeaderChunks(os, width, height, bitDepth, pngColorType, null, pngColorType.hasAlpha(), params);
+
+        final boolean usePredictor = params.isPredictorEnabled() && !pngColorType.isGreyscale();
+        return new PngRowWriter(os, width, height, pngColorType, null, usePredictor, Deflater.DEFAULT_COMPRESSION);
     }
 
-    private void writeChunkIEND(final OutputStream os) throws IOException {
-        writeChunk(os, ChunkType.IEND, null);
+    static void writeChunk(final OutputStream os, final ChunkType chunkType, final byte[] data) throws IOException {
+        final int dataLength = data == null ? 0 : data.length;
+        writeInt(os, dataLength);
+        os.write(chunkType.array);
+        if (data != null) {
+            os.write(data);
+        }
+
+        writeInt(os, PngCrc.chunkCrc(chunkType.value, data, 0, dataLength));
     }
 
     private void writeChunkIHDR(final OutputStream os, final ImageHeader value) throws IOException {
@@ -277,6 +341,79 @@ public class PngWriter {
         writeChunk(os, ChunkType.zTXt, baos.toByteArray());
     }
 
+    /**
+     * Writes the signature, the IHDR chunk and all ancillary chunks that precede the image data.
+     */
+    private void writeHeaderChunks(final OutputStream os, final int width, final int height, final byte bitDepth, final PngColorType pngColorType,
+            final Palette palette, final boolean hasAlpha, final PngImagingParameters params) throws ImagingException, IOException {
+        {
+            PngConstants.PNG_SIGNATURE.writeTo(os);
+        }
+        {
+            // IHDR must be first
+
+            final byte compressionMethod = PngConstants.COMPRESSION_TYPE_INFLATE_DEFLATE;
+            final byte filterMethod = PngConstants.FILTER_METHOD_ADAPTIVE;
+            final InterlaceMethod interlaceMethod = InterlaceMethod.NONE;
+
+            final ImageHeader imageHeader = new ImageHeader(width, height, bitDepth, pngColorType, compressionMethod, filterMethod, interlaceMethod);
+
+            writeChunkIHDR(os, imageHeader);
+        }
+
+        // {
+        // sRGB No Before PLTE and IDAT. If the sRGB chunk is present, the
+        // iCCP chunk should not be present.
+
+        // charles
+        // }
+
+        if (palette != null) {
+            // PLTE No Before first IDAT
+
+            writeChunkPLTE(os, palette);
+            if (hasAlpha) {
+                writeChunkTRNS(os, palette);
+            }
+        }
+
+        final Object pixelDensityObj = params.getPixelDensity();
+        if (pixelDensityObj != null) {
+            final PixelDensity pixelDensity = (PixelDensity) pixelDensityObj;
+            if (pixelDensity.isUnitless()) {
+                writeChunkPHYS(os, (int) Math.round(pixelDensity.getRawHorizontalDensity()), (int) Math.round(pixelDensity.getRawVerticalDensity()), (byte) 0);
+            } else {
+                writeChunkPHYS(os, (int) Math.round(pixelDensity.horizontalDensityMetres()), (int) Math.round(pixelDensity.verticalDensityMetres()), (byte) 1);
+            }
+        }
+
+        final PhysicalScale physicalScale = params.getPhysicalScale();
+        if (physicalScale != null) {
+            writeChunkSCAL(os, physicalScale.getHorizontalUnitsPerPixel(), physicalScale.getVerticalUnitsPerPixel(),
+                    physicalScale.isInMeters() ? (byte) 1 : (byte) 2);
+        }
+
+        final String xmpXml = params.getXmpXml();
+        if (xmpXml != null) {
+            writeChunkXmpiTXt(os, xmpXml);
+        }
+
+        final List<? extends AbstractPngText> outputTexts = params.getTextChunks();
+        if (outputTexts != null) {
+            for (final AbstractPngText text : outputTexts) {
+                if (text instanceof AbstractPngText.Text) {
+                    writeChunktEXt(os, (AbstractPngText.Text) text);
+                } else if (text instanceof AbstractPngText.Ztxt) {
+                    writeChunkzTXt(os, (AbstractPngText.Ztxt) text);
+                } else if (text instanceof AbstractPngText.Itxt) {
+                    writeChunkiTXt(os, (AbstractPngText.Itxt) text);
+                } else {
+                    throw new ImagingException("Unknown text to embed in PNG: " + text);
+                }
+            }
+        }
+    }
+
     /*
      * between two chunk types indicates alternatives. Table 5.3 - Chunk ordering rules Critical chunks (shall appear in this order, except PLTE is optional)
      * Chunk name Multiple allowed Ordering constraints IHDR No Shall be first PLTE No Before first IDAT IDAT Yes Multiple IDAT chunks shall be consecutive IEND
@@ -346,219 +483,36 @@ public class PngWriter {
         }
         Debug.debug("sampleDepth: " + sampleDepth);
 
-        {
-            PngConstants.PNG_SIGNATURE.writeTo(os);
-        }
-        {
-            // IHDR must be first
-
-            final byte compressionMethod = PngConstants.COMPRESSION_TYPE_INFLATE_DEFLATE;
-            final byte filterMethod = PngConstants.FILTER_METHOD_ADAPTIVE;
-            final InterlaceMethod interlaceMethod = InterlaceMethod.NONE;
-
-            final ImageHeader imageHeader = new ImageHeader(width, height, bitDepth, pngColorType, compressionMethod, filterMethod, interlaceMethod);
-
-            writeChunkIHDR(os, imageHeader);
-        }
-
-        // {
-        // sRGB No Before PLTE and IDAT. If the sRGB chunk is present, the
-        // iCCP chunk should not be present.
-
-        // charles
-        // }
-
         Palette palette = null;
         if (pngColorType == PngColorType.INDEXED_COLOR) {
-            // PLTE No Before first IDAT
-
             final int maxColors = 256;
 
             if (hasAlpha) {
                 palette = paletteFactory.makeQuantizedRgbaPalette(src, hasAlpha, maxColors);
-                writeChunkPLTE(os, palette);
-                writeChunkTRNS(os, palette);
             } else {
                 palette = paletteFactory.makeQuantizedRgbPalette(src, maxColors);
-                writeChunkPLTE(os, palette);
             }
         }
 
-        final Object pixelDensityObj = params.getPixelDensity();
-        if (pixelDensityObj != null) {
-            final PixelDensity pixelDensity = (PixelDensity) pixelDensityObj;
-            if (pixelDensity.isUnitless()) {
-                writeChunkPHYS(os, (int) Math.round(pixelDensity.getRawHorizontalDensity()), (int) Math.round(pixelDensity.getRawVerticalDensity()), (byte) 0);
-            } else {
-                writeChunkPHYS(os, (int) Math.round(pixelDensity.horizontalDensityMetres()), (int) Math.round(pixelDensity.verticalDensityMetres()), (byte) 1);
-            }
-        }
-
-        final PhysicalScale physicalScale = params.getPhysicalScale();
-        if (physicalScale != null) {
-            writeChunkSCAL(os, physicalScale.getHorizontalUnitsPerPixel(), physicalScale.getVerticalUnitsPerPixel(),
-                    physicalScale.isInMeters() ? (byte) 1 : (byte) 2);
-        }
-
-        final String xmpXml = params.getXmpXml();
-        if (xmpXml != null) {
-            writeChunkXmpiTXt(os, xmpXml);
-        }
-
-        final List<? extends AbstractPngText> outputTexts = params.getTextChunks();
-        if (outputTexts != null) {
-            for (final AbstractPngText text : outputTexts) {
-                if (text instanceof AbstractPngText.Text) {
-                    writeChunktEXt(os, (AbstractPngText.Text) text);
-                } else if (text instanceof AbstractPngText.Ztxt) {
-                    writeChunkzTXt(os, (AbstractPngText.Ztxt) text);
-                } else if (text instanceof AbstractPngText.Itxt) {
-                    writeChunkiTXt(os, (AbstractPngText.Itxt) text);
-                } else {
-                    throw new ImagingException("Unknown text to embed in PNG: " + text);
-                }
-            }
-        }
-
-        {
-            // Debug.debug("writing IDAT");
-
-            // IDAT Yes Multiple IDAT chunks shall be consecutive
-
-            // 28 March 2022. At this time, we only apply the predictor
-            // for non-grayscale, true-color images. This choice is made
-            // out of caution and is not necessarily required by the PNG
-            // spec. We may broaden the use of predictors in future versions.
-            final boolean usePredictor = params.isPredictorEnabled() && !isGrayscale && palette == null;
-
-            final byte[] uncompressed;
-            if (!usePredictor) {
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                final boolean useAlpha = pngColorType == PngColorType.GREYSCALE_WITH_ALPHA || pngColorType == PngColorType.TRUE_COLOR_WITH_ALPHA;
-
-                final int[] row = Allocator.intArray(width);
-                for (int y = 0; y < height; y++) {
-                    // Debug.debug("y", y + "/" + height);
-                    src.getRGB(0, y, width, 1, row, 0, width);
-
-                    baos.write(FilterType.NONE.ordinal());
-                    for (int x = 0; x < width; x++) {
-                        final int argb = row[x];
-
-                        if (palette != null) {
-                            final int index = palette.getPaletteIndex(argb);
-                            baos.write(0xff & index);
-                        } else {
-                            final int alpha = 0xff & argb >> 24;
-                            final int red = 0xff & argb >> 16;
-                            final int green = 0xff & argb >> 8;
-                            final int blue = 0xff & argb >> 0;
-
-                            if (isGrayscale) {
-                                final int gray = (red + green + blue) / 3;
-                                // if (y == 0)
-                                // {
-                                // Debug.debug("gray: " + x + ", " + y +
-                                // " argb: 0x"
-                                // + Integer.toHexString(argb) + " gray: 0x"
-                                // + Integer.toHexString(gray));
-                                // // Debug.debug(x + ", " + y + " gray", gray);
-                                // // Debug.debug(x + ", " + y + " gray", gray);
-                                // Debug.debug(x + ", " + y + " gray", gray +
-                                // " " + Integer.toHexString(gray));
-                                // Debug.debug();
-                                // }
-                                baos.write(gray);
-                            } else {
-                                baos.write(red);
-                                baos.write(green);
-                                baos.write(blue);
-                            }
-                            if (useAlpha) {
-                                baos.write(alpha);
-                            }
-                        }
-                    }
-                }
-                uncompressed = baos.toByteArray();
-            } else {
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                final boolean useAlpha = pngColorType == PngColorType.GREYSCALE_WITH_ALPHA || pngColorType == PngColorType.TRUE_COLOR_WITH_ALPHA;
-
-                final int[] row = Allocator.intArray(width);
-                for (int y = 0; y < height; y++) {
-                    // Debug.debug("y", y + "/" + height);
-                    src.getRGB(0, y, width, 1, row, 0, width);
-
-                    int priorA = 0;
-                    int priorR = 0;
-                    int priorG = 0;
-                    int priorB = 0;
-                    baos.write(FilterType.SUB.ordinal());
-                    for (int x = 0; x < width; x++) {
-                        final int argb = row[x];
-                        final int alpha = 0xff & argb >> 24;
-                        final int red = 0xff & argb >> 16;
-                        final int green = 0xff & argb >> 8;
-                        final int blue = 0xff & argb;
-
-                        baos.write(red - priorR);
-                        baos.write(green - priorG);
-                        baos.write(blue - priorB);
-                        priorR = red;
-                        priorG = green;
-                        priorB = blue;
-
-                        if (useAlpha) {
-                            baos.write(alpha - priorA);
-                            priorA = alpha;
-                        }
-                    }
-                }
-                uncompressed = baos.toByteArray();
-            }
+        writeHeaderChunks(os, width, height, bitDepth, pngColorType, palette, hasAlpha, params);
 
-            // Debug.debug("uncompressed", uncompressed.length);
+        // IDAT Yes Multiple IDAT chunks shall be consecutive
 
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            final int chunkSize = 256 * 1024;
-            final Deflater deflater = new Deflater(compressionLevel);
-            final DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater, chunkSize);
+        // 28 March 2022. At this time, we only apply the predictor
+        // for non-grayscale, true-color images. This choice is made
+        // out of caution and is not necessarily required by the PNG
+        // spec. We may broaden the use of predictors in future versions.
+        final boolean usePredictor = params.isPredictorEnabled() && !isGrayscale && palette == null;
 
-            for (int index = 0; index < uncompressed.length; index += chunkSize) {
-                final int end = Math.min(uncompressed.length, index + chunkSize);
-                final int length = end - index;
-
-                dos.write(uncompressed, index, length);
-                dos.flush();
-                baos.flush();
-
-                final byte[] compressed = baos.toByteArray();
-                baos.reset();
-                if (compressed.length > 0) {
-                    // Debug.debug("compressed", compressed.length);
-                    writeChunkIDAT(os, compressed);
-                }
-
-            }
-            {
-                dos.finish();
-                final byte[] compressed = baos.toByteArray();
-                if (compressed.length > 0) {
-                    // Debug.debug("compressed final", compressed.length);
-                    writeChunkIDAT(os, compressed);
-                }
+        // IEND No Shall be last, and is written when the row writer is closed
+        try (PngRowWriter rowWriter = new PngRowWriter(os, width, height, pngColorType, palette, usePredictor, compressionLevel)) {
+            final int[] row = Allocator.intArray(width);
+            for (int y = 0; y < height; y++) {
+                src.getRGB(0, y, width, 1, row, 0, width);
+                rowWriter.writeRow(row);
             }
         }
 
-        {
-            // IEND No Shall be last
-
-            writeChunkIEND(os);
-        }
-
         /*
          * Ancillary chunks (need not appear in this order) Chunk name Multiple allowed Ordering constraints cHRM No Before PLTE and IDAT gAMA No Before PLTE
          * and IDAT iCCP No Before PLTE and IDAT. If the iCCP chunk is present, the sRGB chunk should not be present. sBIT No Before PLTE and IDAT sRGB No
@@ -566,13 +520,11 @@ public class PngWriter {
          * IDAT tRNS No After PLTE; before IDAT pHYs No Before IDAT sCAL No Before IDAT sPLT Yes Before IDAT tIME No None iTXt Yes None tEXt Yes None zTXt Yes
          * None
          */
-
-        os.close();
     } // todo: filter types
       // proper color types
       // srgb, etc.
 
-    private void writeInt(final OutputStream os, final int value) throws IOException {
+    private static void writeInt(final OutputStream os, final int value) throws IOException {
         os.write(0xff & value >> 24);
         os.write(0xff & value >> 16);
         os.write(0xff & value >> 8);
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.ConcurrentTasks;
+import org.apache.commons.imaging.formats.png.chunks.PngChunkPlte;
+import org.apache.commons.imaging.formats.png.transparencyfilters.AbstractTransparencyFilter;
+
+/**
+ * Decodes a non-interlaced image in two stages. The calling thread inflates and unfilters the scanlines, which must be done in order since most filters
+ * refer to the previous row, and hands them over in batches to the executor, which converts them to ARGB (palette lookup, transparency and gamma correction)
+ * and stores them in the image.
+ * <p>
+ * The number of batches that have been unfiltered but not yet converted is bounded, so memory use does not grow with the image height. When too many are
+ * waiting, and at the end of the image, the calling thread converts waiting batches itself instead of blocking, so decoding completes even when the calling
+ * thread belongs to the executor or the executor is saturated.
+ * </p>
+ */
+final class ScanExpediterPipelined extends AbstractScanExpediter {
+
+    /**
+     * Approximate number of unfiltered bytes in a batch of rows handed to a worker.
+     */
+    private static final int BATCH_BYTES = 256 * 1024;
+
+    private final Executor executor;
+    private final int maxBatchesInFlight;
+
+    ScanExpediterPipelined(final int width, final int height, final InputStream is, final BufferedImage bi, final PngColorType pngColorType,
+            final int bitDepth, final int bitsPerPixel, final PngChunkPlte pngChunkPLTE, final GammaCorrection gammaCorrection,
+            final AbstractTransparencyFilter abstractTransparencyFilter, final Executor executor) {
+        super(width, height, is, bi, pngColorType, bitDepth, bitsPerPixel, pngChunkPLTE, gammaCorrection, abstractTransparencyFilter);
+        this.executor = executor;
+        this.maxBatchesInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    private void convertRows(final int y0, final byte[][] rows, final int count) throws ImagingException, IOException {
+        final int[] argb = new int[width];
+        for (int i = 0; i < count; i++) {
+            final BitParser bitParser = new BitParser(rows[i], bitsPerPixel, bitDepth);
+            for (int x = 0; x < width; x++) {
+                argb[x] = getRgb(bitParser, x);
+            }
+            bi.setRGB(0, y0 + i, width, 1, argb, 0, width);
+        }
+    }
+
+    @Override
+    public void drive() throws ImagingException, IOException {
+        final int bitsPerScanLine = bitsPerPixel * width;
+        final int pixelBytesPerScanLine = getBitsToBytesRoundingUp(bitsPerScanLine);
+        final int rowsPerBatch = Math.max(1, Math.min(height, BATCH_BYTES / Math.max(1, pixelBytesPerScanLine)));
+        final ConcurrentTasks batches = new ConcurrentTasks(executor, maxBatchesInFlight, "PNG scanline conversion");
+        byte[] prev = null;
+
+        for (int y0 = 0; y0 < height; y0 += rowsPerBatch) {
+            final int count = Math.min(rowsPerBatch, height - y0);
+            final byte[][] rows = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                rows[i] = getNextScanline(is, pixelBytesPerScanLine, prev, bytesPerPixel);
+                prev = rows[i];
+            }
+            final int batchY = y0;
+            // converts a waiting batch in this thread when too many are waiting
+            batches.submit(() -> convertRows(batchY, rows, count));
+        }
+        // converts the batches that no worker has started
+        batches.finish();
+    }
+}
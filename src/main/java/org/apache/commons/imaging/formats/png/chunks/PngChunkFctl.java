@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png.chunks;
+
+import static org.apache.commons.imaging.common.BinaryFunctions.read2Bytes;
+import static org.apache.commons.imaging.common.BinaryFunctions.read4Bytes;
+import static org.apache.commons.imaging.common.BinaryFunctions.readByte;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.formats.png.ApngBlendOp;
+import org.apache.commons.imaging.formats.png.ApngDisposeOp;
+
+/**
+ * APNG frame control chunk.
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification#.60fcTL.60:_The_Frame_Control_Chunk">APNG Specification - The Frame Control Chunk</a>
+ * @since 1.0-alpha6
+ */
+public class PngChunkFctl extends PngChunk {
+
+    private final int sequenceNumber;
+    private final int width;
+    private final int height;
+    private final int xOffset;
+    private final int yOffset;
+    private final int delayNum;
+    private final int delayDen;
+    private final ApngDisposeOp disposeOp;
+    private final ApngBlendOp blendOp;
+
+    public PngChunkFctl(final int length, final int chunkType, final int crc, final byte[] bytes) throws ImagingException, IOException {
+        super(length, chunkType, crc, bytes);
+        final ByteArrayInputStream is = new ByteArrayInputStream(bytes);
+        sequenceNumber = read4Bytes("SequenceNumber", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        width = read4Bytes("Width", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        height = read4Bytes("Height", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        xOffset = read4Bytes("XOffset", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        yOffset = read4Bytes("YOffset", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        delayNum = read2Bytes("DelayNum", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        delayDen = read2Bytes("DelayDen", is, "Not a Valid PNG File: fcTL Corrupt", getByteOrder());
+        final int dispose = readByte("DisposeOp", is, "Not a Valid PNG File: fcTL Corrupt");
+        if (dispose < 0 || dispose >= ApngDisposeOp.values().length) {
+            throw new ImagingException("APNG: unknown dispose op: " + dispose);
+        }
+        disposeOp = ApngDisposeOp.values()[dispose];
+        final int blend = readByte("BlendOp", is, "Not a Valid PNG File: fcTL Corrupt");
+        if (blend < 0 || blend >= ApngBlendOp.values().length) {
+            throw new ImagingException("APNG: unknown blend op: " + blend);
+        }
+        blendOp = ApngBlendOp.values()[blend];
+    }
+
+    public ApngBlendOp getBlendOp() {
+        return blendOp;
+    }
+
+    /**
+     * Gets the denominator of the frame delay, in seconds; 0 means 1/100 of a second.
+     *
+     * @return the delay denominator.
+     */
+    public int getDelayDen() {
+        return delayDen;
+    }
+
+    /**
+     * Gets the numerator of the frame delay, in seconds.
+     *
+     * @return the delay numerator.
+     */
+    public int getDelayNum() {
+        return delayNum;
+    }
+
+    public ApngDisposeOp getDisposeOp() {
+        return disposeOp;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getXOffset() {
+        return xOffset;
+    }
+
+    public int getYOffset() {
+        return yOffset;
+    }
+}
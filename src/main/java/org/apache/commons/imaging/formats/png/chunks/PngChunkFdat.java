@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png.chunks;
+
+import static org.apache.commons.imaging.common.BinaryFunctions.read4Bytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * APNG frame data chunk. Holds a sequence number followed by image data in the same format as an IDAT chunk.
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification#.60fdAT.60:_The_Frame_Data_Chunk">APNG Specification - The Frame Data Chunk</a>
+ * @since 1.0-alpha6
+ */
+public class PngChunkFdat extends PngChunk {
+
+    private final int sequenceNumber;
+
+    public PngChunkFdat(final int length, final int chunkType, final int crc, final byte[] bytes) throws IOException {
+        super(length, chunkType, crc, bytes);
+        final ByteArrayInputStream is = new ByteArrayInputStream(bytes);
+        sequenceNumber = read4Bytes("SequenceNumber", is, "Not a Valid PNG File: fdAT Corrupt", getByteOrder());
+    }
+
+    /**
+     * Gets a copy of the frame data, without the sequence number.
+     *
+     * @return the frame data.
+     */
+    public byte[] getFrameData() {
+        final byte[] bytes = getBytes();
+        return Arrays.copyOfRange(bytes, 4, bytes.length);
+    }
+
+    public int getSequenceNumber() {
+        return sequenceNumber;
+    }
+}
@@ -16,17 +16,15 @@
  */
 package org.apache.commons.imaging.formats.png.chunks;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.common.ZlibDeflate;
 import org.apache.commons.imaging.formats.png.AbstractPngText;
 import org.apache.commons.imaging.formats.png.PngConstants;
-import org.apache.commons.io.IOUtils;
 
 public class PngChunkZtxt extends AbstractPngTextChunk {
 
@@ -49,7 +47,7 @@ public class PngChunkZtxt extends AbstractPngTextChunk {
         final byte[] compressedText = Allocator.byteArray(compressedTextLength);
         System.arraycopy(bytes, index, compressedText, 0, compressedTextLength);
 
-        text = new String(IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(compressedText))), StandardCharsets.ISO_8859_1);
+        text = new String(ZlibDeflate.decompress(compressedText), StandardCharsets.ISO_8859_1);
     }
 
     @Override
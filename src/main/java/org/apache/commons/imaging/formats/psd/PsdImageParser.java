@@ -33,6 +33,7 @@ import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.common.ByteConversions;
 import org.apache.commons.imaging.common.ImageMetadata;
 import org.apache.commons.imaging.common.XmpEmbeddable;
 import org.apache.commons.imaging.common.XmpImagingParameters;
@@ -232,52 +233,12 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
     }
 
     private byte[] getData(final ByteSource byteSource, final int section) throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            // PsdHeaderInfo header = readHeader(is);
-            if (section == PSD_SECTION_HEADER) {
-                return BinaryFunctions.readBytes("Header", is, PSD_HEADER_LENGTH, "Not a Valid PSD File");
-            }
-            BinaryFunctions.skipBytes(is, PSD_HEADER_LENGTH);
-
-            final int colorModeDataLength = BinaryFunctions.read4Bytes("ColorModeDataLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_COLOR_MODE) {
-                return BinaryFunctions.readBytes("ColorModeData", is, colorModeDataLength, "Not a Valid PSD File");
-            }
-
-            BinaryFunctions.skipBytes(is, colorModeDataLength);
-            // byte[] ColorModeData = readByteArray("ColorModeData",
-            // ColorModeDataLength, is, "Not a Valid PSD File");
-
-            final int imageResourcesLength = BinaryFunctions.read4Bytes("ImageResourcesLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_IMAGE_RESOURCES) {
-                return BinaryFunctions.readBytes("ImageResources", is, imageResourcesLength, "Not a Valid PSD File");
-            }
-
-            BinaryFunctions.skipBytes(is, imageResourcesLength);
-            // byte[] ImageResources = readByteArray("ImageResources",
-            // ImageResourcesLength, is, "Not a Valid PSD File");
-
-            final int layerAndMaskDataLength = BinaryFunctions.read4Bytes("LayerAndMaskDataLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_LAYER_AND_MASK_DATA) {
-                return BinaryFunctions.readBytes("LayerAndMaskData", is, layerAndMaskDataLength, "Not a Valid PSD File");
-            }
-
-            BinaryFunctions.skipBytes(is, layerAndMaskDataLength);
-            // byte[] LayerAndMaskData = readByteArray("LayerAndMaskData",
-            // LayerAndMaskDataLength, is, "Not a Valid PSD File");
-
-            BinaryFunctions.read2Bytes("Compression", is, "Not a Valid PSD File", getByteOrder());
-
-            // byte[] ImageData = readByteArray("ImageData",
-            // LayerAndMaskDataLength, is, "Not a Valid PSD File");
-
-            // if (section == kPSD_SECTION_IMAGE_DATA)
-            // return readByteArray("LayerAndMaskData", LayerAndMaskDataLength,
-            // is,
-            // "Not a Valid PSD File");
+        if (section == PSD_SECTION_HEADER) {
+            return readBytes(byteSource, 0, PSD_HEADER_LENGTH);
+        }
+        if (section == PSD_SECTION_COLOR_MODE || section == PSD_SECTION_IMAGE_RESOURCES || section == PSD_SECTION_LAYER_AND_MASK_DATA) {
+            final long offset = getSectionOffset(byteSource, section);
+            return readBytes(byteSource, offset + 4, readSectionLength(byteSource, offset));
         }
         throw new ImagingException("getInputStream: Unknown Section: " + section);
     }
@@ -376,63 +337,22 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
     }
 
     private InputStream getInputStream(final ByteSource byteSource, final int section) throws ImagingException, IOException {
-        InputStream is = null;
-        boolean notFound = false;
-        try {
-            is = byteSource.getInputStream();
-
-            if (section == PSD_SECTION_HEADER) {
-                return is;
-            }
-
-            BinaryFunctions.skipBytes(is, PSD_HEADER_LENGTH);
-            // is.skip(kHeaderLength);
-
-            final int colorModeDataLength = BinaryFunctions.read4Bytes("ColorModeDataLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_COLOR_MODE) {
-                return is;
-            }
-
-            BinaryFunctions.skipBytes(is, colorModeDataLength);
-            // byte[] ColorModeData = readByteArray("ColorModeData",
-            // ColorModeDataLength, is, "Not a Valid PSD File");
-
-            final int imageResourcesLength = BinaryFunctions.read4Bytes("ImageResourcesLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_IMAGE_RESOURCES) {
-                return is;
-            }
-
-            BinaryFunctions.skipBytes(is, imageResourcesLength);
-            // byte[] ImageResources = readByteArray("ImageResources",
-            // ImageResourcesLength, is, "Not a Valid PSD File");
-
-            final int layerAndMaskDataLength = BinaryFunctions.read4Bytes("LayerAndMaskDataLength", is, "Not a Valid PSD File", getByteOrder());
-
-            if (section == PSD_SECTION_LAYER_AND_MASK_DATA) {
-                return is;
-            }
-
-            BinaryFunctions.skipBytes(is, layerAndMaskDataLength);
-            // byte[] LayerAndMaskData = readByteArray("LayerAndMaskData",
-            // LayerAndMaskDataLength, is, "Not a Valid PSD File");
-
-            BinaryFunctions.read2Bytes("Compression", is, "Not a Valid PSD File", getByteOrder());
-
-            // byte[] ImageData = readByteArray("ImageData",
-            // LayerAndMaskDataLength, is, "Not a Valid PSD File");
-
-            if (section == PSD_SECTION_IMAGE_DATA) {
-                return is;
-            }
-            notFound = true;
-        } finally {
-            if (notFound && is != null) {
-                is.close();
+        final long offset;
+        if (section == PSD_SECTION_HEADER) {
+            offset = 0;
+        } else if (section == PSD_SECTION_COLOR_MODE || section == PSD_SECTION_IMAGE_RESOURCES || section == PSD_SECTION_LAYER_AND_MASK_DATA) {
+            offset = getSectionOffset(byteSource, section) + 4;
+        } else if (section == PSD_SECTION_IMAGE_DATA) {
+            // the image data follows its compression
+            offset = getSectionOffset(byteSource, section) + 2;
+            if (offset > byteSource.size()) {
+                throw new ImagingException("Not a Valid PSD File");
             }
+        } else {
+            throw new ImagingException("getInputStream: Unknown Section: " + section);
         }
-        throw new ImagingException("getInputStream: Unknown Section: " + section);
+        // the image data is decoded in order, so it is read through a stream
+        return ByteSource.getInputStream(byteSource, offset);
     }
 
     @Override
@@ -445,6 +365,17 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
         return "PSD-Custom";
     }
 
+    /**
+     * Gets the offset of the length of a section, reading the lengths of the sections before it at their offsets.
+     */
+    private long getSectionOffset(final ByteSource byteSource, final int section) throws ImagingException, IOException {
+        long offset = PSD_HEADER_LENGTH;
+        for (int previous = PSD_SECTION_COLOR_MODE; previous < section; previous++) {
+            offset = skipSection(offset, readSectionLength(byteSource, offset));
+        }
+        return offset;
+    }
+
     /**
      * Extracts embedded XML metadata as XML string.
      *
@@ -496,10 +427,15 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
         return false;
     }
 
-    private PsdHeaderInfo readHeader(final ByteSource byteSource) throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            return readHeader(is);
+    private byte[] readBytes(final ByteSource byteSource, final long offset, final int length) throws ImagingException, IOException {
+        if (length < 0 || offset + length > byteSource.size()) {
+            throw new ImagingException("Not a Valid PSD File");
         }
+        return byteSource.getByteArray(offset, length);
+    }
+
+    private PsdHeaderInfo readHeader(final ByteSource byteSource) throws ImagingException, IOException {
+        return readHeader(new ByteArrayInputStream(readBytes(byteSource, 0, PSD_HEADER_LENGTH)));
     }
 
     private PsdHeaderInfo readHeader(final InputStream is) throws ImagingException, IOException {
@@ -517,47 +453,18 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
     }
 
     private PsdImageContents readImageContents(final ByteSource byteSource) throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            return readImageContents(is);
-        }
-    }
-
-    private PsdImageContents readImageContents(final InputStream is) throws ImagingException, IOException {
-        final PsdHeaderInfo header = readHeader(is);
-
-        final int colorModeDataLength = BinaryFunctions.read4Bytes("ColorModeDataLength", is, "Not a Valid PSD File", getByteOrder());
-        BinaryFunctions.skipBytes(is, colorModeDataLength);
-        // is.skip(ColorModeDataLength);
-        // byte[] ColorModeData = readByteArray("ColorModeData",
-        // ColorModeDataLength, is, "Not a Valid PSD File");
-
-        final int imageResourcesLength = BinaryFunctions.read4Bytes("ImageResourcesLength", is, "Not a Valid PSD File", getByteOrder());
-        BinaryFunctions.skipBytes(is, imageResourcesLength);
-        // long skipped = is.skip(ImageResourcesLength);
-        // byte[] ImageResources = readByteArray("ImageResources",
-        // ImageResourcesLength, is, "Not a Valid PSD File");
-
-        final int layerAndMaskDataLength = BinaryFunctions.read4Bytes("LayerAndMaskDataLength", is, "Not a Valid PSD File", getByteOrder());
-        BinaryFunctions.skipBytes(is, layerAndMaskDataLength);
-        // is.skip(LayerAndMaskDataLength);
-        // byte[] LayerAndMaskData = readByteArray("LayerAndMaskData",
-        // LayerAndMaskDataLength, is, "Not a Valid PSD File");
-
-        final int compression = BinaryFunctions.read2Bytes("Compression", is, "Not a Valid PSD File", getByteOrder());
-
-        // skip_bytes(is, LayerAndMaskDataLength);
-        // byte[] ImageData = readByteArray("ImageData", LayerAndMaskDataLength,
-        // is, "Not a Valid PSD File");
-
-        // System.out.println("Compression: " + Compression);
-
-        return new PsdImageContents(header, colorModeDataLength,
-                // ColorModeData,
-                imageResourcesLength,
-                // ImageResources,
-                layerAndMaskDataLength,
-                // LayerAndMaskData,
-                compression);
+        final PsdHeaderInfo header = readHeader(byteSource);
+
+        long offset = PSD_HEADER_LENGTH;
+        final int colorModeDataLength = readSectionLength(byteSource, offset);
+        offset = skipSection(offset, colorModeDataLength);
+        final int imageResourcesLength = readSectionLength(byteSource, offset);
+        offset = skipSection(offset, imageResourcesLength);
+        final int layerAndMaskDataLength = readSectionLength(byteSource, offset);
+        offset = skipSection(offset, layerAndMaskDataLength);
+        final int compression = ByteConversions.toUInt16(readBytes(byteSource, offset, 2), getByteOrder());
+
+        return new PsdImageContents(header, colorModeDataLength, imageResourcesLength, layerAndMaskDataLength, compression);
     }
 
     private List<ImageResourceBlock> readImageResourceBlocks(final byte[] bytes, final int[] imageResourceIDs, final int maxBlocksToRead)
@@ -567,13 +474,10 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
 
     private List<ImageResourceBlock> readImageResourceBlocks(final ByteSource byteSource, final int[] imageResourceIDs, final int maxBlocksToRead)
             throws ImagingException, IOException {
-        try (InputStream imageStream = byteSource.getInputStream();
-                InputStream resourceStream = getInputStream(byteSource, PSD_SECTION_IMAGE_RESOURCES)) {
-            final PsdImageContents imageContents = readImageContents(imageStream);
-            final byte[] ImageResources = BinaryFunctions.readBytes("ImageResources", resourceStream, imageContents.imageResourcesLength,
-                    "Not a Valid PSD File");
-            return readImageResourceBlocks(ImageResources, imageResourceIDs, maxBlocksToRead);
-        }
+        final PsdImageContents imageContents = readImageContents(byteSource);
+        final long offset = skipSection(PSD_HEADER_LENGTH, imageContents.colorModeDataLength) + 4;
+        final byte[] imageResources = readBytes(byteSource, offset, imageContents.imageResourcesLength);
+        return readImageResourceBlocks(imageResources, imageResourceIDs, maxBlocksToRead);
     }
 
     private List<ImageResourceBlock> readImageResourceBlocks(final InputStream is, final int[] imageResourceIDs, final int maxBlocksToRead, int available)
@@ -627,4 +531,15 @@ public class PsdImageParser extends AbstractImageParser<PsdImagingParameters> im
         return result;
     }
 
+    private int readSectionLength(final ByteSource byteSource, final long offset) throws ImagingException, IOException {
+        return ByteConversions.toInt(readBytes(byteSource, offset, 4), getByteOrder());
+    }
+
+    private long skipSection(final long offset, final int length) throws ImagingException {
+        if (length < 0) {
+            throw new ImagingException("Not a Valid PSD File");
+        }
+        return offset + 4 + length;
+    }
+
 }
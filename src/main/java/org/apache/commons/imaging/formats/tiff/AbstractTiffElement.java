@@ -16,24 +16,73 @@
  */
 package org.apache.commons.imaging.formats.tiff;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Comparator;
 
+import org.apache.commons.imaging.bytesource.ByteSource;
+
 public abstract class AbstractTiffElement {
+
+    /**
+     * An element holding a block of bytes, either in memory or as a range of a byte source that is only read when the bytes are requested.
+     */
     public abstract static class DataElement extends AbstractTiffElement {
         private final byte[] data;
+        private final ByteSource byteSource;
+
+        /**
+         * Constructs an element whose bytes are read from the byte source each time {@link #readData()} or {@link #getData()} is called.
+         *
+         * @param offset     the offset of the bytes in the byte source.
+         * @param length     the number of bytes.
+         * @param byteSource the byte source.
+         * @since 1.0-alpha6
+         */
+        public DataElement(final long offset, final int length, final ByteSource byteSource) {
+            super(offset, length);
+
+            this.data = null;
+            this.byteSource = byteSource;
+        }
 
         public DataElement(final long offset, final int length, final byte[] data) {
             super(offset, length);
 
             this.data = data;
+            this.byteSource = null;
         }
 
+        /**
+         * Gets a copy of the bytes of this element, reading them from the byte source if they are not held in memory.
+         *
+         * @return the bytes.
+         * @throws UncheckedIOException if the bytes cannot be read from the byte source; use {@link #readData()} to get the checked exception instead.
+         */
         public byte[] getData() {
+            try {
+                return readData();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Gets a copy of the bytes of this element, reading them from the byte source if they are not held in memory.
+         *
+         * @return the bytes.
+         * @throws IOException if the bytes cannot be read from the byte source.
+         * @since 1.0-alpha6
+         */
+        public byte[] readData() throws IOException {
+            if (data == null) {
+                return byteSource.getByteArray(offset, length);
+            }
             return data.clone();
         }
 
         public int getDataLength() {
-            return data.length;
+            return data == null ? length : data.length;
         }
     }
 
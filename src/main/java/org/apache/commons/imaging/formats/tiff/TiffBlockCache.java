@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the decompressed tiles or strips of TIFF directories, up to a total size in bytes, discarding the least recently used blocks first.
+ * <p>
+ * Blocks are keyed by the directory and the index of the block in it. A directory read from a file identifies both the file and the image file directory,
+ * so the cache serves repeated reads through the same {@link TiffDirectory} instances, as kept by a {@link TiffImageReaderSession}. The cache may be used
+ * from several threads.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class TiffBlockCache {
+
+    /**
+     * Decompresses a block that is not in the cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Reads and decompresses the block.
+         *
+         * @return the decompressed bytes.
+         * @throws IOException in the event of an I/O error or invalid data.
+         */
+        byte[] load() throws IOException;
+    }
+
+    private static final class Key {
+        private final TiffDirectory directory;
+        private final int block;
+
+        Key(final TiffDirectory directory, final int block) {
+            this.directory = directory;
+            this.block = block;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return directory == other.directory && block == other.block;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(directory) * 31 + block;
+        }
+    }
+
+    private final long maximumSize;
+    private final LinkedHashMap<Key, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param maximumSize the maximum total size of the cached blocks, in bytes.
+     */
+    public TiffBlockCache(final long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Negative cache size " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Discards all blocks. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        blocks.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets a decompressed block, from the cache if it is there and otherwise from the loader. Blocks larger than the maximum size of the cache are not kept.
+     * <p>
+     * The returned array is shared by all readers of the block and must not be modified.
+     * </p>
+     *
+     * @param directory the directory holding the block.
+     * @param block     the index of the tile or strip in the directory.
+     * @param loader    decompresses the block if it is not in the cache; it is called without holding the lock of the cache.
+     * @return the decompressed bytes.
+     * @throws IOException in the event of an I/O error or invalid data while loading the block.
+     */
+    public byte[] get(final TiffDirectory directory, final int block, final Loader loader) throws IOException {
+        final Key key = new Key(directory, block);
+        synchronized (this) {
+            final byte[] bytes = blocks.get(key);
+            if (bytes != null) {
+                hits.incrementAndGet();
+                return bytes;
+            }
+        }
+        misses.incrementAndGet();
+        final byte[] bytes = loader.load();
+        if (bytes.length <= maximumSize) {
+            put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of blocks that were found in the cache.
+     *
+     * @return a positive number, potentially zero.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the maximum total size of the cached blocks.
+     *
+     * @return the size in bytes.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of blocks that were not found in the cache and had to be decompressed.
+     *
+     * @return a positive number, potentially zero.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the total size of the cached blocks.
+     *
+     * @return the size in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private synchronized void put(final Key key, final byte[] bytes) {
+        final byte[] previous = blocks.put(key, bytes);
+        if (previous != null) {
+            // another thread decompressed the same block meanwhile
+            size -= previous.length;
+        }
+        size += bytes.length;
+        final Iterator<Map.Entry<Key, byte[]>> eldest = blocks.entrySet().iterator();
+        while (size > maximumSize) {
+            size -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+}
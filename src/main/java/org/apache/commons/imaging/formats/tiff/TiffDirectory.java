@@ -630,6 +630,55 @@ public class TiffDirectory extends AbstractTiffElement implements Iterable<TiffF
         return parser.getRasterData(this, headerByteOrder, params);
     }
 
+    /**
+     * Adds the samples of a window of the numerical data of this TIFF directory to a statistics collector as its tiles or strips are decoded, so that the
+     * statistics of the window are computed without holding its samples in memory.
+     *
+     * @param x         the column of the upper-left corner of the window.
+     * @param y         the row of the upper-left corner of the window.
+     * @param width     the width of the window.
+     * @param height    the height of the window.
+     * @param collector the collector, which must have the samples per pixel of the directory.
+     * @param params    an optional parameter object instance, giving the executor used to decode blocks; its sub-image setting is ignored.
+     * @throws ImagingException in the event of incompatible or malformed data, or a window outside the image.
+     * @throws IOException      in the event of an I/O error
+     * @since 1.0-alpha6
+     */
+    public void collectRasterStatistics(final int x, final int y, final int width, final int height, final TiffRasterStatisticsCollector collector,
+            final TiffImagingParameters params) throws ImagingException, IOException {
+        final TiffImagingParameters window = new TiffImagingParameters();
+        if (params != null) {
+            window.setExecutor(params.getExecutor());
+        }
+        window.setSubImage(x, y, width, height);
+        new TiffImageParser().collectRasterStatistics(this, headerByteOrder, window, collector);
+    }
+
+    /**
+     * Reads the numerical data of a window of this TIFF directory into a raster supplied by the caller. The window starts at the given coordinates and has the
+     * size of the raster, which must have the samples per pixel of the directory.
+     * <p>
+     * The tiles or strips that overlap the window are decoded one at a time and written to the raster through its setters, without an intermediate array
+     * for the window. Combined with {@link TiffRasterDataBuffer}, this reads rasters that do not fit in the heap or exceed the range of an array index.
+     * </p>
+     *
+     * @param x      the column of the upper-left corner of the window.
+     * @param y      the row of the upper-left corner of the window.
+     * @param raster the raster that receives the data, converted to its data type.
+     * @param params an optional parameter object instance, giving the executor used to decode blocks; its sub-image setting is ignored.
+     * @throws ImagingException in the event of incompatible or malformed data, or a window outside the image.
+     * @throws IOException      in the event of an I/O error
+     * @since 1.0-alpha6
+     */
+    public void readRasterData(final int x, final int y, final TiffRasterData raster, final TiffImagingParameters params) throws ImagingException, IOException {
+        final TiffImagingParameters window = new TiffImagingParameters();
+        if (params != null) {
+            window.setExecutor(params.getExecutor());
+        }
+        window.setSubImage(x, y, raster.getWidth(), raster.getHeight());
+        new TiffImageParser().getRasterData(this, headerByteOrder, window, raster, null);
+    }
+
     private List<ImageDataElement> getRawImageDataElements(final TiffField offsetsField, final TiffField byteCountsField) throws ImagingException {
         final long[] offsets = offsetsField.getLongArrayValue();
         final int[] byteCounts = byteCountsField.getIntArrayValue();
@@ -64,8 +64,32 @@ public class TiffField {
 
     private final int sortHint;
 
+    /**
+     * The number of bytes a value may have to be inlined into the entry: four in classic TIFF, eight in BigTIFF.
+     */
+    private final int entryMaxValueLength;
+
     public TiffField(final int tag, final int directoryType, final AbstractFieldType abstractFieldType, final long count, final long offset, final byte[] value,
             final ByteOrder byteOrder, final int sortHint) {
+        this(tag, directoryType, abstractFieldType, count, offset, value, byteOrder, sortHint, TiffConstants.ENTRY_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param tag                 the tag.
+     * @param directoryType       the type of the directory holding the field.
+     * @param abstractFieldType   the field type.
+     * @param count               the number of values.
+     * @param offset              the offset of the value, or the inlined value itself.
+     * @param value               the bytes of the value.
+     * @param byteOrder           the byte order.
+     * @param sortHint            the position of the field in its directory.
+     * @param entryMaxValueLength the number of bytes a value may have to be inlined into the entry: four in classic TIFF, eight in BigTIFF.
+     * @since 1.0-alpha6
+     */
+    public TiffField(final int tag, final int directoryType, final AbstractFieldType abstractFieldType, final long count, final long offset, final byte[] value,
+            final ByteOrder byteOrder, final int sortHint, final int entryMaxValueLength) {
 
         this.tag = tag;
         this.directoryType = directoryType;
@@ -75,6 +99,7 @@ public class TiffField {
         this.value = value;
         this.byteOrder = byteOrder;
         this.sortHint = sortHint;
+        this.entryMaxValueLength = entryMaxValueLength;
 
         tagInfo = TiffTags.getTag(directoryType, tag);
     }
@@ -609,7 +634,7 @@ public class TiffField {
      * @return true if the value is inlined
      */
     public boolean isLocalValue() {
-        return count * abstractFieldType.getSize() <= TiffConstants.ENTRY_MAX_VALUE_LENGTH;
+        return count * abstractFieldType.getSize() <= entryMaxValueLength;
     }
 
     @Override
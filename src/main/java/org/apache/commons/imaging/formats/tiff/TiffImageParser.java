@@ -25,6 +25,7 @@ import java.io.PrintWriter;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import org.apache.commons.imaging.AbstractImageParser;
@@ -41,6 +42,7 @@ import org.apache.commons.imaging.common.XmpEmbeddable;
 import org.apache.commons.imaging.common.XmpImagingParameters;
 import org.apache.commons.imaging.formats.tiff.TiffDirectory.ImageDataElement;
 import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffDirectoryConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffEpTagConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffPlanarConfiguration;
 import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
@@ -228,8 +230,88 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
         return result;
     }
 
+    /**
+     * Gets a region of an image at the lowest resolution level that still provides at least the requested number of pixels, so that zoomed-out views can be
+     * served from the reduced-resolution images of a pyramidal TIFF instead of decoding the full-resolution image.
+     * <p>
+     * The region is given in full-resolution coordinates and mapped onto the selected level, rounding outwards. The returned image has the size of the mapped
+     * region, which is at least {@code outputSize} unless the full-resolution region itself is smaller; scaling it to the exact output size is left to the
+     * caller. The sub-image settings of {@code params} are ignored; the other settings apply to the image that is read.
+     * </p>
+     *
+     * @param byteSource A valid instance of ByteSource
+     * @param region     the region to read in full-resolution coordinates, or {@code null} for the whole image.
+     * @param outputSize the size the caller intends to display the region at.
+     * @param params     Optional instructions for special-handling or interpretation of the input data.
+     * @return the region at the selected resolution level.
+     * @throws ImagingException if the region is not within the image, or the image cannot be read.
+     * @throws IOException      In the event of unsuccessful read or access operation.
+     * @see #getResolutionLevels(ByteSource, TiffImagingParameters)
+     * @since 1.0-alpha6
+     */
+    public BufferedImage getBufferedImage(final ByteSource byteSource, Rectangle region, final Dimension outputSize, final TiffImagingParameters params)
+            throws ImagingException, IOException {
+        if (outputSize == null || outputSize.width <= 0 || outputSize.height <= 0) {
+            throw new ImagingException("Invalid output size: " + outputSize);
+        }
+        final List<TiffResolutionLevel> levels = getResolutionLevels(byteSource, params);
+        final TiffResolutionLevel fullResolution = levels.get(0);
+        final Rectangle bounds = new Rectangle(fullResolution.getWidth(), fullResolution.getHeight());
+        if (region == null) {
+            region = bounds;
+        } else if (region.isEmpty() || !bounds.contains(region)) {
+            throw new ImagingException("Region " + region + " is not within the image bounds " + bounds);
+        }
+
+        // the levels are ordered by decreasing size, keep the last one that is large enough
+        TiffResolutionLevel level = fullResolution;
+        for (final TiffResolutionLevel candidate : levels) {
+            if (region.width * candidate.getScaleX() < outputSize.width || region.height * candidate.getScaleY() < outputSize.height) {
+                break;
+            }
+            level = candidate;
+        }
+
+        final int x0 = Math.min((int) Math.floor(region.x * level.getScaleX()), level.getWidth() - 1);
+        final int y0 = Math.min((int) Math.floor(region.y * level.getScaleY()), level.getHeight() - 1);
+        final int x1 = Math.max(Math.min((int) Math.ceil((region.x + region.width) * level.getScaleX()), level.getWidth()), x0 + 1);
+        final int y1 = Math.max(Math.min((int) Math.ceil((region.y + region.height) * level.getScaleY()), level.getHeight()), y0 + 1);
+
+        final TiffImagingParameters levelParams = new TiffImagingParameters();
+        if (params != null) {
+            levelParams.setStrict(params.isStrict());
+            levelParams.setExecutor(params.getExecutor());
+            levelParams.setBufferedImageFactory(params.getBufferedImageFactory());
+            levelParams.setCustomPhotometricInterpreter(params.getCustomPhotometricInterpreter());
+        }
+        if (x0 != 0 || y0 != 0 || x1 != level.getWidth() || y1 != level.getHeight()) {
+            levelParams.setSubImage(x0, y0, x1 - x0, y1 - y0);
+        }
+        final BufferedImage result = level.getDirectory().getTiffImage(levelParams);
+        if (null == result) {
+            throw new ImagingException("TIFF does not contain an image.");
+        }
+        return result;
+    }
+
     protected BufferedImage getBufferedImage(final TiffDirectory directory, final ByteOrder byteOrder, final TiffImagingParameters params)
             throws ImagingException, IOException {
+        return getBufferedImage(directory, byteOrder, params, null);
+    }
+
+    /**
+     * Reads the image of a TIFF directory, taking the decompressed tiles or strips from a cache where possible.
+     *
+     * @param directory  the TIFF directory holding the image.
+     * @param byteOrder  the byte order of the file.
+     * @param params     an optional parameter object instance.
+     * @param blockCache an optional cache of decompressed blocks.
+     * @return the image.
+     * @throws ImagingException in the event of incompatible or malformed data
+     * @throws IOException      in the event of an I/O error
+     */
+    BufferedImage getBufferedImage(final TiffDirectory directory, final ByteOrder byteOrder, final TiffImagingParameters params,
+            final TiffBlockCache blockCache) throws ImagingException, IOException {
         final short compressionFieldValue;
         if (directory.findField(TiffTagConstants.TIFF_TAG_COMPRESSION) != null) {
             compressionFieldValue = directory.getFieldValue(TiffTagConstants.TIFF_TAG_COMPRESSION);
@@ -356,6 +438,8 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
 
         final ImageDataReader dataReader = imageData.getDataReader(directory, photometricInterpreter, bitsPerPixel, bitsPerSample, predictor, samplesPerPixel,
                 width, height, compression, planarConfiguration, byteOrder);
+        dataReader.setExecutor(params == null ? null : params.getExecutor());
+        dataReader.setBlockCache(blockCache);
 
         final ImageBuilder iBuilder = dataReader.readImageData(subImage, hasAlpha, isAlphaPremultiplied);
         return iBuilder.getBufferedImage();
@@ -710,7 +794,52 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
      * @throws ImagingException in the event of incompatible or malformed data
      * @throws IOException      in the event of an I/O error
      */
-    TiffRasterData getRasterData(final TiffDirectory directory, final ByteOrder byteOrder, TiffImagingParameters params) throws ImagingException, IOException {
+    TiffRasterData getRasterData(final TiffDirectory directory, final ByteOrder byteOrder, final TiffImagingParameters params)
+            throws ImagingException, IOException {
+        return getRasterData(directory, byteOrder, params, null, null);
+    }
+
+    /**
+     * Reads numeric data from a TIFF directory, either into a new raster or into a raster supplied by the caller.
+     *
+     * @param directory   the TIFF directory pointing to the data to be extracted (TIFF files may contain multiple directories)
+     * @param byteOrder   the byte order of the data to be extracted
+     * @param params      an optional parameter object instance
+     * @param destination if non-null, the raster that receives the data of the sub-image, which must have its size and the samples per pixel of the
+     *                    directory.
+     * @param blockCache  an optional cache of decompressed blocks.
+     * @return the destination, or a new instance.
+     * @throws ImagingException in the event of incompatible or malformed data
+     * @throws IOException      in the event of an I/O error
+     */
+    TiffRasterData getRasterData(final TiffDirectory directory, final ByteOrder byteOrder, final TiffImagingParameters params,
+            final TiffRasterData destination, final TiffBlockCache blockCache) throws ImagingException, IOException {
+        return getRasterData(directory, byteOrder, params, destination, null, blockCache);
+    }
+
+    /**
+     * Adds the numeric data of a TIFF directory, or of the sub-image of the parameters, to a statistics collector as its blocks are decoded.
+     *
+     * @param directory the TIFF directory pointing to the data.
+     * @param byteOrder the byte order of the data.
+     * @param params    an optional parameter object instance.
+     * @param collector the collector, which must have the samples per pixel of the directory.
+     * @throws ImagingException in the event of incompatible or malformed data
+     * @throws IOException      in the event of an I/O error
+     */
+    void collectRasterStatistics(final TiffDirectory directory, final ByteOrder byteOrder, final TiffImagingParameters params,
+            final TiffRasterStatisticsCollector collector) throws ImagingException, IOException {
+        getRasterData(directory, byteOrder, params, null, collector, null);
+    }
+
+    /**
+     * Reads numeric data from a TIFF directory into a new raster, a raster supplied by the caller or a statistics collector.
+     *
+     * @return the destination, a new instance, or null if the samples were passed to the collector.
+     */
+    private TiffRasterData getRasterData(final TiffDirectory directory, final ByteOrder byteOrder, TiffImagingParameters params,
+            final TiffRasterData destination, final TiffRasterStatisticsCollector collector, final TiffBlockCache blockCache)
+            throws ImagingException, IOException {
         if (params == null) {
             params = getDefaultParameters();
         }
@@ -796,7 +925,7 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
                 : TiffPlanarConfiguration.lenientValueOf(pcField.getIntValue());
 
         if (sSampleFmt[0] == TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT) {
-            if (bitsPerSample[0] != 32 && bitsPerSample[0] != 64) {
+            if (bitsPerSample[0] != 16 && bitsPerSample[0] != 32 && bitsPerSample[0] != 64) {
                 throw new ImagingException("TIFF floating-point data uses unsupported bits-per-sample: " + bitsPerSample[0]);
             }
 
@@ -831,10 +960,96 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
 
         final ImageDataReader dataReader = imageData.getDataReader(directory, photometricInterpreter, bitsPerPixel, bitsPerSample, predictor, samplesPerPixel,
                 width, height, compression, planarConfiguration, byteOrder);
-
+        dataReader.setExecutor(params.getExecutor());
+        dataReader.setBlockCache(blockCache);
+
+        if (destination != null) {
+            final int rasterWidth = subImage == null ? width : subImage.width;
+            final int rasterHeight = subImage == null ? height : subImage.height;
+            if (destination.getWidth() != rasterWidth || destination.getHeight() != rasterHeight || destination.getSamplesPerPixel() != samplesPerPixel) {
+                throw new ImagingException("Raster of " + destination.getWidth() + "x" + destination.getHeight() + "x" + destination.getSamplesPerPixel()
+                        + " samples does not match the " + rasterWidth + "x" + rasterHeight + "x" + samplesPerPixel + " samples read");
+            }
+            dataReader.readRasterData(subImage, destination);
+            return destination;
+        }
+        if (collector != null) {
+            if (collector.getSamplesPerPixel() != samplesPerPixel) {
+                throw new ImagingException("Statistics collector of " + collector.getSamplesPerPixel() + " samples per pixel does not match the "
+                        + samplesPerPixel + " samples per pixel read");
+            }
+            // the collector keeps partial statistics for each decoding thread
+            dataReader.readSamples(subImage == null ? new Rectangle(width, height) : subImage, (x, y, i, value) -> collector.accept(i, value));
+            return null;
+        }
         return dataReader.readRasterData(subImage);
     }
 
+    /**
+     * Gets the resolution levels of the first image in a TIFF file: the full-resolution image followed by its reduced-resolution versions.
+     * <p>
+     * Reduced-resolution versions are the directories that follow the first one in the main chain and have the reduced-resolution bit set in their
+     * NewSubfileType field, up to the next full-resolution page, and the SubIFDs of the first directory with that bit set. Transparency masks are skipped.
+     * </p>
+     *
+     * @param byteSource A valid instance of ByteSource
+     * @param params     Optional instructions for special-handling or interpretation of the input data.
+     * @return the levels, ordered by decreasing width; the first element is the full-resolution image.
+     * @throws ImagingException if the file does not contain an image.
+     * @throws IOException      In the event of unsuccessful read or access operation.
+     * @since 1.0-alpha6
+     */
+    public List<TiffResolutionLevel> getResolutionLevels(final ByteSource byteSource, final TiffImagingParameters params) throws ImagingException, IOException {
+        final FormatCompliance formatCompliance = FormatCompliance.getDefault();
+        final TiffReader reader = new TiffReader(params != null && params.isStrict());
+        final TiffContents contents = reader.readDirectories(byteSource, true, formatCompliance);
+        final TiffDirectory fullResolution = contents.directories.get(0);
+        if (fullResolution.getTiffImageData() == null) {
+            throw new ImagingException("TIFF does not contain an image.");
+        }
+        final int fullWidth = fullResolution.getSingleFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH);
+        final int fullHeight = fullResolution.getSingleFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH);
+
+        final List<TiffDirectory> candidates = new ArrayList<>();
+        for (final TiffDirectory directory : contents.directories) {
+            if (directory.type <= TiffDirectoryConstants.DIRECTORY_TYPE_ROOT) {
+                // the first directory, or an EXIF, GPS or interoperability directory
+                continue;
+            }
+            final TiffField subfileTypeField = directory.findField(TiffTagConstants.TIFF_TAG_NEW_SUBFILE_TYPE);
+            final int subfileType = subfileTypeField == null ? 0 : subfileTypeField.getIntValue();
+            if ((subfileType & TiffTagConstants.SUBFILE_TYPE_VALUE_TRANSPARENCY_MASK) != 0) {
+                // some writers interleave the masks with the overviews
+                continue;
+            }
+            if ((subfileType & TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE) == 0) {
+                // the next page
+                break;
+            }
+            candidates.add(directory);
+        }
+        candidates.addAll(reader.readSubDirectories(byteSource, fullResolution, true, formatCompliance));
+
+        final List<TiffResolutionLevel> levels = new ArrayList<>();
+        levels.add(new TiffResolutionLevel(fullResolution, fullWidth, fullHeight, fullWidth, fullHeight));
+        for (final TiffDirectory directory : candidates) {
+            final TiffField subfileTypeField = directory.findField(TiffTagConstants.TIFF_TAG_NEW_SUBFILE_TYPE);
+            final int subfileType = subfileTypeField == null ? 0 : subfileTypeField.getIntValue();
+            if ((subfileType & TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE) == 0
+                    || (subfileType & TiffTagConstants.SUBFILE_TYPE_VALUE_TRANSPARENCY_MASK) != 0 || directory.getTiffImageData() == null) {
+                continue;
+            }
+            final int width = directory.getSingleFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH);
+            final int height = directory.getSingleFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH);
+            if (width > 0 && height > 0 && width <= fullWidth && height <= fullHeight) {
+                levels.add(new TiffResolutionLevel(directory, width, height, fullWidth, fullHeight));
+            }
+        }
+        // a stable sort keeps the full-resolution image first
+        levels.sort(Comparator.comparingInt(TiffResolutionLevel::getWidth).reversed());
+        return levels;
+    }
+
     @Override
     public String getXmpXml(final ByteSource byteSource, XmpImagingParameters<TiffImagingParameters> params) throws ImagingException, IOException {
         if (params == null) {
@@ -861,4 +1076,22 @@ public class TiffImageParser extends AbstractImageParser<TiffImagingParameters>
         new TiffImageWriterLossy().writeImage(src, os, params);
     }
 
+    /**
+     * Writes images as the pages of a multi-page TIFF file.
+     *
+     * @param pages  the pages, in order.
+     * @param os     the stream to write to.
+     * @param params the parameters of every page, may be null; its executor, if any, compresses the pages concurrently.
+     * @throws ImagingException if the parameters are not supported.
+     * @throws IOException      if an I/O error occurs.
+     * @see TiffImageWriterLossy#writeImages(Iterable, OutputStream, TiffImagingParameters, java.util.function.IntFunction)
+     * @since 1.0-alpha6
+     */
+    public void writeImages(final Iterable<BufferedImage> pages, final OutputStream os, TiffImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new TiffImagingParameters();
+        }
+        new TiffImageWriterLossy().writeImages(pages, os, params);
+    }
+
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+
+/**
+ * Reads images and raster data from a TIFF file repeatedly, as a server does for overlapping windows of the same file.
+ * <p>
+ * The image file directories are parsed once, when the session is constructed, and the tiles or strips decompressed by each read are kept in a
+ * {@link TiffBlockCache}, so that later reads of overlapping windows only decompress the blocks that are not in the cache. The compressed bytes of a block
+ * are read from the byte source only when the block is decompressed. A session may be used from several threads.
+ * </p>
+ *
+ * <pre>
+ * TiffImageReaderSession session = new TiffImageReaderSession(ByteSource.file(file), new TiffBlockCache(64 * 1024 * 1024));
+ * TiffImagingParameters params = new TiffImagingParameters();
+ * params.setSubImage(x, y, width, height);
+ * BufferedImage window = session.getBufferedImage(params);
+ * </pre>
+ *
+ * @since 1.0-alpha6
+ */
+public class TiffImageReaderSession {
+
+    private final ByteSource byteSource;
+    private final List<TiffDirectory> directories;
+    private final TiffBlockCache blockCache;
+
+    /**
+     * Constructs a session, reading the directories of the file.
+     *
+     * @param byteSource the TIFF file.
+     * @param blockCache the cache of decompressed blocks, which may be shared with other sessions.
+     * @throws ImagingException in the event of malformed data.
+     * @throws IOException      in the event of an I/O error.
+     */
+    public TiffImageReaderSession(final ByteSource byteSource, final TiffBlockCache blockCache) throws ImagingException, IOException {
+        if (blockCache == null) {
+            throw new IllegalArgumentException("A block cache is required");
+        }
+        this.byteSource = byteSource;
+        this.blockCache = blockCache;
+        final TiffContents contents = new TiffReader(false).readDirectories(byteSource, true, FormatCompliance.getDefault());
+        this.directories = Collections.unmodifiableList(contents.directories);
+    }
+
+    /**
+     * Gets the cache of decompressed blocks.
+     *
+     * @return a valid instance.
+     */
+    public TiffBlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Gets the image of the first directory of the file, or the window of it given by the sub-image settings of the parameters.
+     *
+     * @param params optional instructions for the read, such as a sub-image.
+     * @return a valid image.
+     * @throws ImagingException in the event of incompatible or malformed data.
+     * @throws IOException      in the event of an I/O error.
+     */
+    public BufferedImage getBufferedImage(final TiffImagingParameters params) throws ImagingException, IOException {
+        return getBufferedImage(0, params);
+    }
+
+    /**
+     * Gets the image of a directory of the file, or the window of it given by the sub-image settings of the parameters.
+     *
+     * @param directoryIndex the index of the directory in {@link #getDirectories()}.
+     * @param params         optional instructions for the read, such as a sub-image.
+     * @return a valid image.
+     * @throws ImagingException in the event of incompatible or malformed data, or a directory without an image.
+     * @throws IOException      in the event of an I/O error.
+     */
+    public BufferedImage getBufferedImage(final int directoryIndex, final TiffImagingParameters params) throws ImagingException, IOException {
+        final TiffDirectory directory = getImageDirectory(directoryIndex);
+        return new TiffImageParser().getBufferedImage(directory, directory.getByteOrder(), params, blockCache);
+    }
+
+    /**
+     * Gets the byte source of the file.
+     *
+     * @return a valid instance.
+     */
+    public ByteSource getByteSource() {
+        return byteSource;
+    }
+
+    /**
+     * Gets the number of blocks of this session or of others sharing the cache that were taken from the cache.
+     *
+     * @return a positive number, potentially zero.
+     */
+    public long getCacheHitCount() {
+        return blockCache.getHitCount();
+    }
+
+    /**
+     * Gets the number of blocks of this session or of others sharing the cache that had to be decompressed.
+     *
+     * @return a positive number, potentially zero.
+     */
+    public long getCacheMissCount() {
+        return blockCache.getMissCount();
+    }
+
+    /**
+     * Gets the directories of the file, in the order they were read.
+     *
+     * @return an unmodifiable list.
+     */
+    public List<TiffDirectory> getDirectories() {
+        return directories;
+    }
+
+    private TiffDirectory getImageDirectory(final int directoryIndex) throws ImagingException {
+        if (directoryIndex < 0 || directoryIndex >= directories.size()) {
+            throw new ImagingException("Directory index " + directoryIndex + " is not in the range 0 to " + (directories.size() - 1));
+        }
+        final TiffDirectory directory = directories.get(directoryIndex);
+        if (!directory.hasTiffImageData()) {
+            throw new ImagingException("TIFF directory " + directoryIndex + " does not contain an image.");
+        }
+        return directory;
+    }
+
+    /**
+     * Gets the numeric raster data of a directory of the file, or the window of it given by the sub-image settings of the parameters.
+     *
+     * @param directoryIndex the index of the directory in {@link #getDirectories()}.
+     * @param params         optional instructions for the read, such as a sub-image.
+     * @return a valid raster.
+     * @throws ImagingException in the event of incompatible or malformed data, or a directory without an image.
+     * @throws IOException      in the event of an I/O error.
+     */
+    public TiffRasterData getRasterData(final int directoryIndex, final TiffImagingParameters params) throws ImagingException, IOException {
+        final TiffDirectory directory = getImageDirectory(directoryIndex);
+        return new TiffImageParser().getRasterData(directory, directory.getByteOrder(), params, null, blockCache);
+    }
+}
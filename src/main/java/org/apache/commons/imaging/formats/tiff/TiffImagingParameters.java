@@ -100,6 +100,31 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
      */
     private Integer t6Options;
 
+    /**
+     * Width of the tiles of written images, zero for images written as strips.
+     */
+    private int tileWidth;
+
+    /**
+     * Length of the tiles of written images, zero for images written as strips.
+     */
+    private int tileLength;
+
+    /**
+     * Number of reduced-resolution images (overviews) written after a tiled image, each half the size of the previous one.
+     */
+    private int overviewCount;
+
+    /**
+     * Predictor of raster data written with LZW or Deflate compression, null for none.
+     */
+    private Integer predictor;
+
+    /**
+     * Size of the floating-point samples of written raster data, zero for the precision of the raster.
+     */
+    private int floatingPointBitsPerSample;
+
     /**
      * Clears settings for sub-image. Subsequent read operations will retrieve the entire image.
      */
@@ -108,6 +133,16 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         subImageHeight = 0;
     }
 
+    /**
+     * Clears the tile size. Subsequent write operations will write strips.
+     *
+     * @since 1.0-alpha6
+     */
+    public void clearTileSize() {
+        tileWidth = 0;
+        tileLength = 0;
+    }
+
     public Integer getCompression() {
         return compression;
     }
@@ -116,10 +151,30 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return customPhotometricInterpreter;
     }
 
+    /**
+     * Gets the size of the floating-point samples of written raster data.
+     *
+     * @return 16, 32 or 64 bits, or zero for the precision of the raster.
+     * @since 1.0-alpha6
+     */
+    public int getFloatingPointBitsPerSample() {
+        return floatingPointBitsPerSample;
+    }
+
     public Integer getLzwCompressionBlockSize() {
         return lzwCompressionBlockSize;
     }
 
+    /**
+     * Gets the number of reduced-resolution images written after a tiled image.
+     *
+     * @return the number of overviews, zero if none are written.
+     * @since 1.0-alpha6
+     */
+    public int getOverviewCount() {
+        return overviewCount;
+    }
+
     /**
      * Gets the TIFF output set for writing TIFF files.
      *
@@ -129,6 +184,16 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return tiffOutputSet;
     }
 
+    /**
+     * Gets the predictor of raster data written with LZW or Deflate compression.
+     *
+     * @return a TIFF predictor value, or null for none.
+     * @since 1.0-alpha6
+     */
+    public Integer getPredictor() {
+        return predictor;
+    }
+
     /**
      * Gets the height for a sub-image setting. For a sub-image setting to be meaningful, both the width and height must be set.
      *
@@ -165,6 +230,26 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return subImageY;
     }
 
+    /**
+     * Gets the length of the tiles of written images.
+     *
+     * @return the tile length, zero if images are written as strips.
+     * @since 1.0-alpha6
+     */
+    public int getTileLength() {
+        return tileLength;
+    }
+
+    /**
+     * Gets the width of the tiles of written images.
+     *
+     * @return the tile width, zero if images are written as strips.
+     * @since 1.0-alpha6
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
     public Integer getT4Options() {
         return t4Options;
     }
@@ -196,11 +281,45 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return asThis();
     }
 
+    /**
+     * Sets the size of the floating-point samples of written raster data. Half-precision (16-bit) samples keep about three significant digits, and
+     * single-precision samples written from a double-precision raster are rounded to the nearest float.
+     *
+     * @param floatingPointBitsPerSample 16, 32 or 64 bits, or zero for the precision of the raster: 64 bits for double-precision rasters and 32 bits
+     *                                   otherwise.
+     * @return {@code this} instance.
+     * @since 1.0-alpha6
+     */
+    public TiffImagingParameters setFloatingPointBitsPerSample(final int floatingPointBitsPerSample) {
+        if (floatingPointBitsPerSample != 0 && floatingPointBitsPerSample != 16 && floatingPointBitsPerSample != 32 && floatingPointBitsPerSample != 64) {
+            throw new IllegalArgumentException("Invalid floating-point bits per sample: " + floatingPointBitsPerSample);
+        }
+        this.floatingPointBitsPerSample = floatingPointBitsPerSample;
+        return asThis();
+    }
+
     public TiffImagingParameters setLzwCompressionBlockSize(final Integer lzwCompressionBlockSize) {
         this.lzwCompressionBlockSize = lzwCompressionBlockSize;
         return asThis();
     }
 
+    /**
+     * Sets the number of reduced-resolution images (overviews) written after a tiled image. Each overview is half the width and height of the previous level,
+     * rounded up, and is marked as a reduced-resolution image with the NewSubfileType field. Overviews are only written for tiled images; fewer are written
+     * if the image becomes a single pixel first.
+     *
+     * @param overviewCount the number of overviews, zero for none.
+     * @return {@code this} instance.
+     * @since 1.0-alpha6
+     */
+    public TiffImagingParameters setOverviewCount(final int overviewCount) {
+        if (overviewCount < 0) {
+            throw new IllegalArgumentException("Invalid overview count: " + overviewCount);
+        }
+        this.overviewCount = overviewCount;
+        return asThis();
+    }
+
     /**
      * Sets the TIFF output set for writing TIFF files. An output set may contain various types of TiffDirectories including image directories, EXIF
      * directories, GPS-related directories, etc.
@@ -213,6 +332,20 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return asThis();
     }
 
+    /**
+     * Sets the predictor of raster data written with LZW or Deflate compression. The floating-point predictor of TIFF Technical Note 3, which groups the
+     * bytes of each row by significance, typically makes floating-point rasters 20 to 30 percent smaller.
+     *
+     * @param predictor TiffTagConstants&#46;PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING for floating-point rasters,
+     *                  TiffTagConstants&#46;PREDICTOR_VALUE_NONE or null for none.
+     * @return {@code this} instance.
+     * @since 1.0-alpha6
+     */
+    public TiffImagingParameters setPredictor(final Integer predictor) {
+        this.predictor = predictor;
+        return asThis();
+    }
+
     public TiffImagingParameters setReadThumbnails(final boolean readThumbnails) {
         this.readThumbnails = readThumbnails;
         return asThis();
@@ -244,6 +377,27 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return asThis();
     }
 
+    /**
+     * Sets the tile size of written images. Tiled images are written with all directories ahead of the image data, as cloud-optimized readers expect, and
+     * their tiles are compressed concurrently if an executor is set.
+     * <p>
+     * The TIFF specification requires both dimensions to be multiples of 16.
+     * </p>
+     *
+     * @param tileWidth  the tile width, a positive multiple of 16.
+     * @param tileLength the tile length, a positive multiple of 16.
+     * @return {@code this} instance.
+     * @since 1.0-alpha6
+     */
+    public TiffImagingParameters setTileSize(final int tileWidth, final int tileLength) {
+        if (tileWidth <= 0 || tileLength <= 0 || tileWidth % 16 != 0 || tileLength % 16 != 0) {
+            throw new IllegalArgumentException("Invalid tile size " + tileWidth + "x" + tileLength + ": both must be positive multiples of 16");
+        }
+        this.tileWidth = tileWidth;
+        this.tileLength = tileLength;
+        return asThis();
+    }
+
     public TiffImagingParameters setT4Options(final Integer t4Options) {
         this.t4Options = t4Options;
         return asThis();
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+/**
+ * Stores the statistics of one band of a raster, or of all its bands combined, as tabulated by a {@link TiffRasterStatisticsCollector}.
+ * <p>
+ * Null-data (NaN) samples and excluded values are counted separately and do not contribute to any other statistic. The histogram has bins of equal width
+ * over the range given to the collector; samples outside the range are only counted as being below or above it.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class TiffRasterBandStatistics {
+
+    private final long nSample;
+    private final long nNull;
+    private final long nExcluded;
+    private final double minValue;
+    private final double maxValue;
+    private final double meanValue;
+    private final double variance;
+    private final double histogramMin;
+    private final double histogramMax;
+    private final long[] histogram;
+    private final long nBelow;
+    private final long nAbove;
+
+    TiffRasterBandStatistics(final long nSample, final long nNull, final long nExcluded, final double minValue, final double maxValue, final double sum,
+            final double sumOfSquaredDeviations, final double histogramMin, final double histogramMax, final long[] histogram, final long nBelow,
+            final long nAbove) {
+        this.nSample = nSample;
+        this.nNull = nNull;
+        this.nExcluded = nExcluded;
+        this.histogramMin = histogramMin;
+        this.histogramMax = histogramMax;
+        this.histogram = histogram;
+        this.nBelow = nBelow;
+        this.nAbove = nAbove;
+        if (nSample == 0) {
+            this.minValue = Double.NaN;
+            this.maxValue = Double.NaN;
+            this.meanValue = Double.NaN;
+            this.variance = Double.NaN;
+        } else {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.meanValue = sum / nSample;
+            this.variance = sumOfSquaredDeviations / nSample;
+        }
+    }
+
+    /**
+     * Gets the count of the samples above the range of the histogram.
+     *
+     * @return a positive number, potentially zero
+     */
+    public long getCountAboveHistogram() {
+        return nAbove;
+    }
+
+    /**
+     * Gets the count of the samples below the range of the histogram.
+     *
+     * @return a positive number, potentially zero
+     */
+    public long getCountBelowHistogram() {
+        return nBelow;
+    }
+
+    /**
+     * Gets the count of the samples that were equal to an excluded value.
+     *
+     * @return a positive number, potentially zero
+     */
+    public long getCountOfExcludedValues() {
+        return nExcluded;
+    }
+
+    /**
+     * Gets the count of the null (NaN) samples.
+     *
+     * @return a positive number, potentially zero
+     */
+    public long getCountOfNulls() {
+        return nNull;
+    }
+
+    /**
+     * Gets the count of the non-null and non-excluded samples.
+     *
+     * @return a positive number, potentially zero
+     */
+    public long getCountOfSamples() {
+        return nSample;
+    }
+
+    /**
+     * Gets a safe copy of the counts of the histogram bins. Bin {@code k} counts the samples from {@code min + k * (max - min) / n} up to, but not including,
+     * the start of the next bin; the last bin also counts samples equal to the upper end of the range.
+     *
+     * @return a new array of the length given by the number of bins.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Gets the upper end of the range of the histogram.
+     *
+     * @return a finite value.
+     */
+    public double getHistogramMax() {
+        return histogramMax;
+    }
+
+    /**
+     * Gets the lower end of the range of the histogram.
+     *
+     * @return a finite value.
+     */
+    public double getHistogramMin() {
+        return histogramMin;
+    }
+
+    /**
+     * Gets the maximum value found in the samples.
+     *
+     * @return the maximum value, or NaN if there were no samples.
+     */
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Gets the mean value of the samples.
+     *
+     * @return the mean value, or NaN if there were no samples.
+     */
+    public double getMeanValue() {
+        return meanValue;
+    }
+
+    /**
+     * Gets the minimum value found in the samples.
+     *
+     * @return the minimum value, or NaN if there were no samples.
+     */
+    public double getMinValue() {
+        return minValue;
+    }
+
+    /**
+     * Gets an approximate percentile of the samples, interpolated linearly within the histogram bin that holds it. The samples outside the range of the
+     * histogram are treated as two further bins reaching to the minimum and maximum values, so the result is exact at 0 and 100 and its error elsewhere is
+     * bounded by the width of a bin.
+     *
+     * @param percent a value from 0 to 100.
+     * @return the approximate percentile, or NaN if there were no samples.
+     */
+    public double getPercentile(final double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percentile " + percent + " is not in the range 0 to 100");
+        }
+        if (nSample == 0) {
+            return Double.NaN;
+        }
+        final double rank = percent / 100 * nSample;
+        if (rank <= nBelow) {
+            return interpolate(minValue, Math.max(minValue, histogramMin), rank, nBelow);
+        }
+        double before = nBelow;
+        final double binWidth = (histogramMax - histogramMin) / histogram.length;
+        for (int k = 0; k < histogram.length; k++) {
+            if (rank <= before + histogram[k] && histogram[k] > 0) {
+                final double lower = histogramMin + k * binWidth;
+                final double upper = k == histogram.length - 1 ? histogramMax : lower + binWidth;
+                return clamp(interpolate(lower, upper, rank - before, histogram[k]));
+            }
+            before += histogram[k];
+        }
+        return interpolate(Math.min(maxValue, histogramMax), maxValue, rank - before, nAbove);
+    }
+
+    /**
+     * Gets the population standard deviation of the samples.
+     *
+     * @return a positive value, or NaN if there were no samples.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Gets the population variance of the samples.
+     *
+     * @return a positive value, or NaN if there were no samples.
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    private double clamp(final double value) {
+        return Math.max(minValue, Math.min(maxValue, value));
+    }
+
+    private static double interpolate(final double lower, final double upper, final double rank, final long count) {
+        if (count == 0) {
+            return lower;
+        }
+        return lower + (upper - lower) * Math.min(1, rank / count);
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.commons.imaging.formats.tiff;
 
+import org.apache.commons.imaging.common.Allocator;
+
 /**
  * Provides a simple container for numeric-raster data. Some TIFF files are used to store floating-point or integer data rather than images. This class is
  * intended to support access to those TIFF files.
@@ -91,6 +93,49 @@ public abstract class TiffRasterData {
      */
     public abstract TiffRasterDataType getDataType();
 
+    /**
+     * Returns the content stored in this instance as double-precision values. Unlike {@link #getData()}, this is a copy unless the raster holds
+     * double-precision data.
+     * <p>
+     * See the class API documentation above for notes on accessing array elements.
+     *
+     * @return the data content stored in this instance.
+     * @since 1.0-alpha6
+     */
+    public double[] getDoubleData() {
+        final float[] data = getData();
+        final double[] result = Allocator.doubleArray(data.length);
+        for (int i = 0; i < data.length; i++) {
+            result[i] = data[i];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the value stored at the specified raster coordinates at the precision of the raster.
+     *
+     * @param x integer coordinate in the columnar direction
+     * @param y integer coordinate in the row direction
+     * @return the value stored at the specified location; potentially a Double&#46;NaN.
+     * @since 1.0-alpha6
+     */
+    public double getDoubleValue(final int x, final int y) {
+        return getDoubleValue(x, y, 0);
+    }
+
+    /**
+     * Gets the value stored at the specified raster coordinates at the precision of the raster.
+     *
+     * @param x integer coordinate in the columnar direction
+     * @param y integer coordinate in the row direction
+     * @param i integer sample index
+     * @return the value stored at the specified location; potentially a Double&#46;NaN.
+     * @since 1.0-alpha6
+     */
+    public double getDoubleValue(final int x, final int y, final int i) {
+        return getValue(x, y, i);
+    }
+
     /**
      * Gets the height (number of rows) of the raster.
      *
@@ -184,6 +229,31 @@ public abstract class TiffRasterData {
         return width;
     }
 
+    /**
+     * Sets the value stored at the specified raster coordinates, rounding it to the precision of the raster.
+     *
+     * @param x     integer coordinate in the columnar direction
+     * @param y     integer coordinate in the row direction
+     * @param value the value to be stored at the specified location; potentially a Double&#46;NaN.
+     * @since 1.0-alpha6
+     */
+    public void setDoubleValue(final int x, final int y, final double value) {
+        setDoubleValue(x, y, 0, value);
+    }
+
+    /**
+     * Sets the value stored at the specified raster coordinates, rounding it to the precision of the raster.
+     *
+     * @param x     integer coordinate in the columnar direction
+     * @param y     integer coordinate in the row direction
+     * @param i     integer sample index (for data sets giving multiple samples per raster cell).
+     * @param value the value to be stored at the specified location; potentially a Double&#46;NaN.
+     * @since 1.0-alpha6
+     */
+    public void setDoubleValue(final int x, final int y, final int i, final double value) {
+        setValue(x, y, i, (float) value);
+    }
+
     /**
      * Sets the value stored at the specified raster coordinates.
      *
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Provides a container for numeric-raster data held outside the Java heap, in direct memory or in a memory-mapped file. Unlike {@link TiffRasterDataFloat}
+ * and {@link TiffRasterDataInt}, the number of samples is not limited by the size of an array: the samples are held in chunks of up to 2<sup>27</sup>
+ * samples and are addressed with long indices. This is intended for rasters, such as continental elevation models, that exceed the heap or the int index
+ * range; they can be filled a window at a time with {@link TiffDirectory#readRasterData(int, int, TiffRasterData, TiffImagingParameters)}.
+ * <p>
+ * <strong>Note:</strong> The getData(), getIntData() and getDoubleData() methods return copies, and so are only available for rasters that fit in an array.
+ * <p>
+ * <strong>Data layout:</strong> The samples are stored in row-major order, one sample at a time, as in the other raster classes. Thus the index of a
+ * particular value, as used by the methods taking a long index, is computed as
+ *
+ * <pre>
+ * index = y * width + x + iSample * width * height;
+ * </pre>
+ * <p>
+ * Samples at different indices may be set concurrently.
+ * </p>
+ * <p>
+ * <strong>Releasing memory:</strong> The direct memory and the mappings of an instance are freed by the garbage collector once the instance is no longer
+ * referenced. {@link #close() Closing} the raster drops its references to them at once, so that they are freed even if the raster itself is still
+ * referenced, for example by a cache; the raster cannot be used after it has been closed.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public class TiffRasterDataBuffer extends TiffRasterData implements Closeable {
+
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /**
+     * Creates a raster in direct memory, outside the Java heap. The samples are initially zero.
+     *
+     * @param width           a value of 1 or greater
+     * @param height          a value of 1 or greater
+     * @param samplesPerPixel a value of 1 or greater
+     * @param dataType        the type of the samples.
+     * @return a new instance.
+     */
+    public static TiffRasterDataBuffer allocateDirect(final int width, final int height, final int samplesPerPixel, final TiffRasterDataType dataType) {
+        final long size = (long) width * height * samplesPerPixel * bytesPerSample(dataType);
+        final ByteBuffer[] chunks = new ByteBuffer[chunkCount(size, dataType)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkSize(size, i, dataType));
+        }
+        return new TiffRasterDataBuffer(width, height, samplesPerPixel, dataType, chunks);
+    }
+
+    private static int bytesPerSample(final TiffRasterDataType dataType) {
+        return dataType == TiffRasterDataType.DOUBLE ? 8 : 4;
+    }
+
+    private static int chunkCount(final long size, final TiffRasterDataType dataType) {
+        final long chunkBytes = (long) bytesPerSample(dataType) << CHUNK_SHIFT;
+        return (int) ((size + chunkBytes - 1) / chunkBytes);
+    }
+
+    private static int chunkSize(final long size, final int chunk, final TiffRasterDataType dataType) {
+        final long chunkBytes = (long) bytesPerSample(dataType) << CHUNK_SHIFT;
+        return (int) Math.min(chunkBytes, size - chunk * chunkBytes);
+    }
+
+    /**
+     * Creates a raster in a memory-mapped file, which is created if it does not exist and extended to the size of the raster. Samples already in the file are
+     * kept, so a raster written to a file can be mapped again later. Changes are written to the file by the operating system.
+     *
+     * @param file            the file.
+     * @param width           a value of 1 or greater
+     * @param height          a value of 1 or greater
+     * @param samplesPerPixel a value of 1 or greater
+     * @param dataType        the type of the samples.
+     * @return a new instance.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public static TiffRasterDataBuffer map(final Path file, final int width, final int height, final int samplesPerPixel, final TiffRasterDataType dataType)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return map(channel, width, height, samplesPerPixel, dataType);
+        }
+    }
+
+    private static TiffRasterDataBuffer map(final FileChannel channel, final int width, final int height, final int samplesPerPixel,
+            final TiffRasterDataType dataType) throws IOException {
+        final long size = (long) width * height * samplesPerPixel * bytesPerSample(dataType);
+        final long chunkBytes = (long) bytesPerSample(dataType) << CHUNK_SHIFT;
+        final ByteBuffer[] chunks = new ByteBuffer[chunkCount(size, dataType)];
+        for (int i = 0; i < chunks.length; i++) {
+            // the mappings stay valid after the channel is closed
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkSize(size, i, dataType));
+        }
+        return new TiffRasterDataBuffer(width, height, samplesPerPixel, dataType, chunks);
+    }
+
+    /**
+     * Creates a raster in a memory-mapped temporary file, so that the operating system pages the samples to disk rather than holding them in memory. The file
+     * is deleted when it is closed, which happens before this method returns on systems that allow it; the samples are initially zero.
+     *
+     * @param width           a value of 1 or greater
+     * @param height          a value of 1 or greater
+     * @param samplesPerPixel a value of 1 or greater
+     * @param dataType        the type of the samples.
+     * @return a new instance.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static TiffRasterDataBuffer mapTemporaryFile(final int width, final int height, final int samplesPerPixel, final TiffRasterDataType dataType)
+            throws IOException {
+        final Path file = Files.createTempFile("raster", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            return map(channel, width, height, samplesPerPixel, dataType);
+        }
+    }
+
+    private final TiffRasterDataType dataType;
+    private final int bytesPerSample;
+    private final long sampleCount;
+    private volatile ByteBuffer[] chunks;
+
+    private TiffRasterDataBuffer(final int width, final int height, final int samplesPerPixel, final TiffRasterDataType dataType, final ByteBuffer[] chunks) {
+        super(width, height, samplesPerPixel);
+        this.dataType = dataType;
+        this.bytesPerSample = bytesPerSample(dataType);
+        this.sampleCount = (long) width * height * samplesPerPixel;
+        this.chunks = chunks;
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i].order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private ByteBuffer chunk(final long index) {
+        if (index < 0 || index >= sampleCount) {
+            throw new IllegalArgumentException("Index out of range, value " + index + " where valid range is (0," + (sampleCount - 1) + ")");
+        }
+        final ByteBuffer[] c = chunks;
+        if (c == null) {
+            throw new IllegalStateException("The raster has been closed");
+        }
+        return c[(int) (index >>> CHUNK_SHIFT)];
+    }
+
+    /**
+     * Drops the references of the raster to its direct memory or mappings, which the garbage collector then frees. Threads still using a buffer they got
+     * before the raster was closed keep it alive until they are done, so closing is safe while the raster is in use. Changes to a memory-mapped file are kept,
+     * and are written to the file by the operating system. Closing a closed raster has no effect.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+    }
+
+    private long index(final int x, final int y, final int i) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Coordinates out of range (" + x + ", " + y + ")");
+        }
+        if (i < 0 || i >= samplesPerPixel) {
+            throw new IllegalArgumentException("Sample index out of range, value " + i + " where valid range is (0," + (samplesPerPixel - 1) + ")");
+        }
+        return (long) i * width * height + (long) y * width + x;
+    }
+
+    private int offset(final long index) {
+        return (int) (index & CHUNK_MASK) * bytesPerSample;
+    }
+
+    /**
+     * Returns a copy of the data stored in this instance as single-precision values.
+     *
+     * @return a new array.
+     * @throws org.apache.commons.imaging.common.AllocationRequestException if the raster does not fit in an array.
+     */
+    @Override
+    public float[] getData() {
+        final float[] result = Allocator.floatArray(Allocator.check(sampleCount, 4));
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getValue(i);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the raster data type from the instance.
+     *
+     * @return the data type given when the instance was created.
+     */
+    @Override
+    public TiffRasterDataType getDataType() {
+        return dataType;
+    }
+
+    /**
+     * Returns a copy of the data stored in this instance as double-precision values.
+     *
+     * @return a new array.
+     * @throws org.apache.commons.imaging.common.AllocationRequestException if the raster does not fit in an array.
+     */
+    @Override
+    public double[] getDoubleData() {
+        final double[] result = Allocator.doubleArray(Allocator.check(sampleCount, 8));
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getDoubleValue(i);
+        }
+        return result;
+    }
+
+    @Override
+    public double getDoubleValue(final int x, final int y, final int i) {
+        return getDoubleValue(index(x, y, i));
+    }
+
+    /**
+     * Gets the value stored at the specified index at the precision of the raster.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @return the value stored at the specified index.
+     */
+    public double getDoubleValue(final long index) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            return chunk.getInt(offset);
+        case FLOAT:
+            return chunk.getFloat(offset);
+        default:
+            return chunk.getDouble(offset);
+        }
+    }
+
+    /**
+     * Returns a copy of the data stored in this instance as integer values.
+     *
+     * @return a new array.
+     * @throws org.apache.commons.imaging.common.AllocationRequestException if the raster does not fit in an array.
+     */
+    @Override
+    public int[] getIntData() {
+        final int[] result = Allocator.intArray(Allocator.check(sampleCount, 4));
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getIntValue(i);
+        }
+        return result;
+    }
+
+    @Override
+    public int getIntValue(final int x, final int y) {
+        return getIntValue(index(x, y, 0));
+    }
+
+    @Override
+    public int getIntValue(final int x, final int y, final int i) {
+        return getIntValue(index(x, y, i));
+    }
+
+    /**
+     * Gets the value stored at the specified index as an integer, truncating floating-point values.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @return the value stored at the specified index.
+     */
+    public int getIntValue(final long index) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            return chunk.getInt(offset);
+        case FLOAT:
+            return (int) chunk.getFloat(offset);
+        default:
+            return (int) chunk.getDouble(offset);
+        }
+    }
+
+    /**
+     * Gets the number of samples in the raster, the product of its width, height and samples per pixel.
+     *
+     * @return a value of 1 or greater.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public TiffRasterStatistics getSimpleStatistics() {
+        return new TiffRasterStatistics(this, Float.NaN);
+    }
+
+    @Override
+    public TiffRasterStatistics getSimpleStatistics(final float valueToExclude) {
+        return new TiffRasterStatistics(this, valueToExclude);
+    }
+
+    @Override
+    public float getValue(final int x, final int y) {
+        return getValue(index(x, y, 0));
+    }
+
+    @Override
+    public float getValue(final int x, final int y, final int i) {
+        return getValue(index(x, y, i));
+    }
+
+    /**
+     * Gets the value stored at the specified index as a float.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @return the value stored at the specified index; potentially a Float&#46;NaN.
+     */
+    public float getValue(final long index) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            return chunk.getInt(offset);
+        case FLOAT:
+            return chunk.getFloat(offset);
+        default:
+            return (float) chunk.getDouble(offset);
+        }
+    }
+
+    @Override
+    public void setDoubleValue(final int x, final int y, final int i, final double value) {
+        setDoubleValue(index(x, y, i), value);
+    }
+
+    /**
+     * Sets the value stored at the specified index, rounding it to the precision of the raster.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @param value the value to be stored at the specified index.
+     */
+    public void setDoubleValue(final long index, final double value) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            chunk.putInt(offset, (int) value);
+            break;
+        case FLOAT:
+            chunk.putFloat(offset, (float) value);
+            break;
+        default:
+            chunk.putDouble(offset, value);
+            break;
+        }
+    }
+
+    @Override
+    public void setIntValue(final int x, final int y, final int value) {
+        setIntValue(index(x, y, 0), value);
+    }
+
+    @Override
+    public void setIntValue(final int x, final int y, final int i, final int value) {
+        setIntValue(index(x, y, i), value);
+    }
+
+    /**
+     * Sets the value stored at the specified index.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @param value the value to be stored at the specified index.
+     */
+    public void setIntValue(final long index, final int value) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            chunk.putInt(offset, value);
+            break;
+        case FLOAT:
+            chunk.putFloat(offset, value);
+            break;
+        default:
+            chunk.putDouble(offset, value);
+            break;
+        }
+    }
+
+    @Override
+    public void setValue(final int x, final int y, final float value) {
+        setValue(index(x, y, 0), value);
+    }
+
+    @Override
+    public void setValue(final int x, final int y, final int i, final float value) {
+        setValue(index(x, y, i), value);
+    }
+
+    /**
+     * Sets the value stored at the specified index, truncating it for integer rasters.
+     *
+     * @param index the index of the sample, see the class API documentation for the layout.
+     * @param value the value to be stored at the specified index; potentially a Float&#46;NaN.
+     */
+    public void setValue(final long index, final float value) {
+        final ByteBuffer chunk = chunk(index);
+        final int offset = offset(index);
+        switch (dataType) {
+        case INTEGER:
+            chunk.putInt(offset, (int) value);
+            break;
+        case FLOAT:
+            chunk.putFloat(offset, value);
+            break;
+        default:
+            chunk.putDouble(offset, value);
+            break;
+        }
+    }
+}
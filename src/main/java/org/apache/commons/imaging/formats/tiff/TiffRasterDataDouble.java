@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import java.util.stream.IntStream;
+
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Provides a simple container for double-precision floating-point data, such as TIFF files with 64-bit floating-point samples.
+ * <p>
+ * <strong>Note:</strong> The getDoubleData() method returns a direct reference to the internal array stored in instances of this class. The getData() and
+ * getIntData() methods return converted copies.
+ * <p>
+ * <strong>Data layout:</strong> The elements in the returned array are stored in row-major order. In cases where the data contains multiple samples per raster
+ * cell (pixel), the data is organized into blocks of data one sample at a time. The first block contains width*height values for the first sample for each
+ * cell, the second block contains width*height values for the second sample for each cell, etc. Thus, the array index for a particular value is computed as
+ *
+ * <pre>
+ * index = y * width + x + iSample * width * height;
+ * </pre>
+ *
+ * @since 1.0-alpha6
+ */
+public class TiffRasterDataDouble extends TiffRasterData {
+
+    private final double[] data;
+
+    /**
+     * Constructs an instance allocating memory for the specified dimensions.
+     *
+     * @param width  a value of 1 or greater
+     * @param height a value of 1 or greater
+     */
+    public TiffRasterDataDouble(final int width, final int height) {
+        this(width, height, 1);
+    }
+
+    /**
+     * Constructs an instance allocating memory for the specified dimensions.
+     *
+     * @param width           a value of 1 or greater
+     * @param height          a value of 1 or greater
+     * @param samplesPerPixel a value of 1 or greater
+     */
+    public TiffRasterDataDouble(final int width, final int height, final int samplesPerPixel) {
+        super(width, height, samplesPerPixel);
+        data = Allocator.doubleArray(nCells);
+    }
+
+    /**
+     * Constructs an instance for the specified dimensions and data.
+     *
+     * @param width          a value of 1 or greater
+     * @param height         a value of 1 or greater
+     * @param samplesPerCell the number of samples per pixel
+     * @param data           the data to be stored in the raster.
+     */
+    public TiffRasterDataDouble(final int width, final int height, final int samplesPerCell, final double[] data) {
+        super(width, height, samplesPerCell);
+        if (data == null || data.length < nCells) {
+            throw new IllegalArgumentException("Specified data does not contain sufficient elements");
+        }
+        this.data = data;
+    }
+
+    /**
+     * Returns a copy of the data stored in this instance, rounded to single precision.
+     *
+     * @return a new array.
+     */
+    @Override
+    public float[] getData() {
+        final float[] result = Allocator.floatArray(nCells);
+        for (int i = 0; i < nCells; i++) {
+            result[i] = (float) data[i];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the raster data type from the instance.
+     *
+     * @return a value of TiffRasterDataType&#46;DOUBLE.
+     */
+    @Override
+    public TiffRasterDataType getDataType() {
+        return TiffRasterDataType.DOUBLE;
+    }
+
+    /**
+     * Returns a reference to the data array stored in this instance. Note that the array returned is <strong>not</strong> a safe copy and that modifying it
+     * directly affects the content of the instance.
+     *
+     * @return a direct reference to the data array stored in this instance.
+     */
+    @Override
+    public double[] getDoubleData() {
+        return data;
+    }
+
+    @Override
+    public double getDoubleValue(final int x, final int y, final int i) {
+        return data[checkCoordinatesAndComputeIndex(x, y, i)];
+    }
+
+    /**
+     * Returns an array of integer approximations for the floating-point content stored as an array in this instance.
+     *
+     * @return the integer equivalents to the data content stored in this instance.
+     */
+    @Override
+    public int[] getIntData() {
+        return IntStream.range(0, nCells).map(i -> (int) data[i]).toArray();
+    }
+
+    @Override
+    public int getIntValue(final int x, final int y) {
+        return getIntValue(x, y, 0);
+    }
+
+    @Override
+    public int getIntValue(final int x, final int y, final int i) {
+        return (int) data[checkCoordinatesAndComputeIndex(x, y, i)];
+    }
+
+    @Override
+    public TiffRasterStatistics getSimpleStatistics() {
+        return new TiffRasterStatistics(this, Float.NaN);
+    }
+
+    @Override
+    public TiffRasterStatistics getSimpleStatistics(final float valueToExclude) {
+        return new TiffRasterStatistics(this, valueToExclude);
+    }
+
+    @Override
+    public float getValue(final int x, final int y) {
+        return getValue(x, y, 0);
+    }
+
+    @Override
+    public float getValue(final int x, final int y, final int i) {
+        return (float) data[checkCoordinatesAndComputeIndex(x, y, i)];
+    }
+
+    @Override
+    public void setDoubleValue(final int x, final int y, final int i, final double value) {
+        data[checkCoordinatesAndComputeIndex(x, y, i)] = value;
+    }
+
+    @Override
+    public void setIntValue(final int x, final int y, final int value) {
+        setIntValue(x, y, 0, value);
+    }
+
+    @Override
+    public void setIntValue(final int x, final int y, final int i, final int value) {
+        data[checkCoordinatesAndComputeIndex(x, y, i)] = value;
+    }
+
+    @Override
+    public void setValue(final int x, final int y, final float value) {
+        setValue(x, y, 0, value);
+    }
+
+    @Override
+    public void setValue(final int x, final int y, final int i, final float value) {
+        data[checkCoordinatesAndComputeIndex(x, y, i)] = value;
+    }
+}
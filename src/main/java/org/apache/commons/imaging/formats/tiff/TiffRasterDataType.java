@@ -28,5 +28,13 @@ public enum TiffRasterDataType {
     /**
      * Indicates that the raster contains single-precision floating-point data. Attempts to access integer data from the raster may result in a truncated value.
      */
-    FLOAT;
+    FLOAT,
+
+    /**
+     * Indicates that the raster contains double-precision floating-point data. Attempts to access single-precision data from the raster will result in the
+     * nearest float value.
+     *
+     * @since 1.0-alpha6
+     */
+    DOUBLE;
 }
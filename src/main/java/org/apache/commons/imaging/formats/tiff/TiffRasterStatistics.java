@@ -18,6 +18,10 @@ package org.apache.commons.imaging.formats.tiff;
 
 /**
  * Collects and stores a set of simple statistics from the input raster.
+ * <p>
+ * The statistics are tabulated for all bands combined by a {@link TiffRasterStatisticsCollector}, which also provides the standard deviation, histograms and
+ * percentiles of each band.
+ * </p>
  */
 public class TiffRasterStatistics {
 
@@ -36,39 +40,22 @@ public class TiffRasterStatistics {
      */
     TiffRasterStatistics(final TiffRasterData raster, final float excludedValue) {
         this.excludedValue = excludedValue;
-        float vMin = Float.POSITIVE_INFINITY;
-        float vMax = Float.NEGATIVE_INFINITY;
-        double vSum = 0;
-        int nS = 0;
-        int nN = 0;
-        final float[] data = raster.getData();
-        for (final float test : data) {
-            if (Float.isNaN(test)) {
-                nN++;
-                continue;
-            }
-            if (test == excludedValue) {
-                continue;
-            }
-
-            nS++;
-            vSum += test;
-            if (test < vMin) {
-                vMin = test;
-            }
-            if (test > vMax) {
-                vMax = test;
-            }
-        }
-
-        minValue = vMin;
-        maxValue = vMax;
-        nSample = nS;
-        nNull = nN;
+        // a single bin, as only the simple statistics of all bands combined are kept
+        final TiffRasterStatisticsCollector collector = Float.isNaN(excludedValue)
+                ? new TiffRasterStatisticsCollector(raster.getSamplesPerPixel(), 0, 1, 1)
+                : new TiffRasterStatisticsCollector(raster.getSamplesPerPixel(), 0, 1, 1, excludedValue);
+        collector.singlePrecision().accept(raster);
+        final TiffRasterBandStatistics statistics = collector.getStatistics();
+        nSample = (int) statistics.getCountOfSamples();
+        nNull = (int) statistics.getCountOfNulls();
         if (nSample == 0) {
+            minValue = Float.POSITIVE_INFINITY;
+            maxValue = Float.NEGATIVE_INFINITY;
             meanValue = 0;
         } else {
-            meanValue = (float) (vSum / nSample);
+            minValue = (float) statistics.getMinValue();
+            maxValue = (float) statistics.getMaxValue();
+            meanValue = (float) statistics.getMeanValue();
         }
     }
 
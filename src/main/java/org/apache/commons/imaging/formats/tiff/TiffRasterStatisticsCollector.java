@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.imaging.common.ConcurrentTasks;
+
+/**
+ * Tabulates the minimum, maximum, mean, standard deviation, a fixed-bin histogram and approximate percentiles of each band of raster data in a single pass.
+ * <p>
+ * Samples may be added from any number of threads. Each thread accumulates into its own partial results, which are combined when the statistics are
+ * requested, so a collector can be fed while the tiles or strips of a TIFF file are decoded concurrently, see
+ * {@link TiffDirectory#collectRasterStatistics(int, int, int, int, TiffRasterStatisticsCollector, TiffImagingParameters)}. Rasters held in memory are scanned
+ * in bands of rows, which are scanned concurrently if an executor is given.
+ * </p>
+ * <p>
+ * Because the histogram is built in the same pass as the other statistics, its range must be given in advance; samples outside the range are counted
+ * separately.
+ * </p>
+ *
+ * @since 1.0-alpha6
+ */
+public final class TiffRasterStatisticsCollector {
+
+    /**
+     * The partial statistics of all bands, as accumulated by one thread or one scan of a raster.
+     */
+    private final class Accumulator {
+        private final long[] nSample = new long[samplesPerPixel];
+        private final long[] nNull = new long[samplesPerPixel];
+        private final long[] nExcluded = new long[samplesPerPixel];
+        private final long[] nBelow = new long[samplesPerPixel];
+        private final long[] nAbove = new long[samplesPerPixel];
+        private final double[] min = new double[samplesPerPixel];
+        private final double[] max = new double[samplesPerPixel];
+        private final double[] sum = new double[samplesPerPixel];
+        private final double[] mean = new double[samplesPerPixel];
+        private final double[] m2 = new double[samplesPerPixel];
+        private final long[][] histogram = new long[samplesPerPixel][binCount];
+
+        Accumulator() {
+            for (int i = 0; i < samplesPerPixel; i++) {
+                min[i] = Double.POSITIVE_INFINITY;
+                max[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        void accept(final int i, final double value) {
+            if (Double.isNaN(value)) {
+                nNull[i]++;
+                return;
+            }
+            if (isExcluded(value)) {
+                nExcluded[i]++;
+                return;
+            }
+            final long n = ++nSample[i];
+            if (value < min[i]) {
+                min[i] = value;
+            }
+            if (value > max[i]) {
+                max[i] = value;
+            }
+            sum[i] += value;
+            // Welford's update keeps the squared deviations accurate for values far from zero
+            final double delta = value - mean[i];
+            mean[i] += delta / n;
+            m2[i] += delta * (value - mean[i]);
+            if (value < histogramMin) {
+                nBelow[i]++;
+            } else if (value > histogramMax) {
+                nAbove[i]++;
+            } else {
+                histogram[i][Math.min(binCount - 1, (int) ((value - histogramMin) * binScale))]++;
+            }
+        }
+
+        /**
+         * Adds the partial statistics of another accumulator of band {@code j} to band {@code i} of this one.
+         */
+        void combine(final int i, final Accumulator other, final int j) {
+            final long n = nSample[i] + other.nSample[j];
+            if (n > 0) {
+                // Chan et al. combine the squared deviations about the two means
+                final double delta = other.mean[j] - mean[i];
+                m2[i] += other.m2[j] + delta * delta * nSample[i] / n * other.nSample[j];
+                mean[i] += delta * other.nSample[j] / n;
+            }
+            nSample[i] = n;
+            nNull[i] += other.nNull[j];
+            nExcluded[i] += other.nExcluded[j];
+            nBelow[i] += other.nBelow[j];
+            nAbove[i] += other.nAbove[j];
+            min[i] = Math.min(min[i], other.min[j]);
+            max[i] = Math.max(max[i], other.max[j]);
+            sum[i] += other.sum[j];
+            for (int k = 0; k < binCount; k++) {
+                histogram[i][k] += other.histogram[j][k];
+            }
+        }
+
+        void combine(final Accumulator other) {
+            for (int i = 0; i < samplesPerPixel; i++) {
+                combine(i, other, i);
+            }
+        }
+
+        TiffRasterBandStatistics toStatistics(final int i) {
+            return new TiffRasterBandStatistics(nSample[i], nNull[i], nExcluded[i], min[i], max[i], sum[i], m2[i], histogramMin, histogramMax,
+                    histogram[i].clone(), nBelow[i], nAbove[i]);
+        }
+    }
+
+    /** The number of samples in a band of rows scanned by one task. */
+    private static final int SAMPLES_PER_TASK = 1 << 16;
+
+    private final int samplesPerPixel;
+    private final double histogramMin;
+    private final double histogramMax;
+    private final int binCount;
+    private final double binScale;
+    private final double[] excludedValues;
+    private boolean singlePrecision;
+    private final List<Accumulator> partials = new ArrayList<>();
+    private final ThreadLocal<Accumulator> threadAccumulator = ThreadLocal.withInitial(this::newPartial);
+
+    /**
+     * Constructs a collector for rasters with the given number of samples per pixel.
+     *
+     * @param samplesPerPixel the number of bands, a value of 1 or greater.
+     * @param histogramMin    the lower end of the range of the histogram, a finite value.
+     * @param histogramMax    the upper end of the range of the histogram, a finite value greater than the lower end.
+     * @param binCount        the number of bins of the histogram, a value of 1 or greater.
+     * @param excludedValues  optional sample values to ignore, such as the no-data value of a file.
+     */
+    public TiffRasterStatisticsCollector(final int samplesPerPixel, final double histogramMin, final double histogramMax, final int binCount,
+            final double... excludedValues) {
+        if (samplesPerPixel <= 0) {
+            throw new IllegalArgumentException("Raster samples-per-pixel specification must be at least 1");
+        }
+        if (!Double.isFinite(histogramMin) || !Double.isFinite(histogramMax) || histogramMin >= histogramMax) {
+            throw new IllegalArgumentException("Invalid histogram range " + histogramMin + " to " + histogramMax);
+        }
+        if (binCount <= 0) {
+            throw new IllegalArgumentException("The histogram must have at least 1 bin");
+        }
+        this.samplesPerPixel = samplesPerPixel;
+        this.histogramMin = histogramMin;
+        this.histogramMax = histogramMax;
+        this.binCount = binCount;
+        this.binScale = binCount / (histogramMax - histogramMin);
+        this.excludedValues = excludedValues == null ? new double[0] : excludedValues.clone();
+    }
+
+    /**
+     * Adds a sample to the statistics of a band. The statistics of samples added by other threads include the sample once those threads have been joined, or
+     * have otherwise completed in a way that makes their writes visible.
+     *
+     * @param i     the band, from 0 to the number of samples per pixel minus 1.
+     * @param value the sample value; NaN is counted as null data.
+     */
+    public void accept(final int i, final double value) {
+        if (i < 0 || i >= samplesPerPixel) {
+            throw new IllegalArgumentException("Sample index out of range, value " + i + " where valid range is (0," + (samplesPerPixel - 1) + ")");
+        }
+        threadAccumulator.get().accept(i, value);
+    }
+
+    /**
+     * Adds all samples of a raster to the statistics, scanning it in the calling thread.
+     *
+     * @param raster a raster with the number of samples per pixel of this collector.
+     */
+    public void accept(final TiffRasterData raster) {
+        accept(raster, 0, 0, raster.getWidth(), raster.getHeight());
+    }
+
+    /**
+     * Adds the samples of a window of a raster to the statistics, scanning it in the calling thread.
+     *
+     * @param raster a raster with the number of samples per pixel of this collector.
+     * @param x      the column of the upper-left corner of the window.
+     * @param y      the row of the upper-left corner of the window.
+     * @param width  the width of the window, a value of 1 or greater.
+     * @param height the height of the window, a value of 1 or greater.
+     */
+    public void accept(final TiffRasterData raster, final int x, final int y, final int width, final int height) {
+        checkWindow(raster, x, y, width, height);
+        final Accumulator result = scan(raster, x, x + width, y, y + height);
+        synchronized (partials) {
+            partials.add(result);
+        }
+    }
+
+    /**
+     * Adds the samples of a window of a raster to the statistics, scanning bands of rows concurrently on an executor, such as the executor of
+     * {@link TiffImagingParameters}. The calling thread scans the bands that the executor has not started, so the executor may be bounded, saturated or
+     * the executor of the calling thread.
+     *
+     * @param raster   a raster with the number of samples per pixel of this collector.
+     * @param x        the column of the upper-left corner of the window.
+     * @param y        the row of the upper-left corner of the window.
+     * @param width    the width of the window, a value of 1 or greater.
+     * @param height   the height of the window, a value of 1 or greater.
+     * @param executor the executor, or null to scan the window in the calling thread.
+     * @throws IOException if the calling thread is interrupted while waiting for the bands scanned by the executor.
+     */
+    public void accept(final TiffRasterData raster, final int x, final int y, final int width, final int height, final Executor executor) throws IOException {
+        checkWindow(raster, x, y, width, height);
+        final int rowsPerTask = Math.max(1, SAMPLES_PER_TASK / (width * samplesPerPixel));
+        final int taskCount = (height + rowsPerTask - 1) / rowsPerTask;
+        final Accumulator result = new Accumulator();
+        ConcurrentTasks.forEach(executor, taskCount, task -> {
+            final int y0 = y + task * rowsPerTask;
+            final Accumulator band = scan(raster, x, x + width, y0, Math.min(y + height, y0 + rowsPerTask));
+            synchronized (result) {
+                result.combine(band);
+            }
+        }, "raster statistics");
+        synchronized (partials) {
+            partials.add(result);
+        }
+    }
+
+    private void checkWindow(final TiffRasterData raster, final int x, final int y, final int width, final int height) {
+        if (raster.getSamplesPerPixel() != samplesPerPixel) {
+            throw new IllegalArgumentException("Raster has " + raster.getSamplesPerPixel() + " samples per pixel, expected " + samplesPerPixel);
+        }
+        if (width <= 0 || height <= 0 || x < 0 || y < 0 || x > raster.getWidth() - width || y > raster.getHeight() - height) {
+            throw new IllegalArgumentException("Window (" + x + ", " + y + ", " + width + ", " + height + ") is outside the raster");
+        }
+    }
+
+    /**
+     * Scans rasters at single precision, as the simple statistics of {@link TiffRasterStatistics} compare samples to their excluded value.
+     */
+    TiffRasterStatisticsCollector singlePrecision() {
+        singlePrecision = true;
+        return this;
+    }
+
+    /**
+     * Gets the number of bands.
+     *
+     * @return a value of 1 or greater.
+     */
+    public int getSamplesPerPixel() {
+        return samplesPerPixel;
+    }
+
+    /**
+     * Gets the statistics of all bands combined.
+     *
+     * @return a valid instance.
+     */
+    public TiffRasterBandStatistics getStatistics() {
+        final Accumulator total = sum();
+        for (int i = 1; i < samplesPerPixel; i++) {
+            total.combine(0, total, i);
+        }
+        return total.toStatistics(0);
+    }
+
+    /**
+     * Gets the statistics of one band.
+     *
+     * @param i the band, from 0 to the number of samples per pixel minus 1.
+     * @return a valid instance.
+     */
+    public TiffRasterBandStatistics getStatistics(final int i) {
+        if (i < 0 || i >= samplesPerPixel) {
+            throw new IllegalArgumentException("Sample index out of range, value " + i + " where valid range is (0," + (samplesPerPixel - 1) + ")");
+        }
+        return sum().toStatistics(i);
+    }
+
+    private boolean isExcluded(final double value) {
+        for (final double excluded : excludedValues) {
+            if (value == excluded) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Accumulator newPartial() {
+        final Accumulator partial = new Accumulator();
+        synchronized (partials) {
+            partials.add(partial);
+        }
+        return partial;
+    }
+
+    private Accumulator scan(final TiffRasterData raster, final int x0, final int x1, final int y0, final int y1) {
+        final Accumulator result = new Accumulator();
+        for (int i = 0; i < samplesPerPixel; i++) {
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    result.accept(i, singlePrecision ? raster.getValue(x, y, i) : raster.getDoubleValue(x, y, i));
+                }
+            }
+        }
+        return result;
+    }
+
+    private Accumulator sum() {
+        final Accumulator total = new Accumulator();
+        synchronized (partials) {
+            for (final Accumulator partial : partials) {
+                total.combine(partial);
+            }
+        }
+        return total;
+    }
+}
@@ -18,13 +18,17 @@ package org.apache.commons.imaging.formats.tiff;
 
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_MAX_VALUE_LENGTH;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_MAX_VALUE_LENGTH_BIG;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.HEADER_SIZE_BIG;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.VERSION_BIG;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.VERSION_STANDARD;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.imaging.FormatCompliance;
@@ -35,6 +39,7 @@ import org.apache.commons.imaging.common.BinaryFunctions;
 import org.apache.commons.imaging.common.ByteConversions;
 import org.apache.commons.imaging.formats.jpeg.JpegConstants;
 import org.apache.commons.imaging.formats.tiff.TiffDirectory.ImageDataElement;
+import org.apache.commons.imaging.formats.tiff.constants.AdobePageMaker6TagConstants;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffDirectoryConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
@@ -122,6 +127,59 @@ public class TiffReader extends BinaryFileParser {
         boolean setTiffHeader(TiffHeader tiffHeader);
     }
 
+    /**
+     * The offsets of the directories read so far, kept in an open-addressing hash table of primitive longs, which stops the reader from following a
+     * directory that links back to one already read.
+     */
+    private static final class OffsetSet {
+        private long[] offsets = new long[16];
+        private int size;
+        private boolean containsZero;
+
+        /**
+         * Adds an offset.
+         *
+         * @return false if the offset was already in the set.
+         */
+        boolean add(final long offset) {
+            if (offset == 0) {
+                // zero marks the free slots of the table
+                final boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            if (2 * (size + 1) > offsets.length) {
+                final long[] previous = offsets;
+                offsets = new long[previous.length * 2];
+                for (final long value : previous) {
+                    if (value != 0) {
+                        offsets[slot(value)] = value;
+                    }
+                }
+            }
+            final int slot = slot(offset);
+            if (offsets[slot] == offset) {
+                return false;
+            }
+            offsets[slot] = offset;
+            size++;
+            return true;
+        }
+
+        /**
+         * Gets the slot holding the offset, or the free slot where it belongs.
+         */
+        private int slot(final long offset) {
+            final int mask = offsets.length - 1;
+            final long hash = offset * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            while (offsets[slot] != 0 && offsets[slot] != offset) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+    }
+
     private final boolean strict;
     private boolean bigTiff;
     private boolean standardTiff;
@@ -161,11 +219,17 @@ public class TiffReader extends BinaryFileParser {
 
         final List<ImageDataElement> elements = directory.getTiffRawImageDataElements();
         final AbstractTiffImageData.Data[] data = new AbstractTiffImageData.Data[elements.size()];
+        final long size = byteSource.size();
 
+        // The strips or tiles are only read when they are decoded, so that reading
+        // part of a large image does not load the rest of it.
         for (int i = 0; i < elements.size(); i++) {
             final TiffDirectory.ImageDataElement element = elements.get(i);
-            final byte[] bytes = byteSource.getByteArray(element.offset, element.length);
-            data[i] = new AbstractTiffImageData.Data(element.offset, element.length, bytes);
+            if (element.offset < 0 || element.length < 0 || element.offset + element.length > size) {
+                throw new ImagingException("TIFF image data element " + i + " (offset: " + element.offset + ", length: " + element.length
+                        + ") extends beyond the end of the data (length: " + size + ")");
+            }
+            data[i] = new AbstractTiffImageData.Data(element.offset, element.length, byteSource);
         }
 
         if (directory.imageDataInStrips()) {
@@ -259,163 +323,178 @@ public class TiffReader extends BinaryFileParser {
             return;
         }
 
-        final long offset = tiffHeader.offsetToFirstIFD;
-        final int dirType = TiffDirectoryConstants.DIRECTORY_TYPE_ROOT;
-
-        final List<Number> visited = new ArrayList<>();
-        readDirectory(byteSource, offset, dirType, formatCompliance, listener, visited);
+        final long size = byteSource.size();
+        final OffsetSet visited = new OffsetSet();
+        // the chain of directories is followed in a loop, so that files with thousands of pages do not recurse as deep
+        long offset = tiffHeader.offsetToFirstIFD;
+        for (int dirType = TiffDirectoryConstants.DIRECTORY_TYPE_ROOT; offset > 0; dirType++) {
+            offset = readDirectory(byteSource, size, offset, dirType, formatCompliance, listener, visited);
+        }
     }
 
-    private boolean readDirectory(final ByteSource byteSource, final long directoryOffset, final int dirType, final FormatCompliance formatCompliance,
-            final Listener listener, final boolean ignoreNextDirectory, final List<Number> visited) throws ImagingException, IOException {
+    /**
+     * Gets the offset held by a field that points to a directory: a LONG or IFD in classic TIFF, usually an IFD8 in BigTIFF.
+     */
+    private static long getDirectoryOffset(final TiffDirectory directory, final TiffField field, final TagInfoDirectory tagInfo) throws ImagingException {
+        final AbstractFieldType fieldType = field.getFieldType();
+        if (fieldType == AbstractFieldType.IFD8 || fieldType == AbstractFieldType.LONG8) {
+            if (field.getCount() != 1) {
+                throw new ImagingException("Field \"" + tagInfo.name + "\" has wrong count " + field.getCount());
+            }
+            return field.getLongValue();
+        }
+        return 0xFFFFffffL & directory.getFieldValue(tagInfo);
+    }
 
-        if (visited.contains(directoryOffset)) {
-            return false;
+    /**
+     * Reads a directory and the EXIF, GPS and interoperability directories it references, but not the directory that follows it.
+     * <p>
+     * The entry count is read first and then the entries together with the offset of the next directory, each with a single positional read of the byte
+     * source.
+     * </p>
+     *
+     * @return the offset of the next directory, zero if there is none or if the listener stopped the read, or -1 if the directory was read before.
+     */
+    private long readDirectory(final ByteSource byteSource, final long size, final long directoryOffset, final int dirType,
+            final FormatCompliance formatCompliance, final Listener listener, final OffsetSet visited) throws ImagingException, IOException {
+
+        if (!visited.add(directoryOffset)) {
+            return -1;
+        }
+        if (directoryOffset < 0 || directoryOffset >= size) {
+            return 0;
         }
-        visited.add(directoryOffset);
 
-        try (InputStream is = byteSource.getInputStream()) {
-            if (directoryOffset >= byteSource.size()) {
-                return true;
+        final int countLength = standardTiff ? 2 : 8;
+        final int entryLength = standardTiff ? 12 : 20;
+        final int offsetLength = standardTiff ? 4 : 8;
+        if (directoryOffset + countLength > size) {
+            if (strict) {
+                throw new IOException("Not a Valid TIFF File");
             }
+            return 0;
+        }
+        final byte[] countBytes = byteSource.getByteArray(directoryOffset, countLength);
+        final long entryCount = standardTiff ? ByteConversions.toUInt16(countBytes, getByteOrder()) : ByteConversions.toLong(countBytes, getByteOrder());
 
-            BinaryFunctions.skipBytes(is, directoryOffset);
+        final long entriesOffset = directoryOffset + countLength;
+        final long available = size - entriesOffset - offsetLength;
+        if (entryCount < 0 || available < 0 || entryCount > available / entryLength || entryCount > (Integer.MAX_VALUE - offsetLength) / entryLength) {
+            throw new IOException("Not a Valid TIFF File");
+        }
+        final byte[] entries = byteSource.getByteArray(entriesOffset, (int) entryCount * entryLength + offsetLength);
+
+        final List<TiffField> fields = new ArrayList<>();
+        for (int i = 0; i < entryCount; i++) {
+            final int entry = i * entryLength;
+            final int tag = ByteConversions.toUInt16(entries, entry, getByteOrder());
+            final int type = ByteConversions.toUInt16(entries, entry + 2, getByteOrder());
+            final long count;
+            final byte[] offsetBytes;
+            final long offset;
+            if (standardTiff) {
+                count = 0xFFFFffffL & ByteConversions.toInt(entries, entry + 4, getByteOrder());
+                offsetBytes = Arrays.copyOfRange(entries, entry + 8, entry + 12);
+                offset = 0xFFFFffffL & ByteConversions.toInt(offsetBytes, getByteOrder());
+            } else {
+                count = ByteConversions.toLong(entries, entry + 4, getByteOrder());
+                offsetBytes = Arrays.copyOfRange(entries, entry + 12, entry + 20);
+                offset = ByteConversions.toLong(offsetBytes, getByteOrder());
+            }
 
-            final List<TiffField> fields = new ArrayList<>();
+            if (tag == 0) {
+                // skip invalid fields.
+                // These are seen very rarely, but can have invalid value
+                // lengths,
+                // which can cause OOM problems.
+                continue;
+            }
 
-            final long entryCount;
+            final AbstractFieldType abstractFieldType;
             try {
-                if (standardTiff) {
-                    entryCount = BinaryFunctions.read2Bytes("DirectoryEntryCount", is, "Not a Valid TIFF File", getByteOrder());
-                } else {
-                    entryCount = BinaryFunctions.read8Bytes("DirectoryEntryCount", is, "Not a Valid TIFF File", getByteOrder());
-                }
-            } catch (final IOException e) {
-                if (strict) {
-                    throw e;
-                }
-                return true;
+                abstractFieldType = AbstractFieldType.getFieldType(type);
+            } catch (final ImagingException imageReadEx) {
+                // skip over unknown fields types, since we
+                // can't calculate their size without
+                // knowing their type
+                continue;
             }
-
-            for (int i = 0; i < entryCount; i++) {
-                final int tag = BinaryFunctions.read2Bytes("Tag", is, "Not a Valid TIFF File", getByteOrder());
-                final int type = BinaryFunctions.read2Bytes("Type", is, "Not a Valid TIFF File", getByteOrder());
-                final long count;
-                final byte[] offsetBytes;
-                final long offset;
-                if (standardTiff) {
-                    count = 0xFFFFffffL & BinaryFunctions.read4Bytes("Count", is, "Not a Valid TIFF File", getByteOrder());
-                    offsetBytes = BinaryFunctions.readBytes("Offset", is, 4, "Not a Valid TIFF File");
-                    offset = 0xFFFFffffL & ByteConversions.toInt(offsetBytes, getByteOrder());
-                } else {
-                    count = BinaryFunctions.read8Bytes("Count", is, "Not a Valid TIFF File", getByteOrder());
-                    offsetBytes = BinaryFunctions.readBytes("Offset", is, 8, "Not a Valid TIFF File");
-                    offset = ByteConversions.toLong(offsetBytes, getByteOrder());
-                }
-
-                if (tag == 0) {
-                    // skip invalid fields.
-                    // These are seen very rarely, but can have invalid value
-                    // lengths,
-                    // which can cause OOM problems.
-                    continue;
-                }
-
-                final AbstractFieldType abstractFieldType;
-                try {
-                    abstractFieldType = AbstractFieldType.getFieldType(type);
-                } catch (final ImagingException imageReadEx) {
-                    // skip over unknown fields types, since we
-                    // can't calculate their size without
-                    // knowing their type
-                    continue;
-                }
-                final long valueLength = count * abstractFieldType.getSize();
-                final byte[] value;
-                if (valueLength > entryMaxValueLength) {
-                    if (offset < 0 || offset + valueLength > byteSource.size()) {
-                        if (strict) {
-                            throw new IOException("Attempt to read byte range starting from " + offset + " " + "of length " + valueLength + " "
-                                    + "which is outside the file's size of " + byteSource.size());
-                        }
-                        // corrupt field, ignore it
-                        continue;
+            final long valueLength = count * abstractFieldType.getSize();
+            final byte[] value;
+            if (valueLength > entryMaxValueLength) {
+                if (offset < 0 || offset + valueLength > size) {
+                    if (strict) {
+                        throw new IOException("Attempt to read byte range starting from " + offset + " " + "of length " + valueLength + " "
+                                + "which is outside the file's size of " + size);
                     }
-                    value = byteSource.getByteArray(offset, (int) valueLength);
-                } else {
-                    value = offsetBytes;
+                    // corrupt field, ignore it
+                    continue;
                 }
+                value = byteSource.getByteArray(offset, (int) valueLength);
+            } else {
+                value = offsetBytes;
+            }
 
-                final TiffField field = new TiffField(tag, dirType, abstractFieldType, count, offset, value, getByteOrder(), i);
+            final TiffField field = new TiffField(tag, dirType, abstractFieldType, count, offset, value, getByteOrder(), i, entryMaxValueLength);
 
-                fields.add(field);
+            fields.add(field);
 
-                if (!listener.addField(field)) {
-                    return true;
-                }
+            if (!listener.addField(field)) {
+                return 0;
             }
+        }
 
-            final long nextDirectoryOffset = 0xFFFFffffL & BinaryFunctions.read4Bytes("nextDirectoryOffset", is, "Not a Valid TIFF File", getByteOrder());
+        final int next = (int) entryCount * entryLength;
+        final long nextDirectoryOffset = standardTiff ? 0xFFFFffffL & ByteConversions.toInt(entries, next, getByteOrder())
+                : ByteConversions.toLong(entries, next, getByteOrder());
 
-            final TiffDirectory directory = new TiffDirectory(dirType, fields, directoryOffset, nextDirectoryOffset, getByteOrder());
+        final TiffDirectory directory = new TiffDirectory(dirType, fields, directoryOffset, nextDirectoryOffset, getByteOrder());
 
-            if (listener.readImageData()) {
-                if (directory.hasTiffImageData()) {
-                    final AbstractTiffImageData rawImageData = getTiffRawImageData(byteSource, directory);
-                    directory.setTiffImageData(rawImageData);
-                }
-                if (directory.hasJpegImageData()) {
-                    final JpegImageData rawJpegImageData = getJpegRawImageData(byteSource, directory);
-                    directory.setJpegImageData(rawJpegImageData);
-                }
+        if (listener.readImageData()) {
+            if (directory.hasTiffImageData()) {
+                final AbstractTiffImageData rawImageData = getTiffRawImageData(byteSource, directory);
+                directory.setTiffImageData(rawImageData);
             }
-
-            if (!listener.addDirectory(directory)) {
-                return true;
+            if (directory.hasJpegImageData()) {
+                final JpegImageData rawJpegImageData = getJpegRawImageData(byteSource, directory);
+                directory.setJpegImageData(rawJpegImageData);
             }
+        }
 
-            if (listener.readOffsetDirectories()) {
-                final TagInfoDirectory[] offsetFields = { ExifTagConstants.EXIF_TAG_EXIF_OFFSET, ExifTagConstants.EXIF_TAG_GPSINFO,
-                        ExifTagConstants.EXIF_TAG_INTEROP_OFFSET };
-                final int[] directoryTypes = { TiffDirectoryConstants.DIRECTORY_TYPE_EXIF, TiffDirectoryConstants.DIRECTORY_TYPE_GPS,
-                        TiffDirectoryConstants.DIRECTORY_TYPE_INTEROPERABILITY };
-                for (int i = 0; i < offsetFields.length; i++) {
-                    final TagInfoDirectory offsetField = offsetFields[i];
-                    final TiffField field = directory.findField(offsetField);
-                    if (field != null) {
-                        final long subDirectoryOffset;
-                        final int subDirectoryType;
-                        boolean subDirectoryRead = false;
-                        try {
-                            subDirectoryOffset = directory.getFieldValue(offsetField);
-                            subDirectoryType = directoryTypes[i];
-                            subDirectoryRead = readDirectory(byteSource, subDirectoryOffset, subDirectoryType, formatCompliance, listener, true, visited);
-
-                        } catch (final ImagingException imageReadException) {
-                            if (strict) {
-                                throw imageReadException;
-                            }
-                        }
-                        if (!subDirectoryRead) {
-                            fields.remove(field);
+        if (!listener.addDirectory(directory)) {
+            return 0;
+        }
+
+        if (listener.readOffsetDirectories()) {
+            final TagInfoDirectory[] offsetFields = { ExifTagConstants.EXIF_TAG_EXIF_OFFSET, ExifTagConstants.EXIF_TAG_GPSINFO,
+                    ExifTagConstants.EXIF_TAG_INTEROP_OFFSET };
+            final int[] directoryTypes = { TiffDirectoryConstants.DIRECTORY_TYPE_EXIF, TiffDirectoryConstants.DIRECTORY_TYPE_GPS,
+                    TiffDirectoryConstants.DIRECTORY_TYPE_INTEROPERABILITY };
+            for (int i = 0; i < offsetFields.length; i++) {
+                final TagInfoDirectory offsetField = offsetFields[i];
+                final TiffField field = directory.findField(offsetField);
+                if (field != null) {
+                    final long subDirectoryOffset;
+                    final int subDirectoryType;
+                    boolean subDirectoryRead = false;
+                    try {
+                        subDirectoryOffset = getDirectoryOffset(directory, field, offsetField);
+                        subDirectoryType = directoryTypes[i];
+                        subDirectoryRead = readDirectory(byteSource, size, subDirectoryOffset, subDirectoryType, formatCompliance, listener, visited) >= 0;
+
+                    } catch (final ImagingException imageReadException) {
+                        if (strict) {
+                            throw imageReadException;
                         }
                     }
+                    if (!subDirectoryRead) {
+                        fields.remove(field);
+                    }
                 }
             }
-
-            if (!ignoreNextDirectory && directory.getNextDirectoryOffset() > 0) {
-                // Debug.debug("next dir", directory.nextDirectoryOffset );
-                readDirectory(byteSource, directory.getNextDirectoryOffset(), dirType + 1, formatCompliance, listener, visited);
-            }
-
-            return true;
         }
-    }
 
-    private boolean readDirectory(final ByteSource byteSource, final long offset, final int dirType, final FormatCompliance formatCompliance,
-            final Listener listener, final List<Number> visited) throws ImagingException, IOException {
-        final boolean ignoreNextDirectory = false;
-        return readDirectory(byteSource, offset, dirType, formatCompliance, listener, ignoreNextDirectory, visited);
+        return nextDirectoryOffset;
     }
 
     public TiffContents readFirstDirectory(final ByteSource byteSource, final boolean readImageData, final FormatCompliance formatCompliance)
@@ -429,10 +508,58 @@ public class TiffReader extends BinaryFileParser {
         return contents;
     }
 
-    private TiffHeader readTiffHeader(final ByteSource byteSource) throws ImagingException, IOException {
-        try (InputStream is = byteSource.getInputStream()) {
-            return readTiffHeader(is);
+    /**
+     * Reads the directories referenced by the SubIFDs field of a directory. Pyramidal TIFF files often store the reduced-resolution versions of an image
+     * this way.
+     *
+     * @param byteSource       the TIFF file that the directory was read from.
+     * @param directory        the parent directory.
+     * @param readImageData    whether to read the image data of the sub-directories.
+     * @param formatCompliance the format compliance.
+     * @return the sub-directories, in the order they are listed by the parent; empty if the parent has no SubIFDs field.
+     * @throws ImagingException if the file is not a valid TIFF file.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public List<TiffDirectory> readSubDirectories(final ByteSource byteSource, final TiffDirectory directory, final boolean readImageData,
+            final FormatCompliance formatCompliance) throws ImagingException, IOException {
+        final TiffField subIfdField = directory.findField(AdobePageMaker6TagConstants.TIFF_TAG_SUB_IFD);
+        if (subIfdField == null) {
+            return Collections.emptyList();
         }
+        // the header sets the byte order and the entry sizes used while reading the directories
+        readTiffHeader(byteSource);
+
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setReadThumbnails(readImageData);
+        final Collector collector = new Collector(params);
+        final long size = byteSource.size();
+        final OffsetSet visited = new OffsetSet();
+        visited.add(directory.offset);
+        for (final long offset : subIfdField.getLongArrayValue()) {
+            try {
+                readDirectory(byteSource, size, offset, TiffDirectoryConstants.DIRECTORY_TYPE_SUB, formatCompliance, collector, visited);
+            } catch (final ImagingException e) {
+                if (strict) {
+                    throw e;
+                }
+            }
+        }
+
+        final List<TiffDirectory> result = new ArrayList<>();
+        for (final TiffDirectory subDirectory : collector.getContents().directories) {
+            // skip the EXIF and GPS directories that a sub-directory may reference
+            if (subDirectory.type == TiffDirectoryConstants.DIRECTORY_TYPE_SUB) {
+                result.add(subDirectory);
+            }
+        }
+        return result;
+    }
+
+    private TiffHeader readTiffHeader(final ByteSource byteSource) throws ImagingException, IOException {
+        // the directories are read at their offsets, so only the header itself is read here
+        final int length = (int) Math.min(HEADER_SIZE_BIG, byteSource.size());
+        return readTiffHeader(new ByteArrayInputStream(byteSource.getByteArray(0, length)));
     }
 
     private TiffHeader readTiffHeader(final InputStream is) throws ImagingException, IOException {
@@ -471,8 +598,6 @@ public class TiffReader extends BinaryFileParser {
             throw new ImagingException("Unknown TIFF Version: " + tiffVersion);
         }
 
-        BinaryFunctions.skipBytes(is, offsetToFirstIFD - 8, "Not a Valid TIFF File: couldn't find IFDs");
-
         return new TiffHeader(byteOrder, tiffVersion, offsetToFirstIFD, bigTiff);
     }
 }
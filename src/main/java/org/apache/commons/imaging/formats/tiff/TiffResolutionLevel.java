@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+/**
+ * One resolution level of a TIFF image: the full-resolution image or one of its reduced-resolution versions (overviews).
+ * <p>
+ * Reduced-resolution versions are either stored as directories in the main chain marked with the reduced-resolution bit of the NewSubfileType field, or as
+ * SubIFDs of the full-resolution directory.
+ * </p>
+ *
+ * @see TiffImageParser#getResolutionLevels(org.apache.commons.imaging.bytesource.ByteSource, TiffImagingParameters)
+ * @since 1.0-alpha6
+ */
+public final class TiffResolutionLevel {
+
+    private final TiffDirectory directory;
+    private final int width;
+    private final int height;
+    private final double scaleX;
+    private final double scaleY;
+
+    TiffResolutionLevel(final TiffDirectory directory, final int width, final int height, final int fullWidth, final int fullHeight) {
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+        this.scaleX = (double) width / fullWidth;
+        this.scaleY = (double) height / fullHeight;
+    }
+
+    /**
+     * Gets the directory holding the image of this level.
+     *
+     * @return the directory.
+     */
+    public TiffDirectory getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the height of the image of this level.
+     *
+     * @return the height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the ratio of the width of this level to the width of the full-resolution image.
+     *
+     * @return the horizontal scale, 1 for the full-resolution image.
+     */
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * Gets the ratio of the height of this level to the height of the full-resolution image.
+     *
+     * @return the vertical scale, 1 for the full-resolution image.
+     */
+    public double getScaleY() {
+        return scaleY;
+    }
+
+    /**
+     * Gets the width of the image of this level.
+     *
+     * @return the width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public String toString() {
+        return "TiffResolutionLevel " + width + "x" + height + " (scale " + scaleX + ", " + scaleY + ")";
+    }
+}
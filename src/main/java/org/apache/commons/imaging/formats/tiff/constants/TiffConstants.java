@@ -33,7 +33,28 @@ public final class TiffConstants {
     public static final int DIRECTORY_FOOTER_LENGTH = 4;
     public static final int ENTRY_LENGTH = 12;
     public static final int ENTRY_MAX_VALUE_LENGTH = 4;
-    public static final int ENTRY_LENGTH_BIG = 12;
+
+    /**
+     * The size of a BigTIFF header: byte order, version, offset size, a reserved word and an eight-byte offset to the first directory.
+     *
+     * @since 1.0-alpha6
+     */
+    public static final int HEADER_SIZE_BIG = 16;
+
+    /**
+     * The size of the entry count of a BigTIFF directory.
+     *
+     * @since 1.0-alpha6
+     */
+    public static final int DIRECTORY_HEADER_LENGTH_BIG = 8;
+
+    /**
+     * The size of the offset to the next BigTIFF directory.
+     *
+     * @since 1.0-alpha6
+     */
+    public static final int DIRECTORY_FOOTER_LENGTH_BIG = 8;
+    public static final int ENTRY_LENGTH_BIG = 20;
     public static final int ENTRY_MAX_VALUE_LENGTH_BIG = 8;
 
     public static final int COMPRESSION_UNCOMPRESSED_1 = 1;
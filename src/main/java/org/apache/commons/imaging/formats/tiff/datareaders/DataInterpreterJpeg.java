@@ -41,15 +41,13 @@ final class DataInterpreterJpeg {
      * extracted data.
      * <p>
      * The dimensions of the workingBuilder may or may not be identical to those of the source image. If the calling module is extracting a partial image, the
-     * workingBuilder will be sized so that its upper-left corner coordinate (row and column) and width and height are all even multiples of the dimensions of
-     * the tile or strip definition from the source. The reason for that approach is to simplify some of the logic in the legacy code by eliminating
-     * bounds-checking in the transfer loops.
+     * workingBuilder has the size of the partial image, and the block is clipped to its bounds; the block may then start at negative coordinates.
      * </p>
      *
      * @param directory      the source directory containing JPEG tables
      * @param workingBuilder the output image-builder to receive pixels.
-     * @param xBlock         column offset of the block within the workingBuilder
-     * @param yBlock         row offset of the block within the workingBuilder
+     * @param xBlock         column offset of the block within the workingBuilder, possibly negative
+     * @param yBlock         row offset of the block within the workingBuilder, possibly negative
      * @param blockWidth     the width of the block (may be smaller than the full width of the JPEG image obtained from the source data)
      * @param blockHeight    the height of the block (may be smaller than the full height of the JPEG image obtained from the source data)
      * @param compressed     the raw bytes from the TIFF source file
@@ -116,14 +114,18 @@ final class DataInterpreterJpeg {
         bImage.getRGB(0, 0, iWidth, iHeight, argb, 0, iWidth);
 
         // Limit iHeight and iWidth in case the JPEG block
-        // extends past the output image size
-        final int i1 = iHeight > blockHeight ? blockHeight : iHeight;
-        final int j1 = iWidth > blockWidth ? blockWidth : iWidth;
+        // extends past the output image size, and clip the
+        // block to the bounds of the workingBuilder
+        final int i0 = Math.max(0, -yBlock);
+        final int i1 = Math.min(Math.min(iHeight, blockHeight), workingBuilder.getHeight() - yBlock);
+        final int j0 = Math.max(0, -xBlock);
+        final int j1 = Math.min(Math.min(iWidth, blockWidth), workingBuilder.getWidth() - xBlock);
+        if (j0 >= j1) {
+            return;
+        }
 
-        for (int i = 0; i < i1; i++) {
-            for (int j = 0; j < j1; j++) {
-                workingBuilder.setRgb(j + xBlock, i + yBlock, argb[i * iWidth + j]);
-            }
+        for (int i = i0; i < i1; i++) {
+            workingBuilder.setRgbRow(j0 + xBlock, i + yBlock, argb, i * iWidth + j0, j1 - j0);
         }
     }
 }
@@ -22,6 +22,7 @@ import java.awt.Rectangle;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
@@ -29,6 +30,7 @@ import org.apache.commons.imaging.common.ImageBuilder;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffImageData;
 import org.apache.commons.imaging.formats.tiff.TiffDirectory;
 import org.apache.commons.imaging.formats.tiff.TiffRasterData;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataDouble;
 import org.apache.commons.imaging.formats.tiff.TiffRasterDataFloat;
 import org.apache.commons.imaging.formats.tiff.TiffRasterDataInt;
 import org.apache.commons.imaging.formats.tiff.constants.TiffPlanarConfiguration;
@@ -48,8 +50,6 @@ public final class DataReaderStrips extends ImageDataReader {
     private final int rowsPerStrip;
     private final TiffPlanarConfiguration planarConfiguration;
     private final ByteOrder byteOrder;
-    private int x;
-    private int y;
     private final AbstractTiffImageData.Strips imageData;
 
     public DataReaderStrips(final TiffDirectory directory, final PhotometricInterpreter photometricInterpreter, final int bitsPerPixel,
@@ -66,31 +66,34 @@ public final class DataReaderStrips extends ImageDataReader {
         this.byteOrder = byteOrder;
     }
 
-    private void interpretStrip(final ImageBuilder imageBuilder, final byte[] bytes, final int pixelsPerStrip, final int yLimit)
+    /**
+     * Interprets the samples of a strip that lie within a window of the image. The strip starts at row {@code y} of the image, and the image builder has the
+     * size of the window. Strips do not depend on each other, so they may be interpreted concurrently if the photometric interpreter is thread-safe.
+     */
+    private void interpretStrip(final ImageBuilder imageBuilder, byte[] bytes, final int pixelsPerStrip, final int y, final Rectangle window)
             throws ImagingException, IOException {
-        if (y >= yLimit) {
+        // i0, i1 are the rows and j0, j1 the columns of the image clipped to the window,
+        // nRows the rows of the strip that are decoded from its start
+        final int i0 = Math.max(y, window.y);
+        final int i1 = Math.min(y + pixelsPerStrip / width, window.y + window.height);
+        if (i0 >= i1) {
             return;
         }
+        final int j0 = window.x;
+        final int j1 = window.x + window.width;
+        final int nRows = i1 - y;
 
         // changes added March 2020
         if (sampleFormat == TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT) {
-            int k = 0;
-            int nRows = pixelsPerStrip / width;
-            if (y + nRows > yLimit) {
-                nRows = yLimit - y;
-            }
-            final int i0 = y;
-            final int i1 = y + nRows;
-            x = 0;
-            y += nRows;
             final int[] samples = new int[1];
-            final int[] b = unpackFloatingPointSamples(width, i1 - i0, width, bytes, bitsPerPixel, byteOrder);
+            final int[] b = unpackFloatingPointSamples(width, nRows, width, bytes, bitsPerPixel, byteOrder);
 
             for (int i = i0; i < i1; i++) {
-                for (int j = 0; j < width; j++) {
+                int k = ((i - y) * width + j0) * samplesPerPixel;
+                for (int j = j0; j < j1; j++) {
                     samples[0] = b[k];
                     k += samplesPerPixel;
-                    photometricInterpreter.interpretPixel(imageBuilder, samples, j, i);
+                    photometricInterpreter.interpretPixel(imageBuilder, samples, j - window.x, i - window.y);
                 }
             }
 
@@ -140,36 +143,9 @@ public final class DataReaderStrips extends ImageDataReader {
         // verify that all samples are one byte in size
         final boolean allSamplesAreOneByte = isHomogenous(8);
 
-        if (predictor != 2 && bitsPerPixel == 8 && allSamplesAreOneByte) {
-            int k = 0;
-            int nRows = pixelsPerStrip / width;
-            if (y + nRows > yLimit) {
-                nRows = yLimit - y;
-            }
-            final int i0 = y;
-            final int i1 = y + nRows;
-            x = 0;
-            y += nRows;
-            final int[] samples = new int[1];
-            for (int i = i0; i < i1; i++) {
-                for (int j = 0; j < width; j++) {
-                    samples[0] = bytes[k++] & 0xff;
-                    photometricInterpreter.interpretPixel(imageBuilder, samples, j, i);
-                }
-            }
-            return;
-        }
         if ((bitsPerPixel == 24 || bitsPerPixel == 32) && allSamplesAreOneByte && photometricInterpreter instanceof PhotometricInterpreterRgb) {
-            int k = 0;
-            int nRows = pixelsPerStrip / width;
-            if (y + nRows > yLimit) {
-                nRows = yLimit - y;
-            }
-            final int i0 = y;
-            final int i1 = y + nRows;
-            x = 0;
-            y += nRows;
             if (predictor == TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING) {
+                bytes = getWritableBlock(bytes);
                 applyPredictorToBlock(width, nRows, samplesPerPixel, bytes);
             }
 
@@ -177,18 +153,20 @@ public final class DataReaderStrips extends ImageDataReader {
                 // 24 bit case, we don't mask the red byte because any
                 // sign-extended bits get covered by opacity mask
                 for (int i = i0; i < i1; i++) {
-                    for (int j = 0; j < width; j++, k += 3) {
+                    int k = ((i - y) * width + j0) * 3;
+                    for (int j = j0; j < j1; j++, k += 3) {
                         final int rgb = 0xff000000 | bytes[k] << 16 | (bytes[k + 1] & 0xff) << 8 | bytes[k + 2] & 0xff;
-                        imageBuilder.setRgb(j, i, rgb);
+                        imageBuilder.setRgb(j - window.x, i - window.y, rgb);
                     }
                 }
             } else {
                 // 32 bit case, we don't mask the high byte because any
                 // sign-extended bits get shifted up and out of result
                 for (int i = i0; i < i1; i++) {
-                    for (int j = 0; j < width; j++, k += 4) {
+                    int k = ((i - y) * width + j0) * 4;
+                    for (int j = j0; j < j1; j++, k += 4) {
                         final int rgb = (bytes[k] & 0xff) << 16 | (bytes[k + 1] & 0xff) << 8 | bytes[k + 2] & 0xff | bytes[k + 3] << 24;
-                        imageBuilder.setRgb(j, i, rgb);
+                        imageBuilder.setRgb(j - window.x, i - window.y, rgb);
                     }
                 }
             }
@@ -196,29 +174,51 @@ public final class DataReaderStrips extends ImageDataReader {
             return;
         }
 
+        // Other one-byte samples are unpacked a row at a time and handed to
+        // the photometric interpreter as a row, which avoids both the
+        // general-purpose bit reader and a call to the interpreter per pixel.
+        // The predictor runs from the start of a row, so each row is unpacked
+        // up to the right edge of the window.
+        if (allSamplesAreOneByte && canInterpretByteRows()) {
+            final int bytesPerRow = width * bitsPerSampleLength;
+            if (bytes.length >= nRows * bytesPerRow) {
+                final int[] samples = Allocator.intArray(j1 * bitsPerSampleLength);
+                final int[] argb = Allocator.intArray(j1);
+                for (int i = i0; i < i1; i++) {
+                    interpretByteRow(bytes, (i - y) * bytesPerRow, j1, samples, argb);
+                    imageBuilder.setRgbRow(0, i - window.y, argb, j0, j1 - j0);
+                }
+                return;
+            }
+        }
+
         // original code before May 2012 modification
         // this logic will handle all cases not conforming to the
         // special case handled above
         try (BitInputStream bis = new BitInputStream(new ByteArrayInputStream(bytes), byteOrder)) {
 
             int[] samples = Allocator.intArray(bitsPerSampleLength);
-            resetPredictor();
+            final int[] last = Allocator.intArray(samplesPerPixel);
+            int x = 0;
+            int row = y;
             for (int i = 0; i < pixelsPerStrip; i++) {
                 getSamplesAsBytes(bis, samples);
 
-                if (x < width) {
-                    samples = applyPredictor(samples);
-
-                    photometricInterpreter.interpretPixel(imageBuilder, samples, x, y);
+                // the predictor also runs over the pixels left of the window
+                if (x < j1) {
+                    samples = applyPredictor(samples, last);
+                    if (row >= i0 && x >= j0) {
+                        photometricInterpreter.interpretPixel(imageBuilder, samples, x - window.x, row - window.y);
+                    }
                 }
 
                 x++;
                 if (x >= width) {
                     x = 0;
-                    resetPredictor();
-                    y++;
+                    Arrays.fill(last, 0);
+                    row++;
                     bis.flushCache();
-                    if (y >= yLimit) {
+                    if (row >= i1) {
                         break;
                     }
                 }
@@ -226,6 +226,44 @@ public final class DataReaderStrips extends ImageDataReader {
         }
     }
 
+    /**
+     * Gets the number of rows in a strip, which is smaller than the rows per strip for the last strip of the image.
+     */
+    private int getRowsInStrip(final int strip) {
+        final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
+        final long rowsRemaining = height - strip * rowsPerStripLong;
+        return (int) Math.min(rowsRemaining, rowsPerStripLong);
+    }
+
+    /**
+     * Reads and decompresses a strip. In the planar configuration the strips of the three planes are read and their samples interleaved, so that the result
+     * is laid out as in the chunky configuration.
+     */
+    private byte[] readStripSamples(final int strip, final int rowsInThisStrip) throws ImagingException, IOException {
+        final long bytesPerRow = (bitsPerPixel * (long) width + 7) / 8;
+        final long bytesPerStrip = rowsInThisStrip * bytesPerRow;
+        if (planarConfiguration != TiffPlanarConfiguration.PLANAR) {
+            return decompress(strip, imageData.getImageData(strip), compression, (int) bytesPerStrip, width, rowsInThisStrip);
+        }
+
+        // pixel definitions are organized in a 3 separate sections of input
+        // sequence. For example, red-green-blue values would be given as
+        // red values for all pixels, followed by green values for all pixels,
+        // etc.
+        final int nStripsInPlane = imageData.getImageDataLength() / 3;
+        final byte[] b = Allocator.byteArray((int) bytesPerStrip);
+        for (int iPlane = 0; iPlane < 3; iPlane++) {
+            final int planeStrip = iPlane * nStripsInPlane + strip;
+            final byte[] decompressed = decompress(planeStrip, imageData.getImageData(planeStrip), compression, (int) bytesPerStrip, width, rowsInThisStrip);
+            int index = iPlane;
+            for (final byte element : decompressed) {
+                b[index] = element;
+                index += 3;
+            }
+        }
+        return b;
+    }
+
     @Override
     public ImageBuilder readImageData(final Rectangle subImageSpecification, final boolean hasAlpha, final boolean isAlphaPreMultiplied)
             throws IOException, ImagingException {
@@ -238,100 +276,48 @@ public final class DataReaderStrips extends ImageDataReader {
             subImage = subImageSpecification;
         }
 
-        // the legacy code is optimized to the reading of whole
-        // strips (except for the last strip in the image, which can
-        // be a partial). So create a working image with compatible
-        // dimensions and read that. Later on, the working image
-        // will be sub-imaged to the proper size.
         // strip0 and strip1 give the indices of the strips containing
-        // the first and last rows of pixels in the subimage
+        // the first and last rows of pixels in the subimage. Each strip is
+        // clipped to the subimage while it is interpreted, so the image
+        // builder only covers the subimage.
         final int strip0 = subImage.y / rowsPerStrip;
         final int strip1 = (subImage.y + subImage.height - 1) / rowsPerStrip;
-        final int workingHeight = (strip1 - strip0 + 1) * rowsPerStrip;
-
-        // the legacy code uses a member element "y" to keep track
-        // of the row index of the output image that is being processed
-        // by interpretStrip. y is set to zero before the first
-        // call to interpretStrip. y0 will be the index of the first row
-        // in the full image (the source image) that will be processed.
-        final int y0 = strip0 * rowsPerStrip;
-        final int yLimit = subImage.y - y0 + subImage.height;
-
-        // When processing a subimage, the workingBuilder height is set
-        // to be an integral multiple of the rowsPerStrip and
-        // the full width of the strips. So the working image may be larger than
-        // the specified size of the subimage. If necessary, the subimage
-        // is extracted from the workingBuilder at the end of this method.
-        // This approach avoids the need for the interpretStrips method
-        // to implement bounds checking for a subimage.
-        final ImageBuilder workingBuilder = new ImageBuilder(width, workingHeight, hasAlpha, isAlphaPreMultiplied);
+        final ImageBuilder imageBuilder = new ImageBuilder(subImage.width, subImage.height, hasAlpha, isAlphaPreMultiplied);
 
         // the following statement accounts for cases where planar configuration
         // is not specified and the default (CHUNKY) is assumed.
         final boolean interleaved = planarConfiguration != TiffPlanarConfiguration.PLANAR;
-        if (interleaved) {
-            // Pixel definitions are organized in an interleaved format
-            // For example, red-green-blue values for each pixel
-            // would appear contiguous in input sequence.
-            for (int strip = strip0; strip <= strip1; strip++) {
-                final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
-                final long rowsRemaining = height - strip * rowsPerStripLong;
-                final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
-                final long bytesPerRow = (bitsPerPixel * width + 7) / 8;
-                final long bytesPerStrip = rowsInThisStrip * bytesPerRow;
-                final long pixelsPerStrip = rowsInThisStrip * width;
-
-                final byte[] compressed = imageData.getImageData(strip).getData();
-
+        if (!interleaved && compression == COMPRESSION_JPEG) {
+            throw new ImagingException("TIFF file in non-supported configuration: JPEG compression used in planar configuration.");
+        }
+        final int nStrips = strip1 - strip0 + 1;
+
+        if (compression == COMPRESSION_JPEG || photometricInterpreter.isThreadSafe() || !isConcurrent()) {
+            // each strip is decoded and interpreted into its own rows of the imageBuilder
+            decodeBlocks(nStrips, true, block -> {
+                final int strip = strip0 + block;
+                final int rowsInThisStrip = getRowsInStrip(strip);
+                final int y = strip * rowsPerStrip;
                 if (compression == COMPRESSION_JPEG) {
-                    final int yBlock = strip * rowsPerStrip;
-                    final int yWork = yBlock - y0;
-                    DataInterpreterJpeg.intepretBlock(directory, workingBuilder, 0, yWork, width, (int) rowsInThisStrip, compressed);
-                    continue;
+                    final byte[] compressed = imageData.getImageData(strip).readData();
+                    DataInterpreterJpeg.intepretBlock(directory, imageBuilder, -subImage.x, y - subImage.y, width, rowsInThisStrip, compressed);
+                    return;
                 }
-
-                final byte[] decompressed = decompress(compressed, compression, (int) bytesPerStrip, width, (int) rowsInThisStrip);
-
-                interpretStrip(workingBuilder, decompressed, (int) pixelsPerStrip, yLimit);
-            }
+                interpretStrip(imageBuilder, readStripSamples(strip, rowsInThisStrip), rowsInThisStrip * width, y, subImage);
+            });
         } else {
-            // pixel definitions are organized in a 3 separate sections of input
-            // sequence. For example, red-green-blue values would be given as
-            // red values for all pixels, followed by green values for all pixels,
-            // etc.
-            if (compression == COMPRESSION_JPEG) {
-                throw new ImagingException("TIFF file in non-supported configuration: JPEG compression used in planar configuration.");
-            }
-            final int nStripsInPlane = imageData.getImageDataLength() / 3;
-            for (int strip = strip0; strip <= strip1; strip++) {
-                final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
-                final long rowsRemaining = height - strip * rowsPerStripLong;
-                final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
-                final long bytesPerRow = (bitsPerPixel * width + 7) / 8;
-                final long bytesPerStrip = rowsInThisStrip * bytesPerRow;
-                final long pixelsPerStrip = rowsInThisStrip * width;
-
-                final byte[] b = Allocator.byteArray((int) bytesPerStrip);
-                for (int iPlane = 0; iPlane < 3; iPlane++) {
-                    final int planeStrip = iPlane * nStripsInPlane + strip;
-                    final byte[] compressed = imageData.getImageData(planeStrip).getData();
-                    final byte[] decompressed = decompress(compressed, compression, (int) bytesPerStrip, width, (int) rowsInThisStrip);
-                    int index = iPlane;
-                    for (final byte element : decompressed) {
-                        b[index] = element;
-                        index += 3;
-                    }
-                }
-                interpretStrip(workingBuilder, b, (int) pixelsPerStrip, height);
+            // the interpreter must see the pixels one at a time, so only the
+            // decompression is done concurrently, into a buffer for each strip
+            final byte[][] samples = new byte[nStrips][];
+            decodeBlocks(nStrips, true, block -> samples[block] = readStripSamples(strip0 + block, getRowsInStrip(strip0 + block)));
+            for (int block = 0; block < nStrips; block++) {
+                final int strip = strip0 + block;
+                interpretStrip(imageBuilder, samples[block], getRowsInStrip(strip) * width, strip * rowsPerStrip, subImage);
+                samples[block] = null;
             }
         }
 
-        if (subImage.x == 0 && subImage.y == y0 && subImage.width == width && subImage.height == workingHeight) {
-            // the subimage exactly matches the ImageBuilder bounds
-            // so we can return that.
-            return workingBuilder;
-        }
-        return workingBuilder.getSubset(subImage.x, subImage.y - y0, subImage.width, subImage.height);
+        return imageBuilder;
     }
 
     @Override
@@ -346,6 +332,23 @@ public final class DataReaderStrips extends ImageDataReader {
         }
     }
 
+    @Override
+    public void readSamples(final Rectangle window, final SampleConsumer consumer) throws ImagingException, IOException {
+        final int strip0 = window.y / rowsPerStrip;
+        final int strip1 = (window.y + window.height - 1) / rowsPerStrip;
+
+        // the strips hold disjoint rows of the window
+        decodeBlocks(strip1 - strip0 + 1, true, block -> {
+            final int strip = strip0 + block;
+            final int yStrip = strip * rowsPerStrip;
+            final int rowsInThisStrip = Math.min(height - yStrip, rowsPerStrip);
+            final int bytesPerRow = (bitsPerPixel * width + 7) / 8;
+
+            final byte[] decompressed = decompress(strip, imageData.getImageData(strip), compression, rowsInThisStrip * bytesPerRow, width, rowsInThisStrip);
+            transferBlockSamples(decompressed, 0, yStrip, width, rowsInThisStrip, window, consumer, bitsPerPixel, byteOrder);
+        });
+    }
+
     private TiffRasterData readRasterDataFloat(final Rectangle subImage) throws ImagingException, IOException {
         final int xRaster;
         final int yRaster;
@@ -363,7 +366,10 @@ public final class DataReaderStrips extends ImageDataReader {
             rasterHeight = height;
         }
 
-        final float[] rasterDataFloat = Allocator.floatArray(rasterWidth * rasterHeight * samplesPerPixel);
+        // 64-bit samples are kept at full precision
+        final boolean isDouble = bitsPerPixel == 64 * samplesPerPixel;
+        final float[] rasterDataFloat = isDouble ? null : Allocator.floatArray(rasterWidth * rasterHeight * samplesPerPixel);
+        final double[] rasterDataDouble = isDouble ? Allocator.doubleArray(rasterWidth * rasterHeight * samplesPerPixel) : null;
 
         // the legacy code is optimized to the reading of whole
         // strips (except for the last strip in the image, which can
@@ -375,18 +381,26 @@ public final class DataReaderStrips extends ImageDataReader {
         final int strip0 = yRaster / rowsPerStrip;
         final int strip1 = (yRaster + rasterHeight - 1) / rowsPerStrip;
 
-        for (int strip = strip0; strip <= strip1; strip++) {
+        // the strips are transferred to disjoint rows of the raster
+        decodeBlocks(strip1 - strip0 + 1, true, block -> {
+            final int strip = strip0 + block;
             final int yStrip = strip * rowsPerStrip;
             final int rowsRemaining = height - yStrip;
             final int rowsInThisStrip = Math.min(rowsRemaining, rowsPerStrip);
             final int bytesPerRow = (bitsPerPixel * width + 7) / 8;
             final int bytesPerStrip = rowsInThisStrip * bytesPerRow;
 
-            final byte[] compressed = imageData.getImageData(strip).getData();
-            final byte[] decompressed = decompress(compressed, compression, bytesPerStrip, width, rowsInThisStrip);
-
-            final int[] blockData = unpackFloatingPointSamples(width, rowsInThisStrip, width, decompressed, bitsPerPixel, byteOrder);
-            transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData, xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
+            final byte[] decompressed = decompress(strip, imageData.getImageData(strip), compression, bytesPerStrip, width, rowsInThisStrip);
+            if (isDouble) {
+                final double[] blockData = unpackDoubleSamples(width, rowsInThisStrip, width, decompressed, bitsPerPixel, byteOrder);
+                transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData, xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataDouble);
+            } else {
+                final int[] blockData = unpackFloatingPointSamples(width, rowsInThisStrip, width, decompressed, bitsPerPixel, byteOrder);
+                transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData, xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
+            }
+        });
+        if (isDouble) {
+            return new TiffRasterDataDouble(rasterWidth, rasterHeight, samplesPerPixel, rasterDataDouble);
         }
         return new TiffRasterDataFloat(rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
     }
@@ -420,18 +434,19 @@ public final class DataReaderStrips extends ImageDataReader {
         final int strip0 = yRaster / rowsPerStrip;
         final int strip1 = (yRaster + rasterHeight - 1) / rowsPerStrip;
 
-        for (int strip = strip0; strip <= strip1; strip++) {
+        // the strips are transferred to disjoint rows of the raster
+        decodeBlocks(strip1 - strip0 + 1, true, block -> {
+            final int strip = strip0 + block;
             final int yStrip = strip * rowsPerStrip;
             final int rowsRemaining = height - yStrip;
             final int rowsInThisStrip = Math.min(rowsRemaining, rowsPerStrip);
             final int bytesPerRow = (bitsPerPixel * width + 7) / 8;
             final int bytesPerStrip = rowsInThisStrip * bytesPerRow;
 
-            final byte[] compressed = imageData.getImageData(strip).getData();
-            final byte[] decompressed = decompress(compressed, compression, bytesPerStrip, width, rowsInThisStrip);
+            final byte[] decompressed = decompress(strip, imageData.getImageData(strip), compression, bytesPerStrip, width, rowsInThisStrip);
             final int[] blockData = unpackIntSamples(width, rowsInThisStrip, width, decompressed, predictor, bitsPerPixel, byteOrder);
             transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData, xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
-        }
+        });
         return new TiffRasterDataInt(rasterWidth, rasterHeight, rasterDataInt);
     }
 }
@@ -28,6 +28,7 @@ import java.awt.Rectangle;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
@@ -35,6 +36,7 @@ import org.apache.commons.imaging.common.ImageBuilder;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffImageData;
 import org.apache.commons.imaging.formats.tiff.TiffDirectory;
 import org.apache.commons.imaging.formats.tiff.TiffRasterData;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataDouble;
 import org.apache.commons.imaging.formats.tiff.TiffRasterDataFloat;
 import org.apache.commons.imaging.formats.tiff.TiffRasterDataInt;
 import org.apache.commons.imaging.formats.tiff.constants.TiffPlanarConfiguration;
@@ -73,8 +75,22 @@ public final class DataReaderTiled extends ImageDataReader {
         this.byteOrder = byteOrder;
     }
 
-    private void interpretTile(final ImageBuilder imageBuilder, final byte[] bytes, final int startX, final int startY, final int xLimit, final int yLimit)
+    /**
+     * Interprets the samples of a tile that lie within a window of the image. The tile starts at column {@code startX} and row {@code startY} of the image,
+     * and the image builder has the size of the window.
+     */
+    private void interpretTile(final ImageBuilder imageBuilder, byte[] bytes, final int startX, final int startY, final Rectangle window)
             throws ImagingException, IOException {
+        // i0, i1 are the rows and j0, j1 the columns of the image covered by
+        // the tile, clipped to the window. The window lies within the image,
+        // so this also drops the padding of tiles past the edges of the image.
+        final int i0 = Math.max(startY, window.y);
+        final int i1 = Math.min(startY + tileLength, window.y + window.height);
+        final int j0 = Math.max(startX, window.x);
+        final int j1 = Math.min(startX + tileWidth, window.x + window.width);
+        if (i0 >= i1 || j0 >= j1) {
+            return;
+        }
 
         // March 2020 change to handle floating-point with compression
         // for the compressed floating-point, there is a standard that allows
@@ -84,20 +100,8 @@ public final class DataReaderTiled extends ImageDataReader {
         if (sampleFormat == TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT) {
             // tileLength: number of rows in tile
             // tileWidth: number of columns in tile
-            final int i0 = startY;
-            int i1 = startY + tileLength;
-            if (i1 > yLimit) {
-                // the tile is padded past bottom of image
-                i1 = yLimit;
-            }
-            final int j0 = startX;
-            int j1 = startX + tileWidth;
-            if (j1 > xLimit) {
-                // the tile is padded to beyond the tile width
-                j1 = xLimit;
-            }
             final int[] samples = new int[4];
-            final int[] b = unpackFloatingPointSamples(j1 - j0, i1 - i0, tileWidth, bytes, bitsPerPixel, byteOrder);
+            final int[] b = unpackFloatingPointSamples(j1 - startX, i1 - startY, tileWidth, bytes, bitsPerPixel, byteOrder);
             for (int i = i0; i < i1; i++) {
                 final int row = i - startY;
                 final int rowOffset = row * tileWidth;
@@ -105,7 +109,7 @@ public final class DataReaderTiled extends ImageDataReader {
                     final int column = j - startX;
                     final int k = (rowOffset + column) * samplesPerPixel;
                     samples[0] = b[k];
-                    photometricInterpreter.interpretPixel(imageBuilder, samples, j, i);
+                    photometricInterpreter.interpretPixel(imageBuilder, samples, j - window.x, i - window.y);
                 }
             }
             return;
@@ -123,39 +127,29 @@ public final class DataReaderTiled extends ImageDataReader {
         final boolean allSamplesAreOneByte = isHomogenous(8);
 
         if ((bitsPerPixel == 24 || bitsPerPixel == 32) && allSamplesAreOneByte && photometricInterpreter instanceof PhotometricInterpreterRgb) {
-            int i1 = startY + tileLength;
-            if (i1 > yLimit) {
-                // the tile is padded past bottom of image
-                i1 = yLimit;
-            }
-            int j1 = startX + tileWidth;
-            if (j1 > xLimit) {
-                // the tile is padded to beyond the tile width
-                j1 = xLimit;
-            }
-
             if (predictor == TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING) {
+                bytes = getWritableBlock(bytes);
                 applyPredictorToBlock(tileWidth, i1 - startY, samplesPerPixel, bytes);
             }
 
             if (bitsPerPixel == 24) {
                 // 24 bit case, we don't mask the red byte because any
                 // sign-extended bits get covered by opacity mask
-                for (int i = startY; i < i1; i++) {
-                    int k = (i - startY) * tileWidth * 3;
-                    for (int j = startX; j < j1; j++, k += 3) {
+                for (int i = i0; i < i1; i++) {
+                    int k = ((i - startY) * tileWidth + j0 - startX) * 3;
+                    for (int j = j0; j < j1; j++, k += 3) {
                         final int rgb = 0xff000000 | bytes[k] << 16 | (bytes[k + 1] & 0xff) << 8 | bytes[k + 2] & 0xff;
-                        imageBuilder.setRgb(j, i, rgb);
+                        imageBuilder.setRgb(j - window.x, i - window.y, rgb);
                     }
                 }
             } else if (bitsPerPixel == 32) {
                 // 32 bit case, we don't mask the high byte because any
                 // sign-extended bits get shifted up and out of result.
-                for (int i = startY; i < i1; i++) {
-                    int k = (i - startY) * tileWidth * 4;
-                    for (int j = startX; j < j1; j++, k += 4) {
+                for (int i = i0; i < i1; i++) {
+                    int k = ((i - startY) * tileWidth + j0 - startX) * 4;
+                    for (int j = j0; j < j1; j++, k += 4) {
                         final int rgb = (bytes[k] & 0xff) << 16 | (bytes[k + 1] & 0xff) << 8 | bytes[k + 2] & 0xff | bytes[k + 3] << 24;
-                        imageBuilder.setRgb(j, i, rgb);
+                        imageBuilder.setRgb(j - window.x, i - window.y, rgb);
                     }
                 }
             }
@@ -164,6 +158,24 @@ public final class DataReaderTiled extends ImageDataReader {
         }
 
         // End of May 2012 changes
+
+        // Other one-byte samples are unpacked a row at a time and handed to
+        // the photometric interpreter as a row. The predictor runs from the
+        // start of a row, so each row is unpacked up to the right edge of
+        // the window.
+        if (allSamplesAreOneByte && canInterpretByteRows()) {
+            final int nColumns = j1 - startX;
+            final int bytesPerRow = tileWidth * bitsPerSampleLength;
+            if (bytes.length >= (i1 - startY) * bytesPerRow) {
+                final int[] samples = Allocator.intArray(nColumns * bitsPerSampleLength);
+                final int[] argb = Allocator.intArray(nColumns);
+                for (int i = i0; i < i1; i++) {
+                    interpretByteRow(bytes, (i - startY) * bytesPerRow, nColumns, samples, argb);
+                    imageBuilder.setRgbRow(j0 - window.x, i - window.y, argb, j0 - startX, j1 - j0);
+                }
+                return;
+            }
+        }
         try (BitInputStream bis = new BitInputStream(new ByteArrayInputStream(bytes), byteOrder)) {
 
             final int pixelsPerTile = tileWidth * tileLength;
@@ -172,7 +184,8 @@ public final class DataReaderTiled extends ImageDataReader {
             int tileY = 0;
 
             int[] samples = Allocator.intArray(bitsPerSampleLength);
-            resetPredictor();
+            // predictor state is kept per tile so that tiles can be decoded concurrently
+            final int[] last = Allocator.intArray(samplesPerPixel);
             for (int i = 0; i < pixelsPerTile; i++) {
 
                 final int x = tileX + startX;
@@ -180,19 +193,22 @@ public final class DataReaderTiled extends ImageDataReader {
 
                 getSamplesAsBytes(bis, samples);
 
-                if (x < xLimit && y < yLimit) {
-                    samples = applyPredictor(samples);
-                    photometricInterpreter.interpretPixel(imageBuilder, samples, x, y);
+                // the predictor also runs over the pixels left of the window
+                if (x < j1 && y < i1) {
+                    samples = applyPredictor(samples, last);
+                    if (x >= j0 && y >= i0) {
+                        photometricInterpreter.interpretPixel(imageBuilder, samples, x - window.x, y - window.y);
+                    }
                 }
 
                 tileX++;
 
                 if (tileX >= tileWidth) {
                     tileX = 0;
-                    resetPredictor();
+                    Arrays.fill(last, 0);
                     tileY++;
                     bis.flushCache();
-                    if (tileY >= tileLength) {
+                    if (tileY >= tileLength || tileY + startY >= i1) {
                         break;
                     }
                 }
@@ -226,48 +242,38 @@ public final class DataReaderTiled extends ImageDataReader {
 
         final int nCol = col1 - col0 + 1;
         final int nRow = row1 - row0 + 1;
-        final int workingWidth = nCol * tileWidth;
-        final int workingHeight = nRow * tileLength;
 
         final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
 
-        final int x0 = col0 * tileWidth;
-        final int y0 = row0 * tileLength;
-
-        // When processing a subimage, the workingBuilder width and height
-        // are set to be integral multiples of the tile width and height.
-        // So the working image may be larger than the specified size of the subimage.
-        // If necessary, the subimage is extracted from the workingBuilder
-        // at the end of this method. This approach avoids the need for the
-        // interpretTile method to implement bounds checking for a subimage.
-        final ImageBuilder workingBuilder = new ImageBuilder(workingWidth, workingHeight, hasAlpha, isAlphaPreMultiplied);
-
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final int x = iCol * tileWidth - x0;
-                final int y = iRow * tileLength - y0;
-                // Handle JPEG based compression
-                if (compression == COMPRESSION_JPEG) {
-                    if (planarConfiguration == TiffPlanarConfiguration.PLANAR) {
-                        throw new ImagingException("TIFF file in non-supported configuration: JPEG compression used in planar configuration.");
-                    }
-                    DataInterpreterJpeg.intepretBlock(directory, workingBuilder, x, y, tileWidth, tileLength, compressed);
-                    continue;
-                }
+        // Each tile is clipped to the subimage while it is interpreted,
+        // so the image builder only covers the subimage.
+        final ImageBuilder imageBuilder = new ImageBuilder(subImage.width, subImage.height, hasAlpha, isAlphaPreMultiplied);
 
-                final byte[] decompressed = decompress(compressed, compression, bytesPerTile, tileWidth, tileLength);
+        if (compression == COMPRESSION_JPEG && planarConfiguration == TiffPlanarConfiguration.PLANAR) {
+            throw new ImagingException("TIFF file in non-supported configuration: JPEG compression used in planar configuration.");
+        }
 
-                interpretTile(workingBuilder, decompressed, x, y, width, height);
+        // each tile is written to its own area of the imageBuilder, so the
+        // tiles can be decoded concurrently if the interpreter allows it
+        decodeBlocks(nRow * nCol, photometricInterpreter.isThreadSafe(), block -> {
+            final int iRow = row0 + block / nCol;
+            final int iCol = col0 + block % nCol;
+            final int tile = iRow * nColumnsOfTiles + iCol;
+            final int x = iCol * tileWidth;
+            final int y = iRow * tileLength;
+            // Handle JPEG based compression
+            if (compression == COMPRESSION_JPEG) {
+                DataInterpreterJpeg.intepretBlock(directory, imageBuilder, x - subImage.x, y - subImage.y, tileWidth, tileLength,
+                        imageData.tiles[tile].readData());
+                return;
             }
-        }
 
-        if (subImage.x == x0 && subImage.y == y0 && subImage.width == workingWidth && subImage.height == workingHeight) {
-            return workingBuilder;
-        }
+            final byte[] decompressed = decompress(tile, imageData.tiles[tile], compression, bytesPerTile, tileWidth, tileLength);
 
-        return workingBuilder.getSubset(subImage.x - x0, subImage.y - y0, subImage.width, subImage.height);
+            interpretTile(imageBuilder, decompressed, x, y, subImage);
+        });
+
+        return imageBuilder;
     }
 
     @Override
@@ -282,6 +288,27 @@ public final class DataReaderTiled extends ImageDataReader {
         }
     }
 
+    @Override
+    public void readSamples(final Rectangle window, final SampleConsumer consumer) throws ImagingException, IOException {
+        final int bytesPerTile = (tileWidth * bitsPerPixel + 7) / 8 * tileLength;
+        final int col0 = window.x / tileWidth;
+        final int col1 = (window.x + window.width - 1) / tileWidth;
+        final int row0 = window.y / tileLength;
+        final int row1 = (window.y + window.height - 1) / tileLength;
+        final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
+        final int nCol = col1 - col0 + 1;
+        final int nRow = row1 - row0 + 1;
+
+        // the tiles hold disjoint areas of the window
+        decodeBlocks(nRow * nCol, true, block -> {
+            final int iRow = row0 + block / nCol;
+            final int iCol = col0 + block % nCol;
+            final int tile = iRow * nColumnsOfTiles + iCol;
+            final byte[] decompressed = decompress(tile, imageData.tiles[tile], compression, bytesPerTile, tileWidth, tileLength);
+            transferBlockSamples(decompressed, iCol * tileWidth, iRow * tileLength, tileWidth, tileLength, window, consumer, bitsPerPixel, byteOrder);
+        });
+    }
+
     private TiffRasterData readRasterDataFloat(final Rectangle subImage) throws ImagingException, IOException {
         final int bitsPerRow = tileWidth * bitsPerPixel;
         final int bytesPerRow = (bitsPerRow + 7) / 8;
@@ -301,7 +328,10 @@ public final class DataReaderTiled extends ImageDataReader {
             rasterWidth = width;
             rasterHeight = height;
         }
-        final float[] rasterDataFloat = Allocator.floatArray(rasterWidth * rasterHeight * samplesPerPixel);
+        // 64-bit samples are kept at full precision
+        final boolean isDouble = bitsPerPixel == 64 * samplesPerPixel;
+        final float[] rasterDataFloat = isDouble ? null : Allocator.floatArray(rasterWidth * rasterHeight * samplesPerPixel);
+        final double[] rasterDataDouble = isDouble ? Allocator.doubleArray(rasterWidth * rasterHeight * samplesPerPixel) : null;
 
         // tileWidth is the width of the tile
         // tileLength is the height of the tile
@@ -312,19 +342,29 @@ public final class DataReaderTiled extends ImageDataReader {
 
         final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
 
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final byte[] decompressed = decompress(compressed, compression, bytesPerTile, tileWidth, tileLength);
-                final int x = iCol * tileWidth;
-                final int y = iRow * tileLength;
+        final int nCol = col1 - col0 + 1;
+        final int nRow = row1 - row0 + 1;
 
+        // the tiles are transferred to disjoint areas of the raster
+        decodeBlocks(nRow * nCol, true, block -> {
+            final int iRow = row0 + block / nCol;
+            final int iCol = col0 + block % nCol;
+            final int tile = iRow * nColumnsOfTiles + iCol;
+            final byte[] decompressed = decompress(tile, imageData.tiles[tile], compression, bytesPerTile, tileWidth, tileLength);
+            final int x = iCol * tileWidth;
+            final int y = iRow * tileLength;
+            if (isDouble) {
+                final double[] blockData = unpackDoubleSamples(tileWidth, tileLength, tileWidth, decompressed, bitsPerPixel, byteOrder);
+                transferBlockToRaster(x, y, tileWidth, tileLength, blockData, xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataDouble);
+            } else {
                 final int[] blockData = unpackFloatingPointSamples(tileWidth, tileLength, tileWidth, decompressed, bitsPerPixel, byteOrder);
                 transferBlockToRaster(x, y, tileWidth, tileLength, blockData, xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
             }
-        }
+        });
 
+        if (isDouble) {
+            return new TiffRasterDataDouble(rasterWidth, rasterHeight, samplesPerPixel, rasterDataDouble);
+        }
         return new TiffRasterDataFloat(rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
     }
 
@@ -358,17 +398,20 @@ public final class DataReaderTiled extends ImageDataReader {
 
         final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
 
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final byte[] decompressed = decompress(compressed, compression, bytesPerTile, tileWidth, tileLength);
-                final int x = iCol * tileWidth;
-                final int y = iRow * tileLength;
-                final int[] blockData = unpackIntSamples(tileWidth, tileLength, tileWidth, decompressed, predictor, bitsPerPixel, byteOrder);
-                transferBlockToRaster(x, y, tileWidth, tileLength, blockData, xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
-            }
-        }
+        final int nCol = col1 - col0 + 1;
+        final int nRow = row1 - row0 + 1;
+
+        // the tiles are transferred to disjoint areas of the raster
+        decodeBlocks(nRow * nCol, true, block -> {
+            final int iRow = row0 + block / nCol;
+            final int iCol = col0 + block % nCol;
+            final int tile = iRow * nColumnsOfTiles + iCol;
+            final byte[] decompressed = decompress(tile, imageData.tiles[tile], compression, bytesPerTile, tileWidth, tileLength);
+            final int x = iCol * tileWidth;
+            final int y = iRow * tileLength;
+            final int[] blockData = unpackIntSamples(tileWidth, tileLength, tileWidth, decompressed, predictor, bitsPerPixel, byteOrder);
+            transferBlockToRaster(x, y, tileWidth, tileLength, blockData, xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
+        });
         return new TiffRasterDataInt(rasterWidth, rasterHeight, rasterDataInt);
     }
 }
@@ -17,17 +17,20 @@
 package org.apache.commons.imaging.formats.tiff.datareaders;
 
 import java.awt.Rectangle;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.ConcurrentTasks;
+import org.apache.commons.imaging.common.FloatingPointSamples;
 import org.apache.commons.imaging.common.ImageBuilder;
 import org.apache.commons.imaging.common.PackBits;
 import org.apache.commons.imaging.common.ZlibDeflate;
+import org.apache.commons.imaging.formats.tiff.AbstractTiffElement;
+import org.apache.commons.imaging.formats.tiff.TiffBlockCache;
 import org.apache.commons.imaging.formats.tiff.TiffDirectory;
 import org.apache.commons.imaging.formats.tiff.TiffField;
 import org.apache.commons.imaging.formats.tiff.TiffRasterData;
@@ -99,7 +102,8 @@ import org.apache.commons.imaging.mylzw.MyLzwDecompressor;
  *     24 bits    A non-standard representation
  * </pre>
  *
- * At this time, we have not obtained data samples for the smaller representations used in combination with a predictor.
+ * The 16 and 32-bit formats are supported, as are 64-bit IEEE-754 double-precision values, which follow the same scheme with 8 bytes per sample. The
+ * non-standard 24-bit representation is not supported. The transform itself is implemented in {@link FloatingPointSamples}, which the TIFF writer also uses.
  * <p>
  * <strong>Interleaved formats</strong>
  * <p>
@@ -109,7 +113,7 @@ import org.apache.commons.imaging.mylzw.MyLzwDecompressor;
  * At this time, we have encountered only a limited selection of the possible configurations for multi-variable data. The code below only supports those
  * configurations for which we had actual images that could be used to verify our implementation. The implementation supports the following formats:
  * <ul>
- * <li>32-bit floating-point data</li>
+ * <li>16, 32 and 64-bit floating-point data</li>
  * <li>Uncompressed, Deflate, or LZW compression</li>
  * <li>Optional horizontal predictors used with compression</li>
  * <li>PlanarConfiguration interleaved (CHUNKY) or non-interleaved (PLANAR)</li>
@@ -131,6 +135,75 @@ import org.apache.commons.imaging.mylzw.MyLzwDecompressor;
  */
 public abstract class ImageDataReader {
 
+    /**
+     * Decodes one block, that is one tile or one strip, of the image.
+     */
+    @FunctionalInterface
+    interface BlockDecoder {
+        void decode(int block) throws ImagingException, IOException;
+    }
+
+    /**
+     * Receives the samples of a window of numeric raster data as they are decoded, see {@link ImageDataReader#readSamples(Rectangle, SampleConsumer)}.
+     * Integer and single-precision samples are passed to {@link #acceptInt(int, int, int, int)} and {@link #acceptFloat(int, int, int, float)}, which pass
+     * them on as double-precision values unless they are overridden.
+     *
+     * @since 1.0-alpha6
+     */
+    @FunctionalInterface
+    public interface SampleConsumer {
+
+        /**
+         * Accepts a sample.
+         *
+         * @param x     the column of the sample, relative to the window.
+         * @param y     the row of the sample, relative to the window.
+         * @param i     the index of the sample within its pixel.
+         * @param value the value of the sample; potentially a Double&#46;NaN.
+         */
+        void accept(int x, int y, int i, double value);
+
+        /**
+         * Accepts a single-precision sample.
+         *
+         * @param x     the column of the sample, relative to the window.
+         * @param y     the row of the sample, relative to the window.
+         * @param i     the index of the sample within its pixel.
+         * @param value the value of the sample; potentially a Float&#46;NaN.
+         */
+        default void acceptFloat(final int x, final int y, final int i, final float value) {
+            accept(x, y, i, value);
+        }
+
+        /**
+         * Accepts an integer sample.
+         *
+         * @param x     the column of the sample, relative to the window.
+         * @param y     the row of the sample, relative to the window.
+         * @param i     the index of the sample within its pixel.
+         * @param value the value of the sample.
+         */
+        default void acceptInt(final int x, final int y, final int i, final int value) {
+            accept(x, y, i, value);
+        }
+    }
+
+    /**
+     * Passes the sample at an index of a block to a consumer.
+     */
+    @FunctionalInterface
+    interface SampleTransfer {
+        void transfer(int blockIndex, int x, int y, int i);
+    }
+
+    private static int bigEndianInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8 | bytes[offset + 3] & 0xff;
+    }
+
+    private static int littleEndianInt(final byte[] bytes, final int offset) {
+        return (bytes[offset + 3] & 0xff) << 24 | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 1] & 0xff) << 8 | bytes[offset] & 0xff;
+    }
+
     protected final TiffDirectory directory;
     protected final PhotometricInterpreter photometricInterpreter;
     private final int[] bitsPerSample;
@@ -145,6 +218,10 @@ public abstract class ImageDataReader {
 
     protected final TiffPlanarConfiguration planarConfiguration;
 
+    private Executor executor;
+
+    private TiffBlockCache blockCache;
+
     public ImageDataReader(final TiffDirectory directory, final PhotometricInterpreter photometricInterpreter, final int[] bitsPerSample, final int predictor,
             final int samplesPerPixel, final int sampleFormat, final int width, final int height, final TiffPlanarConfiguration planarConfiguration) {
         this.directory = directory;
@@ -162,6 +239,17 @@ public abstract class ImageDataReader {
     }
 
     protected int[] applyPredictor(final int[] samples) {
+        return applyPredictor(samples, last);
+    }
+
+    /**
+     * Applies the horizontal differencing predictor using the caller's record of the previous pixel, so that blocks can be decoded concurrently.
+     *
+     * @param samples the samples of the current pixel, replaced by the predicted values.
+     * @param last    the samples of the previous pixel in the row, updated to those of the current pixel.
+     * @return the samples.
+     */
+    int[] applyPredictor(final int[] samples, final int[] last) {
         if (predictor == 2) {
             // Horizontal differencing.
             for (int i = 0; i < samples.length; i++) {
@@ -184,6 +272,41 @@ public abstract class ImageDataReader {
         }
     }
 
+    /**
+     * Calls the decoder once for every block index from zero to {@code count - 1}.
+     * <p>
+     * Without an executor, or if {@code concurrent} is false, the blocks are decoded in order in the calling thread. Otherwise the blocks are decoded by
+     * {@link ConcurrentTasks}, with the calling thread decoding blocks alongside the executor, so all blocks are decoded even if the executor never runs its
+     * workers. The decoder must then write each block to its own part of the output.
+     * </p>
+     *
+     * @param count      the number of blocks.
+     * @param concurrent whether the blocks may be decoded concurrently.
+     * @param decoder    decodes a single block.
+     */
+    void decodeBlocks(final int count, final boolean concurrent, final BlockDecoder decoder) throws ImagingException, IOException {
+        ConcurrentTasks.forEach(concurrent ? executor : null, count, decoder::decode, "TIFF image data decoding");
+    }
+
+    /**
+     * Reads and decompresses a tile or strip, or gets it from the block cache if one is set. The result may be shared with other readers through the cache
+     * and must not be modified; see {@link #getWritableBlock(byte[])}.
+     *
+     * @param block        the index of the block in the directory.
+     * @param element      the element holding the compressed bytes, which are only read if the block is not in the cache.
+     * @param compression  the compression of the block.
+     * @param expectedSize the size of the decompressed block.
+     * @param tileWidth    the width of the block, in pixels.
+     * @param tileHeight   the height of the block, in pixels.
+     */
+    protected byte[] decompress(final int block, final AbstractTiffElement.DataElement element, final int compression, final int expectedSize,
+            final int tileWidth, final int tileHeight) throws ImagingException, IOException {
+        if (blockCache == null) {
+            return decompress(element.readData(), compression, expectedSize, tileWidth, tileHeight);
+        }
+        return blockCache.get(directory, block, () -> decompress(element.readData(), compression, expectedSize, tileWidth, tileHeight));
+    }
+
     protected byte[] decompress(final byte[] compressedInput, final int compression, final int expectedSize, final int tileWidth, final int tileHeight)
             throws ImagingException, IOException {
         final TiffField fillOrderField = directory.findField(TiffTagConstants.TIFF_TAG_FILL_ORDER);
@@ -241,9 +364,8 @@ public abstract class ImageDataReader {
             return T4AndT6Compression.decompressT6(compressedOrdered, tileWidth, tileHeight);
         }
         case TiffConstants.COMPRESSION_LZW: {
-            final InputStream is = new ByteArrayInputStream(compressedOrdered);
             final int lzwMinimumCodeSize = 8;
-            return new MyLzwDecompressor(lzwMinimumCodeSize, ByteOrder.BIG_ENDIAN, true).decompress(is, expectedSize);
+            return new MyLzwDecompressor(lzwMinimumCodeSize, ByteOrder.BIG_ENDIAN, true).decompress(compressedOrdered, expectedSize);
         }
 
         // Packbits
@@ -286,6 +408,54 @@ public abstract class ImageDataReader {
         }
     }
 
+    /**
+     * Gets a decompressed block that may be modified in place, copying it if it may be shared through the block cache.
+     *
+     * @param bytes the block returned by {@link #decompress(int, AbstractTiffElement.DataElement, int, int, int, int)}.
+     * @return the block itself or a copy.
+     */
+    protected byte[] getWritableBlock(final byte[] bytes) {
+        return blockCache == null ? bytes : bytes.clone();
+    }
+
+    /**
+     * Tests whether rows of pixels can be passed to {@link #interpretByteRow(byte[], int, int, int[], int[])}, which requires every sample to be one byte
+     * and the photometric interpreter to accept rows.
+     */
+    boolean canInterpretByteRows() {
+        return isHomogenous(8) && photometricInterpreter.isThreadSafe() && photometricInterpreter.getSamplesPerPixel() == bitsPerSampleLength;
+    }
+
+    /**
+     * Unpacks a row of one-byte samples, undoes the horizontal differencing predictor and converts the pixels to ARGB. This bypasses the general-purpose bit
+     * reader and the per-pixel call to the photometric interpreter.
+     *
+     * @param bytes   the decompressed samples.
+     * @param offset  the index of the first sample of the row in {@code bytes}.
+     * @param count   the number of pixels in the row.
+     * @param samples scratch space for at least {@code count * bitsPerSampleLength} samples.
+     * @param argb    receives the ARGB values.
+     */
+    void interpretByteRow(final byte[] bytes, final int offset, final int count, final int[] samples, final int[] argb) throws ImagingException, IOException {
+        final int n = count * bitsPerSampleLength;
+        for (int k = 0; k < n; k++) {
+            samples[k] = bytes[offset + k] & 0xff;
+        }
+        if (predictor == TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING) {
+            for (int k = bitsPerSampleLength; k < n; k++) {
+                samples[k] = 0xff & samples[k] + samples[k - bitsPerSampleLength];
+            }
+        }
+        photometricInterpreter.interpretRow(samples, 0, count, argb);
+    }
+
+    /**
+     * Tests whether an executor has been set, so that {@link #decodeBlocks(int, boolean, BlockDecoder)} may decode blocks concurrently.
+     */
+    boolean isConcurrent() {
+        return executor != null;
+    }
+
     /**
      * Checks if all the bits per sample entries are the same size
      *
@@ -325,10 +495,76 @@ public abstract class ImageDataReader {
      */
     public abstract TiffRasterData readRasterData(Rectangle subImage) throws ImagingException, IOException;
 
+    /**
+     * Reads the numeric raster data of a window of the image into a raster supplied by the caller, which has the size of the window. Only the blocks that
+     * overlap the window are decoded, one at a time, so the data of the window is never held in a temporary array and the raster may be larger than an array
+     * allows. As with {@link #readRasterData(Rectangle)}, all access checks are assumed to have been performed.
+     *
+     * @param subImage if non-null, the window; otherwise the whole image.
+     * @param raster   receives the samples, converted by its setters if its data type differs from the image.
+     * @throws ImagingException in the event of an incompatible data form.
+     * @throws IOException      in the event of I/O error.
+     * @since 1.0-alpha6
+     */
+    public void readRasterData(final Rectangle subImage, final TiffRasterData raster) throws ImagingException, IOException {
+        final int xWindow = subImage == null ? 0 : subImage.x;
+        final int yWindow = subImage == null ? 0 : subImage.y;
+        readSamples(new Rectangle(xWindow, yWindow, raster.getWidth(), raster.getHeight()), new SampleConsumer() {
+
+            @Override
+            public void accept(final int x, final int y, final int i, final double value) {
+                raster.setDoubleValue(x, y, i, value);
+            }
+
+            @Override
+            public void acceptFloat(final int x, final int y, final int i, final float value) {
+                raster.setValue(x, y, i, value);
+            }
+
+            @Override
+            public void acceptInt(final int x, final int y, final int i, final int value) {
+                raster.setIntValue(x, y, i, value);
+            }
+        });
+    }
+
+    /**
+     * Passes the samples of a window of the numeric raster data of the image to a consumer as the blocks that overlap the window are decoded, so that the data
+     * of the window is never held in memory. If an executor is set, blocks are decoded concurrently and the consumer is called from several threads at once,
+     * for different pixels. As with {@link #readRasterData(Rectangle)}, all access checks are assumed to have been performed.
+     *
+     * @param window   the window.
+     * @param consumer receives the samples.
+     * @throws ImagingException in the event of an incompatible data form.
+     * @throws IOException      in the event of I/O error.
+     * @since 1.0-alpha6
+     */
+    public abstract void readSamples(Rectangle window, SampleConsumer consumer) throws ImagingException, IOException;
+
     protected void resetPredictor() {
         Arrays.fill(last, 0);
     }
 
+    /**
+     * Sets the cache of decompressed tiles or strips, so that blocks decoded by earlier reads of the same directory are not decompressed again.
+     *
+     * @param blockCache the cache, or {@code null} to decompress every block that is read.
+     * @since 1.0-alpha6
+     */
+    public void setBlockCache(final TiffBlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
+    /**
+     * Sets the executor used to decode tiles or strips concurrently.
+     *
+     * @param executor the executor, or {@code null} to decode the image in the calling thread.
+     * @since 1.0-alpha6
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Transfer samples obtained from the TIFF file to a floating-point raster.
      *
@@ -446,6 +682,169 @@ public abstract class ImageDataReader {
 
     }
 
+    /**
+     * Unpacks the samples of a decompressed block and passes those within a window to a consumer.
+     *
+     * @param bytes        the decompressed block.
+     * @param xBlock       coordinate of block relative to source data
+     * @param yBlock       coordinate of block relative to source data
+     * @param blockWidth   width of block, in pixels
+     * @param blockHeight  height of block in pixels
+     * @param window       the window, relative to source data.
+     * @param consumer     receives the samples, at coordinates relative to the window.
+     * @param bitsPerPixel the number of bits per pixel.
+     * @param byteOrder    the byte order for the source data.
+     * @throws ImagingException in the event of an invalid format.
+     */
+    void transferBlockSamples(final byte[] bytes, final int xBlock, final int yBlock, final int blockWidth, final int blockHeight, final Rectangle window,
+            final SampleConsumer consumer, final int bitsPerPixel, final ByteOrder byteOrder) throws ImagingException {
+        if (sampleFormat != TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT) {
+            final int[] samples = unpackIntSamples(blockWidth, blockHeight, blockWidth, bytes, predictor, bitsPerPixel, byteOrder);
+            transferBlockSamples(xBlock, yBlock, blockWidth, blockHeight, window, (b, x, y, i) -> consumer.acceptInt(x, y, i, samples[b]));
+        } else if (bitsPerPixel == 64 * samplesPerPixel) {
+            final double[] samples = unpackDoubleSamples(blockWidth, blockHeight, blockWidth, bytes, bitsPerPixel, byteOrder);
+            transferBlockSamples(xBlock, yBlock, blockWidth, blockHeight, window, (b, x, y, i) -> consumer.accept(x, y, i, samples[b]));
+        } else {
+            final int[] samples = unpackFloatingPointSamples(blockWidth, blockHeight, blockWidth, bytes, bitsPerPixel, byteOrder);
+            transferBlockSamples(xBlock, yBlock, blockWidth, blockHeight, window,
+                    (b, x, y, i) -> consumer.acceptFloat(x, y, i, Float.intBitsToFloat(samples[b])));
+        }
+    }
+
+    /**
+     * Transfers the samples of a block that lie within a window, one at a time. The block holds its samples in the planar configuration of the source.
+     */
+    private void transferBlockSamples(final int xBlock, final int yBlock, final int blockWidth, final int blockHeight, final Rectangle window,
+            final SampleTransfer transfer) {
+        final int x0 = Math.max(xBlock, window.x);
+        final int y0 = Math.max(yBlock, window.y);
+        final int x1 = Math.min(xBlock + blockWidth, window.x + window.width);
+        final int y1 = Math.min(yBlock + blockHeight, window.y + window.height);
+        final boolean planar = planarConfiguration == TiffPlanarConfiguration.PLANAR;
+        for (int i = 0; i < samplesPerPixel; i++) {
+            for (int y = y0; y < y1; y++) {
+                final int rowOffset = (y - yBlock) * blockWidth - xBlock;
+                for (int x = x0; x < x1; x++) {
+                    final int blockIndex = planar ? i * blockWidth * blockHeight + rowOffset + x : (rowOffset + x) * samplesPerPixel + i;
+                    transfer.transfer(blockIndex, x - window.x, y - window.y, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transfer samples obtained from the TIFF file to a double-precision raster.
+     *
+     * @param xBlock       coordinate of block relative to source data
+     * @param yBlock       coordinate of block relative to source data
+     * @param blockWidth   width of block, in pixels
+     * @param blockHeight  height of block in pixels
+     * @param blockData    the data for the block
+     * @param xRaster      coordinate of raster relative to source data
+     * @param yRaster      coordinate of raster relative to source data
+     * @param rasterWidth  width of the raster (always smaller than source data)
+     * @param rasterHeight height of the raster (always smaller than source data)
+     * @param rasterData   the raster data.
+     */
+    void transferBlockToRaster(final int xBlock, final int yBlock, final int blockWidth, final int blockHeight, final double[] blockData, final int xRaster,
+            final int yRaster, final int rasterWidth, final int rasterHeight, final int samplesPerPixel, final double[] rasterData) {
+
+        // xR0, yR0 are the coordinates within the raster (upper-left corner)
+        // xR1, yR1 are ONE PAST the coordinates of the lower-right corner
+        int xR0 = xBlock - xRaster; // xR0, yR0 coordinates relative to
+        int yR0 = yBlock - yRaster; // the raster
+        int xR1 = xR0 + blockWidth;
+        int yR1 = yR0 + blockHeight;
+        if (xR0 < 0) {
+            xR0 = 0;
+        }
+        if (yR0 < 0) {
+            yR0 = 0;
+        }
+        if (xR1 > rasterWidth) {
+            xR1 = rasterWidth;
+        }
+        if (yR1 > rasterHeight) {
+            yR1 = rasterHeight;
+        }
+
+        // Recall that the above logic may have adjusted xR0, xY0 so that
+        // they are not necessarily point to the source pixel at xRaster, yRaster
+        // we compute xSource = xR0+xRaster.
+        // xOffset = xSource-xBlock
+        // since the block cannot be accessed with a negative offset,
+        // we check for negatives and adjust xR0, yR0 upward as necessary
+        int xB0 = xR0 + xRaster - xBlock;
+        int yB0 = yR0 + yRaster - yBlock;
+        if (xB0 < 0) {
+            xR0 -= xB0;
+            xB0 = 0;
+        }
+        if (yB0 < 0) {
+            yR0 -= yB0;
+            yB0 = 0;
+        }
+
+        int w = xR1 - xR0;
+        int h = yR1 - yR0;
+        if (w <= 0 || h <= 0) {
+            // The call to this method put the block outside the
+            // bounds of the raster. There is nothing to do. Ideally,
+            // this situation never arises, because it would mean that
+            // the data was read from the file unnecessarily.
+            return;
+        }
+        // see if the xR1, yR1 would extend past the limits of the block
+        if (w > blockWidth) {
+            w = blockWidth;
+        }
+        if (h > blockHeight) {
+            h = blockHeight;
+        }
+
+        // The TiffRasterData class expects data to be in the order
+        // corresponding to TiffPlanarConfiguration.PLANAR. So for the
+        // multivariable case, we must convert CHUNKY data to PLANAR.
+        if (samplesPerPixel == 1) {
+            for (int i = 0; i < h; i++) {
+                final int yR = yR0 + i;
+                final int yB = yB0 + i;
+                final int rOffset = yR * rasterWidth + xR0;
+                final int bOffset = yB * blockWidth + xB0;
+                System.arraycopy(blockData, bOffset, rasterData, rOffset, w);
+            }
+        } else if (this.planarConfiguration == TiffPlanarConfiguration.CHUNKY) {
+            // The source data is in the interleaved (Chunky) order,
+            // but the TiffRasterData class expects non-interleaved order.
+            // So we transcribe the elements as appropriate.
+            final int pixelsPerPlane = rasterWidth * rasterHeight;
+            for (int i = 0; i < h; i++) {
+                final int yR = yR0 + i;
+                final int yB = yB0 + i;
+                final int rOffset = yR * rasterWidth + xR0;
+                final int bOffset = yB * blockWidth + xB0;
+                for (int j = 0; j < w; j++) {
+                    for (int k = 0; k < samplesPerPixel; k++) {
+                        rasterData[k * pixelsPerPlane + rOffset + j] = blockData[(bOffset + j) * samplesPerPixel + k];
+                    }
+                }
+            }
+        } else {
+            for (int iPlane = 0; iPlane < samplesPerPixel; iPlane++) {
+                final int rPlanarOffset = iPlane * rasterWidth * rasterHeight;
+                final int bPlanarOffset = iPlane * blockWidth * blockHeight;
+                for (int i = 0; i < h; i++) {
+                    final int yR = yR0 + i;
+                    final int yB = yB0 + i;
+                    final int rOffset = rPlanarOffset + yR * rasterWidth + xR0;
+                    final int bOffset = bPlanarOffset + yB * blockWidth + xB0;
+                    System.arraycopy(blockData, bOffset, rasterData, rOffset, w);
+                }
+            }
+        }
+
+    }
+
     /**
      * Transfer samples obtained from the TIFF file to an integer raster.
      *
@@ -525,20 +924,87 @@ public abstract class ImageDataReader {
         }
     }
 
+    /**
+     * Gets the bytes of the floating-point samples of a block, undoing the floating-point predictor if the source uses it. Rows hold the samples of all
+     * planes for interleaved (CHUNKY) data, and the planes follow each other for PLANAR data.
+     *
+     * @param bytes          the raw bytes.
+     * @param rowSamples     the number of samples in a row.
+     * @param bytesPerSample the size of a sample.
+     * @param nRows          the number of rows.
+     * @param byteOrder      the byte order for the source data.
+     * @return the bytes of the samples in the byte order of the source.
+     */
+    private byte[] undoFloatingPointPredictor(final byte[] bytes, final int rowSamples, final int bytesPerSample, final int nRows,
+            final ByteOrder byteOrder) {
+        if (predictor != TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING) {
+            return bytes;
+        }
+        final int bytesInRow = rowSamples * bytesPerSample;
+        final byte[] result = Allocator.byteArray((long) bytesInRow * nRows);
+        final byte[] row = Allocator.byteArray(bytesInRow);
+        for (int i = 0; i < nRows; i++) {
+            FloatingPointSamples.decodePredictor(bytes, i * bytesInRow, rowSamples, bytesPerSample, byteOrder, row);
+            System.arraycopy(row, 0, result, i * bytesInRow, bytesInRow);
+        }
+        return result;
+    }
+
+    /**
+     * Given a source file that specifies 64-bit floating-point data, unpack the raw bytes obtained from the source file and organize them into an array of
+     * doubles, keeping their full precision.
+     * <p>
+     * The layout of the result and the meaning of the parameters are those of
+     * {@link #unpackFloatingPointSamples(int, int, int, byte[], int, ByteOrder)}.
+     *
+     * @param width        the width of the data block to be extracted
+     * @param height       the height of the data block to be extracted
+     * @param scanSize     the number of pixels in a single row of the block
+     * @param bytes        the raw bytes
+     * @param bitsPerPixel the number of bits per pixel, 64 for each sample.
+     * @param byteOrder    the byte order for the source data
+     * @return a valid array of doubles in row major order, dimensions scan-size wide and height.
+     * @throws ImagingException in the event of an invalid format.
+     */
+    double[] unpackDoubleSamples(final int width, final int height, final int scanSize, final byte[] bytes, final int bitsPerPixel, final ByteOrder byteOrder)
+            throws ImagingException {
+        if (bitsPerPixel / samplesPerPixel != 64) {
+            throw new ImagingException("Imaging does not support double-precision samples with " + bitsPerPixel + " bits per pixel");
+        }
+        final int rowSamples = planarConfiguration == TiffPlanarConfiguration.PLANAR ? scanSize : scanSize * samplesPerPixel;
+        final int nRows = Math.min(scanSize * samplesPerPixel * height / rowSamples, bytes.length / (rowSamples * 8));
+        final byte[] b = undoFloatingPointPredictor(bytes, rowSamples, 8, nRows, byteOrder);
+        final double[] samples = Allocator.doubleArray(scanSize * samplesPerPixel * height);
+        final int count = nRows * rowSamples;
+        if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
+            for (int i = 0, k = 0; i < count; i++, k += 8) {
+                samples[i] = Double.longBitsToDouble((long) littleEndianInt(b, k + 4) << 32 | littleEndianInt(b, k) & 0xffffffffL);
+            }
+        } else {
+            for (int i = 0, k = 0; i < count; i++, k += 8) {
+                samples[i] = Double.longBitsToDouble((long) bigEndianInt(b, k) << 32 | bigEndianInt(b, k + 4) & 0xffffffffL);
+            }
+        }
+        return samples;
+    }
+
     /**
      * Given a source file that specifies the floating-point data format, unpack the raw bytes obtained from the source file and organize them into an array of
-     * integers containing the bit-equivalent of IEEE-754 32-bit floats. Source files containing 64 bit doubles are downcast to floats.
+     * integers containing the bit-equivalent of IEEE-754 32-bit floats. Source files containing 16-bit half-precision values are converted exactly, and those
+     * containing 64-bit doubles are downcast to floats (see {@link #unpackDoubleSamples(int, int, int, byte[], int, ByteOrder)} for their full precision).
      * <p>
      * This method supports either the tile format or the strip format of TIFF source files. The scan size indicates the number of columns to be extracted. For
      * strips, the width and the scan size are always the full width of the image. For tiles, the scan size is the full width of the tile, but the width may be
      * smaller in the cases where the tiles do not evenly divide the width (for example, a 256 pixel wide tile in a 257 pixel wide image would result in two
      * columns of tiles, the second column having only one column of pixels that were worth extracting.
+     * <p>
+     * The samples are given in the order of the source: interleaved for the CHUNKY planar configuration, and one plane after another for PLANAR.
      *
      * @param width        the width of the data block to be extracted
      * @param height       the height of the data block to be extracted
      * @param scanSize     the number of pixels in a single row of the block
-     * @param bytes        the raw bytes
-     * @param bitsPerPixel the number of bits per sample, 32 or 64.
+     * @param bytes        the raw bytes; these are not modified.
+     * @param bitsPerPixel the number of bits per pixel, 16, 32 or 64 for each sample.
      * @param byteOrder    the byte order for the source data
      * @return a valid array of integers in row major order, dimensions scan-size wide and height.
      * @throws ImagingException in the event of an invalid format.
@@ -546,139 +1012,43 @@ public abstract class ImageDataReader {
     protected int[] unpackFloatingPointSamples(final int width, final int height, final int scanSize, final byte[] bytes, final int bitsPerPixel,
             final ByteOrder byteOrder) throws ImagingException {
         final int bitsPerSample = bitsPerPixel / samplesPerPixel;
+        if (bitsPerSample != 16 && bitsPerSample != 32 && bitsPerSample != 64) {
+            throw new ImagingException("Imaging does not support floating-point samples with " + bitsPerPixel + " bits per pixel");
+        }
         final int bytesPerSample = bitsPerSample / 8;
-        final int bytesPerScan = scanSize * samplesPerPixel * bytesPerSample;
-        final int nBytes = bytesPerScan * height;
-        final int length = bytes.length < nBytes ? nBytes / bytesPerScan : height;
+        final int rowSamples = planarConfiguration == TiffPlanarConfiguration.PLANAR ? scanSize : scanSize * samplesPerPixel;
+        final int nRows = Math.min(scanSize * samplesPerPixel * height / rowSamples, bytes.length / (rowSamples * bytesPerSample));
         final int[] samples = Allocator.intArray(scanSize * samplesPerPixel * height);
-        // floating-point differencing is indicated by a predictor value of 3.
-        if (predictor == TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING) {
-            // at this time, this class supports the 32-bit format. The
-            // main reason for this is that we have not located sample data
-            // that can be used for testing and analysis.
-            if (bitsPerPixel / samplesPerPixel != 32) {
-                throw new ImagingException(
-                        "Imaging does not yet support floating-point data" + " with predictor type 3 for " + bitsPerPixel + " bits per sample");
-            }
-
-            if (planarConfiguration == TiffPlanarConfiguration.CHUNKY) {
-                final int bytesInRow = scanSize * 4 * samplesPerPixel;
-                for (int i = 0; i < length; i++) {
-                    final int aOffset = i * bytesInRow;
-                    final int bOffset = aOffset + scanSize * samplesPerPixel;
-                    final int cOffset = bOffset + scanSize * samplesPerPixel;
-                    final int dOffset = cOffset + scanSize * samplesPerPixel;
-                    // in this loop, the source bytes give delta values.
-                    // we adjust them to give true values. This operation is
-                    // done on a row-by-row basis.
-                    for (int j = 1; j < bytesInRow; j++) {
-                        bytes[aOffset + j] += bytes[aOffset + j - 1];
-                    }
-                    // pack the bytes into the integer bit-equivalent of
-                    // floating point values
-                    int index = i * scanSize;
-                    for (int j = 0; j < width * samplesPerPixel; j++) {
-                        final int a = bytes[aOffset + j];
-                        final int b = bytes[bOffset + j];
-                        final int c = bytes[cOffset + j];
-                        final int d = bytes[dOffset + j];
-                        // Pack the 4 byte components into a single integer
-                        // in the byte order used by the TIFF standard
-                        samples[index++] = (a & 0xff) << 24 | (b & 0xff) << 16 | (c & 0xff) << 8 | d & 0xff;
-                    }
-                }
-            } else {
-                final int bytesInRow = scanSize * 4;
-                for (int iPlane = 0; iPlane < samplesPerPixel; iPlane++) {
-                    final int planarIntOffset = iPlane * length * scanSize;
-                    final int planarByteOffset = planarIntOffset * 4;
-
-                    for (int i = 0; i < length; i++) {
-                        final int aOffset = i * bytesInRow + planarByteOffset;
-                        final int bOffset = aOffset + scanSize;
-                        final int cOffset = bOffset + scanSize;
-                        final int dOffset = cOffset + scanSize;
-                        // in this loop, the source bytes give delta values.
-                        // we adjust them to give true values. This operation is
-                        // done on a row-by-row basis.
-                        for (int j = 1; j < bytesInRow; j++) {
-                            bytes[aOffset + j] += bytes[aOffset + j - 1];
-                        }
-                        // pack the bytes into the integer bit-equivalent of
-                        // floating point values
-                        int index = planarIntOffset + i * scanSize;
-                        for (int j = 0; j < width; j++) {
-                            final int a = bytes[aOffset + j];
-                            final int b = bytes[bOffset + j];
-                            final int c = bytes[cOffset + j];
-                            final int d = bytes[dOffset + j];
-                            // Pack the 4 byte components into a single integer
-                            // in the byte order used by the TIFF standard
-                            samples[index++] = (a & 0xff) << 24 | (b & 0xff) << 16 | (c & 0xff) << 8 | d & 0xff;
-                        }
-                    }
-                }
-
+        if (bitsPerSample == 64) {
+            // since the photometric interpreter does not
+            // currently support doubles, we need to replace each
+            // element with a float.
+            final double[] d = unpackDoubleSamples(width, height, scanSize, bytes, bitsPerPixel, byteOrder);
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = Float.floatToRawIntBits((float) d[i]);
             }
             return samples;
-        } // end of predictor==3 case.
+        }
 
-        // simple packing case, 64 or 32 bits --------------------------
-        if (bitsPerSample == 64) {
-            int k = 0;
-            int index = 0;
-            for (int i = 0; i < length; i++) {
-                for (int j = 0; j < scanSize; j++) {
-                    final long b0 = bytes[k++] & 0xffL;
-                    final long b1 = bytes[k++] & 0xffL;
-                    final long b2 = bytes[k++] & 0xffL;
-                    final long b3 = bytes[k++] & 0xffL;
-                    final long b4 = bytes[k++] & 0xffL;
-                    final long b5 = bytes[k++] & 0xffL;
-                    final long b6 = bytes[k++] & 0xffL;
-                    final long b7 = bytes[k++] & 0xffL;
-                    final long sbits;
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        sbits = b7 << 56 | b6 << 48 | b5 << 40 | b4 << 32 | b3 << 24 | b2 << 16 | b1 << 8 | b0;
-
-                    } else {
-                        sbits = b0 << 56 | b1 << 48 | b2 << 40 | b3 << 32 | b4 << 24 | b5 << 16 | b6 << 8 | b7;
-                    }
-                    // since the photometric interpreter does not
-                    // currently support doubles, we need to replace this
-                    // element with a float. This action is inefficient and
-                    // should be improved.
-                    final float f = (float) Double.longBitsToDouble(sbits);
-                    samples[index++] = Float.floatToRawIntBits(f);
+        final byte[] b = undoFloatingPointPredictor(bytes, rowSamples, bytesPerSample, nRows, byteOrder);
+        final int count = nRows * rowSamples;
+        final boolean littleEndian = byteOrder == ByteOrder.LITTLE_ENDIAN;
+        if (bitsPerSample == 32) {
+            if (littleEndian) {
+                for (int i = 0, k = 0; i < count; i++, k += 4) {
+                    samples[i] = littleEndianInt(b, k);
                 }
-            }
-        } else if (bitsPerSample == 32) {
-            int k = 0;
-            int index = 0;
-            for (int i = 0; i < length; i++) {
-                for (int j = 0; j < scanSize * samplesPerPixel; j++) {
-                    final int b0 = bytes[k++] & 0xff;
-                    final int b1 = bytes[k++] & 0xff;
-                    final int b2 = bytes[k++] & 0xff;
-                    final int b3 = bytes[k++] & 0xff;
-                    final int sbits;
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        sbits = b3 << 24 | b2 << 16 | b1 << 8 | b0;
-
-                    } else {
-                        sbits = b0 << 24 | b1 << 16 | b2 << 8 | b3;
-                    }
-                    // since the photometric interpreter does not
-                    // currently support doubles, we need to replace this
-                    // element with a float. This action is inefficient and
-                    // should be improved.
-                    samples[index++] = sbits;
+            } else {
+                for (int i = 0, k = 0; i < count; i++, k += 4) {
+                    samples[i] = bigEndianInt(b, k);
                 }
             }
         } else {
-            throw new ImagingException("Imaging does not support floating-point samples with " + bitsPerPixel + " bits per sample");
+            for (int i = 0, k = 0; i < count; i++, k += 2) {
+                final int half = littleEndian ? (b[k + 1] & 0xff) << 8 | b[k] & 0xff : (b[k] & 0xff) << 8 | b[k + 1] & 0xff;
+                samples[i] = Float.floatToRawIntBits(FloatingPointSamples.halfToFloat(half));
+            }
         }
-
         return samples;
     }
 
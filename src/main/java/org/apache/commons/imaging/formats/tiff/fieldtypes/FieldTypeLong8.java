@@ -17,6 +17,7 @@
 package org.apache.commons.imaging.formats.tiff.fieldtypes;
 
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
@@ -41,26 +42,34 @@ public class FieldTypeLong8 extends AbstractFieldType {
     public Object getValue(final TiffField entry) {
         final byte[] bytes = entry.getByteArrayValue();
         if (entry.getCount() == 1) {
-            return ByteConversions.toInt(bytes, entry.getByteOrder());
+            return ByteConversions.toLong(bytes, entry.getByteOrder());
         }
         return ByteConversions.toLongs(bytes, entry.getByteOrder());
     }
 
+    /**
+     * Encodes long integers as eight bytes each. Integers are accepted as well and widened to eight bytes.
+     */
     @Override
     public byte[] writeData(final Object o, final ByteOrder byteOrder) throws ImagingException {
-        if (o instanceof Integer) {
-            return ByteConversions.toBytes((Integer) o, byteOrder);
+        if (o instanceof Long || o instanceof Integer) {
+            return ByteConversions.toBytes(((Number) o).longValue(), byteOrder);
+        }
+        if (o instanceof long[]) {
+            return ByteConversions.toBytes((long[]) o, byteOrder);
         }
         if (o instanceof int[]) {
             final int[] numbers = (int[]) o;
-            return ByteConversions.toBytes(numbers, byteOrder);
+            final long[] values = Allocator.longArray(numbers.length);
+            Arrays.setAll(values, i -> numbers[i]);
+            return ByteConversions.toBytes(values, byteOrder);
         }
-        if (!(o instanceof Integer[])) {
+        if (!(o instanceof Number[])) {
             throw new ImagingException("Invalid data", o);
         }
-        final Integer[] numbers = (Integer[]) o;
-        final int[] values = Allocator.intArray(numbers.length);
-        System.arraycopy(numbers, 0, values, 0, values.length);
+        final Number[] numbers = (Number[]) o;
+        final long[] values = Allocator.longArray(numbers.length);
+        Arrays.setAll(values, i -> numbers[i].longValue());
         return ByteConversions.toBytes(values, byteOrder);
     }
 
@@ -21,56 +21,11 @@ import java.io.IOException;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
-import org.apache.commons.imaging.formats.tiff.itu_t4.T4_T6_Tables.Entry;
 
 public final class T4AndT6Compression {
-    private static final HuffmanTree<Integer> WHITE_RUN_LENGTHS = new HuffmanTree<>();
-    private static final HuffmanTree<Integer> BLACK_RUN_LENGTHS = new HuffmanTree<>();
-    private static final HuffmanTree<Entry> CONTROL_CODES = new HuffmanTree<>();
-
     public static final int WHITE = 0;
     public static final int BLACK = 1;
 
-    static {
-        try {
-            for (final Entry entry : T4_T6_Tables.WHITE_TERMINATING_CODES) {
-                WHITE_RUN_LENGTHS.insert(entry.bitString, entry.value);
-            }
-            for (final Entry entry : T4_T6_Tables.WHITE_MAKE_UP_CODES) {
-                WHITE_RUN_LENGTHS.insert(entry.bitString, entry.value);
-            }
-            for (final Entry entry : T4_T6_Tables.BLACK_TERMINATING_CODES) {
-                BLACK_RUN_LENGTHS.insert(entry.bitString, entry.value);
-            }
-            for (final Entry entry : T4_T6_Tables.BLACK_MAKE_UP_CODES) {
-                BLACK_RUN_LENGTHS.insert(entry.bitString, entry.value);
-            }
-            for (final Entry entry : T4_T6_Tables.ADDITIONAL_MAKE_UP_CODES) {
-                WHITE_RUN_LENGTHS.insert(entry.bitString, entry.value);
-                BLACK_RUN_LENGTHS.insert(entry.bitString, entry.value);
-            }
-            CONTROL_CODES.insert(T4_T6_Tables.EOL.bitString, T4_T6_Tables.EOL);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL13.bitString, T4_T6_Tables.EOL13);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL14.bitString, T4_T6_Tables.EOL14);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL15.bitString, T4_T6_Tables.EOL15);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL16.bitString, T4_T6_Tables.EOL16);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL17.bitString, T4_T6_Tables.EOL17);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL18.bitString, T4_T6_Tables.EOL18);
-            CONTROL_CODES.insert(T4_T6_Tables.EOL19.bitString, T4_T6_Tables.EOL19);
-            CONTROL_CODES.insert(T4_T6_Tables.P.bitString, T4_T6_Tables.P);
-            CONTROL_CODES.insert(T4_T6_Tables.H.bitString, T4_T6_Tables.H);
-            CONTROL_CODES.insert(T4_T6_Tables.V0.bitString, T4_T6_Tables.V0);
-            CONTROL_CODES.insert(T4_T6_Tables.VL1.bitString, T4_T6_Tables.VL1);
-            CONTROL_CODES.insert(T4_T6_Tables.VL2.bitString, T4_T6_Tables.VL2);
-            CONTROL_CODES.insert(T4_T6_Tables.VL3.bitString, T4_T6_Tables.VL3);
-            CONTROL_CODES.insert(T4_T6_Tables.VR1.bitString, T4_T6_Tables.VR1);
-            CONTROL_CODES.insert(T4_T6_Tables.VR2.bitString, T4_T6_Tables.VR2);
-            CONTROL_CODES.insert(T4_T6_Tables.VR3.bitString, T4_T6_Tables.VR3);
-        } catch (final ImagingException cannotHappen) {
-            throw new IllegalStateException(cannotHappen);
-        }
-    }
-
     private static int changingElementAt(final int[] line, final int position) {
         if (position < 0 || position >= line.length) {
             return WHITE;
@@ -335,32 +290,7 @@ public final class T4AndT6Compression {
      * @throws ImagingException if it fails to read the compressed data
      */
     public static byte[] decompressModifiedHuffman(final byte[] compressed, final int width, final int height) throws ImagingException {
-        try (ByteArrayInputStream baos = new ByteArrayInputStream(compressed);
-                BitInputStreamFlexible inputStream = new BitInputStreamFlexible(baos);
-                BitArrayOutputStream outputStream = new BitArrayOutputStream()) {
-            for (int y = 0; y < height; y++) {
-                int color = WHITE;
-                int rowLength;
-                for (rowLength = 0; rowLength < width;) {
-                    final int runLength = readTotalRunLength(inputStream, color);
-                    for (int i = 0; i < runLength; i++) {
-                        outputStream.writeBit(color);
-                    }
-                    color = 1 - color;
-                    rowLength += runLength;
-                }
-
-                if (rowLength == width) {
-                    inputStream.flushCache();
-                    outputStream.flush();
-                } else if (rowLength > width) {
-                    throw new ImagingException("Unrecoverable row length error in image row " + y);
-                }
-            }
-            return outputStream.toByteArray();
-        } catch (final IOException ioException) {
-            throw new ImagingException("Error reading image to decompress", ioException);
-        }
+        return new T4AndT6Decoder(compressed, width).decodeModifiedHuffman(height);
     }
 
     /**
@@ -374,36 +304,7 @@ public final class T4AndT6Compression {
      * @throws ImagingException if it fails to read the compressed data
      */
     public static byte[] decompressT4_1D(final byte[] compressed, final int width, final int height, final boolean hasFill) throws ImagingException {
-        final BitInputStreamFlexible inputStream = new BitInputStreamFlexible(new ByteArrayInputStream(compressed));
-        try (BitArrayOutputStream outputStream = new BitArrayOutputStream()) {
-            for (int y = 0; y < height; y++) {
-                int rowLength;
-                try {
-                    final T4_T6_Tables.Entry entry = CONTROL_CODES.decode(inputStream);
-                    if (!isEol(entry, hasFill)) {
-                        throw new ImagingException("Expected EOL not found");
-                    }
-                    int color = WHITE;
-                    for (rowLength = 0; rowLength < width;) {
-                        final int runLength = readTotalRunLength(inputStream, color);
-                        for (int i = 0; i < runLength; i++) {
-                            outputStream.writeBit(color);
-                        }
-                        color = 1 - color;
-                        rowLength += runLength;
-                    }
-                } catch (final ImagingException huffmanException) {
-                    throw new ImagingException("Decompression error", huffmanException);
-                }
-
-                if (rowLength == width) {
-                    outputStream.flush();
-                } else if (rowLength > width) {
-                    throw new ImagingException("Unrecoverable row length error in image row " + y);
-                }
-            }
-            return outputStream.toByteArray();
-        }
+        return new T4AndT6Decoder(compressed, width).decodeT4(height, hasFill, false);
     }
 
     /**
@@ -418,98 +319,7 @@ public final class T4AndT6Compression {
      * @throws ImagingException if it fails to read the compressed data
      */
     public static byte[] decompressT4_2D(final byte[] compressed, final int width, final int height, final boolean hasFill) throws ImagingException {
-        final BitInputStreamFlexible inputStream = new BitInputStreamFlexible(new ByteArrayInputStream(compressed));
-        try (BitArrayOutputStream outputStream = new BitArrayOutputStream()) {
-            final int[] referenceLine = Allocator.intArray(width);
-            for (int y = 0; y < height; y++) {
-                int rowLength = 0;
-                try {
-                    T4_T6_Tables.Entry entry = CONTROL_CODES.decode(inputStream);
-                    if (!isEol(entry, hasFill)) {
-                        throw new ImagingException("Expected EOL not found");
-                    }
-                    final int tagBit = inputStream.readBits(1);
-                    if (tagBit == 0) {
-                        // 2D
-                        int codingA0Color = WHITE;
-                        int referenceA0Color = WHITE;
-                        int b1 = nextChangingElement(referenceLine, referenceA0Color, 0);
-                        int b2 = nextChangingElement(referenceLine, 1 - referenceA0Color, b1 + 1);
-                        for (int a0 = 0; a0 < width;) {
-                            final int a1;
-                            final int a2;
-                            entry = CONTROL_CODES.decode(inputStream);
-                            if (entry == T4_T6_Tables.P) {
-                                fillRange(outputStream, referenceLine, a0, b2, codingA0Color);
-                                a0 = b2;
-                            } else if (entry == T4_T6_Tables.H) {
-                                final int a0a1 = readTotalRunLength(inputStream, codingA0Color);
-                                a1 = a0 + a0a1;
-                                fillRange(outputStream, referenceLine, a0, a1, codingA0Color);
-                                final int a1a2 = readTotalRunLength(inputStream, 1 - codingA0Color);
-                                a2 = a1 + a1a2;
-                                fillRange(outputStream, referenceLine, a1, a2, 1 - codingA0Color);
-                                a0 = a2;
-                            } else {
-                                final int a1b1;
-                                if (entry == T4_T6_Tables.V0) {
-                                    a1b1 = 0;
-                                } else if (entry == T4_T6_Tables.VL1) {
-                                    a1b1 = -1;
-                                } else if (entry == T4_T6_Tables.VL2) {
-                                    a1b1 = -2;
-                                } else if (entry == T4_T6_Tables.VL3) {
-                                    a1b1 = -3;
-                                } else if (entry == T4_T6_Tables.VR1) {
-                                    a1b1 = 1;
-                                } else if (entry == T4_T6_Tables.VR2) {
-                                    a1b1 = 2;
-                                } else if (entry == T4_T6_Tables.VR3) {
-                                    a1b1 = 3;
-                                } else {
-                                    throw new ImagingException("Invalid/unknown T.4 control code " + entry.bitString);
-                                }
-                                a1 = b1 + a1b1;
-                                fillRange(outputStream, referenceLine, a0, a1, codingA0Color);
-                                a0 = a1;
-                                codingA0Color = 1 - codingA0Color;
-                            }
-                            referenceA0Color = changingElementAt(referenceLine, a0);
-                            if (codingA0Color == referenceA0Color) {
-                                b1 = nextChangingElement(referenceLine, referenceA0Color, a0 + 1);
-                            } else {
-                                b1 = nextChangingElement(referenceLine, referenceA0Color, a0 + 1);
-                                b1 = nextChangingElement(referenceLine, 1 - referenceA0Color, b1 + 1);
-                            }
-                            b2 = nextChangingElement(referenceLine, 1 - codingA0Color, b1 + 1);
-                            rowLength = a0;
-                        }
-                    } else {
-                        // 1D
-                        int color = WHITE;
-                        for (rowLength = 0; rowLength < width;) {
-                            final int runLength = readTotalRunLength(inputStream, color);
-                            for (int i = 0; i < runLength; i++) {
-                                outputStream.writeBit(color);
-                                referenceLine[rowLength + i] = color;
-                            }
-                            color = 1 - color;
-                            rowLength += runLength;
-                        }
-                    }
-                } catch (final IOException e) {
-                    throw new ImagingException("Decompression error", e);
-                }
-
-                if (rowLength == width) {
-                    outputStream.flush();
-                } else if (rowLength > width) {
-                    throw new ImagingException("Unrecoverable row length error in image row " + y);
-                }
-            }
-
-            return outputStream.toByteArray();
-        }
+        return new T4AndT6Decoder(compressed, width).decodeT4(height, hasFill, true);
     }
 
     /**
@@ -523,96 +333,7 @@ public final class T4AndT6Compression {
      * @throws ImagingException if it fails to read the compressed data
      */
     public static byte[] decompressT6(final byte[] compressed, final int width, final int height) throws ImagingException {
-        try (BitInputStreamFlexible inputStream = new BitInputStreamFlexible(new ByteArrayInputStream(compressed));
-                BitArrayOutputStream outputStream = new BitArrayOutputStream()) {
-            final int[] referenceLine = Allocator.intArray(width);
-            for (int y = 0; y < height; y++) {
-                int rowLength = 0;
-                int codingA0Color = WHITE;
-                int referenceA0Color = WHITE;
-                int b1 = nextChangingElement(referenceLine, referenceA0Color, 0);
-                int b2 = nextChangingElement(referenceLine, 1 - referenceA0Color, b1 + 1);
-                for (int a0 = 0; a0 < width;) {
-                    final int a1;
-                    final int a2;
-                    final T4_T6_Tables.Entry entry = CONTROL_CODES.decode(inputStream);
-                    if (entry == T4_T6_Tables.P) {
-                        fillRange(outputStream, referenceLine, a0, b2, codingA0Color);
-                        a0 = b2;
-                    } else if (entry == T4_T6_Tables.H) {
-                        final int a0a1 = readTotalRunLength(inputStream, codingA0Color);
-                        a1 = a0 + a0a1;
-                        fillRange(outputStream, referenceLine, a0, a1, codingA0Color);
-                        final int a1a2 = readTotalRunLength(inputStream, 1 - codingA0Color);
-                        a2 = a1 + a1a2;
-                        fillRange(outputStream, referenceLine, a1, a2, 1 - codingA0Color);
-                        a0 = a2;
-                    } else {
-                        final int a1b1;
-                        if (entry == T4_T6_Tables.V0) {
-                            a1b1 = 0;
-                        } else if (entry == T4_T6_Tables.VL1) {
-                            a1b1 = -1;
-                        } else if (entry == T4_T6_Tables.VL2) {
-                            a1b1 = -2;
-                        } else if (entry == T4_T6_Tables.VL3) {
-                            a1b1 = -3;
-                        } else if (entry == T4_T6_Tables.VR1) {
-                            a1b1 = 1;
-                        } else if (entry == T4_T6_Tables.VR2) {
-                            a1b1 = 2;
-                        } else if (entry == T4_T6_Tables.VR3) {
-                            a1b1 = 3;
-                        } else {
-                            throw new ImagingException("Invalid/unknown T.6 control code " + entry.bitString);
-                        }
-                        a1 = b1 + a1b1;
-                        fillRange(outputStream, referenceLine, a0, a1, codingA0Color);
-                        a0 = a1;
-                        codingA0Color = 1 - codingA0Color;
-                    }
-                    referenceA0Color = changingElementAt(referenceLine, a0);
-                    if (codingA0Color == referenceA0Color) {
-                        b1 = nextChangingElement(referenceLine, referenceA0Color, a0 + 1);
-                    } else {
-                        b1 = nextChangingElement(referenceLine, referenceA0Color, a0 + 1);
-                        b1 = nextChangingElement(referenceLine, 1 - referenceA0Color, b1 + 1);
-                    }
-                    b2 = nextChangingElement(referenceLine, 1 - codingA0Color, b1 + 1);
-                    rowLength = a0;
-                }
-                if (rowLength == width) {
-                    outputStream.flush();
-                } else if (rowLength > width) {
-                    throw new ImagingException("Unrecoverable row length error in image row " + y);
-                }
-            }
-            return outputStream.toByteArray();
-        } catch (final IOException e) {
-            if (e instanceof ImagingException) {
-                throw (ImagingException) e;
-            }
-            // IOException cannot happen because the close() methods in use here do not throw
-            throw new ImagingException("Closing stream", e);
-        }
-    }
-
-    private static void fillRange(final BitArrayOutputStream outputStream, final int[] referenceRow, final int a0, final int end, final int color) {
-        for (int i = a0; i < end; i++) {
-            referenceRow[i] = color;
-            outputStream.writeBit(color);
-        }
-    }
-
-    private static boolean isEol(final T4_T6_Tables.Entry entry, final boolean hasFill) {
-        if (entry == T4_T6_Tables.EOL) {
-            return true;
-        }
-        if (hasFill) {
-            return entry == T4_T6_Tables.EOL13 || entry == T4_T6_Tables.EOL14 || entry == T4_T6_Tables.EOL15 || entry == T4_T6_Tables.EOL16
-                    || entry == T4_T6_Tables.EOL17 || entry == T4_T6_Tables.EOL18 || entry == T4_T6_Tables.EOL19;
-        }
-        return false;
+        return new T4AndT6Decoder(compressed, width).decodeT6(height);
     }
 
     private static T4_T6_Tables.Entry lowerBound(final T4_T6_Tables.Entry[] entries, final int value) {
@@ -641,20 +362,6 @@ public final class T4AndT6Compression {
         return Math.min(position, line.length);
     }
 
-    private static int readTotalRunLength(final BitInputStreamFlexible bitStream, final int color) throws ImagingException {
-        int totalLength = 0;
-        Integer runLength;
-        do {
-            if (color == WHITE) {
-                runLength = WHITE_RUN_LENGTHS.decode(bitStream);
-            } else {
-                runLength = BLACK_RUN_LENGTHS.decode(bitStream);
-            }
-            totalLength += runLength;
-        } while (runLength > 63);
-        return totalLength;
-    }
-
     private static void writeRunLength(final BitArrayOutputStream bitStream, int runLength, final int color) {
         final T4_T6_Tables.Entry[] makeUpCodes;
         final T4_T6_Tables.Entry[] terminatingCodes;
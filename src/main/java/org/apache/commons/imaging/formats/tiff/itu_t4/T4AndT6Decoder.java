@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.itu_t4;
+
+import java.util.Arrays;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Decodes the CCITT encodings of T4AndT6Compression.
+ * <p>
+ * Codes are looked up in tables indexed by the next bits of the input, so each code takes a single lookup. Rows are kept as the positions of their changing
+ * elements: an even index is where a black run starts and an odd index where a white run starts. Black runs are filled into the output a byte at a time.
+ * </p>
+ */
+final class T4AndT6Decoder {
+
+    /** Table entries hold the code length in the upper and the run length or mode in the lower 16 bits; 0 marks an invalid code. */
+    private static final int RUN_BITS = 13;
+    private static final int MODE_BITS = 7;
+    private static final int[] WHITE_RUNS = new int[1 << RUN_BITS];
+    private static final int[] BLACK_RUNS = new int[1 << RUN_BITS];
+    private static final int[] MODES = new int[1 << MODE_BITS];
+
+    /** Vertical modes are stored as a1 - b1 + 3. */
+    private static final int MODE_V0 = 3;
+    private static final int MODE_PASS = 7;
+    private static final int MODE_HORIZONTAL = 8;
+
+    private static final int EOL_ZEROS = 11;
+    private static final int MAX_FILL_BITS = 7;
+
+    static {
+        for (final T4_T6_Tables.Entry[] codes : new T4_T6_Tables.Entry[][] { T4_T6_Tables.WHITE_TERMINATING_CODES, T4_T6_Tables.WHITE_MAKE_UP_CODES,
+                T4_T6_Tables.ADDITIONAL_MAKE_UP_CODES }) {
+            for (final T4_T6_Tables.Entry entry : codes) {
+                put(WHITE_RUNS, RUN_BITS, entry, entry.value);
+            }
+        }
+        for (final T4_T6_Tables.Entry[] codes : new T4_T6_Tables.Entry[][] { T4_T6_Tables.BLACK_TERMINATING_CODES, T4_T6_Tables.BLACK_MAKE_UP_CODES,
+                T4_T6_Tables.ADDITIONAL_MAKE_UP_CODES }) {
+            for (final T4_T6_Tables.Entry entry : codes) {
+                put(BLACK_RUNS, RUN_BITS, entry, entry.value);
+            }
+        }
+        put(MODES, MODE_BITS, T4_T6_Tables.VL3, MODE_V0 - 3);
+        put(MODES, MODE_BITS, T4_T6_Tables.VL2, MODE_V0 - 2);
+        put(MODES, MODE_BITS, T4_T6_Tables.VL1, MODE_V0 - 1);
+        put(MODES, MODE_BITS, T4_T6_Tables.V0, MODE_V0);
+        put(MODES, MODE_BITS, T4_T6_Tables.VR1, MODE_V0 + 1);
+        put(MODES, MODE_BITS, T4_T6_Tables.VR2, MODE_V0 + 2);
+        put(MODES, MODE_BITS, T4_T6_Tables.VR3, MODE_V0 + 3);
+        put(MODES, MODE_BITS, T4_T6_Tables.P, MODE_PASS);
+        put(MODES, MODE_BITS, T4_T6_Tables.H, MODE_HORIZONTAL);
+    }
+
+    /**
+     * Fills bits {@code from} to {@code to} (exclusive) of a row with ones.
+     */
+    private static void fillBlack(final byte[] output, final int rowOffset, final int from, final int to) {
+        if (from >= to) {
+            return;
+        }
+        final int first = rowOffset + (from >> 3);
+        final int last = rowOffset + (to - 1 >> 3);
+        final int firstMask = 0xff >>> (from & 7);
+        final int lastMask = 0xff << 7 - (to - 1 & 7) & 0xff;
+        if (first == last) {
+            output[first] |= firstMask & lastMask;
+        } else {
+            output[first] |= firstMask;
+            Arrays.fill(output, first + 1, last, (byte) 0xff);
+            output[last] |= lastMask;
+        }
+    }
+
+    private static void put(final int[] table, final int bits, final T4_T6_Tables.Entry entry, final int value) {
+        final int length = entry.bitString.length();
+        final int first = Integer.parseInt(entry.bitString, 2) << bits - length;
+        Arrays.fill(table, first, first + (1 << bits - length), length << 16 | value);
+    }
+
+    private final byte[] data;
+    private final int width;
+    private final int rowBytes;
+    private int position;
+    private long bits;
+    private int bitCount;
+    /** The number of zero bits past the end of the data at the bottom of {@link #bits}. */
+    private int paddingBits;
+    private int row;
+
+    /** Changing elements of the previous row, followed by 3 entries of {@link #width}. */
+    private int[] referenceChanges;
+    private int[] codingChanges;
+    private int codingCount;
+
+    T4AndT6Decoder(final byte[] data, final int width) {
+        this.data = data;
+        this.width = width;
+        this.rowBytes = (width + 7) / 8;
+        // the changing elements of a row are strictly increasing and below the width
+        this.referenceChanges = Allocator.intArray(width + 3);
+        this.codingChanges = Allocator.intArray(width + 3);
+        Arrays.fill(referenceChanges, width);
+    }
+
+    private void addChange(final int change) {
+        if (change >= width) {
+            return;
+        }
+        if (codingCount > 0 && codingChanges[codingCount - 1] == change) {
+            // a run of length 0 undoes the previous change
+            codingCount--;
+        } else {
+            codingChanges[codingCount++] = change;
+        }
+    }
+
+    private void alignToByte() throws ImagingException {
+        skip(bitCount & 7);
+    }
+
+    /**
+     * Decodes a row of run lengths.
+     */
+    private void decode1D() throws ImagingException {
+        codingCount = 0;
+        int color = T4AndT6Compression.WHITE;
+        for (int a0 = 0; a0 < width; color = 1 - color) {
+            a0 += readRunLength(color, width - a0);
+            addChange(a0);
+        }
+    }
+
+    /**
+     * Decodes a row coded relative to the previous one.
+     */
+    private void decode2D() throws ImagingException {
+        codingCount = 0;
+        int color = T4AndT6Compression.WHITE;
+        // the row starts with an imaginary white element before the first one
+        int a0 = -1;
+        int referenceIndex = 0;
+        while (a0 < width) {
+            // b1 is the first changing element of the reference row after a0 that changes to the opposite of the color of a0, b2 the one after it
+            while (referenceChanges[referenceIndex] <= a0) {
+                referenceIndex++;
+            }
+            final int b1Index = (referenceIndex & 1) == color ? referenceIndex : referenceIndex + 1;
+            final int b1 = referenceChanges[b1Index];
+            final int b2 = referenceChanges[b1Index + 1];
+            final int start = Math.max(a0, 0);
+
+            final int mode = readMode();
+            if (mode == MODE_PASS) {
+                a0 = b2;
+            } else if (mode == MODE_HORIZONTAL) {
+                final int a1 = start + readRunLength(color, width - start);
+                final int a2 = a1 + readRunLength(1 - color, width - a1);
+                addChange(a1);
+                addChange(a2);
+                a0 = a2;
+            } else {
+                final int a1 = b1 + mode - MODE_V0;
+                if (a1 < start || a1 > width) {
+                    throw new ImagingException("Unrecoverable row length error in image row " + row);
+                }
+                addChange(a1);
+                a0 = a1;
+                color = 1 - color;
+            }
+        }
+    }
+
+    byte[] decodeModifiedHuffman(final int height) throws ImagingException {
+        final byte[] output = Allocator.byteArray((long) rowBytes * height);
+        for (row = 0; row < height; row++) {
+            decode1D();
+            finishRow(output);
+            alignToByte();
+        }
+        return output;
+    }
+
+    byte[] decodeT4(final int height, final boolean hasFill, final boolean twoDimensional) throws ImagingException {
+        final byte[] output = Allocator.byteArray((long) rowBytes * height);
+        for (row = 0; row < height; row++) {
+            readEol(hasFill);
+            if (!twoDimensional || readBit() == 1) {
+                decode1D();
+            } else {
+                decode2D();
+            }
+            finishRow(output);
+        }
+        return output;
+    }
+
+    byte[] decodeT6(final int height) throws ImagingException {
+        final byte[] output = Allocator.byteArray((long) rowBytes * height);
+        for (row = 0; row < height; row++) {
+            decode2D();
+            finishRow(output);
+        }
+        return output;
+    }
+
+    /**
+     * Writes the black runs of the decoded row and makes it the reference row of the next one.
+     */
+    private void finishRow(final byte[] output) {
+        codingChanges[codingCount] = width;
+        codingChanges[codingCount + 1] = width;
+        codingChanges[codingCount + 2] = width;
+        final int rowOffset = row * rowBytes;
+        for (int i = 0; i < codingCount; i += 2) {
+            fillBlack(output, rowOffset, codingChanges[i], codingChanges[i + 1]);
+        }
+        final int[] swap = referenceChanges;
+        referenceChanges = codingChanges;
+        codingChanges = swap;
+    }
+
+    private void fill() {
+        while (bitCount <= 56) {
+            if (position < data.length) {
+                bits = bits << 8 | data[position++] & 0xff;
+            } else {
+                bits <<= 8;
+                paddingBits += 8;
+            }
+            bitCount += 8;
+        }
+    }
+
+    private int peek(final int count) {
+        if (bitCount < count) {
+            fill();
+        }
+        return (int) (bits >>> bitCount - count) & (1 << count) - 1;
+    }
+
+    private int readBit() throws ImagingException {
+        final int bit = peek(1);
+        skip(1);
+        return bit;
+    }
+
+    private void readEol(final boolean hasFill) throws ImagingException {
+        final int maxZeros = hasFill ? EOL_ZEROS + MAX_FILL_BITS : EOL_ZEROS;
+        int zeros = 0;
+        while (readBit() == 0) {
+            if (++zeros > maxZeros) {
+                throw new ImagingException("Expected EOL not found");
+            }
+        }
+        if (zeros < EOL_ZEROS) {
+            throw new ImagingException("Expected EOL not found");
+        }
+    }
+
+    private int readMode() throws ImagingException {
+        final int entry = MODES[peek(MODE_BITS)];
+        if (entry == 0) {
+            throw new ImagingException("Invalid/unknown T.4/T.6 control code in image row " + row);
+        }
+        skip(entry >>> 16);
+        return entry & 0xffff;
+    }
+
+    /**
+     * Reads the make-up codes and the terminating code of a run.
+     */
+    private int readRunLength(final int color, final int maxLength) throws ImagingException {
+        final int[] table = color == T4AndT6Compression.WHITE ? WHITE_RUNS : BLACK_RUNS;
+        int total = 0;
+        int runLength;
+        do {
+            final int entry = table[peek(RUN_BITS)];
+            if (entry == 0) {
+                throw new ImagingException("Invalid " + (color == T4AndT6Compression.WHITE ? "white" : "black") + " run length code in image row " + row);
+            }
+            skip(entry >>> 16);
+            runLength = entry & 0xffff;
+            total += runLength;
+            if (total > maxLength) {
+                throw new ImagingException("Unrecoverable row length error in image row " + row);
+            }
+        } while (runLength > 63);
+        return total;
+    }
+
+    private void skip(final int count) throws ImagingException {
+        bitCount -= count;
+        if (bitCount < paddingBits) {
+            throw new ImagingException("Unexpected end of compressed data in image row " + row);
+        }
+    }
+}
@@ -48,5 +48,55 @@ public abstract class PhotometricInterpreter {
         return bitsPerSample[offset];
     }
 
+    /**
+     * Gets the number of samples that make up a pixel, which is the stride of the sample arrays passed to
+     * {@link #interpretRow(int[], int, int, int[])}.
+     *
+     * @return the number of samples per pixel.
+     * @since 1.0-alpha6
+     */
+    public int getSamplesPerPixel() {
+        return samplesPerPixel;
+    }
+
+    /**
+     * Tests whether {@link #interpretPixel(ImageBuilder, int[], int, int)} may be called from several threads at once, each writing different pixels. This
+     * allows the TIFF readers to interpret tiles and strips concurrently when an executor is set in the parameters. Interpreters that accumulate state while
+     * interpreting pixels must return {@code false}.
+     *
+     * @return {@code true} if pixels may be interpreted concurrently.
+     * @since 1.0-alpha6
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     public abstract void interpretPixel(ImageBuilder imageBuilder, int[] samples, int x, int y) throws ImagingException, IOException;
+
+    /**
+     * Converts a run of pixels to ARGB values. The samples of the pixels are stored one pixel after the other, {@link #getSamplesPerPixel()} samples per
+     * pixel.
+     * <p>
+     * The default implementation calls {@link #interpretPixel(ImageBuilder, int[], int, int)} for each pixel, with coordinates relative to the start of the
+     * run. Subclasses override it to convert whole rows without a call and an image builder access per pixel. The TIFF readers only use this method for
+     * interpreters that are {@link #isThreadSafe() thread-safe}, since interpreters that keep state usually record pixel coordinates too.
+     * </p>
+     *
+     * @param samples  the samples of the pixels.
+     * @param offset   the index in {@code samples} of the first sample of the first pixel.
+     * @param count    the number of pixels.
+     * @param argbOut  receives the ARGB values of the pixels, starting at index zero.
+     * @throws ImagingException if the samples cannot be interpreted.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        final ImageBuilder row = new ImageBuilder(count, 1, true);
+        final int[] pixel = new int[samplesPerPixel];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(samples, offset + i * samplesPerPixel, pixel, 0, samplesPerPixel);
+            interpretPixel(row, pixel, i, 0);
+            argbOut[i] = row.getRgb(i, 0);
+        }
+    }
 }
@@ -51,4 +51,12 @@ public class PhotometricInterpreterBiLevel extends PhotometricInterpreter {
 
         imageBuilder.setRgb(x, y, rgb);
     }
+
+    @Override
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        for (int i = 0, k = offset; i < count; i++, k += samplesPerPixel) {
+            final int sample = invert ? 255 - samples[k] : samples[k];
+            argbOut[i] = 0xff000000 | sample << 16 | sample << 8 | sample;
+        }
+    }
 }
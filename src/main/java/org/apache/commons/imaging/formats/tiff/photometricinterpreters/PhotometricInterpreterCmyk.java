@@ -39,4 +39,10 @@ public class PhotometricInterpreterCmyk extends PhotometricInterpreter {
         imageBuilder.setRgb(x, y, rgb);
     }
 
+    @Override
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        for (int i = 0, k = offset; i < count; i++, k += samplesPerPixel) {
+            argbOut[i] = ColorConversions.convertCmykToRgb(samples[k], samples[k + 1], samples[k + 2], samples[k + 3]);
+        }
+    }
 }
@@ -95,4 +95,11 @@ public class PhotometricInterpreterPalette extends PhotometricInterpreter {
     public void interpretPixel(final ImageBuilder imageBuilder, final int[] samples, final int x, final int y) throws ImagingException, IOException {
         imageBuilder.setRgb(x, y, indexColorMap[samples[0] & bitsPerPixelMask]);
     }
+
+    @Override
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        for (int i = 0, k = offset; i < count; i++, k += samplesPerPixel) {
+            argbOut[i] = indexColorMap[samples[k] & bitsPerPixelMask];
+        }
+    }
 }
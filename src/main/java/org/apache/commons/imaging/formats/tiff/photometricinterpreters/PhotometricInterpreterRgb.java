@@ -37,4 +37,11 @@ public class PhotometricInterpreterRgb extends PhotometricInterpreter {
         imageBuilder.setRgb(x, y, rgb);
 
     }
+
+    @Override
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        for (int i = 0, k = offset; i < count; i++, k += samplesPerPixel) {
+            argbOut[i] = 0xff000000 | samples[k] << 16 | samples[k + 1] << 8 | samples[k + 2];
+        }
+    }
 }
@@ -51,15 +51,7 @@ public class PhotometricInterpreterYCbCr extends PhotometricInterpreter {
         return Math.min(max, Math.max(min, value));
     }
 
-    public PhotometricInterpreterYCbCr(final int samplesPerPixel, final int[] bitsPerSample, final int predictor, final int width, final int height) {
-        super(samplesPerPixel, bitsPerSample, predictor, width, height);
-    }
-
-    @Override
-    public void interpretPixel(final ImageBuilder imageBuilder, final int[] samples, final int x, final int y) throws ImagingException, IOException {
-        final int Y = samples[0];
-        final int cb = samples[1];
-        final int cr = samples[2];
+    private static int toRgb(final int Y, final int cb, final int cr) {
         final double r = Y + 1.402 * (cr - 128.0);
         final double g = Y - 0.34414 * (cb - 128.0) - 0.71414 * (cr - 128.0);
         final double b = Y + 1.772 * (cb - 128.0);
@@ -69,8 +61,22 @@ public class PhotometricInterpreterYCbCr extends PhotometricInterpreter {
         final int blue = limit((int) b, 0, 255);
 
         final int alpha = 0xff;
-        final int rgb = alpha << 24 | red << 16 | green << 8 | blue << 0;
-        imageBuilder.setRgb(x, y, rgb);
+        return alpha << 24 | red << 16 | green << 8 | blue << 0;
+    }
+
+    public PhotometricInterpreterYCbCr(final int samplesPerPixel, final int[] bitsPerSample, final int predictor, final int width, final int height) {
+        super(samplesPerPixel, bitsPerSample, predictor, width, height);
+    }
+
+    @Override
+    public void interpretPixel(final ImageBuilder imageBuilder, final int[] samples, final int x, final int y) throws ImagingException, IOException {
+        imageBuilder.setRgb(x, y, toRgb(samples[0], samples[1], samples[2]));
+    }
 
+    @Override
+    public void interpretRow(final int[] samples, final int offset, final int count, final int[] argbOut) throws ImagingException, IOException {
+        for (int i = 0, k = offset; i < count; i++, k += samplesPerPixel) {
+            argbOut[i] = toRgb(samples[k], samples[k + 1], samples[k + 2]);
+        }
     }
 }
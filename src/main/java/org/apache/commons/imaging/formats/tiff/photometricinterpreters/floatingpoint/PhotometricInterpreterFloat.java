@@ -185,6 +185,17 @@ public class PhotometricInterpreterFloat extends PhotometricInterpreter {
         return new int[] { xMin, yMin };
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This interpreter records the range of the values it sees, so it is not thread-safe.
+     * </p>
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     @Override
     public void interpretPixel(final ImageBuilder imageBuilder, final int[] samples, final int x, final int y) throws ImagingException, IOException {
 
@@ -18,9 +18,14 @@ package org.apache.commons.imaging.formats.tiff.write;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,40 +34,136 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.PixelDensity;
 import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.common.BinaryOutputStream;
+import org.apache.commons.imaging.common.ConcurrentTasks;
+import org.apache.commons.imaging.common.FloatingPointSamples;
 import org.apache.commons.imaging.common.PackBits;
 import org.apache.commons.imaging.common.RationalNumber;
 import org.apache.commons.imaging.common.ZlibDeflate;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffElement;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffImageData;
 import org.apache.commons.imaging.formats.tiff.TiffImagingParameters;
+import org.apache.commons.imaging.formats.tiff.TiffRasterData;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataType;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffDirectoryConstants;
 import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
 import org.apache.commons.imaging.formats.tiff.itu_t4.T4AndT6Compression;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfo;
 import org.apache.commons.imaging.mylzw.MyLzwCompressor;
 
 public abstract class AbstractTiffImageWriter {
 
+    /**
+     * A strip that has already been written, whose bytes are no longer at hand.
+     */
+    private static final class WrittenData extends AbstractTiffElement.DataElement {
+
+        WrittenData(final long offset, final int length) {
+            super(offset, length, (byte[]) null);
+        }
+
+        @Override
+        public byte[] readData() {
+            throw new IllegalStateException("The strip has already been written");
+        }
+
+        @Override
+        public String getElementDescription() {
+            return "Written TIFF image data: " + length + " bytes";
+        }
+    }
+
     private static final int MAX_PIXELS_FOR_RGB = 1024 * 1024;
 
+    /**
+     * The largest offset of classic TIFF, which stores offsets as unsigned four-byte integers.
+     */
+    private static final long MAX_CLASSIC_OFFSET = 0xFFFFFFFFL;
+
+    /**
+     * The tile size used for raster data when the parameters do not specify one.
+     */
+    private static final int DEFAULT_TILE_SIZE = 256;
+
+    private static void writeFully(final SeekableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     protected static int imageDataPaddingLength(final int dataLength) {
         return (4 - dataLength % 4) % 4;
     }
 
+    /**
+     * The tags of the fields that hold the offset of a directory.
+     */
+    private static final TagInfo[] DIRECTORY_OFFSET_TAGS = { ExifTagConstants.EXIF_TAG_EXIF_OFFSET, ExifTagConstants.EXIF_TAG_GPSINFO,
+            ExifTagConstants.EXIF_TAG_INTEROP_OFFSET };
+
     protected final ByteOrder byteOrder;
 
+    /**
+     * Whether to write BigTIFF, with eight-byte offsets, rather than classic TIFF.
+     *
+     * @since 1.0-alpha6
+     */
+    protected final boolean bigTiff;
+
     public AbstractTiffImageWriter() {
-        this.byteOrder = TiffConstants.DEFAULT_TIFF_BYTE_ORDER;
+        this(TiffConstants.DEFAULT_TIFF_BYTE_ORDER);
     }
 
     public AbstractTiffImageWriter(final ByteOrder byteOrder) {
+        this(byteOrder, false);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param byteOrder the byte order.
+     * @param bigTiff   true to write BigTIFF, which has eight-byte offsets and so is not limited to 4 GB; false to write classic TIFF.
+     * @since 1.0-alpha6
+     */
+    public AbstractTiffImageWriter(final ByteOrder byteOrder, final boolean bigTiff) {
         this.byteOrder = byteOrder;
+        this.bigTiff = bigTiff;
+    }
+
+    private void addResolution(final TiffOutputDirectory directory, final PixelDensity pixelDensity) throws ImagingException {
+        if (pixelDensity.isUnitless()) {
+            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 0);
+            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.getRawHorizontalDensity()));
+            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.getRawVerticalDensity()));
+        } else if (pixelDensity.isInInches()) {
+            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 2);
+            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.horizontalDensityInches()));
+            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.verticalDensityInches()));
+        } else {
+            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 1);
+            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.horizontalDensityCentimetres()));
+            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.verticalDensityCentimetres()));
+        }
+    }
+
+    /**
+     * Applies the floating-point predictor of TIFF Technical Note 3 to each row of samples written in the byte order of this writer.
+     */
+    private void applyFloatingPointPredictor(final int width, final int samplesPerPixel, final int bytesPerSample, final byte[] b) {
+        final int nBytesPerRow = width * samplesPerPixel * bytesPerSample;
+        final int nRows = b.length / nBytesPerRow;
+        final byte[] scratch = Allocator.byteArray(nBytesPerRow);
+        for (int iRow = 0; iRow < nRows; iRow++) {
+            FloatingPointSamples.encodePredictor(b, iRow * nBytesPerRow, width * samplesPerPixel, bytesPerSample, byteOrder, scratch);
+        }
     }
 
     private void applyPredictor(final int width, final int bytesPerSample, final byte[] b) {
@@ -198,11 +299,46 @@ public abstract class AbstractTiffImageWriter {
         return result;
     }
 
+    /**
+     * Checks that an item can be placed at an offset, which classic TIFF limits to 4 GB.
+     */
+    void checkOffset(final long offset) throws ImagingException {
+        if (!bigTiff && offset > MAX_CLASSIC_OFFSET) {
+            throw new ImagingException("TIFF output exceeds the 4 GB that classic TIFF can address; write BigTIFF instead");
+        }
+    }
+
+    private ByteBuffer createImageFileHeader(final long offsetToFirstIFD) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(TiffConstants.HEADER_SIZE_BIG);
+        try (BinaryOutputStream bos = BinaryOutputStream.create(baos, byteOrder)) {
+            writeImageFileHeader(bos, offsetToFirstIFD);
+        }
+        return ByteBuffer.wrap(baos.toByteArray());
+    }
+
+    /**
+     * Gets the size of the file header, which is longer in BigTIFF.
+     */
+    int getHeaderSize() {
+        return bigTiff ? TiffConstants.HEADER_SIZE_BIG : TiffConstants.HEADER_SIZE;
+    }
+
     protected TiffOutputSummary validateDirectories(final TiffOutputSet outputSet) throws ImagingException {
         if (outputSet.isEmpty()) {
             throw new ImagingException("No directories.");
         }
 
+        // directory offsets copied from a file of the other format have the wrong size
+        for (final TiffOutputDirectory directory : outputSet) {
+            for (final TagInfo tagInfo : DIRECTORY_OFFSET_TAGS) {
+                final TiffOutputField field = directory.findField(tagInfo);
+                if (field != null && field.abstractFieldType.getSize() != (bigTiff ? 8 : 4)) {
+                    directory.removeField(tagInfo);
+                    directory.add(TiffOutputField.createOffsetField(tagInfo, byteOrder, bigTiff));
+                }
+            }
+        }
+
         TiffOutputDirectory exifDirectory = null;
         TiffOutputDirectory gpsDirectory = null;
         TiffOutputDirectory interoperabilityDirectory = null;
@@ -304,7 +440,7 @@ public abstract class AbstractTiffImageWriter {
         final TiffOutputDirectory rootDirectory = directoryTypeMap.get(TiffDirectoryConstants.DIRECTORY_TYPE_ROOT);
 
         // prepare results
-        final TiffOutputSummary result = new TiffOutputSummary(byteOrder, rootDirectory, directoryTypeMap);
+        final TiffOutputSummary result = new TiffOutputSummary(byteOrder, bigTiff, rootDirectory, directoryTypeMap);
 
         if (interoperabilityDirectory == null && interoperabilityDirectoryOffsetField != null) {
             // perhaps we should just discard field?
@@ -316,7 +452,7 @@ public abstract class AbstractTiffImageWriter {
             }
 
             if (interoperabilityDirectoryOffsetField == null) {
-                interoperabilityDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_INTEROP_OFFSET, byteOrder);
+                interoperabilityDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_INTEROP_OFFSET, byteOrder, bigTiff);
                 exifDirectory.add(interoperabilityDirectoryOffsetField);
             }
 
@@ -330,7 +466,7 @@ public abstract class AbstractTiffImageWriter {
         }
         if (exifDirectory != null) {
             if (exifDirectoryOffsetField == null) {
-                exifDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_EXIF_OFFSET, byteOrder);
+                exifDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_EXIF_OFFSET, byteOrder, bigTiff);
                 rootDirectory.add(exifDirectoryOffsetField);
             }
 
@@ -343,7 +479,7 @@ public abstract class AbstractTiffImageWriter {
         }
         if (gpsDirectory != null) {
             if (gpsDirectoryOffsetField == null) {
-                gpsDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_GPSINFO, byteOrder);
+                gpsDirectoryOffsetField = TiffOutputField.createOffsetField(ExifTagConstants.EXIF_TAG_GPSINFO, byteOrder, bigTiff);
                 rootDirectory.add(gpsDirectoryOffsetField);
             }
 
@@ -358,6 +494,110 @@ public abstract class AbstractTiffImageWriter {
     public abstract void write(OutputStream os, TiffOutputSet outputSet) throws IOException, ImagingException;
 
     public void writeImage(final BufferedImage src, final OutputStream os, final TiffImagingParameters params) throws ImagingException, IOException {
+        write(os, createOutputSet(src, params, params.getExecutor()));
+    }
+
+    /**
+     * Writes images as the pages of a multi-page TIFF file, all with the same parameters.
+     *
+     * @param pages  the pages, in order.
+     * @param os     the stream to write to.
+     * @param params the parameters of every page; its executor, if any, compresses the pages concurrently.
+     * @throws ImagingException if the parameters are not supported.
+     * @throws IOException      if an I/O error occurs.
+     * @see #writeImages(Iterable, OutputStream, TiffImagingParameters, IntFunction)
+     * @since 1.0-alpha6
+     */
+    public void writeImages(final Iterable<BufferedImage> pages, final OutputStream os, final TiffImagingParameters params)
+            throws ImagingException, IOException {
+        writeImages(pages, os, params, page -> params);
+    }
+
+    /**
+     * Writes images as the pages of a multi-page TIFF file. The directories of the pages are chained in the order of the pages, each followed by the
+     * overviews of its page, and each page is given its PageNumber.
+     * <p>
+     * If the parameters have an executor, the pages are compressed concurrently on it, a few pages ahead of the page that is added to the file, so that a
+     * lazy iterable does not need to render all pages at once. The compressed pages are held in memory until the file is written.
+     * </p>
+     * <p>
+     * Only the first page may carry EXIF, GPS or interoperability fields.
+     * </p>
+     *
+     * @param pages          the pages, in order.
+     * @param os             the stream to write to.
+     * @param params         the parameters of the file; its executor, if any, compresses the pages concurrently.
+     * @param pageParameters gives the compression, strip or tile size, overviews and metadata of a page from its index; {@code null} results stand for
+     *                       {@code params}.
+     * @throws ImagingException if the parameters of a page are not supported.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public void writeImages(final Iterable<BufferedImage> pages, final OutputStream os, final TiffImagingParameters params,
+            final IntFunction<TiffImagingParameters> pageParameters) throws ImagingException, IOException {
+        // the pages are compressed a few ahead, the calling thread compressing one itself whenever too many are waiting
+        final ConcurrentTasks tasks = new ConcurrentTasks(params.getExecutor(), 2 * Runtime.getRuntime().availableProcessors(), "TIFF page compression");
+        final List<TiffOutputSet> pageSets = Collections.synchronizedList(new ArrayList<>());
+        for (final BufferedImage page : pages) {
+            final int index = pageSets.size();
+            final TiffImagingParameters pageParams = pageParameters.apply(index);
+            final TiffImagingParameters p = pageParams == null ? params : pageParams;
+            pageSets.add(null);
+            // the pages already keep the executor busy, so the tiles of each page are compressed serially
+            tasks.submit(() -> pageSets.set(index, createOutputSet(page, p, null)));
+        }
+        tasks.finish();
+
+        final TiffOutputSet outputSet = new TiffOutputSet(byteOrder);
+        final List<TiffOutputDirectory> subdirectories = new ArrayList<>();
+        int type = TiffDirectoryConstants.DIRECTORY_TYPE_ROOT;
+        for (int i = 0; i < pageSets.size(); i++) {
+            final TiffOutputSet pageSet = pageSets.get(i);
+            pageSets.set(i, null);
+            final List<TiffOutputDirectory> directories = new ArrayList<>(pageSet.getDirectories());
+            directories.sort(TiffOutputDirectory.COMPARATOR);
+            for (final TiffOutputDirectory directory : directories) {
+                if (directory.getType() < 0) {
+                    if (i > 0) {
+                        throw new ImagingException("Only the first page of a multi-page TIFF can have EXIF, GPS or interoperability fields");
+                    }
+                    subdirectories.add(directory);
+                    continue;
+                }
+                final TiffOutputDirectory copy = new TiffOutputDirectory(type++, byteOrder);
+                for (final TiffOutputField field : directory) {
+                    copy.add(field);
+                }
+                copy.setTiffImageData(directory.getRawTiffImageData());
+                copy.setJpegImageData(directory.getRawJpegImageData());
+                if (directory.getType() == TiffDirectoryConstants.DIRECTORY_TYPE_ROOT) {
+                    copy.removeField(TiffTagConstants.TIFF_TAG_PAGE_NUMBER);
+                    copy.add(TiffTagConstants.TIFF_TAG_PAGE_NUMBER, (short) i, (short) pageSets.size());
+                }
+                outputSet.addDirectory(copy);
+            }
+        }
+        if (pageSets.isEmpty()) {
+            throw new ImagingException("A TIFF file needs at least one page");
+        }
+        // the header of the lossy writer points at the first directory, which must be the root
+        for (final TiffOutputDirectory directory : subdirectories) {
+            outputSet.addDirectory(directory);
+        }
+        write(os, outputSet);
+    }
+
+    /**
+     * Compresses an image and creates the directories to write it, with the overviews and metadata of the parameters.
+     *
+     * @param executor the executor that compresses the tiles of a tiled image, or null to compress them serially.
+     */
+    private TiffOutputSet createOutputSet(final BufferedImage src, final TiffImagingParameters params, final Executor executor)
+            throws ImagingException, IOException {
+        if (params.getTileWidth() > 0) {
+            return createTiledOutputSet(src, params, executor);
+        }
+
         final TiffOutputSet userExif = params.getOutputSet();
 
         final String xmpXml = params.getXmpXml();
@@ -549,19 +789,7 @@ public abstract class AbstractTiffImageWriter {
         // directory.add(field);
         // }
         directory.add(TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP, rowsPerStrip);
-        if (pixelDensity.isUnitless()) {
-            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 0);
-            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.getRawHorizontalDensity()));
-            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.getRawVerticalDensity()));
-        } else if (pixelDensity.isInInches()) {
-            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 2);
-            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.horizontalDensityInches()));
-            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.verticalDensityInches()));
-        } else {
-            directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT, (short) 1);
-            directory.add(TiffTagConstants.TIFF_TAG_XRESOLUTION, RationalNumber.valueOf(pixelDensity.horizontalDensityCentimetres()));
-            directory.add(TiffTagConstants.TIFF_TAG_YRESOLUTION, RationalNumber.valueOf(pixelDensity.verticalDensityCentimetres()));
-        }
+        addResolution(directory, pixelDensity);
         if (t4Options != 0) {
             directory.add(TiffTagConstants.TIFF_TAG_T4_OPTIONS, t4Options);
         }
@@ -585,11 +813,330 @@ public abstract class AbstractTiffImageWriter {
             combineUserExifIntoFinalExif(userExif, outputSet);
         }
 
+        return outputSet;
+    }
+
+    /**
+     * Writes raster data as a tiled TIFF image of floating-point or 32-bit signed integer samples, with the overviews and compression given by the
+     * parameters. The tile size defaults to 256x256 and the compression to LZW. Floating-point samples are written at the precision of the raster unless the
+     * parameters give another size, and may use the floating-point predictor with LZW or Deflate compression; otherwise no predictor is used.
+     *
+     * @param raster the raster data to write.
+     * @param os     the stream to write to.
+     * @param params the tile size, overview count, compression, executor and metadata to use, may be null.
+     * @throws ImagingException if the parameters are not supported.
+     * @throws IOException      if an I/O error occurs.
+     * @since 1.0-alpha6
+     */
+    public void writeRasterData(final TiffRasterData raster, final OutputStream os, TiffImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new TiffImagingParameters();
+        }
+        final int compression = params.getCompression() == null ? TiffConstants.COMPRESSION_LZW : params.getCompression();
+        final boolean isFloat = raster.getDataType() != TiffRasterDataType.INTEGER;
+        final int sampleFormat = isFloat ? TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT
+                : TiffTagConstants.SAMPLE_FORMAT_VALUE_TWOS_COMPLEMENT_SIGNED_INTEGER;
+        final int predictor = params.getPredictor() == null ? TiffTagConstants.PREDICTOR_VALUE_NONE : params.getPredictor();
+        if (predictor != TiffTagConstants.PREDICTOR_VALUE_NONE && (predictor != TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING || !isFloat)) {
+            throw new ImagingException("Unsupported predictor for " + raster.getDataType() + " raster data: " + predictor);
+        }
+        int bitsPerSample = 32;
+        if (isFloat) {
+            bitsPerSample = params.getFloatingPointBitsPerSample();
+            if (bitsPerSample == 0) {
+                bitsPerSample = raster.getDataType() == TiffRasterDataType.DOUBLE ? 64 : 32;
+            }
+        }
+        final TiffOutputSet outputSet = createTiledOutputSet(new TileSource.Raster(raster, byteOrder, bitsPerSample), params, params.getExecutor(),
+                compression, predictor, TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_BLACK_IS_ZERO, sampleFormat);
+        addMetadata(outputSet, params);
         write(os, outputSet);
     }
 
+    /**
+     * Writes an image strip by strip to a channel. The rows of each strip are requested from the producer just before the strip is compressed and written, so
+     * that only one strip is held in memory, whatever the size of the image. The directory follows the strips, and the header is updated to point at it once
+     * the last strip has been written.
+     * <p>
+     * The pixels are written as 8-bit RGB or RGBA samples, with the compression, strip size, pixel density, XMP and EXIF of the parameters. Strips can be
+     * uncompressed, or compressed with PackBits, LZW or Deflate. The file starts at the position of the channel, which is left at the end of the file.
+     * </p>
+     *
+     * @param producer the producer of the pixels.
+     * @param width    the width of the image.
+     * @param height   the height of the image.
+     * @param hasAlpha whether to write the alpha channel of the pixels.
+     * @param channel  the channel to write to.
+     * @param params   the parameters, or {@code null} for the defaults.
+     * @throws ImagingException if the parameters are not supported for streamed images.
+     * @throws IOException      if the producer fails or the channel cannot be written.
+     * @since 1.0-alpha6
+     */
+    public void writeImage(final TiffRowProducer producer, final int width, final int height, final boolean hasAlpha, final SeekableByteChannel channel,
+            TiffImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new TiffImagingParameters();
+        }
+        if (width <= 0 || height <= 0) {
+            throw new ImagingException("Invalid image size: " + width + "x" + height);
+        }
+        if (params.getTileWidth() > 0 || params.getOverviewCount() > 0) {
+            throw new ImagingException("Streamed images are written in strips, without overviews");
+        }
+        final int compression = params.getCompression() == null ? TiffConstants.COMPRESSION_LZW : params.getCompression();
+        switch (compression) {
+        case TiffConstants.COMPRESSION_UNCOMPRESSED:
+        case TiffConstants.COMPRESSION_PACKBITS:
+        case TiffConstants.COMPRESSION_LZW:
+        case TiffConstants.COMPRESSION_DEFLATE_ADOBE:
+            break;
+        default:
+            throw new ImagingException("Invalid compression parameter for streamed images (Only LZW, Packbits, Zlib Deflate and uncompressed supported).");
+        }
+        final boolean usePredictor = compression == TiffConstants.COMPRESSION_LZW || compression == TiffConstants.COMPRESSION_DEFLATE_ADOBE;
+
+        int stripSizeInBits = 64000; // the default from legacy implementation
+        final Integer stripSizeInBytes = params.getLzwCompressionBlockSize();
+        if (stripSizeInBytes != null) {
+            if (stripSizeInBytes < 8000) {
+                throw new ImagingException("Block size parameter " + stripSizeInBytes + " is less than 8000 minimum");
+            }
+            stripSizeInBits = stripSizeInBytes * 8;
+        }
+        final int samplesPerPixel = hasAlpha ? 4 : 3;
+        final int rowsPerStrip = (int) Math.min(height, Math.max(1, stripSizeInBits / (8L * width * samplesPerPixel)));
+        final int stripCount = (height + rowsPerStrip - 1) / rowsPerStrip;
+
+        // the header points nowhere until the directory has been written
+        final long start = channel.position();
+        writeFully(channel, createImageFileHeader(0));
+
+        final int[] argb = Allocator.intArray(width * rowsPerStrip);
+        final AbstractTiffElement.DataElement[] strips = new AbstractTiffElement.DataElement[stripCount];
+        long offset = getHeaderSize();
+        for (int i = 0; i < stripCount; i++) {
+            final int y = i * rowsPerStrip;
+            final int rows = Math.min(rowsPerStrip, height - y);
+            producer.produceRows(y, rows, argb);
+            final byte[] uncompressed = Allocator.byteArray((long) width * rows * samplesPerPixel);
+            new TileSource.Argb(width, rows, argb, hasAlpha).packTile(0, 0, width, rows, uncompressed);
+            if (usePredictor) {
+                applyPredictor(width, samplesPerPixel, uncompressed);
+            }
+            final byte[] strip = compressTile(uncompressed, compression);
+
+            checkOffset(offset);
+            strips[i] = new WrittenData(offset, strip.length);
+            writeFully(channel, ByteBuffer.wrap(strip));
+            offset += strip.length;
+            final int padding = imageDataPaddingLength(strip.length);
+            writeFully(channel, ByteBuffer.allocate(padding));
+            offset += padding;
+        }
+
+        final TiffOutputSet outputSet = new TiffOutputSet(byteOrder);
+        final TiffOutputDirectory directory = outputSet.addRootDirectory();
+        directory.add(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, width);
+        directory.add(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, height);
+        directory.add(TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION, (short) TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_RGB);
+        directory.add(TiffTagConstants.TIFF_TAG_COMPRESSION, (short) compression);
+        directory.add(TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL, (short) samplesPerPixel);
+        final short[] bitsPerSample = new short[samplesPerPixel];
+        Arrays.fill(bitsPerSample, (short) 8);
+        directory.add(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE, bitsPerSample);
+        if (hasAlpha) {
+            directory.add(TiffTagConstants.TIFF_TAG_EXTRA_SAMPLES, (short) TiffTagConstants.EXTRA_SAMPLE_UNASSOCIATED_ALPHA);
+        }
+        directory.add(TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP, rowsPerStrip);
+        if (usePredictor) {
+            directory.add(TiffTagConstants.TIFF_TAG_PREDICTOR, (short) TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING);
+        }
+        directory.setTiffImageData(new AbstractTiffImageData.Strips(strips, rowsPerStrip));
+        addMetadata(outputSet, params);
+
+        // the strips are already in place; only the directories and their values remain to be laid out, after them
+        final TiffOutputSummary outputSummary = validateDirectories(outputSet);
+        final List<AbstractTiffOutputItem> stripItems = new ArrayList<>();
+        final List<AbstractTiffOutputItem> outputItems = outputSet.getOutputItems(outputSummary, stripItems);
+        for (int i = 0; i < stripCount; i++) {
+            stripItems.get(i).setOffset(strips[i].offset);
+        }
+        for (final AbstractTiffOutputItem outputItem : outputItems) {
+            checkOffset(offset);
+            outputItem.setOffset(offset);
+            offset += outputItem.getItemLength() + imageDataPaddingLength(outputItem.getItemLength());
+        }
+        outputSummary.updateOffsets(byteOrder);
+
+        final BufferedOutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel));
+        final BinaryOutputStream bos = BinaryOutputStream.create(os, byteOrder);
+        for (final AbstractTiffOutputItem outputItem : outputItems) {
+            outputItem.writeItem(bos);
+            for (int j = imageDataPaddingLength(outputItem.getItemLength()); j > 0; j--) {
+                bos.write(0);
+            }
+        }
+        // NB: not closed, which would close the channel
+        bos.flush();
+
+        final long end = channel.position();
+        channel.position(start);
+        writeFully(channel, createImageFileHeader(outputSet.getRootDirectory().getOffset()));
+        channel.position(end);
+    }
+
+    private TiffOutputSet createTiledOutputSet(final BufferedImage src, final TiffImagingParameters params, final Executor executor)
+            throws ImagingException, IOException {
+        final int width = src.getWidth();
+        final int height = src.getHeight();
+        final boolean hasAlpha = src.getColorModel().hasAlpha() && checkForActualAlpha(src);
+        final int[] argb = src.getRGB(0, 0, width, height, Allocator.intArray(width * height), 0, width);
+
+        final int compression = params.getCompression() == null ? TiffConstants.COMPRESSION_LZW : params.getCompression();
+        final TiffOutputSet outputSet = createTiledOutputSet(new TileSource.Argb(width, height, argb, hasAlpha), params, executor, compression,
+                TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING, TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_RGB, 0);
+        addMetadata(outputSet, params);
+        return outputSet;
+    }
+
+    /**
+     * Adds the pixel density, XMP and user-supplied fields to an output set.
+     */
+    private void addMetadata(final TiffOutputSet outputSet, final TiffImagingParameters params) throws ImagingException {
+        final TiffOutputDirectory directory = outputSet.getRootDirectory();
+        final PixelDensity pixelDensity = params.getPixelDensity();
+        addResolution(directory, pixelDensity == null ? PixelDensity.createFromPixelsPerInch(72, 72) : pixelDensity);
+        final String xmpXml = params.getXmpXml();
+        if (null != xmpXml) {
+            directory.add(TiffTagConstants.TIFF_TAG_XMP, xmpXml.getBytes(StandardCharsets.UTF_8));
+        }
+        final TiffOutputSet userExif = params.getOutputSet();
+        if (userExif != null) {
+            combineUserExifIntoFinalExif(userExif, outputSet);
+        }
+    }
+
+    /**
+     * Compresses the tiles of an image and of its overviews and creates a directory for each level. The overviews follow the image in the directory chain
+     * and are marked as reduced-resolution images.
+     *
+     * @param source                    the full-resolution image.
+     * @param params                    the tile size and overview count.
+     * @param executor                  the executor that compresses the tiles, or null to compress them serially.
+     * @param compression               the compression.
+     * @param predictor                 the predictor applied before LZW or Deflate compression, horizontal differencing, floating point or none.
+     * @param photometricInterpretation the photometric interpretation.
+     * @param sampleFormat              the sample format, or 0 to leave it unspecified.
+     * @return the output set.
+     */
+    private TiffOutputSet createTiledOutputSet(final TileSource source, final TiffImagingParameters params, final Executor executor, final int compression,
+            final int predictor, final int photometricInterpretation, final int sampleFormat) throws ImagingException, IOException {
+        switch (compression) {
+        case TiffConstants.COMPRESSION_UNCOMPRESSED:
+        case TiffConstants.COMPRESSION_PACKBITS:
+        case TiffConstants.COMPRESSION_LZW:
+        case TiffConstants.COMPRESSION_DEFLATE_ADOBE:
+            break;
+        default:
+            throw new ImagingException("Invalid compression parameter for tiles (Only LZW, Packbits, Zlib Deflate and uncompressed supported).");
+        }
+        final boolean usePredictor = predictor != TiffTagConstants.PREDICTOR_VALUE_NONE
+                && (compression == TiffConstants.COMPRESSION_LZW || compression == TiffConstants.COMPRESSION_DEFLATE_ADOBE);
+        final int tileWidth = params.getTileWidth() > 0 ? params.getTileWidth() : DEFAULT_TILE_SIZE;
+        final int tileLength = params.getTileLength() > 0 ? params.getTileLength() : DEFAULT_TILE_SIZE;
+
+        final List<TileSource> levels = new ArrayList<>();
+        TileSource level = source;
+        levels.add(level);
+        for (int i = 0; i < params.getOverviewCount() && (level.width > 1 || level.height > 1); i++) {
+            level = level.downsample();
+            levels.add(level);
+        }
+
+        // the tiles of all levels are numbered consecutively, so they can be compressed in a single pass
+        final int[] firstTile = new int[levels.size() + 1];
+        for (int i = 0; i < levels.size(); i++) {
+            final TileSource l = levels.get(i);
+            final long tileCount = (long) ((l.width + tileWidth - 1) / tileWidth) * ((l.height + tileLength - 1) / tileLength);
+            firstTile[i + 1] = Allocator.check(firstTile[i] + tileCount, 1);
+        }
+        final byte[][] tiles = new byte[firstTile[levels.size()]][];
+        ConcurrentTasks.forEach(executor, tiles.length, tile -> {
+            int i = 0;
+            while (tile >= firstTile[i + 1]) {
+                i++;
+            }
+            final TileSource l = levels.get(i);
+            final int tilesAcross = (l.width + tileWidth - 1) / tileWidth;
+            final int index = tile - firstTile[i];
+            final byte[] bytes = Allocator.byteArray((long) tileWidth * tileLength * l.getBytesPerPixel());
+            l.packTile(index % tilesAcross * tileWidth, index / tilesAcross * tileLength, tileWidth, tileLength, bytes);
+            if (usePredictor) {
+                if (predictor == TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING) {
+                    applyFloatingPointPredictor(tileWidth, l.samplesPerPixel, l.getBitsPerSample() / 8, bytes);
+                } else {
+                    applyPredictor(tileWidth, l.samplesPerPixel, bytes);
+                }
+            }
+            tiles[tile] = compressTile(bytes, compression);
+        }, "TIFF tile compression");
+
+        final TiffOutputSet outputSet = new TiffOutputSet(byteOrder);
+        for (int i = 0; i < levels.size(); i++) {
+            final TileSource l = levels.get(i);
+            final TiffOutputDirectory directory;
+            if (i == 0) {
+                directory = outputSet.addRootDirectory();
+            } else {
+                directory = new TiffOutputDirectory(i, byteOrder);
+                directory.add(TiffTagConstants.TIFF_TAG_NEW_SUBFILE_TYPE, TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE);
+                outputSet.addDirectory(directory);
+            }
+            directory.add(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, l.width);
+            directory.add(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, l.height);
+            directory.add(TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION, (short) photometricInterpretation);
+            directory.add(TiffTagConstants.TIFF_TAG_COMPRESSION, (short) compression);
+            directory.add(TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL, (short) l.samplesPerPixel);
+            final short[] bitsPerSample = new short[l.samplesPerPixel];
+            Arrays.fill(bitsPerSample, (short) l.getBitsPerSample());
+            directory.add(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE, bitsPerSample);
+            if (photometricInterpretation == TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_RGB && l.samplesPerPixel == 4) {
+                directory.add(TiffTagConstants.TIFF_TAG_EXTRA_SAMPLES, (short) TiffTagConstants.EXTRA_SAMPLE_UNASSOCIATED_ALPHA);
+            }
+            if (sampleFormat != 0) {
+                final short[] sampleFormats = new short[l.samplesPerPixel];
+                Arrays.fill(sampleFormats, (short) sampleFormat);
+                directory.add(TiffTagConstants.TIFF_TAG_SAMPLE_FORMAT, sampleFormats);
+            }
+            if (usePredictor) {
+                directory.add(TiffTagConstants.TIFF_TAG_PREDICTOR, (short) predictor);
+            }
+            directory.add(TiffTagConstants.TIFF_TAG_TILE_WIDTH, tileWidth);
+            directory.add(TiffTagConstants.TIFF_TAG_TILE_LENGTH, tileLength);
+
+            final AbstractTiffElement.DataElement[] imageData = new AbstractTiffElement.DataElement[firstTile[i + 1] - firstTile[i]];
+            final int first = firstTile[i];
+            Arrays.setAll(imageData, j -> new AbstractTiffImageData.Data(0, tiles[first + j].length, tiles[first + j]));
+            directory.setTiffImageData(new AbstractTiffImageData.Tiles(imageData, tileWidth, tileLength));
+        }
+        return outputSet;
+    }
+
+    private static byte[] compressTile(final byte[] tile, final int compression) throws ImagingException, IOException {
+        switch (compression) {
+        case TiffConstants.COMPRESSION_PACKBITS:
+            return PackBits.compress(tile);
+        case TiffConstants.COMPRESSION_LZW:
+            return new MyLzwCompressor(8, ByteOrder.BIG_ENDIAN, true).compress(tile);
+        case TiffConstants.COMPRESSION_DEFLATE_ADOBE:
+            return ZlibDeflate.compress(tile);
+        default:
+            return tile;
+        }
+    }
+
     protected void writeImageFileHeader(final BinaryOutputStream bos) throws IOException {
-        writeImageFileHeader(bos, TiffConstants.HEADER_SIZE);
+        writeImageFileHeader(bos, getHeaderSize());
     }
 
     protected void writeImageFileHeader(final BinaryOutputStream bos, final long offsetToFirstIFD) throws IOException {
@@ -601,9 +1148,15 @@ public abstract class AbstractTiffImageWriter {
             bos.write('M');
         }
 
-        bos.write2Bytes(42); // tiffVersion
-
-        bos.write4Bytes((int) offsetToFirstIFD);
+        if (bigTiff) {
+            bos.write2Bytes(TiffConstants.VERSION_BIG);
+            bos.write2Bytes(8); // bytesize of offsets
+            bos.write2Bytes(0);
+            bos.write8Bytes(offsetToFirstIFD);
+        } else {
+            bos.write2Bytes(TiffConstants.VERSION_STANDARD);
+            bos.write4Bytes((int) offsetToFirstIFD);
+        }
     }
 
 }
@@ -20,9 +20,37 @@ import java.io.IOException;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.BinaryOutputStream;
+import org.apache.commons.imaging.formats.tiff.AbstractTiffElement;
 
 abstract class AbstractTiffOutputItem {
 
+    /**
+     * A strip or tile, whose bytes are only obtained from its element when they are written, so that the image data need not be copied up front.
+     */
+    static final class ImageData extends AbstractTiffOutputItem {
+
+        private final AbstractTiffElement.DataElement element;
+
+        ImageData(final AbstractTiffElement.DataElement element) {
+            this.element = element;
+        }
+
+        @Override
+        public String getItemDescription() {
+            return "TIFF image data";
+        }
+
+        @Override
+        public int getItemLength() {
+            return element.getDataLength();
+        }
+
+        @Override
+        public void writeItem(final BinaryOutputStream bos) throws IOException, ImagingException {
+            bos.write(element.readData());
+        }
+    }
+
     public static class Value extends AbstractTiffOutputItem {
 
         static final int SHALLOW_SIZE = 32;
@@ -16,8 +16,6 @@
  */
 package org.apache.commons.imaging.formats.tiff.write;
 
-import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.HEADER_SIZE;
-
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteOrder;
@@ -34,6 +32,7 @@ import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.common.BinaryOutputStream;
+import org.apache.commons.imaging.common.ByteConversions;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffElement;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffElement.DataElement;
 import org.apache.commons.imaging.formats.tiff.AbstractTiffImageData;
@@ -44,6 +43,7 @@ import org.apache.commons.imaging.formats.tiff.TiffField;
 import org.apache.commons.imaging.formats.tiff.TiffImagingParameters;
 import org.apache.commons.imaging.formats.tiff.TiffReader;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
 
 /**
  * TIFF lossless image writer.
@@ -80,14 +80,31 @@ public class TiffImageWriterLossless extends AbstractTiffImageWriter {
     private static final Comparator<AbstractTiffElement> ELEMENT_SIZE_COMPARATOR = Comparator.comparingInt(e -> e.length);
     private static final Comparator<AbstractTiffOutputItem> ITEM_SIZE_COMPARATOR = Comparator.comparingInt(AbstractTiffOutputItem::getItemLength);
 
+    /**
+     * Tests whether existing TIFF data is BigTIFF, whose layout the writer then keeps.
+     */
+    private static boolean isBigTiff(final byte[] exifBytes) {
+        if (exifBytes == null || exifBytes.length < 4) {
+            return false;
+        }
+        final ByteOrder byteOrder = exifBytes[0] == 'M' ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        return ByteConversions.toUInt16(exifBytes, 2, byteOrder) == TiffConstants.VERSION_BIG;
+    }
+
     private final byte[] exifBytes;
 
     public TiffImageWriterLossless(final byte[] exifBytes) {
-        this.exifBytes = exifBytes;
+        this(TiffConstants.DEFAULT_TIFF_BYTE_ORDER, exifBytes);
     }
 
+    /**
+     * Constructs a new instance that updates existing TIFF data. The data is written as BigTIFF if the existing data is BigTIFF.
+     *
+     * @param byteOrder the byte order.
+     * @param exifBytes the existing TIFF data.
+     */
     public TiffImageWriterLossless(final ByteOrder byteOrder, final byte[] exifBytes) {
-        super(byteOrder);
+        super(byteOrder, isBigTiff(exifBytes));
         this.exifBytes = exifBytes;
     }
 
@@ -246,9 +263,9 @@ public class TiffImageWriterLossless extends AbstractTiffImageWriter {
         }
         if (analysis.size() == 1) {
             final AbstractTiffElement onlyElement = analysis.get(0);
-            if (onlyElement.offset == HEADER_SIZE && onlyElement.offset + onlyElement.length + HEADER_SIZE == oldLength) {
+            if (onlyElement.offset == getHeaderSize() && onlyElement.offset + onlyElement.length + getHeaderSize() == oldLength) {
                 // no gaps in old data, safe to complete overwrite.
-                new TiffImageWriterLossy(byteOrder).write(os, outputSet);
+                new TiffImageWriterLossy(byteOrder, bigTiff).write(os, outputSet);
                 return;
             }
         }
@@ -16,8 +16,6 @@
  */
 package org.apache.commons.imaging.formats.tiff.write;
 
-import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.HEADER_SIZE;
-
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteOrder;
@@ -36,10 +34,22 @@ public class TiffImageWriterLossy extends AbstractTiffImageWriter {
         super(byteOrder);
     }
 
-    private void updateOffsetsStep(final List<AbstractTiffOutputItem> outputItems) {
-        int offset = HEADER_SIZE;
+    /**
+     * Constructs a new instance.
+     *
+     * @param byteOrder the byte order.
+     * @param bigTiff   true to write BigTIFF, which has eight-byte offsets and so is not limited to 4 GB; false to write classic TIFF.
+     * @since 1.0-alpha6
+     */
+    public TiffImageWriterLossy(final ByteOrder byteOrder, final boolean bigTiff) {
+        super(byteOrder, bigTiff);
+    }
+
+    private void updateOffsetsStep(final List<AbstractTiffOutputItem> outputItems) throws ImagingException {
+        long offset = getHeaderSize();
 
         for (final AbstractTiffOutputItem outputItem : outputItems) {
+            checkOffset(offset);
             outputItem.setOffset(offset);
             final int itemLength = outputItem.getItemLength();
             offset += itemLength;
@@ -53,7 +63,8 @@ public class TiffImageWriterLossy extends AbstractTiffImageWriter {
     public void write(final OutputStream os, final TiffOutputSet outputSet) throws IOException, ImagingException {
         final TiffOutputSummary outputSummary = validateDirectories(outputSet);
 
-        final List<AbstractTiffOutputItem> outputItems = outputSet.getOutputItems(outputSummary);
+        // all directories ahead of the image data, so that readers find them with a single read at the start of the file
+        final List<AbstractTiffOutputItem> outputItems = outputSet.getOutputItems(outputSummary, true);
 
         updateOffsetsStep(outputItems);
 
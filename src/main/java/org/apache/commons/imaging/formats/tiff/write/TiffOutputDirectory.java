@@ -17,9 +17,11 @@
 package org.apache.commons.imaging.formats.tiff.write;
 
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.DIRECTORY_FOOTER_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.DIRECTORY_FOOTER_LENGTH_BIG;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.DIRECTORY_HEADER_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.DIRECTORY_HEADER_LENGTH_BIG;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_LENGTH;
-import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_MAX_VALUE_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_LENGTH_BIG;
 
 import java.io.IOException;
 import java.nio.ByteOrder;
@@ -81,6 +83,11 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
     private JpegImageData jpegImageData;
     private AbstractTiffImageData abstractTiffImageData;
 
+    /**
+     * Whether the directory is laid out as BigTIFF, set by the writer when it collects the output items.
+     */
+    private boolean bigTiff;
+
     public TiffOutputDirectory(final int type, final ByteOrder byteOrder) {
         this.type = type;
         this.byteOrder = byteOrder;
@@ -450,10 +457,29 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
 
     @Override
     public int getItemLength() {
+        if (bigTiff) {
+            return ENTRY_LENGTH_BIG * fields.size() + DIRECTORY_HEADER_LENGTH_BIG + DIRECTORY_FOOTER_LENGTH_BIG;
+        }
         return ENTRY_LENGTH * fields.size() + DIRECTORY_HEADER_LENGTH + DIRECTORY_FOOTER_LENGTH;
     }
 
     protected List<AbstractTiffOutputItem> getOutputItems(final TiffOutputSummary outputSummary) throws ImagingException {
+        return getOutputItems(outputSummary, null);
+    }
+
+    /**
+     * Gets the items to write for this directory.
+     *
+     * @param outputSummary  the summary that collects the offsets to update.
+     * @param imageDataItems if not null, receives the image data items, which are then left out of the result.
+     * @return the directory, followed by the values that do not fit into it and the image data.
+     */
+    List<AbstractTiffOutputItem> getOutputItems(final TiffOutputSummary outputSummary, final List<AbstractTiffOutputItem> imageDataItems)
+            throws ImagingException {
+        bigTiff = outputSummary.bigTiff;
+        // offsets are eight bytes long in BigTIFF
+        final AbstractFieldType offsetType = bigTiff ? AbstractFieldType.LONG8 : AbstractFieldType.LONG;
+
         // first validate directory fields.
 
         removeFieldIfPresent(TiffTagConstants.TIFF_TAG_JPEG_INTERCHANGE_FORMAT);
@@ -461,8 +487,8 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
 
         TiffOutputField jpegOffsetField = null;
         if (null != jpegImageData) {
-            jpegOffsetField = new TiffOutputField(TiffTagConstants.TIFF_TAG_JPEG_INTERCHANGE_FORMAT, AbstractFieldType.LONG, 1,
-                    new byte[ENTRY_MAX_VALUE_LENGTH]);
+            jpegOffsetField = new TiffOutputField(TiffTagConstants.TIFF_TAG_JPEG_INTERCHANGE_FORMAT, offsetType, 1,
+                    new byte[offsetType.getSize()]);
             add(jpegOffsetField);
 
             final byte[] lengthValue = AbstractFieldType.LONG.writeData(jpegImageData.length, outputSummary.byteOrder);
@@ -497,13 +523,14 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
 
             // TiffOutputField imageDataOffsetsField = null;
 
-            final int[] imageDataOffsets = Allocator.intArray(imageData.length);
+            final long[] imageDataOffsets = Allocator.longArray(imageData.length);
             final int[] imageDataByteCounts = Allocator.intArray(imageData.length);
             Arrays.setAll(imageDataByteCounts, i -> imageData[i].length);
 
             // Append imageData-related fields to first directory
-            imageDataOffsetField = new TiffOutputField(offsetTag, AbstractFieldType.LONG, imageDataOffsets.length,
-                    AbstractFieldType.LONG.writeData(imageDataOffsets, outputSummary.byteOrder));
+            // the offsets are filled in once the layout is known
+            imageDataOffsetField = new TiffOutputField(offsetTag, offsetType, imageDataOffsets.length,
+                    Allocator.byteArray((long) imageDataOffsets.length * offsetType.getSize()));
             add(imageDataOffsetField);
 
             final byte[] data = AbstractFieldType.LONG.writeData(imageDataByteCounts, outputSummary.byteOrder);
@@ -518,7 +545,7 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
         sortFields();
 
         for (final TiffOutputField field : fields) {
-            if (field.isLocalValue()) {
+            if (field.isLocalValue(bigTiff)) {
                 continue;
             }
 
@@ -527,15 +554,16 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
             // outputSummary.add(item, field);
         }
 
+        final List<AbstractTiffOutputItem> imageDataResult = imageDataItems == null ? result : imageDataItems;
         if (null != imageDataInfo) {
-            Collections.addAll(result, imageDataInfo.outputItems);
+            Collections.addAll(imageDataResult, imageDataInfo.outputItems);
 
             outputSummary.addTiffImageData(imageDataInfo);
         }
 
         if (null != jpegImageData) {
             final AbstractTiffOutputItem item = new AbstractTiffOutputItem.Value("JPEG image data", jpegImageData.getData());
-            result.add(item);
+            imageDataResult.add(item);
             outputSummary.add(item, jpegOffsetField);
         }
 
@@ -605,11 +633,15 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
     @Override
     public void writeItem(final BinaryOutputStream bos) throws IOException, ImagingException {
         // Write Directory Field Count
-        bos.write2Bytes(fields.size()); // DirectoryFieldCount
+        if (bigTiff) {
+            bos.write8Bytes(fields.size());
+        } else {
+            bos.write2Bytes(fields.size()); // DirectoryFieldCount
+        }
 
         // Write Fields
         for (final TiffOutputField field : fields) {
-            field.writeField(bos);
+            field.writeField(bos, bigTiff);
 
             // Debug.debug("\t" + "writing field (" + field.tag + ", 0x" +
             // Integer.toHexString(field.tag) + ")", field.tagInfo);
@@ -624,7 +656,10 @@ public final class TiffOutputDirectory extends AbstractTiffOutputItem implements
 
         // Write nextDirectoryOffset
         if (nextDirectoryOffset == UNDEFINED_VALUE) {
-            bos.write4Bytes(0);
+            nextDirectoryOffset = 0;
+        }
+        if (bigTiff) {
+            bos.write8Bytes(nextDirectoryOffset);
         } else {
             bos.write4Bytes((int) nextDirectoryOffset);
         }
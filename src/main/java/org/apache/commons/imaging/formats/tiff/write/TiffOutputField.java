@@ -17,6 +17,7 @@
 package org.apache.commons.imaging.formats.tiff.write;
 
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_MAX_VALUE_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.ENTRY_MAX_VALUE_LENGTH_BIG;
 
 import java.io.IOException;
 import java.nio.ByteOrder;
@@ -34,6 +35,16 @@ public class TiffOutputField {
         return new TiffOutputField(tagInfo, AbstractFieldType.LONG, 1, AbstractFieldType.LONG.writeData(0, byteOrder));
     }
 
+    /**
+     * Creates a field holding the offset of a directory, of type IFD8 in BigTIFF and LONG otherwise.
+     */
+    static TiffOutputField createOffsetField(final TagInfo tagInfo, final ByteOrder byteOrder, final boolean bigTiff) throws ImagingException {
+        if (bigTiff) {
+            return new TiffOutputField(tagInfo, AbstractFieldType.IFD8, 1, AbstractFieldType.IFD8.writeData(0L, byteOrder));
+        }
+        return createOffsetField(tagInfo, byteOrder);
+    }
+
     public final int tag;
     public final TagInfo tagInfo;
     public final AbstractFieldType abstractFieldType;
@@ -82,6 +93,13 @@ public class TiffOutputField {
         return bytes.length <= ENTRY_MAX_VALUE_LENGTH;
     }
 
+    /**
+     * Tests whether the value fits into the entry, which holds eight bytes in BigTIFF rather than four.
+     */
+    final boolean isLocalValue(final boolean bigTiff) {
+        return bytes.length <= (bigTiff ? ENTRY_MAX_VALUE_LENGTH_BIG : ENTRY_MAX_VALUE_LENGTH);
+    }
+
     /**
      * Set the data for this TIFF output field.
      *
@@ -139,20 +157,29 @@ public class TiffOutputField {
     }
 
     protected void writeField(final BinaryOutputStream bos) throws IOException, ImagingException {
+        writeField(bos, false);
+    }
+
+    void writeField(final BinaryOutputStream bos, final boolean bigTiff) throws IOException, ImagingException {
         bos.write2Bytes(tag);
         bos.write2Bytes(abstractFieldType.getType());
-        bos.write4Bytes(count);
+        if (bigTiff) {
+            bos.write8Bytes(count);
+        } else {
+            bos.write4Bytes(count);
+        }
 
-        if (isLocalValue()) {
-            if (separateValueItem != null) {
+        final int entryMaxValueLength = bigTiff ? ENTRY_MAX_VALUE_LENGTH_BIG : ENTRY_MAX_VALUE_LENGTH;
+        if (isLocalValue(bigTiff)) {
+            if (separateValueItem != null && !bigTiff) {
                 throw new ImagingException("Unexpected separate value item.");
             }
-            if (bytes.length > 4) {
+            if (bytes.length > entryMaxValueLength) {
                 throw new ImagingException("Local value has invalid length: " + bytes.length);
             }
 
             bos.write(bytes);
-            final int remainder = ENTRY_MAX_VALUE_LENGTH - bytes.length;
+            final int remainder = entryMaxValueLength - bytes.length;
             for (int i = 0; i < remainder; i++) {
                 bos.write(0);
             }
@@ -161,7 +188,11 @@ public class TiffOutputField {
                 throw new ImagingException("Missing separate value item.");
             }
 
-            bos.write4Bytes((int) separateValueItem.getOffset());
+            if (bigTiff) {
+                bos.write8Bytes(separateValueItem.getOffset());
+            } else {
+                bos.write4Bytes((int) separateValueItem.getOffset());
+            }
         }
     }
 }
@@ -151,12 +151,39 @@ public final class TiffOutputSet implements Iterable<TiffOutputDirectory> {
     }
 
     protected List<AbstractTiffOutputItem> getOutputItems(final TiffOutputSummary outputSummary) throws ImagingException {
-        final List<AbstractTiffOutputItem> result = new ArrayList<>();
+        return getOutputItems(outputSummary, false);
+    }
 
-        for (final TiffOutputDirectory directory : directories) {
-            result.addAll(directory.getOutputItems(outputSummary));
+    /**
+     * Gets the items to write for all directories.
+     *
+     * @param outputSummary the summary that collects the offsets to update.
+     * @param imageDataLast whether to place the image data of all directories, in directory order, after the last directory instead of after each one.
+     * @return the items in the order they are to be written.
+     */
+    List<AbstractTiffOutputItem> getOutputItems(final TiffOutputSummary outputSummary, final boolean imageDataLast) throws ImagingException {
+        if (!imageDataLast) {
+            return getOutputItems(outputSummary, null);
         }
+        final List<AbstractTiffOutputItem> imageDataItems = new ArrayList<>();
+        final List<AbstractTiffOutputItem> result = getOutputItems(outputSummary, imageDataItems);
+        result.addAll(imageDataItems);
+        return result;
+    }
 
+    /**
+     * Gets the items to write for all directories, collecting the image data separately.
+     *
+     * @param outputSummary  the summary that collects the offsets to update.
+     * @param imageDataItems if not null, receives the image data of all directories in directory order, which is then left out of the result.
+     * @return the directories and their values, in the order they are to be written.
+     */
+    List<AbstractTiffOutputItem> getOutputItems(final TiffOutputSummary outputSummary, final List<AbstractTiffOutputItem> imageDataItems)
+            throws ImagingException {
+        final List<AbstractTiffOutputItem> result = new ArrayList<>();
+        for (final TiffOutputDirectory directory : directories) {
+            result.addAll(directory.getOutputItems(outputSummary, imageDataItems));
+        }
         return result;
     }
 
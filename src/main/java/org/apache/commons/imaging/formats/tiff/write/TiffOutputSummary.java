@@ -18,10 +18,12 @@ package org.apache.commons.imaging.formats.tiff.write;
 
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.formats.tiff.fieldtypes.AbstractFieldType;
 
 final class TiffOutputSummary {
@@ -36,14 +38,17 @@ final class TiffOutputSummary {
     }
 
     public final ByteOrder byteOrder;
+    public final boolean bigTiff;
     public final TiffOutputDirectory rootDirectory;
     public final Map<Integer, TiffOutputDirectory> directoryTypeMap;
     private final List<OffsetItem> offsetItems = new ArrayList<>();
 
     private final List<ImageDataOffsets> imageDataItems = new ArrayList<>();
 
-    TiffOutputSummary(final ByteOrder byteOrder, final TiffOutputDirectory rootDirectory, final Map<Integer, TiffOutputDirectory> directoryTypeMap) {
+    TiffOutputSummary(final ByteOrder byteOrder, final boolean bigTiff, final TiffOutputDirectory rootDirectory,
+            final Map<Integer, TiffOutputDirectory> directoryTypeMap) {
         this.byteOrder = byteOrder;
+        this.bigTiff = bigTiff;
         this.rootDirectory = rootDirectory;
         this.directoryTypeMap = directoryTypeMap;
     }
@@ -58,18 +63,29 @@ final class TiffOutputSummary {
 
     public void updateOffsets(final ByteOrder byteOrder) throws ImagingException {
         for (final OffsetItem offset : offsetItems) {
-            final byte[] value = AbstractFieldType.LONG.writeData((int) offset.item.getOffset(), byteOrder);
-            offset.itemOffsetField.setData(value);
+            offset.itemOffsetField.setData(writeOffsets(offset.itemOffsetField, new long[] { offset.item.getOffset() }, byteOrder));
         }
 
         for (final ImageDataOffsets imageDataInfo : imageDataItems) {
             for (int j = 0; j < imageDataInfo.outputItems.length; j++) {
                 final AbstractTiffOutputItem item = imageDataInfo.outputItems[j];
-                imageDataInfo.imageDataOffsets[j] = (int) item.getOffset();
+                imageDataInfo.imageDataOffsets[j] = item.getOffset();
             }
 
-            imageDataInfo.imageDataOffsetsField.setData(AbstractFieldType.LONG.writeData(imageDataInfo.imageDataOffsets, byteOrder));
+            imageDataInfo.imageDataOffsetsField.setData(writeOffsets(imageDataInfo.imageDataOffsetsField, imageDataInfo.imageDataOffsets, byteOrder));
         }
     }
 
+    /**
+     * Encodes offsets in the type of their field: eight bytes for the LONG8 and IFD8 types of BigTIFF, four bytes otherwise.
+     */
+    private static byte[] writeOffsets(final TiffOutputField field, final long[] offsets, final ByteOrder byteOrder) throws ImagingException {
+        if (field.abstractFieldType.getSize() == 8) {
+            return AbstractFieldType.LONG8.writeData(offsets, byteOrder);
+        }
+        final int[] values = Allocator.intArray(offsets.length);
+        Arrays.setAll(values, i -> (int) offsets[i]);
+        return AbstractFieldType.LONG.writeData(values, byteOrder);
+    }
+
 }
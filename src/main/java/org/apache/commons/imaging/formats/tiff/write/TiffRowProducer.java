@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.write;
+
+import java.io.IOException;
+
+/**
+ * Supplies the pixels of an image that is written strip by strip, so that the whole image never has to be held in memory.
+ *
+ * @see AbstractTiffImageWriter#writeImage(TiffRowProducer, int, int, boolean, java.nio.channels.SeekableByteChannel,
+ *      org.apache.commons.imaging.formats.tiff.TiffImagingParameters)
+ * @since 1.0-alpha6
+ */
+@FunctionalInterface
+public interface TiffRowProducer {
+
+    /**
+     * Fills in the pixels of a run of rows. The rows are requested in order, from the top of the image down, each exactly once.
+     *
+     * @param y        the first row.
+     * @param rowCount the number of rows.
+     * @param argb     receives the pixels in the ARGB format of {@link java.awt.image.BufferedImage#getRGB(int, int)}, row after row, starting at index 0.
+     *                 It holds at least {@code rowCount} times the image width elements.
+     * @throws IOException if the pixels cannot be produced.
+     */
+    void produceRows(int y, int rowCount, int[] argb) throws IOException;
+}
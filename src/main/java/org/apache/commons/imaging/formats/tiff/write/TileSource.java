@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.write;
+
+import java.nio.ByteOrder;
+
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.FloatingPointSamples;
+import org.apache.commons.imaging.formats.tiff.TiffRasterData;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataDouble;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataFloat;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataInt;
+import org.apache.commons.imaging.formats.tiff.TiffRasterDataType;
+
+/**
+ * One level of a tiled image: packs the samples of a tile into bytes and computes the next, half-size level.
+ * <p>
+ * Packing only reads the source, so the tiles of a level may be packed concurrently.
+ * </p>
+ */
+abstract class TileSource {
+
+    /**
+     * ARGB pixels, written as 8-bit RGB or RGBA samples.
+     */
+    static final class Argb extends TileSource {
+
+        private final int[] argb;
+        private final boolean hasAlpha;
+
+        Argb(final int width, final int height, final int[] argb, final boolean hasAlpha) {
+            super(width, height, hasAlpha ? 4 : 3);
+            this.argb = argb;
+            this.hasAlpha = hasAlpha;
+        }
+
+        @Override
+        Argb downsample() {
+            final int width2 = (width + 1) / 2;
+            final int height2 = (height + 1) / 2;
+            final int[] result = Allocator.intArray(width2 * height2);
+            for (int y = 0; y < height2; y++) {
+                final int y0 = 2 * y;
+                final int y1 = Math.min(y0 + 1, height - 1);
+                for (int x = 0; x < width2; x++) {
+                    final int x0 = 2 * x;
+                    final int x1 = Math.min(x0 + 1, width - 1);
+                    final int p00 = argb[y0 * width + x0];
+                    final int p01 = argb[y0 * width + x1];
+                    final int p10 = argb[y1 * width + x0];
+                    final int p11 = argb[y1 * width + x1];
+                    int pixel = 0;
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        final int sum = (p00 >>> shift & 0xff) + (p01 >>> shift & 0xff) + (p10 >>> shift & 0xff) + (p11 >>> shift & 0xff);
+                        pixel |= (sum + 2) / 4 << shift;
+                    }
+                    result[y * width2 + x] = pixel;
+                }
+            }
+            return new Argb(width2, height2, result, hasAlpha);
+        }
+
+        @Override
+        int getBitsPerSample() {
+            return 8;
+        }
+
+        @Override
+        void packTile(final int x0, final int y0, final int tileWidth, final int tileLength, final byte[] tile) {
+            final int x1 = Math.min(x0 + tileWidth, width);
+            final int y1 = Math.min(y0 + tileLength, height);
+            for (int y = y0; y < y1; y++) {
+                int offset = (y - y0) * tileWidth * samplesPerPixel;
+                for (int x = x0; x < x1; x++) {
+                    final int pixel = argb[y * width + x];
+                    tile[offset++] = (byte) (pixel >> 16);
+                    tile[offset++] = (byte) (pixel >> 8);
+                    tile[offset++] = (byte) pixel;
+                    if (hasAlpha) {
+                        tile[offset++] = (byte) (pixel >> 24);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Raster data, written as 16, 32 or 64-bit floating-point or 32-bit integer samples.
+     */
+    static final class Raster extends TileSource {
+
+        private final TiffRasterData raster;
+        private final ByteOrder byteOrder;
+        private final int bitsPerSample;
+
+        /**
+         * @param bitsPerSample 16, 32 or 64 for floating-point rasters, 32 for integer ones.
+         */
+        Raster(final TiffRasterData raster, final ByteOrder byteOrder, final int bitsPerSample) {
+            super(raster.getWidth(), raster.getHeight(), raster.getSamplesPerPixel());
+            this.raster = raster;
+            this.byteOrder = byteOrder;
+            this.bitsPerSample = bitsPerSample;
+        }
+
+        @Override
+        Raster downsample() {
+            final int width2 = (width + 1) / 2;
+            final int height2 = (height + 1) / 2;
+            final TiffRasterDataType dataType = raster.getDataType();
+            final TiffRasterData result;
+            if (dataType == TiffRasterDataType.DOUBLE) {
+                result = new TiffRasterDataDouble(width2, height2, samplesPerPixel);
+            } else if (dataType == TiffRasterDataType.FLOAT) {
+                result = new TiffRasterDataFloat(width2, height2, samplesPerPixel);
+            } else {
+                result = new TiffRasterDataInt(width2, height2, samplesPerPixel);
+            }
+            for (int i = 0; i < samplesPerPixel; i++) {
+                for (int y = 0; y < height2; y++) {
+                    final int y0 = 2 * y;
+                    final int y1 = Math.min(y0 + 1, height - 1);
+                    for (int x = 0; x < width2; x++) {
+                        final int x0 = 2 * x;
+                        final int x1 = Math.min(x0 + 1, width - 1);
+                        if (dataType == TiffRasterDataType.DOUBLE) {
+                            result.setDoubleValue(x, y, i, mean(raster.getDoubleValue(x0, y0, i), raster.getDoubleValue(x1, y0, i),
+                                    raster.getDoubleValue(x0, y1, i), raster.getDoubleValue(x1, y1, i)));
+                        } else if (dataType == TiffRasterDataType.FLOAT) {
+                            result.setValue(x, y, i, mean(raster.getValue(x0, y0, i), raster.getValue(x1, y0, i), raster.getValue(x0, y1, i),
+                                    raster.getValue(x1, y1, i)));
+                        } else {
+                            final long sum = (long) raster.getIntValue(x0, y0, i) + raster.getIntValue(x1, y0, i) + raster.getIntValue(x0, y1, i)
+                                    + raster.getIntValue(x1, y1, i);
+                            result.setIntValue(x, y, i, (int) Math.floorDiv(sum + 2, 4));
+                        }
+                    }
+                }
+            }
+            return new Raster(result, byteOrder, bitsPerSample);
+        }
+
+        @Override
+        int getBitsPerSample() {
+            return bitsPerSample;
+        }
+
+        /**
+         * Averages the samples that are not NaN, which commonly marks missing data.
+         */
+        private static double mean(final double d00, final double d01, final double d10, final double d11) {
+            final int n = (Double.isNaN(d00) ? 0 : 1) + (Double.isNaN(d01) ? 0 : 1) + (Double.isNaN(d10) ? 0 : 1) + (Double.isNaN(d11) ? 0 : 1);
+            if (n == 0) {
+                return Double.NaN;
+            }
+            return (validOrZero(d00) + validOrZero(d01) + validOrZero(d10) + validOrZero(d11)) / n;
+        }
+
+        /**
+         * Averages the samples that are not NaN, which commonly marks missing data.
+         */
+        private static float mean(final float f00, final float f01, final float f10, final float f11) {
+            final int n = (Float.isNaN(f00) ? 0 : 1) + (Float.isNaN(f01) ? 0 : 1) + (Float.isNaN(f10) ? 0 : 1) + (Float.isNaN(f11) ? 0 : 1);
+            if (n == 0) {
+                return Float.NaN;
+            }
+            return (validOrZero(f00) + validOrZero(f01) + validOrZero(f10) + validOrZero(f11)) / n;
+        }
+
+        private static double validOrZero(final double d) {
+            return Double.isNaN(d) ? 0 : d;
+        }
+
+        private static float validOrZero(final float f) {
+            return Float.isNaN(f) ? 0 : f;
+        }
+
+        @Override
+        void packTile(final int x0, final int y0, final int tileWidth, final int tileLength, final byte[] tile) {
+            final boolean isFloat = raster.getDataType() != TiffRasterDataType.INTEGER;
+            final boolean bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+            final int bytesPerSample = bitsPerSample / 8;
+            final int x1 = Math.min(x0 + tileWidth, width);
+            final int y1 = Math.min(y0 + tileLength, height);
+            for (int y = y0; y < y1; y++) {
+                int offset = (y - y0) * tileWidth * samplesPerPixel * bytesPerSample;
+                for (int x = x0; x < x1; x++) {
+                    for (int i = 0; i < samplesPerPixel; i++) {
+                        final long sample;
+                        if (!isFloat) {
+                            sample = raster.getIntValue(x, y, i);
+                        } else if (bitsPerSample == 64) {
+                            sample = Double.doubleToRawLongBits(raster.getDoubleValue(x, y, i));
+                        } else if (bitsPerSample == 32) {
+                            sample = Float.floatToRawIntBits(raster.getValue(x, y, i));
+                        } else {
+                            sample = FloatingPointSamples.floatToHalf(raster.getValue(x, y, i));
+                        }
+                        for (int k = 0; k < bytesPerSample; k++) {
+                            final int shift = 8 * (bigEndian ? bytesPerSample - 1 - k : k);
+                            tile[offset++] = (byte) (sample >> shift);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    final int width;
+    final int height;
+    final int samplesPerPixel;
+
+    TileSource(final int width, final int height, final int samplesPerPixel) {
+        this.width = width;
+        this.height = height;
+        this.samplesPerPixel = samplesPerPixel;
+    }
+
+    /**
+     * Computes the next level by averaging blocks of 2x2 samples. Odd sizes are rounded up, the last row and column averaging the samples that exist.
+     *
+     * @return a level half the width and height of this one.
+     */
+    abstract TileSource downsample();
+
+    abstract int getBitsPerSample();
+
+    int getBytesPerPixel() {
+        return samplesPerPixel * getBitsPerSample() / 8;
+    }
+
+    /**
+     * Packs the samples of a tile. Samples of the tile that lie outside the image are left as they are, so a new array pads the tile with zeros.
+     *
+     * @param x0         the column of the upper-left corner of the tile.
+     * @param y0         the row of the upper-left corner of the tile.
+     * @param tileWidth  the tile width.
+     * @param tileLength the tile length.
+     * @param tile       the bytes of the tile, {@code tileWidth * tileLength * getBytesPerPixel()} long.
+     */
+    abstract void packTile(int x0, int y0, int tileWidth, int tileLength, byte[] tile);
+}
@@ -16,64 +16,22 @@
  */
 package org.apache.commons.imaging.mylzw;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
 
+/**
+ * Compresses data with LZW, as found in GIF and TIFF files.
+ * <p>
+ * Every string in the table is the string of an earlier code followed by one byte, so the table is an open-addressing hash table of
+ * {@code prefixCode << 8 | nextByte} keys, as in the classic {@code compress} and giflib. Codes are gathered in a 64-bit buffer and written to the output
+ * array four bytes at a time.
+ * </p>
+ */
 public class MyLzwCompressor {
-    private static final class ByteArray {
-        private final byte[] bytes;
-        private final int start;
-        private final int length;
-        private final int hash;
-
-        ByteArray(final byte[] bytes, final int start, final int length) {
-            this.bytes = bytes;
-            this.start = start;
-            this.length = length;
-
-            int tempHash = length;
-
-            for (int i = 0; i < length; i++) {
-                final int b = 0xff & bytes[i + start];
-                tempHash = tempHash + (tempHash << 8) ^ b ^ i;
-            }
-
-            hash = tempHash;
-        }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (o instanceof ByteArray) {
-                final ByteArray other = (ByteArray) o;
-                if (other.hash != hash) {
-                    return false;
-                }
-                if (other.length != length) {
-                    return false;
-                }
-
-                for (int i = 0; i < length; i++) {
-                    if (other.bytes[i + other.start] != bytes[i + start]) {
-                        return false;
-                    }
-                }
-
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            return hash;
-        }
-    }
 
     public interface Listener {
         void clearCode(int code);
@@ -85,6 +43,13 @@ public class MyLzwCompressor {
         void init(int clearCode, int eoiCode);
     }
 
+    /**
+     * The size of the hash table, a power of two at least twice the 4096 codes of the string table.
+     */
+    private static final int HASH_SIZE = 1 << 13;
+
+    private static final int HASH_SHIFT = 32 - 13;
+
     private int codeSize;
 
     private final int initialCodeSize;
@@ -96,7 +61,14 @@ public class MyLzwCompressor {
 
     private final Listener listener;
 
-    private final Map<ByteArray, Integer> map = new HashMap<>();
+    /** The keys of the table, {@code prefixCode << 8 | nextByte}, or -1 for empty slots. */
+    private final int[] hashKeys = new int[HASH_SIZE];
+    private final int[] hashCodes = new int[HASH_SIZE];
+
+    private byte[] out;
+    private int outLength;
+    private long bitBuffer;
+    private int bitsInBuffer;
 
     public MyLzwCompressor(final int initialCodeSize, final ByteOrder byteOrder, final boolean earlyLimit) {
         this(initialCodeSize, byteOrder, earlyLimit, null);
@@ -119,14 +91,7 @@ public class MyLzwCompressor {
         initializeStringTable();
     }
 
-    private boolean addTableEntry(final MyBitOutputStream bos, final byte[] bytes, final int start, final int length) throws IOException {
-        final ByteArray key = arrayToKey(bytes, start, length);
-        return addTableEntry(bos, key);
-    }
-
-    private boolean addTableEntry(final MyBitOutputStream bos, final ByteArray key) throws IOException {
-        boolean cleared = false;
-
+    private void addTableEntry(final int key) {
         int limit = 1 << codeSize;
         if (earlyLimit) {
             limit--;
@@ -136,26 +101,19 @@ public class MyLzwCompressor {
             if (codeSize < 12) {
                 incrementCodeSize();
             } else {
-                writeClearCode(bos);
+                writeClearCode();
                 clearTable();
-                cleared = true;
+                return;
             }
         }
 
-        if (!cleared) {
-            map.put(key, codes);
-            codes++;
+        int slot = slot(key);
+        while (hashKeys[slot] != -1) {
+            slot = slot + 1 & HASH_SIZE - 1;
         }
-
-        return cleared;
-    }
-
-    private ByteArray arrayToKey(final byte b) {
-        return arrayToKey(new byte[] { b, }, 0, 1);
-    }
-
-    private ByteArray arrayToKey(final byte[] bytes, final int start, final int length) {
-        return new ByteArray(bytes, start, length);
+        hashKeys[slot] = key;
+        hashCodes[slot] = codes;
+        codes++;
     }
 
     private void clearTable() {
@@ -163,44 +121,67 @@ public class MyLzwCompressor {
         incrementCodeSize();
     }
 
-    private int codeFromString(final byte[] bytes, final int start, final int length) throws ImagingException {
-        final ByteArray key = arrayToKey(bytes, start, length);
-        final Integer code = map.get(key);
-        if (code == null) {
+    public byte[] compress(final byte[] bytes) throws IOException {
+        out = Allocator.byteArray(Math.max(64, bytes.length / 2));
+        outLength = 0;
+        bitBuffer = 0;
+        bitsInBuffer = 0;
+
+        initializeStringTable();
+        clearTable();
+        writeClearCode();
+
+        if (bytes.length == 0) {
             throw new ImagingException("CodeFromString");
         }
-        return code;
+        int code = singleByteCode(bytes[0]);
+
+        for (int i = 1; i < bytes.length; i++) {
+            final int b = 0xff & bytes[i];
+            final int key = code << 8 | b;
+            final int found = lookUp(key);
+            if (found >= 0) {
+                code = found;
+            } else {
+                writeDataCode(code);
+                addTableEntry(key);
+
+                code = singleByteCode(bytes[i]);
+            }
+        }
+
+        writeDataCode(code);
+        writeEoiCode();
+        flushCache();
+
+        final byte[] result = Arrays.copyOf(out, outLength);
+        out = null;
+        return result;
     }
 
-    public byte[] compress(final byte[] bytes) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream(Allocator.checkByteArray(bytes.length));
-                MyBitOutputStream bos = new MyBitOutputStream(baos, byteOrder)) {
-
-            initializeStringTable();
-            clearTable();
-            writeClearCode(bos);
-
-            int wStart = 0;
-            int wLength = 0;
-
-            for (int i = 0; i < bytes.length; i++) {
-                if (isInTable(bytes, wStart, wLength + 1)) {
-                    wLength++;
-                } else {
-                    final int code = codeFromString(bytes, wStart, wLength);
-                    writeDataCode(bos, code);
-                    addTableEntry(bos, bytes, wStart, wLength + 1);
-
-                    wStart = i;
-                    wLength = 1;
-                }
+    private void flushCache() {
+        ensureCapacity(bitsInBuffer + 7 >> 3);
+        while (bitsInBuffer >= 8) {
+            writeByte();
+        }
+        if (bitsInBuffer > 0) {
+            final int bitMask = (1 << bitsInBuffer) - 1;
+            int b = bitMask & (int) bitBuffer;
+
+            if (byteOrder == ByteOrder.BIG_ENDIAN) {
+                // MSB, so write from left
+                b <<= 8 - bitsInBuffer; // left align fragment.
             }
+            out[outLength++] = (byte) b;
+        }
 
-            final int code = codeFromString(bytes, wStart, wLength);
-            writeDataCode(bos, code);
-            writeEoiCode(bos);
-            bos.flushCache();
-            return baos.toByteArray();
+        bitsInBuffer = 0;
+        bitBuffer = 0;
+    }
+
+    private void ensureCapacity(final int count) {
+        if (outLength + count > out.length) {
+            out = Arrays.copyOf(out, Allocator.checkByteArray(Math.max(outLength + count, 2 * out.length)));
         }
     }
 
@@ -213,46 +194,84 @@ public class MyLzwCompressor {
     private void initializeStringTable() {
         codeSize = initialCodeSize;
 
-        final int initialEntriesCount = (1 << codeSize) + 2;
-
-        map.clear();
-        for (codes = 0; codes < initialEntriesCount; codes++) {
-            if (codes != clearCode && codes != eoiCode) {
-                final ByteArray key = arrayToKey((byte) codes);
+        // the single bytes below the clear code are their own codes, and are not kept in the hash table
+        codes = (1 << codeSize) + 2;
+        Arrays.fill(hashKeys, -1);
+    }
 
-                map.put(key, codes);
+    private int lookUp(final int key) {
+        int slot = slot(key);
+        int k;
+        while ((k = hashKeys[slot]) != -1) {
+            if (k == key) {
+                return hashCodes[slot];
             }
+            slot = slot + 1 & HASH_SIZE - 1;
+        }
+        return -1;
+    }
+
+    private int singleByteCode(final byte b) throws ImagingException {
+        final int code = 0xff & b;
+        if (code >= clearCode) {
+            // not in the initial table
+            throw new ImagingException("CodeFromString");
         }
+        return code;
     }
 
-    private boolean isInTable(final byte[] bytes, final int start, final int length) {
-        final ByteArray key = arrayToKey(bytes, start, length);
+    private static int slot(final int key) {
+        return key * 0x9E3779B1 >>> HASH_SHIFT;
+    }
 
-        return map.containsKey(key);
+    private void writeByte() {
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            // MSB, so write from left
+            out[outLength++] = (byte) (bitBuffer >>> bitsInBuffer - 8);
+        } else {
+            // LSB, so write from right
+            out[outLength++] = (byte) bitBuffer;
+            bitBuffer >>>= 8;
+        }
+        bitsInBuffer -= 8;
     }
 
-    private void writeClearCode(final MyBitOutputStream bos) throws IOException {
+    private void writeClearCode() {
         if (null != listener) {
             listener.dataCode(clearCode);
         }
-        writeCode(bos, clearCode);
+        writeCode(clearCode);
     }
 
-    private void writeCode(final MyBitOutputStream bos, final int code) throws IOException {
-        bos.writeBits(code, codeSize);
+    private void writeCode(final int code) {
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            // MSB, so add to right
+            bitBuffer = bitBuffer << codeSize | code;
+        } else {
+            // LSB, so add to left
+            bitBuffer |= (long) code << bitsInBuffer;
+        }
+        bitsInBuffer += codeSize;
+
+        if (bitsInBuffer >= 32) {
+            ensureCapacity(4);
+            for (int i = 0; i < 4; i++) {
+                writeByte();
+            }
+        }
     }
 
-    private void writeDataCode(final MyBitOutputStream bos, final int code) throws IOException {
+    private void writeDataCode(final int code) {
         if (null != listener) {
             listener.dataCode(code);
         }
-        writeCode(bos, code);
+        writeCode(code);
     }
 
-    private void writeEoiCode(final MyBitOutputStream bos) throws IOException {
+    private void writeEoiCode() {
         if (null != listener) {
             listener.eoiCode(eoiCode);
         }
-        writeCode(bos, eoiCode);
+        writeCode(eoiCode);
     }
 }
@@ -16,16 +16,23 @@
  */
 package org.apache.commons.imaging.mylzw;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
-
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Decompresses LZW data, as found in GIF and TIFF files.
+ * <p>
+ * Each entry of the string table is stored as the code of its prefix plus its last byte, so adding an entry allocates nothing, and strings are written
+ * straight into the output array by following their prefixes back to a single byte. Codes are taken from a 64-bit bit buffer that is refilled a byte at a time
+ * from the compressed array.
+ * </p>
+ */
 public final class MyLzwDecompressor {
 
     public interface Listener {
@@ -36,7 +43,15 @@ public final class MyLzwDecompressor {
     }
 
     private static final int MAX_TABLE_SIZE = 1 << 12;
-    private final byte[][] table;
+
+    /** The code of the string that an entry extends by one byte, or -1 for the single-byte entries. */
+    private final int[] prefix = new int[MAX_TABLE_SIZE];
+    /** The last byte of each entry. */
+    private final byte[] suffix = new byte[MAX_TABLE_SIZE];
+    /** The first byte of each entry. */
+    private final byte[] first = new byte[MAX_TABLE_SIZE];
+    /** The length of each entry. */
+    private final int[] length = new int[MAX_TABLE_SIZE];
     private int codeSize;
     private final int initialCodeSize;
     private int codes = -1;
@@ -44,9 +59,13 @@ public final class MyLzwDecompressor {
     private final Listener listener;
     private final int clearCode;
     private final int eoiCode;
-    private int written;
     private final boolean tiffLZWMode;
 
+    private byte[] input;
+    private int inputPosition;
+    private long bitBuffer;
+    private int bitsInBuffer;
+
     public MyLzwDecompressor(final int initialCodeSize, final ByteOrder byteOrder, final boolean tiffLZWMode) throws ImagingException {
         this(initialCodeSize, byteOrder, tiffLZWMode, null);
     }
@@ -57,7 +76,6 @@ public final class MyLzwDecompressor {
         this.tiffLZWMode = tiffLZWMode;
         this.initialCodeSize = initialCodeSize;
 
-        table = new byte[MAX_TABLE_SIZE][];
         clearCode = 1 << initialCodeSize;
         eoiCode = clearCode + 1;
 
@@ -68,9 +86,12 @@ public final class MyLzwDecompressor {
         initializeTable();
     }
 
-    private void addStringToTable(final byte[] bytes) {
+    private void addStringToTable(final int prefixCode, final byte b) {
         if (codes < 1 << codeSize) {
-            table[codes] = bytes;
+            prefix[codes] = prefixCode;
+            suffix[codes] = b;
+            first[codes] = first[prefixCode];
+            length[codes] = length[prefixCode] + 1;
             codes++;
         }
         // If the table already full, then we simply ignore these bytes
@@ -79,10 +100,10 @@ public final class MyLzwDecompressor {
         checkCodeSize();
     }
 
-    private byte[] appendBytes(final byte[] bytes, final byte b) {
-        final byte[] result = Arrays.copyOf(bytes, bytes.length + 1);
-        result[result.length - 1] = b;
-        return result;
+    private void checkCode(final int code) throws ImagingException {
+        if (code >= codes || code < 0) {
+            throw new ImagingException("Bad Code: " + code + " codes: " + codes + " code_size: " + codeSize + ", table: " + MAX_TABLE_SIZE);
+        }
     }
 
     private void checkCodeSize() {
@@ -102,53 +123,108 @@ public final class MyLzwDecompressor {
         incrementCodeSize();
     }
 
-    public byte[] decompress(final InputStream is, final int expectedLength) throws IOException {
+    /**
+     * Decompresses LZW data.
+     *
+     * @param compressed     the compressed data.
+     * @param expectedLength the length of the uncompressed data; decompression stops once it is reached.
+     * @return the uncompressed data, shorter than {@code expectedLength} only if the compressed data ended early.
+     * @throws ImagingException if the compressed data holds a code that is not in the table.
+     * @since 1.0-alpha6
+     */
+    public byte[] decompress(final byte[] compressed, final int expectedLength) throws ImagingException {
+        final byte[] out = Allocator.byteArray(expectedLength);
+        input = compressed;
+        inputPosition = 0;
+        bitBuffer = 0;
+        bitsInBuffer = 0;
+
+        int written = 0;
         int code;
         int oldCode = -1;
-        try (MyBitInputStream mbis = new MyBitInputStream(is, byteOrder, tiffLZWMode);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(Allocator.checkByteArray(expectedLength))) {
-
-            clearTable();
 
-            while ((code = getNextCode(mbis)) != eoiCode) {
-                if (code == clearCode) {
-                    clearTable();
+        clearTable();
 
-                    if (written >= expectedLength) {
-                        break;
-                    }
-                    code = getNextCode(mbis);
+        while ((code = getNextCode()) != eoiCode) {
+            if (code == clearCode) {
+                clearTable();
 
-                    if (code == eoiCode) {
-                        break;
-                    }
-                    writeToResult(baos, stringFromCode(code));
-                } else if (isInTable(code)) {
-                    writeToResult(baos, stringFromCode(code));
-
-                    addStringToTable(appendBytes(stringFromCode(oldCode), firstChar(stringFromCode(code))));
-                } else {
-                    final byte[] outString = appendBytes(stringFromCode(oldCode), firstChar(stringFromCode(oldCode)));
-                    writeToResult(baos, outString);
-                    addStringToTable(outString);
+                if (written >= expectedLength) {
+                    break;
                 }
-                oldCode = code;
+                code = getNextCode();
 
-                if (written >= expectedLength) {
+                if (code == eoiCode) {
                     break;
                 }
+                checkCode(code);
+                written = writeString(code, out, written);
+            } else if (code < codes) {
+                checkCode(code);
+                written = writeString(code, out, written);
+                // the first code of data that does not start with a clear code has no predecessor to extend
+                if (oldCode >= 0) {
+                    checkCode(oldCode);
+                    addStringToTable(oldCode, first[code]);
+                }
+            } else {
+                // a code not yet in the table stands for the previous string followed by its own first byte
+                checkCode(oldCode);
+                final int newCode = codes;
+                addStringToTable(oldCode, first[oldCode]);
+                written = writeString(newCode, out, written);
             }
+            oldCode = code;
 
-            return baos.toByteArray();
+            if (written >= expectedLength) {
+                break;
+            }
         }
+        input = null;
+
+        return written < expectedLength ? Arrays.copyOf(out, written) : out;
     }
 
-    private byte firstChar(final byte[] bytes) {
-        return bytes[0];
+    /**
+     * Decompresses LZW data.
+     *
+     * @param is             the compressed data, which is read to its end.
+     * @param expectedLength the length of the uncompressed data; decompression stops once it is reached.
+     * @return the uncompressed data, shorter than {@code expectedLength} only if the compressed data ended early.
+     * @throws IOException if the stream cannot be read or holds a code that is not in the table.
+     */
+    public byte[] decompress(final InputStream is, final int expectedLength) throws IOException {
+        return decompress(IOUtils.toByteArray(is), expectedLength);
     }
 
-    private int getNextCode(final MyBitInputStream is) throws IOException {
-        final int code = is.readBits(codeSize);
+    private int getNextCode() {
+        if (bitsInBuffer < codeSize) {
+            // top up to at least 57 bits, or to whatever remains of the input
+            while (bitsInBuffer <= 56 && inputPosition < input.length) {
+                final long next = input[inputPosition++] & 0xff;
+                if (byteOrder == ByteOrder.BIG_ENDIAN) {
+                    bitBuffer = bitBuffer << 8 | next;
+                } else {
+                    bitBuffer |= next << bitsInBuffer;
+                }
+                bitsInBuffer += 8;
+            }
+        }
+
+        final int code;
+        if (bitsInBuffer < codeSize) {
+            // pernicious special case: TIFF data may end without an EOI code
+            code = tiffLZWMode ? eoiCode : -1;
+        } else {
+            bitsInBuffer -= codeSize;
+            final int mask = (1 << codeSize) - 1;
+            if (byteOrder == ByteOrder.BIG_ENDIAN) {
+                code = (int) (bitBuffer >>> bitsInBuffer) & mask;
+            } else {
+                code = (int) bitBuffer & mask;
+                bitBuffer >>>= codeSize;
+            }
+        }
 
         if (null != listener) {
             listener.code(code);
@@ -167,28 +243,34 @@ public final class MyLzwDecompressor {
 
         final int initialEntriesCount = 1 << codeSize + 2;
 
-        if (initialEntriesCount > table.length) {
-            throw new ImagingException(String.format("Invalid Lzw table length [%d]; entries count is [%d]", table.length, initialEntriesCount));
+        if (initialEntriesCount > MAX_TABLE_SIZE) {
+            throw new ImagingException(String.format("Invalid Lzw table length [%d]; entries count is [%d]", MAX_TABLE_SIZE, initialEntriesCount));
         }
 
         for (int i = 0; i < initialEntriesCount; i++) {
-            table[i] = new byte[] { (byte) i, };
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
         }
     }
 
-    private boolean isInTable(final int code) {
-        return code < codes;
-    }
-
-    private byte[] stringFromCode(final int code) throws ImagingException {
-        if (code >= codes || code < 0) {
-            throw new ImagingException("Bad Code: " + code + " codes: " + codes + " code_size: " + codeSize + ", table: " + table.length);
+    /**
+     * Writes the string of a code from its last byte back to its first, leaving out the bytes that do not fit.
+     *
+     * @return the position after the whole string, which may lie beyond the end of the output.
+     */
+    private int writeString(int code, final byte[] out, final int position) {
+        final int end = position + length[code];
+        int i = end - 1;
+        while (i >= out.length) {
+            code = prefix[code];
+            i--;
         }
-        return table[code];
-    }
-
-    private void writeToResult(final OutputStream os, final byte[] bytes) throws IOException {
-        os.write(bytes);
-        written += bytes.length;
+        while (i >= position) {
+            out[i--] = suffix[code];
+            code = prefix[code];
+        }
+        return end;
     }
 }
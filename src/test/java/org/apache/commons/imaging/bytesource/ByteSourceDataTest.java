@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -72,6 +73,21 @@ public class ByteSourceDataTest extends AbstractByteSourceTest {
 
     }
 
+    private final class ByteSourceMappedFactory implements ByteSourceFactory {
+
+        private final int segmentShift;
+
+        ByteSourceMappedFactory(final int segmentShift) {
+            this.segmentShift = segmentShift;
+        }
+
+        @Override
+        public ByteSource getByteSource(final byte[] src) throws IOException {
+            final Path file = createTempFile(src).toPath();
+            return new MappedByteSource(file, segmentShift);
+        }
+    }
+
     private final class ByteSourcePathFactory implements ByteSourceFactory {
 
         @Override
@@ -105,6 +121,14 @@ public class ByteSourceDataTest extends AbstractByteSourceTest {
         writeAndReadBytes(new ByteSourceInputStreamRawFactory(), testByteArray);
     }
 
+    @ParameterizedTest
+    @MethodSource("data")
+    public void testByteSourceMappedFactory(final byte[] testByteArray) throws Exception {
+        writeAndReadBytes(new ByteSourceMappedFactory(MappedByteSource.DEFAULT_SEGMENT_SHIFT), testByteArray);
+        // segments much smaller than the data, so that reads cross segment boundaries
+        writeAndReadBytes(new ByteSourceMappedFactory(3), testByteArray);
+    }
+
     @ParameterizedTest
     @MethodSource("data")
     public void testByteSourcePathFactory(final byte[] testByteArray) throws Exception {
@@ -142,6 +166,14 @@ public class ByteSourceDataTest extends AbstractByteSourceTest {
                     assertEquals(dst[i], src[i + start]);
                 }
             }
+            // test random access
+            final int length = src.length - start - 1;
+            assertArrayEquals(Arrays.copyOfRange(src, start, start + length), byteSource.getByteArray(start, length));
+            final ByteBuffer buffer = byteSource.getByteBuffer(start, length);
+            assertEquals(length, buffer.remaining());
+            for (int i = 0; i < length; i++) {
+                assertEquals(src[start + i], buffer.get(i));
+            }
         }
 
     }
@@ -101,8 +101,11 @@ public class ByteSourceImageTest extends AbstractByteSourceTest {
 
         final ImageInfo imageInfoBytes = abstractImageParser.getImageInfo(imageFileBytes, params);
 
+        final ImageInfo imageInfoMapped = abstractImageParser.getImageInfo(ByteSource.mapped(imageFile.toPath()), params);
+
         assertNotNull(imageInfoFile);
         assertNotNull(imageInfoBytes);
+        assertNotNull(imageInfoMapped);
 
         final Method[] methods = ImageInfo.class.getMethods();
         for (final Method method2 : methods) {
@@ -120,8 +123,10 @@ public class ByteSourceImageTest extends AbstractByteSourceTest {
 
             final Object valueFile = method2.invoke(imageInfoFile, (Object[]) null);
             final Object valueBytes = method2.invoke(imageInfoBytes, (Object[]) null);
+            final Object valueMapped = method2.invoke(imageInfoMapped, (Object[]) null);
 
             assertEquals(valueFile, valueBytes);
+            assertEquals(valueFile, valueMapped);
         }
 
         // only have to test values from imageInfoFile; we already know values
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+public class BinaryOutputStreamTest {
+
+    /**
+     * A subclass written before {@link BinaryOutputStream#write8Bytes(long)} existed.
+     */
+    private static final class FourByteStream extends BinaryOutputStream {
+
+        private final ByteOrder byteOrder;
+
+        FourByteStream(final OutputStream os, final ByteOrder byteOrder) {
+            super(os, byteOrder);
+            this.byteOrder = byteOrder;
+        }
+
+        @Override
+        public void write2Bytes(final int value) throws IOException {
+            write(ByteConversions.toBytes((short) value, byteOrder));
+        }
+
+        @Override
+        public void write3Bytes(final int value) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write4Bytes(final int value) throws IOException {
+            write(ByteConversions.toBytes(value, byteOrder));
+        }
+    }
+
+    private static final long VALUE = 0x0102030405060708L;
+
+    private static byte[] expected(final ByteOrder byteOrder) {
+        return ByteBuffer.allocate(8).order(byteOrder).putLong(VALUE).array();
+    }
+
+    @Test
+    public void testWrite8Bytes() throws IOException {
+        for (final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final ByteArrayOutputStream library = new ByteArrayOutputStream();
+            BinaryOutputStream.create(library, byteOrder).write8Bytes(VALUE);
+            assertArrayEquals(expected(byteOrder), library.toByteArray());
+
+            final ByteArrayOutputStream subclass = new ByteArrayOutputStream();
+            new FourByteStream(subclass, byteOrder).write8Bytes(VALUE);
+            assertArrayEquals(expected(byteOrder), subclass.toByteArray());
+        }
+    }
+}
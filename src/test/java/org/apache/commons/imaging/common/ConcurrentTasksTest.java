@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentTasksTest {
+
+    private static void assertAllRun(final AtomicIntegerArray runs) {
+        for (int i = 0; i < runs.length(); i++) {
+            assertEquals(1, runs.get(i), "task " + i);
+        }
+    }
+
+    @Test
+    public void testCallingThreadOfTheExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(100);
+            // the only thread of the executor waits for the tasks, so it must run them itself
+            executor.submit(() -> {
+                ConcurrentTasks.forEach(executor, runs.length(), runs::incrementAndGet, "test");
+                final ConcurrentTasks tasks = new ConcurrentTasks(executor, 2, "test");
+                for (int i = 0; i < runs.length(); i++) {
+                    final int index = i;
+                    tasks.submit(() -> runs.incrementAndGet(index));
+                }
+                tasks.finish();
+                return null;
+            }).get(1, TimeUnit.MINUTES);
+            for (int i = 0; i < runs.length(); i++) {
+                assertEquals(2, runs.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecutorThatNeverRuns() throws IOException {
+        final AtomicIntegerArray runs = new AtomicIntegerArray(50);
+        final AtomicInteger waiting = new AtomicInteger();
+        final ConcurrentTasks tasks = new ConcurrentTasks(command -> { }, 3, "test");
+        for (int i = 0; i < runs.length(); i++) {
+            final int index = i;
+            tasks.submit(() -> {
+                runs.incrementAndGet(index);
+                waiting.decrementAndGet();
+            });
+            // at most three tasks wait while the calling thread is busy
+            assertTrue(waiting.incrementAndGet() <= 3);
+        }
+        tasks.finish();
+        assertAllRun(runs);
+
+        final AtomicIntegerArray rejected = new AtomicIntegerArray(10);
+        ConcurrentTasks.forEach(command -> {
+            throw new RejectedExecutionException();
+        }, rejected.length(), rejected::incrementAndGet, "test");
+        assertAllRun(rejected);
+    }
+
+    @Test
+    public void testFailure() {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final IOException e = assertThrows(IOException.class, () -> ConcurrentTasks.forEach(executor, 1000, index -> {
+                if (index == 500) {
+                    throw new IOException("task " + index);
+                }
+            }, "test"));
+            assertEquals("task 500", e.getMessage());
+            // runtime exceptions are rethrown unchanged with or without an executor
+            for (final ExecutorService service : new ExecutorService[] { null, executor }) {
+                assertThrows(IllegalStateException.class, () -> ConcurrentTasks.forEach(service, 10, index -> {
+                    throw new IllegalStateException();
+                }, "test"));
+            }
+            assertThrows(IllegalArgumentException.class, () -> new ConcurrentTasks(executor, 0, "test"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
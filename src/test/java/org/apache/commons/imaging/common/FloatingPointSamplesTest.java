@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class FloatingPointSamplesTest {
+
+    @Test
+    public void testHalfRoundTrip() {
+        for (int half = 0; half < 0x10000; half++) {
+            final float f = FloatingPointSamples.halfToFloat(half);
+            if (Float.isNaN(f)) {
+                assertTrue(Float.isNaN(FloatingPointSamples.halfToFloat(FloatingPointSamples.floatToHalf(f))));
+            } else {
+                assertEquals(half, FloatingPointSamples.floatToHalf(f), Integer.toHexString(half));
+            }
+        }
+    }
+
+    @Test
+    public void testHalfRounding() {
+        assertEquals(1f, FloatingPointSamples.halfToFloat(0x3c00));
+        assertEquals(65504f, FloatingPointSamples.halfToFloat(0x7bff));
+        assertEquals(0x1p-24f, FloatingPointSamples.halfToFloat(1));
+        // ties go to the even neighbour
+        assertEquals(0x3c00, FloatingPointSamples.floatToHalf(1 + 0x1p-11f));
+        assertEquals(0x3c02, FloatingPointSamples.floatToHalf(1 + 3 * 0x1p-11f));
+        assertEquals(0x0000, FloatingPointSamples.floatToHalf(0x1p-25f));
+        assertEquals(0x0001, FloatingPointSamples.floatToHalf(1.5f * 0x1p-25f));
+        assertEquals(0x8000, FloatingPointSamples.floatToHalf(-1e-30f));
+        // values that round beyond the largest half become infinite
+        assertEquals(0x7bff, FloatingPointSamples.floatToHalf(65519f));
+        assertEquals(0x7c00, FloatingPointSamples.floatToHalf(65520f));
+        assertEquals(0xfc00, FloatingPointSamples.floatToHalf(Float.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    public void testPredictor() {
+        final Random random = new Random(3);
+        final double[] values = new double[37];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + random.nextGaussian();
+        }
+        for (final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final byte[] samples = new byte[10 + values.length * 8];
+            final ByteBuffer buffer = ByteBuffer.wrap(samples, 10, values.length * 8).order(byteOrder);
+            for (final double value : values) {
+                buffer.putDouble(value);
+            }
+            final byte[] encoded = samples.clone();
+            FloatingPointSamples.encodePredictor(encoded, 10, values.length, 8, byteOrder, new byte[values.length * 8]);
+            // the most significant bytes come first, and all of them are equal
+            assertEquals(samples[byteOrder == ByteOrder.BIG_ENDIAN ? 10 : 17], encoded[10]);
+            assertEquals(0, encoded[11]);
+
+            final byte[] decoded = new byte[values.length * 8];
+            FloatingPointSamples.decodePredictor(encoded, 10, values.length, 8, byteOrder, decoded);
+            assertArrayEquals(Arrays.copyOfRange(samples, 10, samples.length), decoded);
+        }
+    }
+}
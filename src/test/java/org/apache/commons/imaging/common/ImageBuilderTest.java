@@ -18,6 +18,7 @@ package org.apache.commons.imaging.common;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -114,6 +115,21 @@ public class ImageBuilderTest {
     /**
      * Test whether sub-image is consistent with source
      */
+    @Test
+    public void testSetRgbRow() {
+        final ImageBuilder imageBuilder = new ImageBuilder(10, 5, true);
+        final int[] argb = { 1, 2, 3, 4, 5, 6 };
+        imageBuilder.setRgbRow(7, 2, argb, 3, 3);
+        assertEquals(0, imageBuilder.getRgb(6, 2));
+        assertEquals(4, imageBuilder.getRgb(7, 2));
+        assertEquals(5, imageBuilder.getRgb(8, 2));
+        assertEquals(6, imageBuilder.getRgb(9, 2));
+        assertEquals(0, imageBuilder.getRgb(0, 3));
+        assertThrows(IllegalArgumentException.class, () -> imageBuilder.setRgbRow(8, 2, argb, 3, 3));
+        assertThrows(IllegalArgumentException.class, () -> imageBuilder.setRgbRow(0, 5, argb, 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> imageBuilder.setRgbRow(0, 0, argb, 4, 3));
+    }
+
     @Test
     public void testSubimageAccess() {
         final ImageBuilder imageBuilder = new ImageBuilder(100, 100, false);
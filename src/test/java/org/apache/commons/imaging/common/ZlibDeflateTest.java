@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+public class ZlibDeflateTest {
+
+    private static byte[] sample(final int length) {
+        final Random random = new Random(length);
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i / 100 + random.nextInt(4));
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testCallerBuffer() throws ImagingException {
+        final byte[] data = sample(10_000);
+        final byte[] compressed = ZlibDeflate.compress(data);
+        final byte[] buffer = new byte[20_000];
+        Arrays.fill(buffer, (byte) -1);
+        assertEquals(data.length, ZlibDeflate.decompress(compressed, buffer, 100, 15_000));
+        assertArrayEquals(data, Arrays.copyOfRange(buffer, 100, 100 + data.length));
+        assertEquals(-1, buffer[99]);
+        assertEquals(-1, buffer[100 + data.length]);
+        // a buffer shorter than the data takes what fits
+        assertEquals(500, ZlibDeflate.decompress(compressed, buffer, 0, 500));
+        assertArrayEquals(Arrays.copyOf(data, 500), Arrays.copyOf(buffer, 500));
+    }
+
+    @Test
+    public void testCompatibleWithStreams() throws IOException {
+        final byte[] data = sample(100_000);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(baos)) {
+            dos.write(data);
+        }
+        assertArrayEquals(baos.toByteArray(), ZlibDeflate.compress(data));
+        assertArrayEquals(data, ZlibDeflate.decompress(baos.toByteArray()));
+        assertArrayEquals(data, ZlibDeflate.decompress(baos.toByteArray(), data.length));
+        try (InflaterInputStream iis = ZlibDeflate.newInflaterInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertArrayEquals(data, IOUtils.toByteArray(iis));
+        }
+    }
+
+    @Test
+    public void testDeflaterLevel() {
+        final byte[] data = sample(50_000);
+        final Deflater fresh = new Deflater(Deflater.BEST_COMPRESSION);
+        final byte[] expected = new byte[100_000];
+        fresh.setInput(data);
+        fresh.finish();
+        final int expectedLength = fresh.deflate(expected);
+        fresh.end();
+
+        // a pooled deflater that was used at another level
+        ZlibDeflate.releaseDeflater(ZlibDeflate.acquireDeflater(Deflater.BEST_SPEED));
+        final Deflater deflater = ZlibDeflate.acquireDeflater(Deflater.BEST_COMPRESSION);
+        final byte[] actual = new byte[100_000];
+        deflater.setInput(data);
+        deflater.finish();
+        final int actualLength = deflater.deflate(actual);
+        ZlibDeflate.releaseDeflater(deflater);
+        assertArrayEquals(Arrays.copyOf(expected, expectedLength), Arrays.copyOf(actual, actualLength));
+    }
+
+    @Test
+    public void testIncompleteStream() throws ImagingException {
+        final byte[] compressed = ZlibDeflate.compress(sample(10_000));
+        assertThrows(ImagingException.class, () -> ZlibDeflate.decompress(Arrays.copyOf(compressed, compressed.length / 2)));
+        assertThrows(ImagingException.class, () -> ZlibDeflate.decompress(new byte[] { 1, 2, 3, 4 }, 10));
+    }
+
+    @Test
+    public void testPool() {
+        final Inflater first = ZlibDeflate.acquireInflater();
+        final Inflater second = ZlibDeflate.acquireInflater();
+        assertNotSame(first, second);
+        ZlibDeflate.releaseInflater(first);
+        // the thread already keeps one, so this one is ended
+        ZlibDeflate.releaseInflater(second);
+        assertThrows(RuntimeException.class, () -> second.inflate(new byte[1]));
+
+        final Inflater again = ZlibDeflate.acquireInflater();
+        assertSame(first, again);
+        assertEquals(0, again.getTotalIn());
+        ZlibDeflate.releaseInflater(again);
+    }
+}
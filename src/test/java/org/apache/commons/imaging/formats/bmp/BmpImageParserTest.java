@@ -18,12 +18,19 @@ package org.apache.commons.imaging.formats.bmp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.ByteConversions;
 import org.apache.commons.imaging.test.TestResources;
 import org.junit.jupiter.api.Test;
 
@@ -58,4 +65,18 @@ public class BmpImageParserTest {
         final ImageInfo imageInfo = parser.getImageInfo(bmp, new BmpImagingParameters());
         assertEquals(73, imageInfo.getPhysicalWidthDpi(), "Expected 72.6 resolution to be rounded to 73");
     }
+
+    @Test
+    public void testTruncatedBeforeImageData() throws ImagingException, IOException {
+        final BmpImageParser parser = new BmpImageParser();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        parser.writeImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), baos, new BmpImagingParameters());
+        final byte[] bmp = baos.toByteArray();
+        // move the image data 64 bytes further, and cut the file before it
+        final int bitmapDataOffset = ByteConversions.toInt(bmp, 10, ByteOrder.LITTLE_ENDIAN);
+        System.arraycopy(ByteConversions.toBytes(bitmapDataOffset + 64, ByteOrder.LITTLE_ENDIAN), 0, bmp, 10, 4);
+        final byte[] truncated = Arrays.copyOf(bmp, bitmapDataOffset + 32);
+        final IOException e = assertThrows(IOException.class, () -> parser.getBufferedImage(ByteSource.array(truncated), new BmpImagingParameters()));
+        assertTrue(e.getMessage().contains("BitmapDataOffset"), e.getMessage());
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.imaging.ImageInfo;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for reading and writing animated PNG images.
+ */
+public class ApngTest {
+
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+    private static final int HALF_BLUE = 0x800000ff;
+
+    private static BufferedImage filled(final int width, final int height, final int argb) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    private byte[] writeAnimation() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ApngFrameWriter frameWriter = new PngWriter().openFrameWriter(baos, 8, 8, 4, 0, PngColorType.TRUE_COLOR_WITH_ALPHA, null)) {
+            // red background
+            frameWriter.writeFrame(filled(8, 8, RED), 1, 10);
+            // green square, reverted after display
+            frameWriter.writeFrame(filled(4, 4, GREEN), 2, 2, 1, 10, ApngDisposeOp.PREVIOUS, ApngBlendOp.SOURCE);
+            // semi-transparent blue square blended over red, then cleared
+            frameWriter.writeFrame(filled(2, 2, HALF_BLUE), 0, 0, 1, 0, ApngDisposeOp.BACKGROUND, ApngBlendOp.OVER);
+            // opaque blue pixel
+            frameWriter.writeFrame(filled(1, 1, BLUE), 7, 7, 3, 2, ApngDisposeOp.NONE, ApngBlendOp.SOURCE);
+            assertEquals(4, frameWriter.getFramesWritten());
+        }
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testDefaultImageIsFirstFrame() throws IOException {
+        final byte[] bytes = writeAnimation();
+        final BufferedImage image = Imaging.getBufferedImage(bytes);
+        assertEquals(8, image.getWidth());
+        assertEquals(RED, image.getRGB(3, 3));
+
+        final ImageInfo imageInfo = Imaging.getImageInfo(bytes);
+        assertEquals(4, imageInfo.getNumberOfImages());
+    }
+
+    @Test
+    public void testFirstFrameMustCoverCanvas() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ApngFrameWriter frameWriter = new PngWriter().openFrameWriter(baos, 8, 8, 1, 0, PngColorType.TRUE_COLOR, null)) {
+            assertThrows(ImagingException.class, () -> frameWriter.writeFrame(filled(4, 4, RED), 0, 0));
+            frameWriter.writeFrame(filled(8, 8, RED), 0, 0);
+        }
+    }
+
+    @Test
+    public void testFrameReader() throws IOException {
+        final byte[] bytes = writeAnimation();
+        try (ApngFrameReader frameReader = new PngImageParser().getFrameReader(ByteSource.array(bytes), null)) {
+            assertTrue(frameReader.isAnimated());
+            assertEquals(4, frameReader.getFrameCount());
+            assertEquals(0, frameReader.getPlayCount());
+
+            final ApngFrame first = frameReader.readFrame();
+            assertEquals(100, first.getDelayMillis());
+            assertEquals(RED, first.getImage().getRGB(0, 0));
+
+            final ApngFrame second = frameReader.readFrame();
+            assertEquals(ApngDisposeOp.PREVIOUS, second.getDisposeOp());
+            assertEquals(2, second.getXOffset());
+            assertEquals(4, second.getWidth());
+            assertEquals(GREEN, second.getImage().getRGB(3, 3));
+            assertEquals(RED, second.getImage().getRGB(1, 1));
+
+            final ApngFrame third = frameReader.readFrame();
+            assertEquals(10, third.getDelayMillis());
+            final int blended = third.getImage().getRGB(0, 0);
+            assertEquals(0xff, blended >>> 24);
+            assertEquals(0x7f, 0xff & blended >> 16, 1);
+            assertEquals(0x80, 0xff & blended, 1);
+            // the green square was reverted
+            assertEquals(RED, third.getImage().getRGB(3, 3));
+
+            final ApngFrame fourth = frameReader.readFrame();
+            assertEquals(1500, fourth.getDelayMillis());
+            // the blended square was cleared
+            assertEquals(0, fourth.getImage().getRGB(0, 0));
+            assertEquals(BLUE, fourth.getImage().getRGB(7, 7));
+            assertEquals(RED, fourth.getImage().getRGB(5, 5));
+
+            assertNull(frameReader.readFrame());
+        }
+    }
+
+    @Test
+    public void testGetAllBufferedImages() throws IOException {
+        final List<BufferedImage> images = Imaging.getAllBufferedImages(writeAnimation());
+        assertEquals(4, images.size());
+        for (final BufferedImage image : images) {
+            assertEquals(8, image.getWidth());
+            assertEquals(8, image.getHeight());
+        }
+        assertEquals(BLUE, images.get(3).getRGB(7, 7));
+    }
+
+    @Test
+    public void testNonAnimatedImage() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new PngWriter().writeImage(filled(3, 2, GREEN), baos, null, null);
+        final byte[] bytes = baos.toByteArray();
+
+        try (ApngFrameReader frameReader = new PngImageParser().getFrameReader(ByteSource.array(bytes), null)) {
+            assertFalse(frameReader.isAnimated());
+            final ApngFrame frame = frameReader.readFrame();
+            assertEquals(GREEN, frame.getImage().getRGB(2, 1));
+            assertNull(frameReader.readFrame());
+        }
+        assertEquals(1, Imaging.getAllBufferedImages(bytes).size());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.imaging.formats.png;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for class {@link PngChunkIndex}.
+ */
+public class PngChunkIndexTest {
+
+    private static BufferedImage randomImage(final int width, final int height) {
+        final Random random = new Random(width);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static byte[] writePng(final BufferedImage image) throws IOException {
+        final PngImagingParameters params = new PngImagingParameters();
+        params.setTextChunks(Collections.singletonList(new AbstractPngText.Text("key", "value")));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new PngImageParser().writeImage(image, baos, params);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        final BufferedImage image = randomImage(512, 512);
+        final byte[] png = writePng(image);
+        final ByteSource byteSource = ByteSource.array(png);
+        final PngImageParser parser = new PngImageParser();
+
+        final PngChunkIndex index = parser.getChunkIndex(byteSource);
+        // the index is not cached, so a later parse sees changes to the content
+        assertNotSame(index, parser.getChunkIndex(byteSource));
+
+        final List<PngChunkIndex.Entry> entries = index.getEntries();
+        assertEquals(ChunkType.IHDR.value, entries.get(0).getChunkType());
+        assertEquals(ChunkType.IEND.value, entries.get(entries.size() - 1).getChunkType());
+        long offset = PngConstants.PNG_SIGNATURE.size();
+        int idatCount = 0;
+        for (final PngChunkIndex.Entry entry : entries) {
+            assertEquals(offset, entry.getOffset());
+            assertEquals(offset + 8, entry.getDataOffset());
+            offset += 12 + entry.getLength();
+            if (entry.getChunkType() == ChunkType.IDAT.value) {
+                idatCount++;
+            }
+        }
+        assertEquals(png.length, offset);
+        assertTrue(idatCount > 1);
+
+        assertTrue(parser.hasChunkType(byteSource, ChunkType.tEXt));
+        assertFalse(parser.hasChunkType(byteSource, ChunkType.iCCP));
+        assertEquals(new Dimension(512, 512), parser.getImageSize(byteSource, null));
+        assertEquals("value", ((PngImageInfo) parser.getImageInfo(byteSource, null)).getTextChunks().get(0).text);
+
+        // a kept index serves every metadata accessor
+        assertEquals("value", ((PngImageInfo) parser.getImageInfo(byteSource, index, null)).getTextChunks().get(0).text);
+        assertEquals(1, parser.getMetadata(byteSource, index, null).getItems().size());
+        assertNull(parser.getXmpXml(byteSource, index, null));
+        assertNull(parser.getIccProfileBytes(byteSource, index, null));
+
+        final BufferedImage read = parser.getBufferedImage(byteSource, null);
+        for (int y = 0; y < image.getHeight(); y++) {
+            assertArrayEquals(image.getRGB(0, y, image.getWidth(), 1, null, 0, image.getWidth()), read.getRGB(0, y, read.getWidth(), 1, null, 0, read.getWidth()));
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        final byte[] png = writePng(randomImage(64, 64));
+        final ByteSource byteSource = ByteSource.array(Arrays.copyOf(png, png.length - 20));
+        final PngImageParser parser = new PngImageParser();
+
+        // the header is intact, the end of the file is not
+        assertEquals(new Dimension(64, 64), parser.getImageSize(byteSource, null));
+        assertThrows(ImagingException.class, () -> parser.getBufferedImage(byteSource, null));
+        assertThrows(ImagingException.class, () -> parser.getChunkIndex(byteSource).getEntries());
+    }
+
+    @Test
+    public void testCrcVerifiedInStrictMode() throws IOException {
+        final byte[] png = writePng(randomImage(16, 16));
+        final PngChunkIndex.Entry text = findEntry(new PngImageParser().getChunkIndex(ByteSource.array(png)), ChunkType.tEXt);
+        png[(int) text.getDataOffset()] ^= 1;
+        final ByteSource byteSource = ByteSource.array(png);
+        final PngImageParser parser = new PngImageParser();
+
+        parser.getImageInfo(byteSource, null);
+        parser.getBufferedImage(byteSource, new PngImagingParameters().setStrict(true));
+        assertThrows(ImagingException.class, () -> parser.getImageInfo(byteSource, new PngImagingParameters().setStrict(true)));
+    }
+
+    private static PngChunkIndex.Entry findEntry(final PngChunkIndex index, final ChunkType chunkType) throws IOException {
+        for (final PngChunkIndex.Entry entry : index.getEntries()) {
+            if (entry.getChunkType() == chunkType.value) {
+                return entry;
+            }
+        }
+        throw new AssertionError(chunkType);
+    }
+}
@@ -18,6 +18,10 @@ package org.apache.commons.imaging.formats.png;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -30,14 +34,26 @@ import org.junit.jupiter.api.Test;
 public class PngCrcTest {
 
     @Test
-    public void testCrc() {
-
-        final PngCrc pngCrc = new PngCrc();
-        final byte[] byteArray = new byte[4];
-
-        assertEquals(558161692, pngCrc.crc(byteArray, (byte) 32));
-        assertEquals(3736805603L, pngCrc.startPartialCrc(byteArray, 0));
+    public void testChunkCrc() {
+        final byte[] data = "Title\0PNG".getBytes(StandardCharsets.US_ASCII);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(ChunkType.tEXt.array);
+        crc32.update(data);
+        assertEquals((int) crc32.getValue(), PngCrc.chunkCrc(ChunkType.tEXt.value, data, 0, data.length));
+        assertEquals(0xae426082, PngCrc.chunkCrc(ChunkType.IEND.value, null, 0, 0));
+    }
 
+    @Test
+    public void testMatchesCrc32() {
+        final Random random = new Random(0);
+        for (int length = 0; length < 100; length++) {
+            final byte[] bytes = new byte[length + 7];
+            random.nextBytes(bytes);
+            final CRC32 crc32 = new CRC32();
+            crc32.update(ChunkType.IDAT.array);
+            crc32.update(bytes, 3, length);
+            assertEquals((int) crc32.getValue(), PngCrc.chunkCrc(ChunkType.IDAT.value, bytes, 3, length));
+        }
     }
 
 }
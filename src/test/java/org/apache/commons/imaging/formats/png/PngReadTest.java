@@ -17,6 +17,7 @@
 
 package org.apache.commons.imaging.formats.png;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -27,6 +28,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.Imaging;
@@ -72,6 +76,60 @@ public class PngReadTest extends AbstractPngTest {
         }
     }
 
+    /**
+     * Test that decoding with an executor gives the same pixels as decoding in the calling thread.
+     *
+     * @throws Exception if it fails to read a test image
+     */
+    @Test
+    public void testReadWithExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final PngImageParser parser = new PngImageParser();
+            for (final File imageFile : getPngImages()) {
+                if (isInvalidPngTestFile(imageFile)) {
+                    continue;
+                }
+                final BufferedImage expected = parser.getBufferedImage(ByteSource.file(imageFile), new PngImagingParameters());
+                final BufferedImage actual = parser.getBufferedImage(ByteSource.file(imageFile), new PngImagingParameters().setExecutor(executor));
+                final int width = expected.getWidth();
+                final int height = expected.getHeight();
+                assertArrayEquals(expected.getRGB(0, 0, width, height, null, 0, width), actual.getRGB(0, 0, width, height, null, 0, width),
+                        imageFile.toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Decodes from the only thread of the executor, which therefore never runs the conversion of the scanlines; the calling thread must do it.
+     *
+     * @throws Exception if it fails to read a test image
+     */
+    @Test
+    public void testReadWithinExecutorThread() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final PngImageParser parser = new PngImageParser();
+            for (final File imageFile : getPngImages()) {
+                if (isInvalidPngTestFile(imageFile)) {
+                    continue;
+                }
+                final BufferedImage expected = parser.getBufferedImage(ByteSource.file(imageFile), new PngImagingParameters());
+                final BufferedImage actual = executor
+                        .submit(() -> parser.getBufferedImage(ByteSource.file(imageFile), new PngImagingParameters().setExecutor(executor)))
+                        .get(1, TimeUnit.MINUTES);
+                final int width = expected.getWidth();
+                final int height = expected.getHeight();
+                assertArrayEquals(expected.getRGB(0, 0, width, height, null, 0, width), actual.getRGB(0, 0, width, height, null, 0, width),
+                        imageFile.toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Test reading metadata from PNG file with UTF-8 characters in the text chunks.
      *
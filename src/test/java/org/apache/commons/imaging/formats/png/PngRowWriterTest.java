@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.imaging.formats.png;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for class {@link PngRowWriter}.
+ */
+public class PngRowWriterTest {
+
+    private static int[] randomRow(final Random random, final int width, final boolean alpha) {
+        final int[] row = new int[width];
+        for (int x = 0; x < width; x++) {
+            row[x] = alpha ? random.nextInt() : 0xff000000 | random.nextInt();
+        }
+        return row;
+    }
+
+    private byte[] writeRows(final int[][] rows, final PngColorType pngColorType, final PngImagingParameters params) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (PngRowWriter rowWriter = new PngWriter().openRowWriter(baos, rows[0].length, rows.length, pngColorType, params)) {
+            for (final int[] row : rows) {
+                rowWriter.writeRow(row);
+            }
+            assertEquals(rows.length, rowWriter.getRowsWritten());
+        }
+        return baos.toByteArray();
+    }
+
+    private void checkRoundTrip(final PngColorType pngColorType, final boolean predictor) throws IOException {
+        final Random random = new Random(pngColorType.ordinal());
+        final int[][] rows = new int[300][];
+        for (int y = 0; y < rows.length; y++) {
+            rows[y] = randomRow(random, 400, pngColorType.hasAlpha());
+        }
+        final byte[] png = writeRows(rows, pngColorType, new PngImagingParameters().setPredictorEnabled(predictor));
+
+        final BufferedImage image = new PngImageParser().getBufferedImage(ByteSource.array(png), null);
+        assertEquals(400, image.getWidth());
+        assertEquals(300, image.getHeight());
+        for (int y = 0; y < rows.length; y++) {
+            final int[] actual = image.getRGB(0, y, 400, 1, null, 0, 400);
+            if (pngColorType.isGreyscale()) {
+                for (int x = 0; x < actual.length; x++) {
+                    assertEquals(0xff & actual[x], 0xff & actual[x] >> 8);
+                }
+            } else {
+                assertArrayEquals(rows[y], actual);
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedColorRejected() {
+        assertThrows(ImagingException.class, () -> new PngWriter().openRowWriter(new ByteArrayOutputStream(), 1, 1, PngColorType.INDEXED_COLOR, null));
+    }
+
+    @Test
+    public void testLargeImageIsSplitIntoIdatChunks() throws IOException {
+        final Random random = new Random(0);
+        final int[][] rows = new int[512][];
+        for (int y = 0; y < rows.length; y++) {
+            rows[y] = randomRow(random, 512, true);
+        }
+        final byte[] png = writeRows(rows, PngColorType.TRUE_COLOR_WITH_ALPHA, null);
+
+        int idatCount = 0;
+        for (int offset = PngConstants.PNG_SIGNATURE.size(); offset < png.length;) {
+            final int length = ByteBuffer.wrap(png, offset, 4).getInt();
+            if (ByteBuffer.wrap(png, offset + 4, 4).getInt() == ChunkType.IDAT.value) {
+                idatCount++;
+            }
+            offset += 12 + length;
+        }
+        assertTrue(idatCount > 1);
+        assertTrue(png.length > PngRowWriter.IDAT_CHUNK_SIZE * (idatCount - 1));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (final PngColorType pngColorType : new PngColorType[] { PngColorType.GREYSCALE, PngColorType.GREYSCALE_WITH_ALPHA, PngColorType.TRUE_COLOR,
+                PngColorType.TRUE_COLOR_WITH_ALPHA }) {
+            checkRoundTrip(pngColorType, false);
+            checkRoundTrip(pngColorType, true);
+        }
+    }
+
+    @Test
+    public void testTooFewRows() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertThrows(ImagingException.class, () -> {
+            try (PngRowWriter rowWriter = new PngWriter().openRowWriter(baos, 4, 4, PngColorType.TRUE_COLOR, null)) {
+                rowWriter.writeRow(new int[4]);
+            }
+        });
+    }
+
+    @Test
+    public void testTooManyRows() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (PngRowWriter rowWriter = new PngWriter().openRowWriter(baos, 4, 1, PngColorType.TRUE_COLOR, null)) {
+            rowWriter.writeRow(new int[4]);
+            assertThrows(ImagingException.class, () -> rowWriter.writeRow(new int[4]));
+        }
+    }
+}
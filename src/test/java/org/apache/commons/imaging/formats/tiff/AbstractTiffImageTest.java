@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+/**
+ * Fixtures shared by the tests that write, decode and compare TIFF images: an executor for the parallel paths, generated images and an image comparison.
+ */
+public abstract class AbstractTiffImageTest {
+
+    protected static ExecutorService executor;
+
+    protected static void assertSameImage(final BufferedImage expected, final BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        final int w = expected.getWidth();
+        final int h = expected.getHeight();
+        assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    protected static BufferedImage randomImage(final int width, final int height, final boolean alpha) {
+        final Random random = new Random(width * 31 + height);
+        final BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // smooth enough for the predictor to matter, with some noise
+                final int v = x + y + random.nextInt(8);
+                image.setRGB(x, y, (alpha ? 64 + x % 192 : 0xff) << 24 | (v & 0xff) << 16 | (2 * v & 0xff) << 8 | random.nextInt(256));
+            }
+        }
+        return image;
+    }
+
+    @BeforeAll
+    public static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void stopExecutor() {
+        executor.shutdown();
+    }
+}
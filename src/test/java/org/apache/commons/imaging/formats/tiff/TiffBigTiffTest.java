@@ -16,22 +16,58 @@
  */
 package org.apache.commons.imaging.formats.tiff;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.List;
 
+import org.apache.commons.imaging.FormatCompliance;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.RationalNumber;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.fieldtypes.AbstractFieldType;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossless;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /**
  * Reads files in the BigTIFF samples folder and compares the BigTIFF files against the standard "classic" tiff image.
  */
 public class TiffBigTiffTest extends TiffBaseTest {
 
+    private static BufferedImage createImage(final int width, final int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x * 7 + y << 8 | x ^ y);
+            }
+        }
+        return image;
+    }
+
+    private static int[] getRgb(final BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static TiffContents readContents(final byte[] bytes) throws IOException {
+        return new TiffReader(true).readContents(ByteSource.array(bytes), new TiffImagingParameters(), FormatCompliance.getDefault());
+    }
+
     private boolean doImagesMatch(final int w, final int h, final int[] classicRgb, final BufferedImage image) {
         final int iW = image.getWidth();
         final int iH = image.getHeight();
@@ -78,4 +114,74 @@ public class TiffBigTiffTest extends TiffBaseTest {
         assertTrue(nTest > 0, "JUnit test failed to find sample BigTIFF files");
     }
 
+    @Test
+    public void testLosslessKeepsBigTiff() throws IOException {
+        final File file = new File(new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "13"), "BigTIFF.tif");
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        final TiffImageMetadata metadata = (TiffImageMetadata) Imaging.getMetadata(bytes);
+        final TiffOutputSet outputSet = metadata.getOutputSet();
+        outputSet.getRootDirectory().add(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, "Updated in place, with a description too long for the entry");
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossless(outputSet.byteOrder, bytes).write(baos, outputSet);
+        final byte[] updated = baos.toByteArray();
+
+        final TiffContents contents = readContents(updated);
+        assertTrue(contents.header.bigTiff);
+        assertArrayEquals(new String[] { "Updated in place, with a description too long for the entry" },
+                contents.directories.get(0).getFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, true));
+        assertArrayEquals(getRgb(Imaging.getBufferedImage(bytes)), getRgb(Imaging.getBufferedImage(updated)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testWriteRoundTrip(final boolean bigEndian) throws IOException {
+        final ByteOrder byteOrder = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        final BufferedImage image = createImage(300, 200);
+        final TiffOutputSet exif = new TiffOutputSet(byteOrder);
+        exif.getOrCreateExifDirectory().add(ExifTagConstants.EXIF_TAG_EXPOSURE_TIME, RationalNumber.valueOf(0.004));
+        exif.setGpsInDegrees(-77.5, 38.25);
+        final TiffImagingParameters params = new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_LZW).setOutputSet(exif);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(byteOrder, true).writeImage(image, baos, params);
+        final byte[] bytes = baos.toByteArray();
+
+        final TiffContents contents = readContents(bytes);
+        assertTrue(contents.header.bigTiff);
+        assertEquals(byteOrder, contents.header.byteOrder);
+        assertEquals(TiffConstants.HEADER_SIZE_BIG, contents.header.offsetToFirstIFD);
+        // the image is split into several strips, whose offsets are stored as LONG8
+        final TiffField stripOffsets = contents.directories.get(0).findField(TiffTagConstants.TIFF_TAG_STRIP_OFFSETS);
+        assertEquals(AbstractFieldType.LONG8, stripOffsets.getFieldType());
+        assertTrue(stripOffsets.getCount() > 1);
+        assertArrayEquals(getRgb(image), getRgb(Imaging.getBufferedImage(bytes)));
+
+        final TiffImageMetadata metadata = (TiffImageMetadata) Imaging.getMetadata(bytes);
+        assertEquals(0.004, metadata.findField(ExifTagConstants.EXIF_TAG_EXPOSURE_TIME).getDoubleValue(), 1e-9);
+        assertEquals(38.25, metadata.getGpsInfo().getLatitudeAsDegreesNorth(), 1e-9);
+        assertEquals(-77.5, metadata.getGpsInfo().getLongitudeAsDegreesEast(), 1e-9);
+
+        // rewriting the metadata as classic TIFF replaces the eight-byte offsets
+        final ByteArrayOutputStream classic = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(byteOrder).write(classic, metadata.getOutputSet());
+        final TiffContents classicContents = readContents(classic.toByteArray());
+        assertEquals(TiffConstants.VERSION_STANDARD, classicContents.header.tiffVersion);
+        assertArrayEquals(getRgb(image), getRgb(Imaging.getBufferedImage(classic.toByteArray())));
+        assertEquals(38.25, ((TiffImageMetadata) Imaging.getMetadata(classic.toByteArray())).getGpsInfo().getLatitudeAsDegreesNorth(), 1e-9);
+    }
+
+    @Test
+    public void testWriteTiledWithOverviews() throws IOException {
+        final BufferedImage image = createImage(200, 150);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(ByteOrder.LITTLE_ENDIAN, true).writeImage(image, baos, new TiffImagingParameters().setTileSize(64, 64).setOverviewCount(2));
+        final byte[] bytes = baos.toByteArray();
+
+        final TiffImageParser parser = new TiffImageParser();
+        final List<TiffResolutionLevel> levels = parser.getResolutionLevels(ByteSource.array(bytes), new TiffImagingParameters().setStrict(true));
+        assertEquals(3, levels.size());
+        assertEquals(50, levels.get(2).getWidth());
+        assertArrayEquals(getRgb(image), getRgb(levels.get(0).getDirectory().getTiffImage()));
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.stream.Stream;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.photometricinterpreters.floatingpoint.PhotometricInterpreterFloat;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks that images decoded with an executor match those decoded in the calling thread.
+ */
+public class TiffConcurrentDecodingTest extends AbstractTiffImageTest {
+
+    public static Stream<String> stripImages() {
+        return Stream.of("1/matthew2.tif", "5/Oregon Scientific DS6639 - DSC_0307 - small - LZW - strips.tif", "13/BigTIFFMotorolaLongStrips.tif",
+                "14/TestJpegStrips264x264.tiff", "12/TransparencyTestStripAssociated.tif", "3/1pagefax.tif", "4/IndexColorPalette.tif",
+                "7/Oregon Scientific DS6639 - DSC_0307 - small - CMYK.tiff");
+    }
+
+    public static Stream<String> tiledImages() {
+        return Stream.of("5/Oregon Scientific DS6639 - DSC_0307 - small - LZW - tiled.tif", "11/BlueMarble_GeoTIFF_LZW_NoPredictor_Tiled.tif",
+                "13/BigTIFFLong8Tiles.tif", "14/TestJpegTiles264x264.tiff", "12/TransparencyTestTileAssociated.tif", "4/IndexColorPaletteTiled.tif");
+    }
+
+    private static void assertConcurrentDecodingMatches(final String name) throws IOException {
+        final File file = new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), name);
+        final TiffImageParser parser = new TiffImageParser();
+        final BufferedImage serial = parser.getBufferedImage(file, new TiffImagingParameters());
+        assertSameImage(serial, parser.getBufferedImage(file, new TiffImagingParameters().setExecutor(executor)));
+
+        final TiffImagingParameters params = new TiffImagingParameters().setExecutor(executor);
+        params.setSubImage(3, 5, serial.getWidth() - 10, serial.getHeight() - 7);
+        assertSameImage(serial.getSubimage(3, 5, serial.getWidth() - 10, serial.getHeight() - 7), parser.getBufferedImage(file, params));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stripImages")
+    public void testStripImage(final String name) throws IOException {
+        assertConcurrentDecodingMatches(name);
+    }
+
+    @Test
+    public void testStripRasterData() throws IOException {
+        final File file = new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "9/USGS_13_n38w077_dir5.tiff");
+        final TiffDirectory directory = new TiffReader(true).readDirectories(ByteSource.file(file), true, FormatCompliance.getDefault()).directories.get(0);
+        final TiffRasterData serial = directory.getRasterData(null);
+        final TiffRasterData raster = directory.getRasterData(new TiffImagingParameters().setExecutor(executor));
+        assertArrayEquals(serial.getData(), raster.getData());
+    }
+
+    @Test
+    public void testStatefulInterpreter() throws IOException {
+        final File file = new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "9/USGS_13_n38w077_dir5.tiff");
+        final TiffImageParser parser = new TiffImageParser();
+        final PhotometricInterpreterFloat serialInterpreter = new PhotometricInterpreterFloat(0, 100);
+        final BufferedImage serial = parser.getBufferedImage(file, new TiffImagingParameters().setCustomPhotometricInterpreter(serialInterpreter));
+        final PhotometricInterpreterFloat interpreter = new PhotometricInterpreterFloat(0, 100);
+        final TiffImagingParameters params = new TiffImagingParameters().setCustomPhotometricInterpreter(interpreter).setExecutor(executor);
+        assertSameImage(serial, parser.getBufferedImage(file, params));
+        assertEquals(serialInterpreter.getMinFound(), interpreter.getMinFound());
+        assertEquals(serialInterpreter.getMaxFound(), interpreter.getMaxFound());
+        assertEquals(serialInterpreter.getMeanFound(), interpreter.getMeanFound());
+        assertArrayEquals(serialInterpreter.getMaxXY(), interpreter.getMaxXY());
+    }
+
+    @ParameterizedTest
+    @MethodSource("tiledImages")
+    public void testTiledImage(final String name) throws IOException {
+        assertConcurrentDecodingMatches(name);
+    }
+
+    @Test
+    public void testTiledRasterData() throws IOException {
+        final int tileSize = 16;
+        final int width = 5 * tileSize + 3;
+        final int height = 4 * tileSize + 9;
+        final int tilesAcross = (width + tileSize - 1) / tileSize;
+        final int tilesDown = (height + tileSize - 1) / tileSize;
+
+        final TiffOutputSet outputSet = new TiffOutputSet(ByteOrder.BIG_ENDIAN);
+        final TiffOutputDirectory outDir = outputSet.addRootDirectory();
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, width);
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, height);
+        outDir.add(TiffTagConstants.TIFF_TAG_SAMPLE_FORMAT, (short) TiffTagConstants.SAMPLE_FORMAT_VALUE_TWOS_COMPLEMENT_SIGNED_INTEGER);
+        outDir.add(TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL, (short) 1);
+        outDir.add(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE, (short) 32);
+        outDir.add(TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION, (short) TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_BLACK_IS_ZERO);
+        outDir.add(TiffTagConstants.TIFF_TAG_COMPRESSION, (short) TiffTagConstants.COMPRESSION_VALUE_UNCOMPRESSED);
+        outDir.add(TiffTagConstants.TIFF_TAG_PLANAR_CONFIGURATION, (short) TiffTagConstants.PLANAR_CONFIGURATION_VALUE_CHUNKY);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_WIDTH, tileSize);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_LENGTH, tileSize);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_BYTE_COUNTS, tileSize * tileSize * 4);
+
+        final AbstractTiffElement.DataElement[] imageData = new AbstractTiffElement.DataElement[tilesAcross * tilesDown];
+        for (int i = 0; i < imageData.length; i++) {
+            final byte[] tile = new byte[tileSize * tileSize * 4];
+            for (int j = 0; j < tile.length; j += 4) {
+                final int value = i * 1000 + j / 4;
+                tile[j] = (byte) (value >> 24);
+                tile[j + 1] = (byte) (value >> 16);
+                tile[j + 2] = (byte) (value >> 8);
+                tile[j + 3] = (byte) value;
+            }
+            imageData[i] = new AbstractTiffImageData.Data(0, tile.length, tile);
+        }
+        outDir.setTiffImageData(new AbstractTiffImageData.Tiles(imageData, tileSize, tileSize));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(ByteOrder.BIG_ENDIAN).write(baos, outputSet);
+        final TiffDirectory directory = new TiffReader(true).readDirectories(ByteSource.array(baos.toByteArray()), true, FormatCompliance.getDefault())
+                .directories.get(0);
+
+        final TiffRasterData raster = directory.getRasterData(new TiffImagingParameters().setExecutor(executor));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int tile = y / tileSize * tilesAcross + x / tileSize;
+                assertEquals(tile * 1000 + y % tileSize * tileSize + x % tileSize, raster.getIntValue(x, y));
+            }
+        }
+
+        final TiffImagingParameters params = new TiffImagingParameters().setExecutor(executor);
+        params.setSubImage(7, 11, 50, 40);
+        final TiffRasterData subRaster = directory.getRasterData(params);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 50; x++) {
+                assertEquals(raster.getIntValue(x + 7, y + 11), subRaster.getIntValue(x, y));
+            }
+        }
+    }
+}
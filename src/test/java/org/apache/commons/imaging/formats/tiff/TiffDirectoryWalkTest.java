@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.ByteConversions;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests following the chain of image file directories of multi-page files.
+ */
+public class TiffDirectoryWalkTest {
+
+    private static byte[] pages(final int count) throws IOException {
+        final List<BufferedImage> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final BufferedImage page = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+            page.setRGB(0, 0, i);
+            pages.add(page);
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeImages(pages, baos, new TiffImagingParameters(), page -> null);
+        return baos.toByteArray();
+    }
+
+    private static List<TiffDirectory> read(final ByteSource byteSource, final boolean strict, final boolean readImageData) throws IOException {
+        return new TiffReader(strict).readDirectories(byteSource, readImageData, FormatCompliance.getDefault()).directories;
+    }
+
+    @Test
+    public void testCyclicChain() throws IOException {
+        final byte[] tiff = pages(3);
+        final List<TiffDirectory> directories = read(ByteSource.array(tiff), true, false);
+        assertEquals(3, directories.size());
+
+        // link the last directory back to the second one
+        final TiffDirectory last = directories.get(2);
+        final int nextOffset = (int) last.offset + 2 + 12 * last.size();
+        final byte[] link = ByteConversions.toBytes((int) directories.get(1).offset, last.getByteOrder());
+        System.arraycopy(link, 0, tiff, nextOffset, 4);
+
+        final List<TiffDirectory> cyclic = read(ByteSource.array(tiff), true, false);
+        assertEquals(3, cyclic.size());
+        assertEquals(directories.get(1).offset, cyclic.get(2).getNextDirectoryOffset());
+    }
+
+    @Test
+    public void testManyPages() throws IOException {
+        final int count = 5000;
+        final byte[] tiff = pages(count);
+        for (final ByteSource byteSource : new ByteSource[] { ByteSource.array(tiff), ByteSource.inputStream(new ByteArrayInputStream(tiff), "pages.tif") }) {
+            final List<TiffDirectory> directories = read(byteSource, true, true);
+            assertEquals(count, directories.size());
+            for (int i = 0; i < count; i += 997) {
+                assertEquals(i, directories.get(i).type);
+                assertEquals(i, directories.get(i).getTiffImage().getRGB(0, 0) & 0xffffff);
+            }
+            assertEquals(2, directories.get(count - 1).getFieldValue(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH));
+        }
+    }
+
+    @Test
+    public void testTruncatedDirectory() throws IOException {
+        final byte[] tiff = pages(2);
+        final TiffDirectory second = read(ByteSource.array(tiff), true, false).get(1);
+        // cut the file in the middle of the entries of the second directory
+        final byte[] truncated = Arrays.copyOf(tiff, (int) second.offset + 2 + 12 * 3);
+        assertThrows(IOException.class, () -> read(ByteSource.array(truncated), true, false));
+        assertThrows(IOException.class, () -> read(ByteSource.array(truncated), false, false));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.FloatingPointSamples;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests writing and reading raster data with the floating-point predictor of TIFF Technical Note 3.
+ */
+public class TiffFloatingPointPredictorTest {
+
+    private static final int WIDTH = 83;
+    private static final int HEIGHT = 45;
+
+    private static TiffRasterDataDouble doubleRaster() {
+        final TiffRasterDataDouble raster = new TiffRasterDataDouble(WIDTH, HEIGHT, 2);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setDoubleValue(x, y, 0, x == y ? Double.NaN : Math.sin(x * 0.1) * Math.cos(y * 0.07) * 1e5 + 1.0 / 3);
+                raster.setDoubleValue(x, y, 1, -x * 1e-9 - y);
+            }
+        }
+        return raster;
+    }
+
+    private static TiffDirectory write(final TiffRasterData raster, final ByteOrder byteOrder, final TiffImagingParameters params) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(byteOrder).writeRasterData(raster, baos, params);
+        return new TiffReader(true).readDirectories(ByteSource.array(baos.toByteArray()), true, FormatCompliance.getDefault()).directories.get(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { TiffConstants.COMPRESSION_LZW, TiffConstants.COMPRESSION_DEFLATE_ADOBE })
+    public void testDouble(final int compression) throws IOException {
+        final TiffRasterDataDouble raster = doubleRaster();
+        for (final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final TiffImagingParameters params = new TiffImagingParameters().setCompression(compression).setTileSize(32, 16).setOverviewCount(1)
+                    .setPredictor(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING);
+            final TiffDirectory directory = write(raster, byteOrder, params);
+            assertEquals(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING, directory.findField(TiffTagConstants.TIFF_TAG_PREDICTOR).getIntValue());
+            assertEquals(64, directory.findField(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE).getIntArrayValue()[0]);
+
+            final TiffRasterData read = directory.getRasterData(null);
+            assertEquals(TiffRasterDataType.DOUBLE, read.getDataType());
+            assertEquals(2, read.getSamplesPerPixel());
+            assertArrayEquals(raster.getDoubleData(), read.getDoubleData());
+            assertEquals((float) raster.getDoubleValue(5, 3, 1), read.getValue(5, 3, 1));
+
+            final TiffImagingParameters subImage = new TiffImagingParameters().setSubImage(30, 10, 40, 20);
+            assertEquals(raster.getDoubleValue(45, 17, 1), directory.getRasterData(subImage).getDoubleValue(15, 7, 1));
+        }
+    }
+
+    @Test
+    public void testFloatAsDouble() throws IOException {
+        final TiffRasterDataFloat raster = new TiffRasterDataFloat(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setValue(x, y, x * 0.25f - y * 1.5f);
+            }
+        }
+        final TiffImagingParameters params = new TiffImagingParameters().setFloatingPointBitsPerSample(64)
+                .setPredictor(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING);
+        final TiffRasterData read = write(raster, ByteOrder.LITTLE_ENDIAN, params).getRasterData(null);
+        assertEquals(TiffRasterDataType.DOUBLE, read.getDataType());
+        assertArrayEquals(raster.getData(), read.getData());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 16, 32 })
+    public void testFloat(final int bitsPerSample) throws IOException {
+        final TiffRasterDataFloat raster = new TiffRasterDataFloat(WIDTH, HEIGHT, 3);
+        for (int i = 0; i < 3; i++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    raster.setValue(x, y, i, (float) Math.exp((x - y) * 0.05 + i) * (i == 1 ? -1 : 1));
+                }
+            }
+        }
+        raster.setValue(3, 4, 2, Float.NaN);
+        for (final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final TiffImagingParameters params = new TiffImagingParameters().setFloatingPointBitsPerSample(bitsPerSample)
+                    .setPredictor(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING);
+            final TiffRasterData read = write(raster, byteOrder, params).getRasterData(null);
+            assertEquals(TiffRasterDataType.FLOAT, read.getDataType());
+            final float[] expected = raster.getData();
+            if (bitsPerSample == 16) {
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] = FloatingPointSamples.halfToFloat(FloatingPointSamples.floatToHalf(expected[i]));
+                }
+            }
+            assertArrayEquals(expected, read.getData());
+            assertTrue(Float.isNaN(read.getValue(3, 4, 2)));
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TiffImagingParameters().setFloatingPointBitsPerSample(24));
+        final TiffImagingParameters params = new TiffImagingParameters().setPredictor(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING);
+        assertThrows(ImagingException.class, () -> write(new TiffRasterDataInt(10, 10), ByteOrder.BIG_ENDIAN, params));
+        params.setPredictor(TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING);
+        assertThrows(ImagingException.class, () -> write(new TiffRasterDataFloat(10, 10), ByteOrder.BIG_ENDIAN, params));
+    }
+
+    @Test
+    public void testPredictorReducesSize() throws IOException {
+        // a smooth surface, as elevation data is, whose values use all bits of the mantissa
+        final TiffRasterDataFloat raster = new TiffRasterDataFloat(256, 256);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                raster.setValue(x, y, (float) (500 + Math.hypot(x - 100, y - 60) / 3));
+            }
+        }
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeRasterData(raster, plain, new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_DEFLATE_ADOBE));
+        final ByteArrayOutputStream predicted = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeRasterData(raster, predicted, new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_DEFLATE_ADOBE)
+                .setPredictor(TiffTagConstants.PREDICTOR_VALUE_FLOATING_POINT_DIFFERENCING));
+        assertTrue(predicted.size() < plain.size(), predicted.size() + " >= " + plain.size());
+    }
+}
@@ -81,7 +81,7 @@ public class TiffImageParserTest {
                 .thenReturn(new short[]{TiffTagConstants.SAMPLE_FORMAT_VALUE_IEEE_FLOATING_POINT});
 
         TiffField bitsPerSampleField = mock(TiffField.class);
-        when(bitsPerSampleField.getIntArrayValue()).thenReturn(new int[]{16}); // Invalid for float (not 32 or 64)
+        when(bitsPerSampleField.getIntArrayValue()).thenReturn(new int[]{24}); // Invalid for float (not 16, 32 or 64)
         when(directory.findField(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE)).thenReturn(bitsPerSampleField);
 
         ImagingException exception = assertThrows(ImagingException.class, () -> {
@@ -89,7 +89,7 @@ public class TiffImageParserTest {
             parser.getRasterData(directory, byteOrder, params);
         });
 
-        assertEquals("TIFF floating-point data uses unsupported bits-per-sample: 16", exception.getMessage());
+        assertEquals("TIFF floating-point data uses unsupported bits-per-sample: 24", exception.getMessage());
     }
 
     @Test
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TiffImageReaderSessionTest extends AbstractTiffImageTest {
+
+    private static File file(final String name) {
+        return new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), name);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "5/Oregon Scientific DS6639 - DSC_0307 - small - LZW - tiled.tif", "5/Oregon Scientific DS6639 - DSC_0307 - small - LZW - strips.tif",
+            "11/BlueMarble_GeoTIFF_LZW_NoPredictor_Tiled.tif", "12/TransparencyTestTileAssociated.tif", "4/IndexColorPaletteTiled.tif" })
+    public void testOverlappingWindows(final String name) throws IOException {
+        final File file = file(name);
+        final BufferedImage whole = new TiffImageParser().getBufferedImage(file, new TiffImagingParameters());
+        final int w = whole.getWidth() / 2;
+        final int h = whole.getHeight() / 2;
+
+        final TiffImageReaderSession session = new TiffImageReaderSession(ByteSource.file(file), new TiffBlockCache(Long.MAX_VALUE));
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setSubImage(0, 0, w, h);
+        assertSameImage(whole.getSubimage(0, 0, w, h), session.getBufferedImage(params));
+        final long misses = session.getCacheMissCount();
+        assertEquals(0, session.getCacheHitCount());
+
+        // the same window is served from the cache, including blocks whose predictor is undone in place
+        assertSameImage(whole.getSubimage(0, 0, w, h), session.getBufferedImage(params));
+        assertEquals(misses, session.getCacheHitCount());
+        assertEquals(misses, session.getCacheMissCount());
+
+        // an overlapping window only decompresses the blocks it does not share
+        params.setSubImage(w / 2, h / 2, w, h);
+        assertSameImage(whole.getSubimage(w / 2, h / 2, w, h), session.getBufferedImage(params));
+        assertTrue(session.getCacheHitCount() > misses);
+        assertSameImage(whole, session.getBufferedImage(null));
+    }
+
+    @Test
+    public void testCacheSizeIsBounded() throws IOException {
+        final File file = file("11/BlueMarble_GeoTIFF_LZW_NoPredictor_Tiled.tif");
+        final BufferedImage whole = new TiffImageParser().getBufferedImage(file, new TiffImagingParameters());
+        final TiffBlockCache cache = new TiffBlockCache(100_000);
+        final TiffImageReaderSession session = new TiffImageReaderSession(ByteSource.file(file), cache);
+        assertSameImage(whole, session.getBufferedImage(null));
+        assertTrue(cache.getSize() <= 100_000);
+        assertSameImage(whole, session.getBufferedImage(null));
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testRasterData() throws IOException {
+        final File file = file("9/USGS_13_n38w077_dir5.tiff");
+        final TiffImageReaderSession session = new TiffImageReaderSession(ByteSource.file(file), new TiffBlockCache(Long.MAX_VALUE));
+        final TiffRasterData whole = session.getRasterData(0, null);
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setSubImage(20, 30, 100, 80);
+        final TiffRasterData window = session.getRasterData(0, params);
+        assertTrue(session.getCacheHitCount() > 0);
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 100; x++) {
+                assertEquals(whole.getValue(20 + x, 30 + y), window.getValue(x, y));
+            }
+        }
+        assertThrows(ImagingException.class, () -> session.getRasterData(session.getDirectories().size(), null));
+    }
+}
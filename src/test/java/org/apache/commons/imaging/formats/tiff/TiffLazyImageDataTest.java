@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that strips and tiles are read from the byte source when they are decoded, not when the directory is read.
+ */
+public class TiffLazyImageDataTest {
+
+    private static final int TILE_SIZE = 16;
+    private static final int TILES_ACROSS = 4;
+    private static final int SIZE = TILE_SIZE * TILES_ACROSS;
+
+    /**
+     * Writes an uncompressed tiled image of 32-bit integer samples in which every sample of tile {@code i} has the value {@code i}.
+     */
+    private static byte[] writeTiledImage() throws IOException {
+        final TiffOutputSet outputSet = new TiffOutputSet(ByteOrder.LITTLE_ENDIAN);
+        final TiffOutputDirectory outDir = outputSet.addRootDirectory();
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, SIZE);
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, SIZE);
+        outDir.add(TiffTagConstants.TIFF_TAG_SAMPLE_FORMAT, (short) TiffTagConstants.SAMPLE_FORMAT_VALUE_TWOS_COMPLEMENT_SIGNED_INTEGER);
+        outDir.add(TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL, (short) 1);
+        outDir.add(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE, (short) 32);
+        outDir.add(TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION, (short) TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_BLACK_IS_ZERO);
+        outDir.add(TiffTagConstants.TIFF_TAG_COMPRESSION, (short) TiffTagConstants.COMPRESSION_VALUE_UNCOMPRESSED);
+        outDir.add(TiffTagConstants.TIFF_TAG_PLANAR_CONFIGURATION, (short) TiffTagConstants.PLANAR_CONFIGURATION_VALUE_CHUNKY);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_WIDTH, TILE_SIZE);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_LENGTH, TILE_SIZE);
+        outDir.add(TiffTagConstants.TIFF_TAG_TILE_BYTE_COUNTS, TILE_SIZE * TILE_SIZE * 4);
+
+        final AbstractTiffElement.DataElement[] imageData = new AbstractTiffElement.DataElement[TILES_ACROSS * TILES_ACROSS];
+        for (int i = 0; i < imageData.length; i++) {
+            final byte[] tile = new byte[TILE_SIZE * TILE_SIZE * 4];
+            for (int j = 0; j < tile.length; j += 4) {
+                tile[j] = (byte) i;
+            }
+            imageData[i] = new AbstractTiffImageData.Data(0, tile.length, tile);
+        }
+        outDir.setTiffImageData(new AbstractTiffImageData.Tiles(imageData, TILE_SIZE, TILE_SIZE));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(ByteOrder.LITTLE_ENDIAN).write(baos, outputSet);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testOnlyOverlappingTilesAreRead() throws IOException {
+        final byte[] tiff = writeTiledImage();
+        final TiffDirectory directory = new TiffReader(true).readDirectories(ByteSource.array(tiff), true, FormatCompliance.getDefault()).directories.get(0);
+        final AbstractTiffImageData.Tiles tiles = (AbstractTiffImageData.Tiles) directory.getTiffImageData();
+
+        // Overwrite the tiles after the directory has been read. The window lies inside tile 5,
+        // so it only shows the new value if the tile is read when the window is decoded.
+        for (final AbstractTiffElement.DataElement tile : tiles.getImageData()) {
+            assertEquals(tile.length, tile.getDataLength());
+            Arrays.fill(tiff, (int) tile.offset, (int) tile.offset + tile.length, (byte) 0xff);
+        }
+        final AbstractTiffElement.DataElement tile5 = tiles.getImageData()[5];
+        Arrays.fill(tiff, (int) tile5.offset, (int) tile5.offset + tile5.length, (byte) 0);
+        for (int j = 0; j < tile5.length; j += 4) {
+            tiff[(int) tile5.offset + j] = 42;
+        }
+
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setSubImage(TILE_SIZE + 2, TILE_SIZE + 3, 8, 8);
+        final TiffRasterData raster = directory.getRasterData(params);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                assertEquals(42, raster.getIntValue(x, y));
+            }
+        }
+        assertEquals(-1, directory.getRasterData(null).getIntValue(0, 0));
+    }
+
+    @Test
+    public void testTruncatedImageDataRejected() throws IOException {
+        final byte[] tiff = writeTiledImage();
+        final TiffDirectory directory = new TiffReader(true).readDirectories(ByteSource.array(tiff), true, FormatCompliance.getDefault()).directories.get(0);
+        final AbstractTiffElement.DataElement last = directory.getTiffImageData().getImageData()[TILES_ACROSS * TILES_ACROSS - 1];
+        final byte[] truncated = Arrays.copyOf(tiff, (int) last.offset + 10);
+        assertThrows(ImagingException.class,
+                () -> new TiffReader(true).readDirectories(ByteSource.array(truncated), true, FormatCompliance.getDefault()));
+    }
+
+    @Test
+    public void testReadFailures() throws IOException {
+        final ByteSource byteSource = ByteSource.inputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }), "data");
+        final AbstractTiffImageData.Data data = new AbstractTiffImageData.Data(1, 2, byteSource);
+        assertArrayEquals(new byte[] { 2, 3 }, data.readData());
+        assertArrayEquals(new byte[] { 2, 3 }, data.getData());
+
+        // getData() keeps its unchecked signature and wraps the failure of the lazy read
+        final AbstractTiffImageData.Data outside = new AbstractTiffImageData.Data(3, 2, byteSource);
+        assertThrows(IOException.class, outside::readData);
+        final UncheckedIOException e = assertThrows(UncheckedIOException.class, outside::getData);
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.RationalNumber;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests writing multi-page TIFF files.
+ */
+public class TiffMultiPageWriteTest extends AbstractTiffImageTest {
+
+    private static List<BufferedImage> bilevelPages(final int count) {
+        final List<BufferedImage> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int width = 150 + 13 * i;
+            final int height = 90 + 7 * i;
+            final Random random = new Random(i);
+            final BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+            for (int y = 0; y < height; y++) {
+                // runs of black and white, as on a scanned page
+                boolean black = false;
+                for (int x = 0; x < width; x++) {
+                    if (random.nextInt(12) == 0) {
+                        black = !black;
+                    }
+                    page.setRGB(x, y, black ? 0xff000000 : 0xffffffff);
+                }
+            }
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private static int[] rgb(final BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static byte[] write(final List<BufferedImage> pages, final TiffImagingParameters params, final IntFunction<TiffImagingParameters> pageParameters)
+            throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeImages(pages, baos, params, pageParameters);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testConcurrentCompressionMatchesSerial() throws IOException {
+        // more pages than are compressed ahead, so that pages are added while others are still compressed
+        final List<BufferedImage> pages = bilevelPages(2 * Runtime.getRuntime().availableProcessors() + 5);
+        final TiffImagingParameters params = new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_CCITT_GROUP_4);
+        final byte[] serial = write(pages, params, page -> null);
+        assertArrayEquals(serial, write(pages, new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_CCITT_GROUP_4).setExecutor(executor),
+                page -> null));
+
+        final List<BufferedImage> read = new TiffImageParser().getAllBufferedImages(ByteSource.array(serial));
+        assertEquals(pages.size(), read.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertArrayEquals(rgb(pages.get(i)), rgb(read.get(i)));
+        }
+
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(serial), true, FormatCompliance.getDefault());
+        for (int i = 0; i < pages.size(); i++) {
+            assertArrayEquals(new short[] { (short) i, (short) pages.size() },
+                    contents.directories.get(i).getFieldValue(TiffTagConstants.TIFF_TAG_PAGE_NUMBER, true));
+        }
+    }
+
+    @Test
+    public void testCompressionWithinExecutorThread() throws Exception {
+        final List<BufferedImage> pages = bilevelPages(2 * Runtime.getRuntime().availableProcessors() + 5);
+        final TiffImagingParameters params = new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_CCITT_GROUP_4);
+        final byte[] serial = write(pages, params, page -> null);
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // the only thread of the executor waits for the pages, so it must compress them itself
+            params.setExecutor(single);
+            assertArrayEquals(serial, single.submit(() -> write(pages, params, page -> null)).get(1, TimeUnit.MINUTES));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testPageParameters() throws IOException {
+        final List<BufferedImage> pages = bilevelPages(3);
+        final TiffOutputSet exif = new TiffOutputSet();
+        exif.getOrCreateExifDirectory().add(ExifTagConstants.EXIF_TAG_EXPOSURE_TIME, RationalNumber.valueOf(0.004));
+        final TiffImagingParameters[] pageParams = { new TiffImagingParameters().setOutputSet(exif),
+                new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_DEFLATE_ADOBE).setTileSize(64, 64).setOverviewCount(1), null };
+        final TiffImagingParameters params = new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_PACKBITS).setExecutor(executor);
+        final byte[] tiff = write(pages, params, page -> pageParams[page]);
+
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(tiff), true, FormatCompliance.getDefault());
+        final List<TiffDirectory> directories = new ArrayList<>();
+        for (final TiffDirectory directory : contents.directories) {
+            if (directory.type >= 0) {
+                directories.add(directory);
+            }
+        }
+        // the overview of the second page follows it
+        assertEquals(4, directories.size());
+        assertEquals(TiffConstants.COMPRESSION_LZW, directories.get(0).getFieldValue(TiffTagConstants.TIFF_TAG_COMPRESSION));
+        assertEquals(TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE, directories.get(2).getFieldValue(TiffTagConstants.TIFF_TAG_NEW_SUBFILE_TYPE));
+        assertEquals(TiffConstants.COMPRESSION_PACKBITS, directories.get(3).getFieldValue(TiffTagConstants.TIFF_TAG_COMPRESSION) & 0xffff);
+        assertEquals(0.004, contents.findField(ExifTagConstants.EXIF_TAG_EXPOSURE_TIME).getDoubleValue(), 1e-9);
+
+        assertArrayEquals(rgb(pages.get(0)), rgb(directories.get(0).getTiffImage()));
+        assertArrayEquals(rgb(pages.get(1)), rgb(directories.get(1).getTiffImage()));
+        assertArrayEquals(rgb(pages.get(2)), rgb(directories.get(3).getTiffImage()));
+    }
+
+    @Test
+    public void testInvalidPages() {
+        final TiffOutputSet exif = new TiffOutputSet();
+        final List<BufferedImage> pages = bilevelPages(2);
+        assertThrows(ImagingException.class, () -> write(Collections.emptyList(), new TiffImagingParameters(), page -> null));
+        assertThrows(ImagingException.class, () -> {
+            exif.getOrCreateExifDirectory().add(ExifTagConstants.EXIF_TAG_EXPOSURE_TIME, RationalNumber.valueOf(0.004));
+            write(pages, new TiffImagingParameters(), page -> page == 1 ? new TiffImagingParameters().setOutputSet(exif) : null);
+        });
+        assertThrows(ImagingException.class,
+                () -> write(pages, new TiffImagingParameters().setExecutor(executor), page -> new TiffImagingParameters().setCompression(42)));
+    }
+}
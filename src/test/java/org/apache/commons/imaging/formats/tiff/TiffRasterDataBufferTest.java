@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TiffRasterDataBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static TiffDirectory readDirectory(final ByteSource byteSource) throws IOException {
+        return new TiffReader(true).readDirectories(byteSource, true, FormatCompliance.getDefault()).directories.get(0);
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final TiffRasterDataBuffer direct = TiffRasterDataBuffer.allocateDirect(5, 4, 1, TiffRasterDataType.FLOAT);
+        final TiffRasterDataBuffer mapped = TiffRasterDataBuffer.mapTemporaryFile(5, 4, 1, TiffRasterDataType.FLOAT);
+        for (final TiffRasterDataBuffer raster : new TiffRasterDataBuffer[] { direct, mapped }) {
+            raster.setValue(1, 1, 2.5f);
+            raster.close();
+            assertThrows(IllegalStateException.class, () -> raster.getValue(1, 1));
+            assertThrows(IllegalStateException.class, () -> raster.setValue(1, 1, 0));
+            assertThrows(IllegalStateException.class, raster::getData);
+            // closing again has no effect
+            raster.close();
+            // the checks of the arguments come first
+            assertThrows(IllegalArgumentException.class, () -> raster.getValue(5, 0));
+        }
+    }
+
+    @Test
+    public void testConversions() throws IOException {
+        try (TiffRasterDataBuffer ints = TiffRasterDataBuffer.allocateDirect(5, 4, 1, TiffRasterDataType.INTEGER)) {
+            ints.setValue(1, 2, 7.9f);
+            assertEquals(7, ints.getIntValue(1, 2));
+            ints.setDoubleValue(2, 2, -3.5);
+            assertEquals(-3, ints.getIntValue(2, 2));
+        }
+
+        try (TiffRasterDataBuffer doubles = TiffRasterDataBuffer.mapTemporaryFile(5, 4, 2, TiffRasterDataType.DOUBLE)) {
+            assertEquals(TiffRasterDataType.DOUBLE, doubles.getDataType());
+            assertEquals(40, doubles.getSampleCount());
+            doubles.setDoubleValue(4, 3, 1, Math.PI);
+            assertEquals(Math.PI, doubles.getDoubleValue(4, 3, 1));
+            assertEquals((float) Math.PI, doubles.getValue(4, 3, 1));
+            assertEquals(Math.PI, doubles.getDoubleValue(39));
+            assertEquals(0, doubles.getDoubleValue(4, 3, 0));
+
+            assertThrows(IllegalArgumentException.class, () -> doubles.getValue(5, 0));
+            assertThrows(IllegalArgumentException.class, () -> doubles.getValue(0, 0, 2));
+            assertThrows(IllegalArgumentException.class, () -> doubles.getValue(40L));
+        }
+    }
+
+    @Test
+    public void testDataCopies() {
+        try (TiffRasterDataBuffer raster = TiffRasterDataBuffer.allocateDirect(7, 3, 2, TiffRasterDataType.FLOAT)) {
+            final TiffRasterDataFloat expected = new TiffRasterDataFloat(7, 3, 2);
+            for (int i = 0; i < 2; i++) {
+                for (int y = 0; y < 3; y++) {
+                    for (int x = 0; x < 7; x++) {
+                        raster.setValue(x, y, i, x * 1.5f - y + i * 100);
+                        expected.setValue(x, y, i, x * 1.5f - y + i * 100);
+                    }
+                }
+            }
+            assertArrayEquals(expected.getData(), raster.getData());
+            assertArrayEquals(expected.getIntData(), raster.getIntData());
+            assertArrayEquals(expected.getDoubleData(), raster.getDoubleData());
+            assertEquals(expected.getValue(3, 1, 1), raster.getValue(7 * 3 + 7 + 3L));
+
+            final TiffRasterStatistics statistics = raster.getSimpleStatistics();
+            assertEquals(expected.getSimpleStatistics().getMeanValue(), statistics.getMeanValue());
+            assertEquals(expected.getSimpleStatistics().getMaxValue(), statistics.getMaxValue());
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        final Path file = tempDir.resolve("raster.bin");
+        final int[] written;
+        try (TiffRasterDataBuffer raster = TiffRasterDataBuffer.map(file, 100, 50, 1, TiffRasterDataType.INTEGER)) {
+            for (int y = 0; y < 50; y++) {
+                for (int x = 0; x < 100; x++) {
+                    raster.setIntValue(x, y, x * y);
+                }
+            }
+            written = raster.getIntData();
+        }
+        // the samples are kept in the file after it is closed
+        try (TiffRasterDataBuffer again = TiffRasterDataBuffer.map(file, 100, 50, 1, TiffRasterDataType.INTEGER)) {
+            assertArrayEquals(written, again.getIntData());
+            assertEquals(99 * 49, again.getIntValue(99, 49));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Sample64BitFloatingPointPix451x337.tiff", "USGS_13_n38w077_dir5.tiff" })
+    public void testReadWindow(final String name) throws IOException {
+        final File file = new File(new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "9"), name);
+        final TiffDirectory directory = readDirectory(ByteSource.file(file));
+        final TiffRasterData whole = directory.getRasterData(null);
+
+        try (TiffRasterDataBuffer window = TiffRasterDataBuffer.allocateDirect(101, 57, whole.getSamplesPerPixel(), TiffRasterDataType.DOUBLE)) {
+            directory.readRasterData(37, 120, window, null);
+            for (int y = 0; y < 57; y++) {
+                for (int x = 0; x < 101; x++) {
+                    assertEquals(whole.getDoubleValue(37 + x, 120 + y), window.getDoubleValue(x, y));
+                }
+            }
+            assertThrows(ImagingException.class, () -> directory.readRasterData(whole.getWidth() - 10, 0, window, null));
+        }
+
+        try (TiffRasterDataBuffer all = TiffRasterDataBuffer.mapTemporaryFile(whole.getWidth(), whole.getHeight(), 1, TiffRasterDataType.FLOAT)) {
+            directory.readRasterData(0, 0, all, null);
+            assertArrayEquals(whole.getData(), all.getData());
+        }
+
+        try (TiffRasterDataBuffer threeSamples = TiffRasterDataBuffer.allocateDirect(10, 10, 3, TiffRasterDataType.FLOAT)) {
+            assertThrows(ImagingException.class, () -> directory.readRasterData(0, 0, threeSamples, null));
+        }
+    }
+
+    @Test
+    public void testReadWindowOfIntegerTiles() throws IOException {
+        final TiffRasterDataInt source = new TiffRasterDataInt(90, 70);
+        for (int y = 0; y < 70; y++) {
+            for (int x = 0; x < 90; x++) {
+                source.setIntValue(x, y, x * 1000 + y);
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeRasterData(source, baos, new TiffImagingParameters().setTileSize(32, 16));
+        final TiffDirectory directory = readDirectory(ByteSource.array(baos.toByteArray()));
+
+        try (TiffRasterDataBuffer window = TiffRasterDataBuffer.allocateDirect(40, 30, 1, TiffRasterDataType.INTEGER)) {
+            directory.readRasterData(20, 30, window, null);
+            assertEquals(20 * 1000 + 30, window.getIntValue(0, 0));
+            assertEquals(59 * 1000 + 59, window.getIntValue(39, 29));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+
+public class TiffRasterStatisticsCollectorTest {
+
+    private static void assertSameStatistics(final TiffRasterBandStatistics expected, final TiffRasterBandStatistics actual) {
+        assertEquals(expected.getCountOfSamples(), actual.getCountOfSamples());
+        assertEquals(expected.getCountOfNulls(), actual.getCountOfNulls());
+        assertEquals(expected.getMinValue(), actual.getMinValue());
+        assertEquals(expected.getMaxValue(), actual.getMaxValue());
+        assertEquals(expected.getMeanValue(), actual.getMeanValue(), 1e-9 * Math.abs(expected.getMeanValue()));
+        assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1e-9 * expected.getStandardDeviation());
+        assertArrayEquals(expected.getHistogram(), actual.getHistogram());
+    }
+
+    private static TiffRasterDataDouble randomRaster(final int width, final int height, final int samplesPerPixel) {
+        final Random random = new Random(width);
+        final TiffRasterDataDouble raster = new TiffRasterDataDouble(width, height, samplesPerPixel);
+        for (int i = 0; i < samplesPerPixel; i++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    raster.setDoubleValue(x, y, i, random.nextInt(20) == 0 ? Double.NaN : 1000 * i + 100 * random.nextGaussian());
+                }
+            }
+        }
+        return raster;
+    }
+
+    @Test
+    public void testAgainstSerialScan() {
+        final int width = 517;
+        final int height = 389;
+        final TiffRasterDataDouble raster = randomRaster(width, height, 2);
+        final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(2, -300, 1300, 64);
+        collector.accept(raster);
+
+        for (int i = 0; i < 2; i++) {
+            long count = 0;
+            long nulls = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            final double[] values = new double[width * height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    final double value = raster.getDoubleValue(x, y, i);
+                    if (Double.isNaN(value)) {
+                        nulls++;
+                    } else {
+                        values[(int) count++] = value;
+                        sum += value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+            }
+            final double mean = sum / count;
+            double squares = 0;
+            for (int k = 0; k < count; k++) {
+                squares += (values[k] - mean) * (values[k] - mean);
+            }
+
+            final TiffRasterBandStatistics statistics = collector.getStatistics(i);
+            assertEquals(count, statistics.getCountOfSamples());
+            assertEquals(nulls, statistics.getCountOfNulls());
+            assertEquals(min, statistics.getMinValue());
+            assertEquals(max, statistics.getMaxValue());
+            assertEquals(mean, statistics.getMeanValue(), 1e-9);
+            assertEquals(Math.sqrt(squares / count), statistics.getStandardDeviation(), 1e-9);
+            assertEquals(count, Arrays.stream(statistics.getHistogram()).sum() + statistics.getCountBelowHistogram() + statistics.getCountAboveHistogram());
+
+            final double[] sorted = Arrays.copyOf(values, (int) count);
+            Arrays.sort(sorted);
+            assertEquals(min, statistics.getPercentile(0));
+            assertEquals(max, statistics.getPercentile(100));
+            // the error of a percentile is bounded by the width of a bin, 25 here
+            for (final double percent : new double[] { 1, 10, 25, 50, 75, 90, 99 }) {
+                assertEquals(sorted[(int) (percent / 100 * (count - 1))], statistics.getPercentile(percent), 25, "percentile " + percent);
+            }
+        }
+
+        final TiffRasterBandStatistics combined = collector.getStatistics();
+        assertEquals(collector.getStatistics(0).getCountOfSamples() + collector.getStatistics(1).getCountOfSamples(), combined.getCountOfSamples());
+        assertEquals(collector.getStatistics(0).getMinValue(), combined.getMinValue());
+        assertEquals(collector.getStatistics(1).getMaxValue(), combined.getMaxValue());
+    }
+
+    @Test
+    public void testCollectWhileDecoding() throws IOException {
+        final File file = new File(new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "9"), "USGS_13_n38w077_dir5.tiff");
+        final TiffReader reader = new TiffReader(true);
+        final TiffContents contents = reader.readDirectories(ByteSource.file(file), true, FormatCompliance.getDefault());
+        final TiffDirectory directory = contents.directories.get(0);
+        final TiffRasterData whole = directory.getRasterData(null);
+
+        final TiffRasterStatisticsCollector expected = new TiffRasterStatisticsCollector(1, 0, 200, 100, -9999);
+        expected.accept(whole, 31, 17, 200, 150);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final TiffImagingParameters params = new TiffImagingParameters();
+            params.setExecutor(executor);
+            final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(1, 0, 200, 100, -9999);
+            directory.collectRasterStatistics(31, 17, 200, 150, collector, params);
+            assertSameStatistics(expected.getStatistics(0), collector.getStatistics(0));
+            assertEquals(200 * 150, collector.getStatistics().getCountOfSamples() + collector.getStatistics().getCountOfExcludedValues()
+                    + collector.getStatistics().getCountOfNulls());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        final TiffRasterDataDouble raster = randomRaster(1031, 517, 2);
+        final TiffRasterStatisticsCollector expected = new TiffRasterStatisticsCollector(2, -300, 1300, 64);
+        expected.accept(raster, 3, 5, 1000, 500);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(2, -300, 1300, 64);
+            collector.accept(raster, 3, 5, 1000, 200, executor);
+            // the only thread of the executor waits for the bands, so it must scan them itself
+            executor.submit(() -> {
+                collector.accept(raster, 3, 205, 1000, 300, executor);
+                return null;
+            }).get(1, TimeUnit.MINUTES);
+            for (int i = 0; i < 2; i++) {
+                assertSameStatistics(expected.getStatistics(i), collector.getStatistics(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExcludedValuesAndWindow() {
+        final TiffRasterDataInt raster = new TiffRasterDataInt(20, 10);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 20; x++) {
+                raster.setIntValue(x, y, x < 5 ? -1 : x + y);
+            }
+        }
+        final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(1, 0, 40, 40, -1, 12);
+        collector.accept(raster, 2, 3, 8, 2);
+        final TiffRasterBandStatistics statistics = collector.getStatistics(0);
+        // columns 2 to 4 are excluded, as is x + y == 12 at (9, 3) and (8, 4)
+        assertEquals(8, statistics.getCountOfExcludedValues());
+        assertEquals(8, statistics.getCountOfSamples());
+        assertEquals(8, statistics.getMinValue());
+        assertEquals(13, statistics.getMaxValue());
+        final long[] histogram = statistics.getHistogram();
+        assertEquals(1, histogram[8]);
+        assertEquals(0, histogram[12]);
+        assertEquals(2, histogram[11]);
+
+        assertThrows(IllegalArgumentException.class, () -> collector.accept(raster, 15, 0, 8, 2));
+        assertThrows(IllegalArgumentException.class, () -> collector.accept(new TiffRasterDataFloat(2, 2, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new TiffRasterStatisticsCollector(1, 1, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getPercentile(101));
+    }
+
+    @Test
+    public void testNoSamples() {
+        final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(1, 0, 1, 4);
+        collector.accept(0, Double.NaN);
+        final TiffRasterBandStatistics statistics = collector.getStatistics(0);
+        assertEquals(0, statistics.getCountOfSamples());
+        assertEquals(1, statistics.getCountOfNulls());
+        assertTrue(Double.isNaN(statistics.getMeanValue()));
+        assertTrue(Double.isNaN(statistics.getPercentile(50)));
+    }
+
+    @Test
+    public void testSamplesFromThreads() throws InterruptedException {
+        final TiffRasterStatisticsCollector collector = new TiffRasterStatisticsCollector(1, 0, 1000, 10);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 250;
+            threads[t] = new Thread(() -> {
+                for (int k = 0; k < 250; k++) {
+                    collector.accept(0, offset + k);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final TiffRasterBandStatistics statistics = collector.getStatistics(0);
+        assertEquals(1000, statistics.getCountOfSamples());
+        assertEquals(499.5, statistics.getMeanValue(), 1e-12);
+        assertEquals(Math.sqrt((1000.0 * 1000 - 1) / 12), statistics.getStandardDeviation(), 1e-9);
+        final long[] histogram = new long[10];
+        Arrays.fill(histogram, 100);
+        assertArrayEquals(histogram, statistics.getHistogram());
+        assertEquals(250, statistics.getPercentile(25), 1e-9);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for reading the reduced-resolution images of a TIFF file.
+ */
+public class TiffResolutionLevelTest {
+
+    private static void addGrayImage(final TiffOutputSet outputSet, final int type, final int size, final int subfileType) throws ImagingException {
+        final TiffOutputDirectory outDir = new TiffOutputDirectory(type, ByteOrder.LITTLE_ENDIAN);
+        outDir.add(TiffTagConstants.TIFF_TAG_NEW_SUBFILE_TYPE, subfileType);
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, size);
+        outDir.add(TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, size);
+        outDir.add(TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL, (short) 1);
+        outDir.add(TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE, (short) 8);
+        outDir.add(TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION, (short) TiffTagConstants.PHOTOMETRIC_INTERPRETATION_VALUE_BLACK_IS_ZERO);
+        outDir.add(TiffTagConstants.TIFF_TAG_COMPRESSION, (short) TiffTagConstants.COMPRESSION_VALUE_UNCOMPRESSED);
+        outDir.add(TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP, size);
+        outDir.add(TiffTagConstants.TIFF_TAG_STRIP_BYTE_COUNTS, size * size);
+
+        // every pixel holds the size of its level, so the level that was read can be told from any pixel
+        final byte[] strip = new byte[size * size];
+        for (int i = 0; i < strip.length; i++) {
+            strip[i] = (byte) (size + i % size);
+        }
+        outDir.setTiffImageData(new AbstractTiffImageData.Strips(new AbstractTiffElement.DataElement[] { new AbstractTiffImageData.Data(0, strip.length, strip) },
+                size));
+        outputSet.addDirectory(outDir);
+    }
+
+    private static File getTestFile(final String name) {
+        return new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), name);
+    }
+
+    /**
+     * Writes a 64x64 image with 32x32 and 16x16 overviews, a transparency mask and a second page.
+     */
+    private static byte[] writePyramid() throws IOException {
+        final TiffOutputSet outputSet = new TiffOutputSet(ByteOrder.LITTLE_ENDIAN);
+        addGrayImage(outputSet, 0, 64, TiffTagConstants.SUBFILE_TYPE_VALUE_FULL_RESOLUTION_IMAGE);
+        addGrayImage(outputSet, 1, 32, TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE);
+        addGrayImage(outputSet, 2, 64, TiffTagConstants.SUBFILE_TYPE_VALUE_TRANSPARENCY_MASK);
+        addGrayImage(outputSet, 3, 16, TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE);
+        addGrayImage(outputSet, 4, 48, TiffTagConstants.SUBFILE_TYPE_VALUE_FULL_RESOLUTION_IMAGE);
+        addGrayImage(outputSet, 5, 24, TiffTagConstants.SUBFILE_TYPE_VALUE_REDUCED_RESOLUTION_IMAGE);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy(ByteOrder.LITTLE_ENDIAN).write(baos, outputSet);
+        return baos.toByteArray();
+    }
+
+    private static int grayLevel(final BufferedImage image, final int x, final int y) {
+        return image.getRGB(x, y) & 0xff;
+    }
+
+    @Test
+    public void testOverviewChain() throws IOException {
+        final ByteSource byteSource = ByteSource.array(writePyramid());
+        final TiffImageParser parser = new TiffImageParser();
+
+        final List<TiffResolutionLevel> levels = parser.getResolutionLevels(byteSource, null);
+        assertEquals(3, levels.size());
+        assertEquals(64, levels.get(0).getWidth());
+        assertEquals(32, levels.get(1).getWidth());
+        assertEquals(16, levels.get(2).getHeight());
+        assertEquals(1.0, levels.get(0).getScaleX());
+        assertEquals(0.25, levels.get(2).getScaleY());
+
+        // a region of the full image that is displayed at its own size is read at full resolution
+        BufferedImage image = parser.getBufferedImage(byteSource, new Rectangle(8, 4, 32, 32), new Dimension(32, 32), null);
+        assertEquals(32, image.getWidth());
+        assertEquals(64 + 8, grayLevel(image, 0, 0));
+
+        image = parser.getBufferedImage(byteSource, new Rectangle(8, 4, 32, 32), new Dimension(16, 16), null);
+        assertEquals(16, image.getWidth());
+        assertEquals(32 + 4, grayLevel(image, 0, 0));
+
+        // a region that does not fall on the grid of the level is rounded outwards
+        image = parser.getBufferedImage(byteSource, new Rectangle(6, 6, 33, 33), new Dimension(8, 8), null);
+        assertEquals(9, image.getWidth());
+        assertEquals(9, image.getHeight());
+        assertEquals(16 + 1, grayLevel(image, 0, 0));
+
+        image = parser.getBufferedImage(byteSource, null, new Dimension(20, 10), null);
+        assertEquals(32, image.getWidth());
+        assertEquals(32, image.getHeight());
+        image = parser.getBufferedImage(byteSource, null, new Dimension(1, 1), null);
+        assertEquals(16, image.getWidth());
+        assertEquals(16, image.getHeight());
+    }
+
+    @Test
+    public void testInvalidRegion() throws IOException {
+        final ByteSource byteSource = ByteSource.array(writePyramid());
+        final TiffImageParser parser = new TiffImageParser();
+        assertThrows(ImagingException.class, () -> parser.getBufferedImage(byteSource, new Rectangle(40, 40, 32, 32), new Dimension(8, 8), null));
+        assertThrows(ImagingException.class, () -> parser.getBufferedImage(byteSource, new Rectangle(0, 0, 0, 8), new Dimension(8, 8), null));
+        assertThrows(ImagingException.class, () -> parser.getBufferedImage(byteSource, null, new Dimension(0, 8), null));
+    }
+
+    @Test
+    public void testSubIfdOverview() throws IOException {
+        final ByteSource byteSource = ByteSource.file(getTestFile("13/BigTIFFSubIFD4.tif"));
+        final TiffImageParser parser = new TiffImageParser();
+
+        final List<TiffResolutionLevel> levels = parser.getResolutionLevels(byteSource, new TiffImagingParameters().setStrict(true));
+        assertEquals(2, levels.size());
+        assertEquals(64, levels.get(0).getWidth());
+        assertEquals(32, levels.get(1).getWidth());
+        assertEquals(0.5, levels.get(1).getScaleX());
+
+        final BufferedImage overview = levels.get(1).getDirectory().getTiffImage();
+        BufferedImage image = parser.getBufferedImage(byteSource, null, new Dimension(32, 32), null);
+        assertArrayEquals(overview.getRGB(0, 0, 32, 32, null, 0, 32), image.getRGB(0, 0, 32, 32, null, 0, 32));
+
+        image = parser.getBufferedImage(byteSource, new Rectangle(10, 20, 40, 40), new Dimension(20, 20), null);
+        assertArrayEquals(overview.getRGB(5, 10, 20, 20, null, 0, 20), image.getRGB(0, 0, 20, 20, null, 0, 20));
+
+        image = parser.getBufferedImage(byteSource, null, new Dimension(33, 33), null);
+        assertEquals(64, image.getWidth());
+    }
+}
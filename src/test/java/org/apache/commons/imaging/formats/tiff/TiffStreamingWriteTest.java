@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.write.AbstractTiffImageWriter;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffRowProducer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests writing images strip by strip to a channel.
+ */
+public class TiffStreamingWriteTest extends AbstractTiffImageTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Writes an image after some leading bytes, which the file must not depend on, and returns the file without them.
+     */
+    private byte[] stream(final AbstractTiffImageWriter writer, final BufferedImage image, final boolean alpha, final TiffImagingParameters params)
+            throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] nextRow = new int[1];
+        final TiffRowProducer producer = (y, rowCount, argb) -> {
+            assertEquals(nextRow[0], y);
+            assertTrue(argb.length >= rowCount * width);
+            image.getRGB(0, y, width, rowCount, argb, 0, width);
+            nextRow[0] += rowCount;
+        };
+        final Path file = tempDir.resolve("streamed.tif");
+        try (SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            channel.position(7);
+            writer.writeImage(producer, width, height, alpha, channel, params);
+            assertEquals(channel.size(), channel.position());
+        }
+        assertEquals(height, nextRow[0]);
+        final byte[] bytes = Files.readAllBytes(file);
+        return Arrays.copyOfRange(bytes, 7, bytes.length);
+    }
+
+    @Test
+    public void testBigTiff() throws IOException {
+        final BufferedImage image = randomImage(123, 97, true);
+        final byte[] tiff = stream(new TiffImageWriterLossy(ByteOrder.BIG_ENDIAN, true), image, true,
+                new TiffImagingParameters().setLzwCompressionBlockSize(8000));
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(tiff), true, FormatCompliance.getDefault());
+        assertTrue(contents.header.bigTiff);
+        assertTrue(contents.directories.get(0).getTiffImageData().getImageData().length > 1);
+        final BufferedImage read = new TiffImageParser().getBufferedImage(ByteSource.array(tiff), null);
+        assertArrayEquals(image.getRGB(0, 0, 123, 97, null, 0, 123), read.getRGB(0, 0, 123, 97, null, 0, 123));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { TiffConstants.COMPRESSION_UNCOMPRESSED, TiffConstants.COMPRESSION_PACKBITS, TiffConstants.COMPRESSION_LZW,
+            TiffConstants.COMPRESSION_DEFLATE_ADOBE })
+    public void testMatchesImageWriter(final int compression) throws IOException {
+        for (final boolean alpha : new boolean[] { false, true }) {
+            final BufferedImage image = randomImage(301, 170, alpha);
+            final TiffImagingParameters params = new TiffImagingParameters().setCompression(compression).setLzwCompressionBlockSize(9000);
+            final byte[] tiff = stream(new TiffImageWriterLossy(), image, alpha, params);
+
+            final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(tiff), true, FormatCompliance.getDefault());
+            final TiffDirectory directory = contents.directories.get(0);
+            final AbstractTiffElement.DataElement[] strips = directory.getTiffImageData().getImageData();
+            assertTrue(strips.length > 1);
+            // the strips come first, in order, and the directory after them
+            for (int i = 1; i < strips.length; i++) {
+                assertTrue(strips[i].offset >= strips[i - 1].offset + strips[i - 1].length);
+            }
+            assertTrue(directory.offset >= strips[strips.length - 1].offset + strips[strips.length - 1].length);
+
+            final BufferedImage read = new TiffImageParser().getBufferedImage(ByteSource.array(tiff), null);
+            assertArrayEquals(image.getRGB(0, 0, 301, 170, null, 0, 301), read.getRGB(0, 0, 301, 170, null, 0, 301));
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        final BufferedImage image = randomImage(20, 20, false);
+        final TiffImageWriterLossy writer = new TiffImageWriterLossy();
+        assertThrows(ImagingException.class,
+                () -> stream(writer, image, false, new TiffImagingParameters().setCompression(TiffConstants.COMPRESSION_CCITT_GROUP_4)));
+        assertThrows(ImagingException.class, () -> stream(writer, image, false, new TiffImagingParameters().setTileSize(16, 16)));
+        assertThrows(ImagingException.class, () -> stream(writer, image, false, new TiffImagingParameters().setOverviewCount(1)));
+        assertThrows(ImagingException.class, () -> stream(writer, image, false, new TiffImagingParameters().setLzwCompressionBlockSize(100)));
+    }
+}
@@ -119,4 +119,30 @@ public class TiffSubImageTest extends TiffBaseTest {
         }
     }
 
+    /**
+     * Reads thin windows across whole tiles or strips and windows at the lower-right corner, which are clipped from blocks padded past the image.
+     */
+    @Test
+    public void testThinAndCornerSubImages() throws ImagingException, IOException {
+        final TiffImageParser tiffImageParser = new TiffImageParser();
+        for (final File target : imageFileList) {
+            final BufferedImage referenceImage = Imaging.getBufferedImage(target);
+            final int rW = referenceImage.getWidth();
+            final int rH = referenceImage.getHeight();
+            final int[][] windows = { { 0, rH / 2, rW, 1 }, { rW / 2, 0, 1, rH }, { rW / 2, rH / 2, rW - rW / 2, rH - rH / 2 }, { rW - 1, rH - 1, 1, 1 } };
+            for (final int[] window : windows) {
+                final TiffImagingParameters params = new TiffImagingParameters();
+                params.setSubImage(window[0], window[1], window[2], window[3]);
+                final BufferedImage image = tiffImageParser.getBufferedImage(target, params);
+                assertEquals(window[2], image.getWidth(), "Invalid subimage width");
+                assertEquals(window[3], image.getHeight(), "Invalid subimage height");
+                for (int i = 0; i < window[3]; i++) {
+                    for (int j = 0; j < window[2]; j++) {
+                        assertEquals(referenceImage.getRGB(window[0] + j, window[1] + i), image.getRGB(j, i),
+                                "Invalid pixel lookup for " + target.getName() + " at " + i + ", " + j);
+                    }
+                }
+            }
+        }
+    }
 }
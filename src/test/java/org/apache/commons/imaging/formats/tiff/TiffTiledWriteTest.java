@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests writing tiled images with overviews.
+ */
+public class TiffTiledWriteTest extends AbstractTiffImageTest {
+
+    private static int average(final int p00, final int p01, final int p10, final int p11, final int shift) {
+        return ((p00 >>> shift & 0xff) + (p01 >>> shift & 0xff) + (p10 >>> shift & 0xff) + (p11 >>> shift & 0xff) + 2) / 4;
+    }
+
+    /**
+     * Checks that every directory precedes all image data, and that the image data follows the order of the levels.
+     */
+    private static void assertCloudOptimizedLayout(final List<TiffDirectory> directories) throws ImagingException {
+        long lastDirectoryEnd = 0;
+        for (final TiffDirectory directory : directories) {
+            lastDirectoryEnd = Math.max(lastDirectoryEnd, directory.offset + directory.length);
+        }
+        long previous = lastDirectoryEnd;
+        for (final TiffDirectory directory : directories) {
+            for (final AbstractTiffElement.DataElement tile : directory.getTiffImageData().getImageData()) {
+                assertTrue(tile.offset >= previous);
+                previous = tile.offset + tile.length;
+            }
+        }
+    }
+
+    private static byte[] write(final BufferedImage image, final TiffImagingParameters params) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageParser().writeImage(image, baos, params);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testConcurrentCompressionMatchesSerial() throws IOException {
+        final BufferedImage image = randomImage(200, 150, false);
+        final TiffImagingParameters params = new TiffImagingParameters().setTileSize(32, 32).setOverviewCount(3);
+        final byte[] serial = write(image, params);
+        assertArrayEquals(serial, write(image, params.setExecutor(executor)));
+    }
+
+    @Test
+    public void testCompressionWithinExecutorThread() throws Exception {
+        final BufferedImage image = randomImage(200, 150, false);
+        final TiffImagingParameters params = new TiffImagingParameters().setTileSize(32, 32).setOverviewCount(3);
+        final byte[] serial = write(image, params);
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // the only thread of the executor waits for the tiles, so it must compress them itself
+            params.setExecutor(single);
+            assertArrayEquals(serial, single.submit(() -> write(image, params)).get(1, TimeUnit.MINUTES));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TiffImagingParameters().setTileSize(40, 32));
+        assertThrows(IllegalArgumentException.class, () -> new TiffImagingParameters().setTileSize(32, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TiffImagingParameters().setOverviewCount(-1));
+
+        final TiffImagingParameters params = new TiffImagingParameters().setTileSize(16, 16).setCompression(TiffConstants.COMPRESSION_CCITT_GROUP_4);
+        assertThrows(ImagingException.class, () -> write(randomImage(20, 20, false), params));
+    }
+
+    @Test
+    public void testRasterData() throws IOException {
+        final int width = 301;
+        final int height = 203;
+        final TiffRasterDataFloat raster = new TiffRasterDataFloat(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setValue(x, y, x == y ? Float.NaN : x * 0.5f - y);
+            }
+        }
+        final TiffImagingParameters params = new TiffImagingParameters().setOverviewCount(1).setExecutor(executor)
+                .setCompression(TiffConstants.COMPRESSION_DEFLATE_ADOBE);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeRasterData(raster, baos, params);
+
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(baos.toByteArray()), true, FormatCompliance.getDefault());
+        assertEquals(2, contents.directories.size());
+        assertCloudOptimizedLayout(contents.directories);
+
+        final TiffRasterData read = contents.directories.get(0).getRasterData(null);
+        assertEquals(TiffRasterDataType.FLOAT, read.getDataType());
+        assertArrayEquals(raster.getData(), read.getData());
+
+        final TiffRasterData overview = contents.directories.get(1).getRasterData(null);
+        assertEquals(151, overview.getWidth());
+        assertEquals(102, overview.getHeight());
+        // the diagonal holds no data, so it is left out of the averages
+        assertEquals((raster.getValue(1, 0) + raster.getValue(0, 1)) / 2, overview.getValue(0, 0));
+        assertEquals((raster.getValue(20, 10) + raster.getValue(21, 10) + raster.getValue(20, 11) + raster.getValue(21, 11)) / 4, overview.getValue(10, 5));
+        assertEquals(raster.getValue(300, 202), overview.getValue(150, 101));
+    }
+
+    @Test
+    public void testRasterDataInt() throws IOException {
+        final TiffRasterDataInt raster = new TiffRasterDataInt(70, 50);
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 70; x++) {
+                raster.setIntValue(x, y, x * 1000 - y * 7);
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TiffImageWriterLossy().writeRasterData(raster, baos, new TiffImagingParameters().setTileSize(16, 32));
+        final TiffDirectory directory = new TiffReader(true).readDirectories(ByteSource.array(baos.toByteArray()), true, FormatCompliance.getDefault())
+                .directories.get(0);
+        final TiffRasterData read = directory.getRasterData(null);
+        assertEquals(TiffRasterDataType.INTEGER, read.getDataType());
+        assertArrayEquals(raster.getIntData(), read.getIntData());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { TiffConstants.COMPRESSION_UNCOMPRESSED, TiffConstants.COMPRESSION_PACKBITS, TiffConstants.COMPRESSION_LZW,
+            TiffConstants.COMPRESSION_DEFLATE_ADOBE })
+    public void testTiledImage(final int compression) throws IOException {
+        for (final boolean alpha : new boolean[] { false, true }) {
+            final BufferedImage image = randomImage(301, 170, alpha);
+            final TiffImagingParameters params = new TiffImagingParameters().setTileSize(64, 32).setOverviewCount(2).setCompression(compression)
+                    .setExecutor(executor);
+            final byte[] tiff = write(image, params);
+            final ByteSource byteSource = ByteSource.array(tiff);
+            final TiffImageParser parser = new TiffImageParser();
+
+            final BufferedImage read = parser.getBufferedImage(byteSource, null);
+            assertArrayEquals(image.getRGB(0, 0, 301, 170, null, 0, 301), read.getRGB(0, 0, 301, 170, null, 0, 301));
+
+            final List<TiffResolutionLevel> levels = parser.getResolutionLevels(byteSource, null);
+            assertEquals(3, levels.size());
+            assertEquals(151, levels.get(1).getWidth());
+            assertEquals(85, levels.get(1).getHeight());
+            assertEquals(76, levels.get(2).getWidth());
+            assertEquals(43, levels.get(2).getHeight());
+            final TiffContents contents = new TiffReader(true).readDirectories(byteSource, true, FormatCompliance.getDefault());
+            assertCloudOptimizedLayout(contents.directories);
+
+            final BufferedImage overview = levels.get(1).getDirectory().getTiffImage();
+            for (final int[] xy : new int[][] { { 0, 0 }, { 17, 40 }, { 150, 84 } }) {
+                final int x0 = 2 * xy[0];
+                final int y0 = 2 * xy[1];
+                final int x1 = Math.min(x0 + 1, 300);
+                final int y1 = Math.min(y0 + 1, 169);
+                final int p00 = image.getRGB(x0, y0);
+                final int p01 = image.getRGB(x1, y0);
+                final int p10 = image.getRGB(x0, y1);
+                final int p11 = image.getRGB(x1, y1);
+                final int expected = (alpha ? average(p00, p01, p10, p11, 24) : 0xff) << 24 | average(p00, p01, p10, p11, 16) << 16
+                        | average(p00, p01, p10, p11, 8) << 8 | average(p00, p01, p10, p11, 0);
+                assertEquals(expected, overview.getRGB(xy[0], xy[1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.fieldtypes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteOrder;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.formats.tiff.TiffField;
+import org.apache.commons.imaging.formats.tiff.constants.TiffDirectoryConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.junit.jupiter.api.Test;
+
+public class FieldTypeLong8Test {
+
+    private static TiffField createField(final byte[] bytes, final ByteOrder byteOrder) {
+        return new TiffField(TiffTagConstants.TIFF_TAG_STRIP_OFFSETS.tag, TiffDirectoryConstants.DIRECTORY_TYPE_ROOT, AbstractFieldType.LONG8,
+                bytes.length / 8, 0, bytes, byteOrder, 0);
+    }
+
+    @Test
+    public void testRoundTrip() throws ImagingException {
+        for (final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final long big = 0x123456789AL;
+            byte[] bytes = AbstractFieldType.LONG8.writeData(big, byteOrder);
+            assertEquals(8, bytes.length);
+            assertEquals(big, createField(bytes, byteOrder).getLongValue());
+
+            bytes = AbstractFieldType.IFD8.writeData(new long[] { 16, big }, byteOrder);
+            assertArrayEquals(new long[] { 16, big }, createField(bytes, byteOrder).getLongArrayValue());
+
+            // integers are widened to eight bytes
+            bytes = AbstractFieldType.LONG8.writeData(new int[] { 1, 2 }, byteOrder);
+            assertArrayEquals(new long[] { 1, 2 }, createField(bytes, byteOrder).getLongArrayValue());
+        }
+    }
+
+    @Test
+    public void testWriteInvalidData() {
+        assertThrows(ImagingException.class, () -> AbstractFieldType.LONG8.writeData("16", ByteOrder.BIG_ENDIAN));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.itu_t4;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.imaging.ImagingException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class T4AndT6DecoderTest {
+
+    /**
+     * Rows of black and white runs of random lengths, some of them repeating the previous row as scanned pages do, and some longer than the make-up codes.
+     */
+    private static byte[] page(final int width, final int height) {
+        final Random random = new Random(width);
+        final int rowBytes = (width + 7) / 8;
+        final byte[] bytes = new byte[rowBytes * height];
+        for (int y = 0; y < height; y++) {
+            if (y > 0 && random.nextInt(3) == 0) {
+                System.arraycopy(bytes, (y - 1) * rowBytes, bytes, y * rowBytes, rowBytes);
+                continue;
+            }
+            boolean black = random.nextInt(8) == 0;
+            for (int x = 0; x < width;) {
+                final int run = random.nextInt(10) == 0 ? random.nextInt(3000) : random.nextInt(12);
+                for (final int end = Math.min(x + run, width); x < end; x++) {
+                    if (black) {
+                        bytes[y * rowBytes + x / 8] |= 0x80 >>> x % 8;
+                    }
+                }
+                black = !black;
+            }
+        }
+        return bytes;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 7, 8, 9, 1728, 2600, 5000 })
+    public void testRoundTrip(final int width) throws ImagingException {
+        final int height = 60;
+        final byte[] page = page(width, height);
+        assertArrayEquals(page, T4AndT6Compression.decompressModifiedHuffman(T4AndT6Compression.compressModifiedHuffman(page, width, height), width, height));
+        for (final boolean hasFill : new boolean[] { false, true }) {
+            assertArrayEquals(page,
+                    T4AndT6Compression.decompressT4_1D(T4AndT6Compression.compressT4_1D(page, width, height, hasFill), width, height, hasFill));
+            assertArrayEquals(page,
+                    T4AndT6Compression.decompressT4_2D(T4AndT6Compression.compressT4_2D(page, width, height, hasFill, 4), width, height, hasFill));
+        }
+        assertArrayEquals(page, T4AndT6Compression.decompressT6(T4AndT6Compression.compressT6(page, width, height), width, height));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 1728 })
+    public void testInvalidData(final int width) throws ImagingException {
+        final byte[] page = page(width, 20);
+        final byte[] t6 = T4AndT6Compression.compressT6(page, width, 20);
+        assertThrows(ImagingException.class, () -> T4AndT6Compression.decompressT6(Arrays.copyOf(t6, t6.length / 3), width, 20));
+        // all zeros are neither a run length nor a mode code
+        assertThrows(ImagingException.class, () -> T4AndT6Compression.decompressT6(new byte[100], width, 20));
+        assertThrows(ImagingException.class, () -> T4AndT6Compression.decompressModifiedHuffman(new byte[100], width, 20));
+        // fill bits before an EOL are only allowed if the options say so
+        final byte[] t4 = T4AndT6Compression.compressT4_1D(page, width, 20, true);
+        assertThrows(ImagingException.class, () -> T4AndT6Compression.decompressT4_1D(t4, width, 20, false));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff.photometricinterpreters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.imaging.common.ImageBuilder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks that {@link PhotometricInterpreter#interpretRow(int[], int, int, int[])} gives the same colors as
+ * {@link PhotometricInterpreter#interpretPixel(ImageBuilder, int[], int, int)}.
+ */
+public class PhotometricInterpreterRowTest {
+
+    private static final int WIDTH = 37;
+
+    public static Stream<PhotometricInterpreter> interpreters() {
+        final int[] colorMap = new int[3 * 256];
+        final Random random = new Random(1);
+        Arrays.setAll(colorMap, i -> random.nextInt(0x10000));
+        return Stream.of(new PhotometricInterpreterRgb(3, new int[] { 8, 8, 8 }, 1, WIDTH, 1),
+                new PhotometricInterpreterRgb(4, new int[] { 8, 8, 8, 8 }, 1, WIDTH, 1),
+                new PhotometricInterpreterPalette(1, new int[] { 8 }, 1, WIDTH, 1, colorMap),
+                new PhotometricInterpreterYCbCr(3, new int[] { 8, 8, 8 }, 1, WIDTH, 1),
+                new PhotometricInterpreterCmyk(4, new int[] { 8, 8, 8, 8 }, 1, WIDTH, 1),
+                new PhotometricInterpreterBiLevel(1, new int[] { 8 }, 1, WIDTH, 1, false),
+                new PhotometricInterpreterBiLevel(1, new int[] { 8 }, 1, WIDTH, 1, true),
+                new PhotometricInterpreterCieLab(3, new int[] { 8, 8, 8 }, 1, WIDTH, 1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("interpreters")
+    public void testInterpretRow(final PhotometricInterpreter interpreter) throws IOException {
+        final int samplesPerPixel = interpreter.getSamplesPerPixel();
+        final int offset = 5;
+        final int[] samples = new int[offset + WIDTH * samplesPerPixel];
+        final Random random = new Random(samplesPerPixel);
+        Arrays.setAll(samples, i -> random.nextInt(256));
+
+        final int[] argb = new int[WIDTH];
+        interpreter.interpretRow(samples, offset, WIDTH, argb);
+
+        final ImageBuilder imageBuilder = new ImageBuilder(WIDTH, 1, true);
+        for (int x = 0; x < WIDTH; x++) {
+            final int[] pixel = Arrays.copyOfRange(samples, offset + x * samplesPerPixel, offset + (x + 1) * samplesPerPixel);
+            interpreter.interpretPixel(imageBuilder, pixel, x, 0);
+            assertEquals(imageBuilder.getRgb(x, 0), argb[x], "pixel " + x);
+        }
+    }
+}
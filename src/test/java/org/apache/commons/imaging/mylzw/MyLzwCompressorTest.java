@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.mylzw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.apache.commons.imaging.ImagingException;
+import org.junit.jupiter.api.Test;
+
+public class MyLzwCompressorTest {
+
+    private static byte[][] samples(final int alphabet) {
+        final Random random = new Random(alphabet);
+        final byte[] noise = new byte[100_000];
+        final byte[] runs = new byte[300_000];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (byte) random.nextInt(alphabet);
+        }
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = random.nextInt(8) == 0 ? (byte) random.nextInt(alphabet) : i > 0 ? runs[i - 1] : 0;
+        }
+        final byte[] constant = new byte[70_000];
+        return new byte[][] { { 1 }, { 1, 1, 1, 1 }, { 0, 1, 0, 1, 0, 1, 0 }, noise, runs, constant };
+    }
+
+    private static void assertSameOutput(final int codeSize, final ByteOrder byteOrder, final boolean earlyLimit) throws IOException {
+        for (final byte[] data : samples(1 << Math.min(codeSize, 8))) {
+            assertArrayEquals(new MapLzwCompressor(codeSize, byteOrder, earlyLimit).compress(data),
+                    new MyLzwCompressor(codeSize, byteOrder, earlyLimit).compress(data));
+        }
+    }
+
+    @Test
+    public void testGifOutputUnchanged() throws IOException {
+        for (final int codeSize : new int[] { 2, 3, 5, 8 }) {
+            assertSameOutput(codeSize, ByteOrder.LITTLE_ENDIAN, false);
+        }
+    }
+
+    @Test
+    public void testInvalidInput() {
+        assertThrows(ImagingException.class, () -> new MyLzwCompressor(8, ByteOrder.BIG_ENDIAN, true).compress(new byte[0]));
+        // a byte that does not fit the initial code size
+        assertThrows(ImagingException.class, () -> new MyLzwCompressor(2, ByteOrder.LITTLE_ENDIAN, false).compress(new byte[] { 1, 2, 4, 1 }));
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        final MyLzwCompressor compressor = new MyLzwCompressor(8, ByteOrder.BIG_ENDIAN, true);
+        for (final byte[] data : samples(256)) {
+            assertArrayEquals(new MapLzwCompressor(8, ByteOrder.BIG_ENDIAN, true).compress(data), compressor.compress(data));
+        }
+    }
+
+    @Test
+    public void testTiffOutputUnchanged() throws IOException {
+        assertSameOutput(8, ByteOrder.BIG_ENDIAN, true);
+    }
+}
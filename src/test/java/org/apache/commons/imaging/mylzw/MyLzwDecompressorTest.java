@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.mylzw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.imaging.ImagingException;
+import org.junit.jupiter.api.Test;
+
+public class MyLzwDecompressorTest {
+
+    private static byte[] compressGif(final int codeSize, final byte[] data) throws IOException {
+        return new MyLzwCompressor(codeSize, ByteOrder.LITTLE_ENDIAN, false).compress(data);
+    }
+
+    private static byte[] compressTiff(final byte[] data) throws IOException {
+        return new MyLzwCompressor(8, ByteOrder.BIG_ENDIAN, true).compress(data);
+    }
+
+    /**
+     * Random bytes from a small alphabet with long runs, which fill the table and repeat strings just defined.
+     */
+    private static byte[] sampleData(final int length, final int alphabet) {
+        final Random random = new Random(length);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = random.nextInt(4) == 0 ? (byte) random.nextInt(alphabet) : i > 0 ? data[i - 1] : 0;
+        }
+        return data;
+    }
+
+    @Test
+    public void testGifRoundTrip() throws IOException {
+        for (final int codeSize : new int[] { 2, 4, 8 }) {
+            final byte[] data = sampleData(50_000, 1 << codeSize);
+            final byte[] compressed = compressGif(codeSize, data);
+            assertArrayEquals(data, new MyLzwDecompressor(codeSize, ByteOrder.LITTLE_ENDIAN, false).decompress(compressed, data.length));
+            assertArrayEquals(data, new MyLzwDecompressor(codeSize, ByteOrder.LITTLE_ENDIAN, false).decompress(new ByteArrayInputStream(compressed),
+                    data.length));
+        }
+    }
+
+    @Test
+    public void testLengths() throws IOException {
+        final byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 7);
+        final byte[] compressed = compressTiff(data);
+        // the long strings of a run are cut at the expected length
+        assertArrayEquals(Arrays.copyOf(data, 333), new MyLzwDecompressor(8, ByteOrder.BIG_ENDIAN, true).decompress(compressed, 333));
+        // TIFF data that ends early gives what it holds
+        assertArrayEquals(data, new MyLzwDecompressor(8, ByteOrder.BIG_ENDIAN, true).decompress(compressed, 2000));
+    }
+
+    @Test
+    public void testTiffRoundTrip() throws IOException {
+        for (final int length : new int[] { 1, 2, 3, 100, 200_000 }) {
+            final byte[] data = sampleData(length, 256);
+            assertArrayEquals(data, new MyLzwDecompressor(8, ByteOrder.BIG_ENDIAN, true).decompress(compressTiff(data), length));
+        }
+    }
+
+    @Test
+    public void testTruncatedGif() throws IOException {
+        final byte[] data = sampleData(5000, 256);
+        final byte[] compressed = compressGif(8, data);
+        final MyLzwDecompressor decompressor = new MyLzwDecompressor(8, ByteOrder.LITTLE_ENDIAN, false);
+        assertThrows(ImagingException.class, () -> decompressor.decompress(Arrays.copyOf(compressed, compressed.length / 2), data.length));
+    }
+}